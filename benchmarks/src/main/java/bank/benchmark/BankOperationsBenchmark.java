@@ -0,0 +1,237 @@
+package bank.benchmark;
+
+import bank.Bank;
+import bank.CounterpartyFlow;
+import bank.SearchHit;
+import bank.Transaction;
+import bank.TransactionQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the in-memory operations of the {@link Bank} interface.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar BankOperationsBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BankOperationsBenchmark {
+
+    private static final TransactionQuery NEGATIVE = TransactionQuery.all().negative();
+    private static final TransactionQuery NEGATIVE_MARCH_2000;
+    private static final TransactionQuery ONE_COUNTERPARTY = TransactionQuery.all().counterparty("Counterparty 7");
+
+    static {
+        try {
+            NEGATIVE_MARCH_2000 = NEGATIVE.dateBetween("01.03.2000", "31.03.2000");
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * An empty account in a new bank before every iteration, and a new batch of transactions for it,
+     * so the transactions are not followed by the ledgers of earlier iterations. The benchmarks using
+     * it run a single invocation per iteration, see {@link Mode#SingleShotTime}.
+     */
+    @State(Scope.Benchmark)
+    public static class ImportState extends BankState {
+        public Bank target;
+        public List<Transaction> batch;
+
+        @Setup(Level.Iteration)
+        public void prepare() throws Exception {
+            target = Banks.create(bank, "benchmark");
+            target.createAccount(account, List.of());
+            batch = TransactionGenerator.generate(account, transactionsPerAccount, mix, accounts);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 50)
+    public Bank addTransactions(ImportState state) throws Exception {
+        state.target.addTransactions(state.account, state.batch);
+        return state.target;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 50)
+    public Bank addTransactionsOneByOne(ImportState state) throws Exception {
+        for (Transaction transaction : state.batch) {
+            state.target.addTransaction(state.account, transaction);
+        }
+        return state.target;
+    }
+
+    /**
+     * Adds {@link BankState#missing} and removes it again, so every invocation starts from the same
+     * ledger without a fixture around it
+     */
+    @Benchmark
+    public void addRemoveTransaction(BankState state) throws Exception {
+        state.instance.addTransaction(state.account, state.missing);
+        state.instance.removeTransaction(state.account, state.missing);
+    }
+
+    @Benchmark
+    public boolean containsTransactionHit(BankState state) {
+        return state.instance.containsTransaction(state.account, state.existing);
+    }
+
+    @Benchmark
+    public boolean containsTransactionMiss(BankState state) {
+        return state.instance.containsTransaction(state.account, state.missing);
+    }
+
+    @Benchmark
+    public double getAccountBalance(BankState state) throws Exception {
+        return state.instance.getAccountBalance(state.account);
+    }
+
+    /**
+     * The balance at the end of a day in the middle of the generated years
+     */
+    @Benchmark
+    public double getAccountBalanceAsOf(BankState state) throws Exception {
+        return state.instance.getAccountBalance(state.account, "15.06.2012");
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsSortedAsc(BankState state) {
+        return state.instance.getTransactionsSorted(state.account, true);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsSortedDesc(BankState state) {
+        return state.instance.getTransactionsSorted(state.account, false);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsByTypePositive(BankState state) {
+        return state.instance.getTransactionsByType(state.account, true);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsByTypeNegative(BankState state) {
+        return state.instance.getTransactionsByType(state.account, false);
+    }
+
+    /**
+     * The 20 largest outgoing amounts, i.e. the 20 most negative calculated amounts
+     */
+    @Benchmark
+    public List<Transaction> topKOutgoing(BankState state) {
+        return state.instance.topK(state.account, 20, true);
+    }
+
+    /**
+     * The sixth page of 20 transactions, sorted descending
+     */
+    @Benchmark
+    public List<Transaction> getTransactionsSortedPage(BankState state) {
+        return state.instance.getTransactionsSorted(state.account, false, 100, 20);
+    }
+
+    /**
+     * The sixth page of 20 negative transactions
+     */
+    @Benchmark
+    public List<Transaction> getTransactionsByTypePage(BankState state) {
+        return state.instance.getTransactionsByType(state.account, false, 100, 20);
+    }
+
+    /**
+     * The first 10 negative transactions, the scan stops once they are found
+     */
+    @Benchmark
+    public List<Transaction> streamFirstNegative(BankState state) throws Exception {
+        return state.instance.streamTransactions(state.account, NEGATIVE).limit(10).toList();
+    }
+
+    /**
+     * The number of negative transactions of one month of the first generated year
+     */
+    @Benchmark
+    public long streamNegativeMonthCount(BankState state) throws Exception {
+        return state.instance.streamTransactions(state.account, NEGATIVE_MARCH_2000).count();
+    }
+
+    /**
+     * The incoming and outgoing sums of all counterparties, of which there are up to 1000
+     */
+    @Benchmark
+    public Map<String, CounterpartyFlow> counterpartyFlows(BankState state) throws Exception {
+        return state.instance.getCounterpartyFlows(state.account);
+    }
+
+    /**
+     * The 10 counterparties with the largest volume
+     */
+    @Benchmark
+    public List<CounterpartyFlow> topCounterparties(BankState state) throws Exception {
+        return state.instance.getTopCounterparties(state.account, 10);
+    }
+
+    /**
+     * The transfers with one of the generated counterparties
+     */
+    @Benchmark
+    public List<Transaction> streamOneCounterparty(BankState state) throws Exception {
+        return state.instance.streamTransactions(state.account, ONE_COUNTERPARTY).toList();
+    }
+
+    /**
+     * The 20 best transactions of a word all transactions contain and a number only a few start with
+     */
+    @Benchmark
+    public List<SearchHit> searchNumber(BankState state) {
+        return state.instance.searchTransactions("Transaction 4242", 20);
+    }
+
+    /**
+     * The 20 best transfers with the counterparties whose number starts with 7, about a tenth of them
+     */
+    @Benchmark
+    public List<SearchHit> searchCounterpartyPrefix(BankState state) {
+        return state.instance.searchTransactions("counterparty 7", 20);
+    }
+
+    /**
+     * A month-end statement: the transactions of one month of the first generated year
+     */
+    /**
+     * Re-rates all payments of the bank, the generated payments are charged with the rates of the
+     * bank. Alternates between two rates, so every call changes all payments.
+     */
+    @Benchmark
+    public int rerate(BankState state) throws Exception {
+        return state.instance.getInterestRates().getIncoming() == 0.05
+                ? state.instance.rerate(0.06, 0.12)
+                : state.instance.rerate(0.05, 0.1);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsBetweenMonth(BankState state) throws Exception {
+        return state.instance.getTransactionsBetween(state.account, "01.03.2000", "31.03.2000");
+    }
+}
@@ -0,0 +1,85 @@
+package bank.benchmark;
+
+import bank.Bank;
+import bank.Transaction;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Shared benchmark state: a bank filled with {@code accounts} accounts holding
+ * {@code transactionsPerAccount} transactions each.
+ * <p>
+ * The defaults stop at 100k transactions per account because the list based banks need
+ * quadratic time to build larger ledgers. Larger sizes are run explicitly, e.g.
+ * {@code -p transactionsPerAccount=1000000}.
+ */
+@State(Scope.Benchmark)
+public class BankState {
+
+    @Param({"PrivateBank", "PrivateBankAlt", "ColumnarPrivateBank"})
+    public String bank;
+
+    @Param({"1", "10"})
+    public int accounts;
+
+    @Param({"10", "1000", "100000"})
+    public int transactionsPerAccount;
+
+    @Param({"MIXED", "PAYMENT", "INCOMING", "OUTGOING"})
+    public TransactionGenerator.Mix mix;
+
+    public Bank instance;
+    public List<String> accountNames;
+    public Map<String, List<Transaction>> ledgers;
+
+    /**
+     * The account all single account operations work on
+     */
+    public String account;
+
+    /**
+     * A transaction that is part of {@link #account}, the last one inserted
+     */
+    public Transaction existing;
+
+    /**
+     * A transaction that is not part of any account
+     */
+    public Transaction missing;
+
+    @Setup(Level.Trial)
+    public void fill() throws Exception {
+        instance = Banks.create(bank, directoryName());
+        accountNames = new ArrayList<>(accounts);
+        ledgers = new HashMap<>();
+        for (int i = 0; i < accounts; i++) {
+            String name = "Account" + i;
+            List<Transaction> transactions = TransactionGenerator.generate(name, transactionsPerAccount, mix, i);
+            accountNames.add(name);
+            ledgers.put(name, transactions);
+            instance.createAccount(name, transactions);
+        }
+        account = accountNames.get(accounts / 2);
+        List<Transaction> ledger = ledgers.get(account);
+        existing = ledger.get(ledger.size() - 1);
+        missing = TransactionGenerator.create(account, transactionsPerAccount, mix, new SplittableRandom(-1));
+    }
+
+    /**
+     * The persist directory (below {@code persist/}) used by this state
+     *
+     * @return the directory name
+     */
+    protected String directoryName() {
+        return "benchmark";
+    }
+}
@@ -0,0 +1,51 @@
+package bank.benchmark;
+
+import bank.Bank;
+import bank.ColumnarPrivateBank;
+import bank.ConcurrentPrivateBank;
+import bank.PrivateBank;
+import bank.PrivateBankAlt;
+import bank.exceptions.NumericValueInvalidException;
+
+/**
+ * Creates the bank implementations under test by their simple class name
+ */
+public final class Banks {
+
+    private Banks() {
+    }
+
+    /**
+     * Creates a new, empty bank
+     *
+     * @param implementation the simple class name of the implementation
+     * @param directoryName  the persist directory, only used by implementations that support it
+     * @return the new bank
+     */
+    public static Bank create(String implementation, String directoryName) {
+        try {
+            switch (implementation) {
+                case "PrivateBank":
+                    PrivateBank bank = new PrivateBank("Benchmark Bank", 0.05, 0.1);
+                    bank.setDirectoryName(directoryName);
+                    return bank;
+                case "PrivateBankAlt":
+                    return new PrivateBankAlt("Benchmark Bank", 0.05, 0.1);
+                case "ConcurrentPrivateBank":
+                    ConcurrentPrivateBank concurrentBank = new ConcurrentPrivateBank("Benchmark Bank", 0.05, 0.1);
+                    concurrentBank.setDirectoryName(directoryName);
+                    return concurrentBank;
+                case "ColumnarPrivateBank":
+                    ColumnarPrivateBank columnarBank = new ColumnarPrivateBank("Benchmark Bank", 0.05, 0.1);
+                    columnarBank.setDirectoryName(directoryName);
+                    return columnarBank;
+                case "SynchronizedPrivateBank":
+                    return new SynchronizedBank(create("PrivateBank", directoryName));
+                default:
+                    throw new IllegalArgumentException("Unknown bank implementation: " + implementation);
+            }
+        } catch (NumericValueInvalidException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package bank.benchmark;
+
+import bank.Bank;
+import bank.IncomingTransfer;
+import bank.OutgoingTransfer;
+import bank.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the throughput of a bank shared by many threads. {@code ConcurrentPrivateBank} is
+ * compared against a {@code PrivateBank} guarded by a single lock.
+ * <p>
+ * The benchmarks run on all available processors by default. Scaling is measured by repeating the
+ * run with {@code -t 1}, {@code -t 2}, {@code -t 4}, ... (and {@code -tg} for the read/write group).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ConcurrentBankBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedBank {
+
+        @Param({"ConcurrentPrivateBank", "SynchronizedPrivateBank"})
+        public String bank;
+
+        @Param({"64"})
+        public int accounts;
+
+        @Param({"1000"})
+        public int transactionsPerAccount;
+
+        public Bank instance;
+
+        private final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void fill() throws Exception {
+            instance = Banks.create(bank, "benchmark");
+            for (int i = 0; i < accounts; i++) {
+                String name = "Account" + i;
+                instance.createAccount(name, TransactionGenerator.generate(name, transactionsPerAccount, TransactionGenerator.Mix.MIXED, i));
+            }
+        }
+    }
+
+    /**
+     * Per thread data, every thread adds its own transactions so that threads never collide on
+     * the same transaction
+     */
+    @State(Scope.Thread)
+    public static class ThreadData {
+        private SplittableRandom random;
+        private int thread;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void init(SharedBank shared) {
+            thread = shared.threads.incrementAndGet();
+            random = new SplittableRandom(thread);
+        }
+
+        String account(SharedBank shared) {
+            return "Account" + random.nextInt(shared.accounts);
+        }
+
+        Transaction transaction(SharedBank shared) {
+            return TransactionGenerator.create("Thread" + thread, shared.transactionsPerAccount + thread * 1_000_000 + next++ % 1_000_000,
+                    TransactionGenerator.Mix.MIXED, random);
+        }
+    }
+
+    @Benchmark
+    public double getAccountBalance(SharedBank shared, ThreadData data) throws Exception {
+        return shared.instance.getAccountBalance(data.account(shared));
+    }
+
+    @Benchmark
+    public void addAndRemoveTransaction(SharedBank shared, ThreadData data) throws Exception {
+        String account = data.account(shared);
+        Transaction transaction = data.transaction(shared);
+        shared.instance.addTransaction(account, transaction);
+        shared.instance.removeTransaction(account, transaction);
+    }
+
+    /**
+     * Transfers between two random accounts and removes both transfers again, so the accounts do
+     * not grow during the run
+     */
+    @Benchmark
+    public void transferAndRemove(SharedBank shared, ThreadData data) throws Exception {
+        String from = data.account(shared);
+        String to = data.account(shared);
+        if (from.equals(to)) {
+            return;
+        }
+        String description = "Thread" + data.thread + "-" + data.next++;
+        shared.instance.transfer(from, to, "01.01.2000", description, 10);
+        shared.instance.removeTransaction(from, new OutgoingTransfer("01.01.2000", description, 10, from, to));
+        shared.instance.removeTransaction(to, new IncomingTransfer("01.01.2000", description, 10, from, to));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public double readWriteReader(SharedBank shared, ThreadData data) throws Exception {
+        return shared.instance.getAccountBalance(data.account(shared));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void readWriteWriter(SharedBank shared, ThreadData data) throws Exception {
+        addAndRemoveTransaction(shared, data);
+    }
+}
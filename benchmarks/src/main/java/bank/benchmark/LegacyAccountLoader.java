@@ -0,0 +1,49 @@
+package bank.benchmark;
+
+import bank.JsonDeserializerImpl;
+import bank.Transaction;
+import com.google.gson.Gson;
+import com.google.gson.internal.LinkedTreeMap;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The account file loader {@code PrivateBank.readAccounts} used before the streaming loader: the
+ * file is read into a string, parsed into maps, and every map is turned back into JSON and parsed
+ * again. Kept as the baseline of {@link LoaderBenchmark}.
+ */
+public final class LegacyAccountLoader {
+
+    private LegacyAccountLoader() {
+    }
+
+    /**
+     * Reads the transactions of an account file
+     *
+     * @param file the account file
+     * @return the transactions
+     * @throws IOException if the file cannot be read
+     */
+    public static List<Transaction> read(File file) throws IOException {
+        try (FileReader fr = new FileReader(file)) {
+            char[] chars = new char[(int) file.length()];
+            fr.read(chars);
+
+            String fileContent = new String(chars);
+
+            List<LinkedTreeMap> transactionsJson = new Gson().fromJson(fileContent, ArrayList.class);
+            List<Transaction> transactions = new ArrayList<>();
+
+            for (LinkedTreeMap transaction : transactionsJson) {
+                JsonDeserializerImpl deserializer = new JsonDeserializerImpl();
+                Gson gson = new Gson();
+                transactions.add((Transaction) deserializer.deserialize(gson.toJson(transaction)));
+            }
+            return transactions;
+        }
+    }
+}
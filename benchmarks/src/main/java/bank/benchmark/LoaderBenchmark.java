@@ -0,0 +1,75 @@
+package bank.benchmark;
+
+import bank.Bank;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming loader behind {@code PrivateBank.readAccounts} with the previous
+ * string/tree based loader on a single multi-megabyte account file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class LoaderBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class AccountFile {
+
+        @Param({"10000", "100000"})
+        public int transactions;
+
+        @Param({"MIXED"})
+        public TransactionGenerator.Mix mix;
+
+        private final String directoryName = "benchmark-loader-" + UUID.randomUUID();
+        private File file;
+
+        @Setup(Level.Trial)
+        public void write() throws Exception {
+            Bank bank = Banks.create("PrivateBank", directoryName);
+            bank.createAccount("Loader", TransactionGenerator.generate("Loader", transactions, mix, 0));
+            bank.writeAccount("Loader");
+            file = new File("persist/" + directoryName + "/Konto_Loader.json");
+            System.out.println("Account file size: " + file.length() / 1024 + " KiB");
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() {
+            file.delete();
+            file.getParentFile().delete();
+        }
+    }
+
+    @Benchmark
+    public Bank legacy(AccountFile state) throws Exception {
+        Bank bank = Banks.create("PrivateBank", state.directoryName);
+        bank.createAccount("Loader", LegacyAccountLoader.read(state.file));
+        return bank;
+    }
+
+    @Benchmark
+    public Bank streaming(AccountFile state) throws IOException {
+        Bank bank = Banks.create("PrivateBank", state.directoryName);
+        bank.readAccounts();
+        return bank;
+    }
+}
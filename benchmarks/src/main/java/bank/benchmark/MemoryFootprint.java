@@ -0,0 +1,57 @@
+package bank.benchmark;
+
+import bank.Bank;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Prints the heap retained by a single account of each bank implementation. Not a JMH benchmark;
+ * run it with a fixed heap, e.g.
+ * {@code java -Xmx4g -cp target/benchmarks.jar bank.benchmark.MemoryFootprint 1000000 PrivateBank ColumnarPrivateBank}.
+ */
+public final class MemoryFootprint {
+
+    private MemoryFootprint() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int transactions = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String[] implementations = args.length > 1
+                ? Arrays.copyOfRange(args, 1, args.length)
+                : new String[]{"PrivateBank", "ColumnarPrivateBank"};
+
+        for (String implementation : implementations) {
+            System.out.printf("%-24s %,d transactions: %,d MiB%n", implementation, transactions,
+                    footprint(implementation, transactions) / (1024 * 1024));
+        }
+    }
+
+    /**
+     * Get the heap retained by a bank holding one account
+     */
+    private static long footprint(String implementation, int transactions) throws Exception {
+        long before = usedHeap();
+        Bank bank = Banks.create(implementation, "benchmark-footprint");
+        bank.createAccount("Footprint");
+        SplittableRandom random = new SplittableRandom(0);
+        for (int i = 0; i < transactions; i++) {
+            bank.addTransaction("Footprint", TransactionGenerator.create("Footprint", i, TransactionGenerator.Mix.MIXED, random));
+        }
+        long after = usedHeap();
+        // keeps the bank reachable until the heap is measured
+        if (bank.getAccountBalance("Footprint") == Double.MIN_VALUE) {
+            System.out.println();
+        }
+        return after - before;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,112 @@
+package bank.benchmark;
+
+import bank.Bank;
+import bank.PrivateBank;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks {@link Bank#writeAccount(String)}, {@link Bank#writeAccounts(java.util.Collection)} and
+ * {@link Bank#readAccounts()}.
+ * <p>
+ * Files are written below {@code persist/benchmark-<uuid>} relative to the working directory and
+ * removed after the trial. The banks are the ones of {@link BankState}; {@code PrivateBankAlt} only
+ * prints the serialized account and never reads anything, so leave it out with
+ * {@code -p bank=PrivateBank,ColumnarPrivateBank}.
+ * <p>
+ * With a positive {@code writeDelay}, {@link PrivateBank#setWriteDelay(long) write-behind} is enabled
+ * and {@code writeAccount} measures the time the caller waits, not the background write.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class PersistState extends BankState {
+
+        @Param({"0", "100"})
+        public long writeDelay;
+
+        private final String directoryName = "benchmark-" + UUID.randomUUID();
+
+        @Override
+        @Setup(Level.Trial)
+        public void fill() throws Exception {
+            super.fill();
+            for (String name : accountNames) {
+                instance.writeAccount(name);
+            }
+            if (instance instanceof PrivateBank privateBank) {
+                privateBank.setWriteDelay(writeDelay);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            if (instance instanceof PrivateBank privateBank) {
+                privateBank.close();
+            }
+            Path directory = new File("persist/" + directoryName).toPath();
+            if (!Files.exists(directory)) {
+                return;
+            }
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+
+        @Override
+        protected String directoryName() {
+            return directoryName;
+        }
+    }
+
+    @Benchmark
+    public void writeAccount(PersistState state) throws IOException {
+        state.instance.writeAccount(state.account);
+    }
+
+    @Benchmark
+    public void writeAccounts(PersistState state) throws IOException {
+        state.instance.writeAccounts(state.accountNames);
+    }
+
+    @Benchmark
+    public void writeAccountsOneByOne(PersistState state) throws IOException {
+        for (String name : state.accountNames) {
+            state.instance.writeAccount(name);
+        }
+    }
+
+    @Benchmark
+    public Bank readAccounts(PersistState state) {
+        Bank bank = Banks.create(state.bank, state.directoryName());
+        bank.readAccounts();
+        return bank;
+    }
+}
@@ -0,0 +1,87 @@
+package bank.benchmark;
+
+import bank.LedgerStorage;
+import bank.PrivateBank;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares load time, write time and file size of the ledger storages on a single account.
+ * The file size is printed once per trial. For the mapped storage, reading only opens the mapping.
+ * <p>
+ * {@code compression} is {@code none} for plain files or the gzip level the files are compressed
+ * with, see {@link LedgerStorage#gzip(LedgerStorage, int)}; compressed mapped files are read, not mapped.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class StorageBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class AccountFile {
+
+        @Param({"json", "compactJson", "binary", "mapped"})
+        public String storage;
+
+        @Param({"none", "1", "6", "9"})
+        public String compression;
+
+        @Param({"10000", "100000"})
+        public int transactions;
+
+        @Param({"MIXED"})
+        public TransactionGenerator.Mix mix;
+
+        private final String directoryName = "benchmark-storage-" + UUID.randomUUID();
+        private PrivateBank bank;
+        private File file;
+
+        @Setup(Level.Trial)
+        public void write() throws Exception {
+            bank = (PrivateBank) Banks.create("PrivateBank", directoryName);
+            LedgerStorage ledgerStorage = LedgerStorage.byName(storage);
+            bank.setStorage(compression.equals("none") ? ledgerStorage : LedgerStorage.gzip(ledgerStorage, Integer.parseInt(compression)));
+            bank.createAccount("Storage", TransactionGenerator.generate("Storage", transactions, mix, 0));
+            bank.writeAccount("Storage");
+            file = new File("persist/" + directoryName + "/Konto_Storage" + bank.getStorage().extension());
+            System.out.println("Account file size (" + storage + ", compression " + compression + "): " + file.length() / 1024 + " KiB");
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() {
+            file.delete();
+            file.getParentFile().delete();
+        }
+    }
+
+    @Benchmark
+    public PrivateBank read(AccountFile state) {
+        PrivateBank bank = (PrivateBank) Banks.create("PrivateBank", state.directoryName);
+        bank.setStorage(state.bank.getStorage());
+        bank.readAccounts();
+        return bank;
+    }
+
+    @Benchmark
+    public void write(AccountFile state) throws IOException {
+        state.bank.writeAccount("Storage");
+    }
+}
@@ -0,0 +1,167 @@
+package bank.benchmark;
+
+import bank.Bank;
+import bank.CounterpartyFlow;
+import bank.InterestRates;
+import bank.SearchHit;
+import bank.Transaction;
+import bank.TransactionQuery;
+import bank.exceptions.*;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Guards every call to a bank with one lock. Used as the coarse grained baseline for the
+ * concurrent benchmarks.
+ */
+public class SynchronizedBank implements Bank {
+
+    private final Bank bank;
+
+    public SynchronizedBank(Bank bank) {
+        this.bank = bank;
+    }
+
+    @Override
+    public synchronized void createAccount(String account) throws AccountAlreadyExistsException {
+        bank.createAccount(account);
+    }
+
+    @Override
+    public synchronized void createAccount(String account, List<Transaction> transactions) throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException, NumericValueInvalidException {
+        bank.createAccount(account, transactions);
+    }
+
+    @Override
+    public synchronized void addTransaction(String account, Transaction transaction) throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, NumericValueInvalidException {
+        bank.addTransaction(account, transaction);
+    }
+
+    @Override
+    public synchronized void transfer(String from, String to, String date, String description, double amount) throws AccountDoesNotExistException, TransactionAlreadyExistException, TransactionAttributeException, NumericValueInvalidException {
+        bank.transfer(from, to, date, description, amount);
+    }
+
+    @Override
+    public synchronized void addTransactions(String account, Collection<Transaction> transactions) throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, NumericValueInvalidException {
+        bank.addTransactions(account, transactions);
+    }
+
+    @Override
+    public synchronized void removeTransaction(String account, Transaction transaction) throws AccountDoesNotExistException, TransactionDoesNotExistException {
+        bank.removeTransaction(account, transaction);
+    }
+
+    @Override
+    public synchronized boolean containsTransaction(String account, Transaction transaction) {
+        return bank.containsTransaction(account, transaction);
+    }
+
+    @Override
+    public synchronized double getAccountBalance(String account) throws AccountDoesNotExistException {
+        return bank.getAccountBalance(account);
+    }
+
+    @Override
+    public synchronized List<Transaction> getTransactions(String account) {
+        return bank.getTransactions(account);
+    }
+
+    @Override
+    public synchronized List<Transaction> getTransactionsSorted(String account, boolean asc) {
+        return bank.getTransactionsSorted(account, asc);
+    }
+
+    @Override
+    public synchronized List<Transaction> getTransactionsByType(String account, boolean positive) {
+        return bank.getTransactionsByType(account, positive);
+    }
+
+    @Override
+    public synchronized List<Transaction> getTransactionsSorted(String account, boolean asc, int offset, int limit) {
+        return bank.getTransactionsSorted(account, asc, offset, limit);
+    }
+
+    @Override
+    public synchronized List<Transaction> getTransactionsByType(String account, boolean positive, int offset, int limit) {
+        return bank.getTransactionsByType(account, positive, offset, limit);
+    }
+
+    @Override
+    public synchronized List<Transaction> topK(String account, int k, boolean asc) {
+        return bank.topK(account, k, asc);
+    }
+
+    /**
+     * Collects the matching transactions while holding the lock, since a lazy stream of the wrapped
+     * bank would be consumed without it
+     */
+    @Override
+    public synchronized Stream<Transaction> streamTransactions(String account, TransactionQuery query) throws AccountDoesNotExistException {
+        return bank.streamTransactions(account, query).toList().stream();
+    }
+
+    @Override
+    public synchronized Map<String, CounterpartyFlow> getCounterpartyFlows(String account) throws AccountDoesNotExistException {
+        return bank.getCounterpartyFlows(account);
+    }
+
+    @Override
+    public synchronized List<CounterpartyFlow> getTopCounterparties(String account, int k) throws AccountDoesNotExistException {
+        return bank.getTopCounterparties(account, k);
+    }
+
+    @Override
+    public synchronized List<SearchHit> searchTransactions(String text, int limit) {
+        return bank.searchTransactions(text, limit);
+    }
+
+    @Override
+    public synchronized InterestRates getInterestRates() {
+        return bank.getInterestRates();
+    }
+
+    @Override
+    public synchronized int rerate(double incomingInterest, double outgoingInterest) throws NumericValueInvalidException {
+        return bank.rerate(incomingInterest, outgoingInterest);
+    }
+
+    @Override
+    public synchronized double getAccountBalance(String account, String date) throws AccountDoesNotExistException, TransactionAttributeException {
+        return bank.getAccountBalance(account, date);
+    }
+
+    @Override
+    public synchronized List<Transaction> getTransactionsBetween(String account, String from, String to) throws AccountDoesNotExistException, TransactionAttributeException {
+        return bank.getTransactionsBetween(account, from, to);
+    }
+
+    @Override
+    public synchronized void writeAccount(String account) throws IOException {
+        bank.writeAccount(account);
+    }
+
+    @Override
+    public synchronized void writeAccounts(Collection<String> accounts) throws IOException {
+        bank.writeAccounts(accounts);
+    }
+
+    @Override
+    public synchronized void readAccounts() {
+        bank.readAccounts();
+    }
+
+    @Override
+    public synchronized void deleteAccount(String account) throws AccountDoesNotExistException, IOException {
+        bank.deleteAccount(account);
+    }
+
+    @Override
+    public synchronized List<String> getAllAccounts() {
+        return bank.getAllAccounts();
+    }
+}
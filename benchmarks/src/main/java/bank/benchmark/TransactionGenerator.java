@@ -0,0 +1,72 @@
+package bank.benchmark;
+
+import bank.IncomingTransfer;
+import bank.OutgoingTransfer;
+import bank.Payment;
+import bank.Transaction;
+import bank.exceptions.NumericValueInvalidException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Builds deterministic, duplicate free transaction lists for the benchmarks
+ */
+public final class TransactionGenerator {
+
+    /**
+     * The mix of transaction types that is generated
+     */
+    public enum Mix {
+        PAYMENT, INCOMING, OUTGOING, MIXED
+    }
+
+    private TransactionGenerator() {
+    }
+
+    /**
+     * Generates transactions for an account
+     *
+     * @param account the account owner, used as sender or recipient of transfers
+     * @param count   the number of transactions
+     * @param mix     the mix of transaction types
+     * @param seed    the seed of the random generator
+     * @return the generated transactions
+     */
+    public static List<Transaction> generate(String account, int count, Mix mix, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(create(account, i, mix, random));
+        }
+        return transactions;
+    }
+
+    /**
+     * Creates a single transaction. The index makes the description unique within an account.
+     *
+     * @param account the account owner
+     * @param index   the index of the transaction
+     * @param mix     the mix of transaction types
+     * @param random  the random generator
+     * @return the transaction
+     */
+    public static Transaction create(String account, int index, Mix mix, SplittableRandom random) {
+        String date = String.format("%02d.%02d.%04d", 1 + index % 28, 1 + (index / 28) % 12, 2000 + index / 336 % 25);
+        String description = "Transaction " + index;
+        double amount = 1 + random.nextInt(500_000) / 100.0;
+        Mix type = mix == Mix.MIXED ? Mix.values()[index % 3] : mix;
+
+        try {
+            return switch (type) {
+                case PAYMENT -> new Payment(date, description, random.nextBoolean() ? amount : -amount, 0.05, 0.1);
+                case INCOMING -> new IncomingTransfer(date, description, amount, "Counterparty " + random.nextInt(1000), account);
+                default -> new OutgoingTransfer(date, description, amount, account, "Counterparty " + random.nextInt(1000));
+            };
+        } catch (NumericValueInvalidException e) {
+            // This should never happen
+            throw new IllegalStateException(e);
+        }
+    }
+}
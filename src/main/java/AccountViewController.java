@@ -309,6 +309,12 @@ public class AccountViewController {
 
         Stage primaryStage = (Stage) ((Node) event.getSource()).getScene().getWindow();
 
+        // the main view reads the accounts again, so the changes have to be written first
+        try {
+            bank.close();
+        } catch (IOException e) {
+            FxApplication.showError(e);
+        }
         Parent mainView = FXMLLoader.load(getClass().getResource("MainView.fxml"));
         Scene mainViewScene = new Scene(mainView);
         primaryStage.setScene(mainViewScene);
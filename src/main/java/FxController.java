@@ -16,6 +16,7 @@ import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 
@@ -27,6 +28,7 @@ public class FxController {
     @FXML
     Menu accountsMenu;
 
+    private static final long WRITE_DELAY = 500;
     private PrivateBank bank = new PrivateBank("Meine Bank", 0.2, 0.2);
 
     public FxController() throws NumericValueInvalidException {
@@ -68,7 +70,13 @@ public class FxController {
     public void initialize() {
         try {
             bank.setDirectoryName("testData");
-            bank.readAccounts();
+            // the accounts are written in the background, so saving never blocks the UI
+            bank.setWriteDelay(WRITE_DELAY);
+            Map<String, Exception> errors = bank.readAccountsParallel(Runtime.getRuntime().availableProcessors());
+            errors.values().forEach(Exception::printStackTrace);
+            if (!errors.isEmpty()) {
+                FxApplication.showError(new IOException("Folgende Konten konnten nicht geladen werden: " + errors.keySet()));
+            }
             accountsList.getItems().addAll(fetchAllAccounts());
 
 
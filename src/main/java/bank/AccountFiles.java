@@ -0,0 +1,255 @@
+package bank;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads and writes the persisted account files {@code persist/<directoryName>/Konto_<account><extension>}
+ * shared by the bank implementations. The format of the files is given by a {@link LedgerStorage}.
+ * <p>
+ * An account file is never changed in place: it is written to a temporary file next to it, forced to
+ * disk and renamed over the old file, so a crash leaves either the old or the new file behind. The
+ * rename is durable once the directory is synced, which may be done once for several files.
+ */
+final class AccountFiles {
+
+    private AccountFiles() {
+    }
+
+    /**
+     * Get the file an account is persisted to
+     *
+     * @param directoryName the directory below {@code persist/}
+     * @param account       the account
+     * @param storage       the storage the account is persisted with
+     * @return the file of the account
+     */
+    static File file(String directoryName, String account, LedgerStorage storage) {
+        return new File("persist/" + directoryName + "/Konto_" + account + storage.extension());
+    }
+
+    /**
+     * Get all account files of a directory written by a storage, plain or {@link LedgerStorage#gzip(LedgerStorage)
+     * compressed}. Other files, e.g. journals or files of other storages, are skipped. If an account
+     * has a plain and a compressed file, only the file with the extension of the storage is listed.
+     *
+     * @param directoryName the directory below {@code persist/}
+     * @param storage       the storage
+     * @return the account files, empty if the directory does not exist
+     */
+    static File[] list(String directoryName, LedgerStorage storage) {
+        String plain = GzipLedgerStorage.plain(storage).extension();
+        File[] files = new File("persist/" + directoryName + "/").listFiles(
+                file -> file.getName().startsWith("Konto_")
+                        && (file.getName().endsWith(plain) || file.getName().endsWith(plain + GzipLedgerStorage.EXTENSION))
+                        && (file.getName().endsWith(storage.extension()) || !sibling(file).exists()));
+        return files == null ? new File[0] : files;
+    }
+
+    /**
+     * Get the file of the same account and format with the other compression: the compressed file
+     * of a plain file and the plain file of a compressed one
+     *
+     * @param file the account file
+     * @return the other file, which usually does not exist
+     */
+    static File sibling(File file) {
+        String path = file.getPath();
+        return path.endsWith(GzipLedgerStorage.EXTENSION)
+                ? new File(path.substring(0, path.length() - GzipLedgerStorage.EXTENSION.length()))
+                : new File(path + GzipLedgerStorage.EXTENSION);
+    }
+
+    /**
+     * Checks whether an account file is compressed, judged by its name
+     *
+     * @param file the account file
+     * @return true if the file has the extension of the compressed storages
+     */
+    static boolean isCompressed(File file) {
+        return file.getName().endsWith(GzipLedgerStorage.EXTENSION);
+    }
+
+    /**
+     * Deletes the file of an account along with its {@link #sibling(File) sibling}
+     *
+     * @param file the account file
+     * @return true if a file was deleted
+     * @throws IOException if a file cannot be deleted
+     */
+    static boolean deleteIfExists(File file) throws IOException {
+        boolean deleted = Files.deleteIfExists(file.toPath());
+        return Files.deleteIfExists(sibling(file).toPath()) || deleted;
+    }
+
+    /**
+     * Get the name of the account persisted to a file
+     *
+     * @param file the account file
+     * @return the account name
+     */
+    static String accountName(File file) {
+        String accountOwner = file.getName();
+        accountOwner = accountOwner.substring(accountOwner.indexOf("_") + 1);
+        return accountOwner.substring(0, accountOwner.indexOf("."));
+    }
+
+    /**
+     * Creates a new temporary file an account file is written to before it replaces the account
+     * file, e.g. {@code Konto_<account>.json.<session>.12.tmp}. Every write gets its own file, so
+     * writes of the same account running at the same time never write into each other's file.
+     *
+     * @param file the account file
+     * @return the temporary file, empty
+     * @throws IOException if the file cannot be created
+     */
+    static File temporary(File file) throws IOException {
+        File temporary = new File(file.getParentFile(),
+                file.getName() + "." + SESSION + "." + TEMPORARY_FILES.incrementAndGet() + TEMPORARY_EXTENSION);
+        Files.createFile(temporary.toPath());
+        return temporary;
+    }
+
+    /**
+     * The extension of the temporary files
+     * The name of the temporary files created by this process, unique for every start
+     * The number of temporary files created by this process
+     */
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final String SESSION = UUID.randomUUID().toString();
+    private static final AtomicLong TEMPORARY_FILES = new AtomicLong();
+
+    /**
+     * Deletes the temporary files of a directory, left behind by writes interrupted before their
+     * rename. The account files they were meant to replace are still complete. The temporary files
+     * of this process are kept, since they belong to writes that may still be running, e.g. on the
+     * write-behind thread; a write that fails deletes its own file.
+     *
+     * @param directoryName the directory below {@code persist/}
+     * @return the number of deleted files
+     * @throws IOException if a file cannot be deleted
+     */
+    static int deleteTemporary(String directoryName) throws IOException {
+        File[] files = new File("persist/" + directoryName + "/").listFiles(
+                file -> file.getName().startsWith("Konto_") && file.getName().endsWith(TEMPORARY_EXTENSION)
+                        && !file.getName().contains("." + SESSION + "."));
+        if (files == null) {
+            return 0;
+        }
+        for (File file : files) {
+            Files.delete(file.toPath());
+        }
+        return files.length;
+    }
+
+    /**
+     * Writes the transactions of an account to a file durably, creating the directory if necessary:
+     * {@link #replace(File, Iterable, LedgerStorage)} followed by {@link #syncDirectory(File)}. The
+     * {@link #sibling(File) sibling} of the file, now outdated, is deleted afterwards.
+     *
+     * @param file         the account file
+     * @param transactions the transactions of the account
+     * @param storage      the storage
+     * @throws IOException if the file cannot be written
+     */
+    static void write(File file, Iterable<Transaction> transactions, LedgerStorage storage) throws IOException {
+        replace(file, transactions, storage);
+        syncDirectory(file.getParentFile());
+        Files.deleteIfExists(sibling(file).toPath());
+    }
+
+    /**
+     * Replaces an account file, creating the directory if necessary. The transactions are streamed
+     * to a new {@link #temporary(File) temporary file} as they are serialized; the temporary file is
+     * forced to disk and renamed over the account file. The rename survives a crash only once the
+     * directory is {@link #syncDirectory(File) synced}.
+     *
+     * @param file         the account file
+     * @param transactions the transactions of the account
+     * @param storage      the storage
+     * @throws IOException if the file cannot be written; the account file is left unchanged
+     */
+    static void replace(File file, Iterable<Transaction> transactions, LedgerStorage storage) throws IOException {
+        file.getParentFile().mkdirs();
+        File temporary = temporary(file);
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temporary);
+                 OutputStream out = new BufferedOutputStream(stream)) {
+                storage.write(transactions, out);
+                out.flush();
+                stream.getFD().sync();
+            }
+            try {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary.toPath());
+            throw e;
+        }
+    }
+
+    /**
+     * Forces the entries of a directory to disk, making the files created, renamed or deleted in it
+     * before durable
+     *
+     * @param directory the directory
+     * @throws IOException if the directory cannot be synced
+     */
+    static void syncDirectory(File directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // directories cannot be opened on Windows, where a rename is durable with its file
+        }
+    }
+
+    /**
+     * Throws the failures of files written together as one exception
+     *
+     * @param failures the failures by account, empty if all files were written
+     * @throws IOException naming the accounts, with their failures suppressed
+     */
+    static void throwFailures(Map<String, ? extends Exception> failures) throws IOException {
+        if (!failures.isEmpty()) {
+            IOException failure = new IOException("Error: Could not write the accounts " + failures.keySet() + "!");
+            failures.values().forEach(failure::addSuppressed);
+            throw failure;
+        }
+    }
+
+    /**
+     * Reads the transactions of an account from a file. The file is streamed record by record and
+     * every transaction is built in a single pass, so only the current record is held in memory
+     * besides the resulting list. A file starting with the gzip magic bytes is decompressed while it
+     * is read, whether the storage compresses its files or not.
+     *
+     * @param file    the account file
+     * @param storage the storage the file was written with, compressed or not
+     * @return the transactions in the order they were written
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    static List<Transaction> read(File file, LedgerStorage storage) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            LedgerStorage plain = GzipLedgerStorage.plain(storage);
+            return GzipLedgerStorage.isCompressed(in) ? GzipLedgerStorage.read(plain, in) : plain.read(in);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package bank;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only log of the changes made to an account since its last snapshot
+ * ({@code Konto_<account>.json}). The log is stored next to the snapshot as
+ * {@code Konto_<account>.journal}, one change per line: the operation followed by the serialized
+ * transaction, e.g. {@code ADD {"INSTANCE":{...},"CLASSNAME":"Payment"}}.
+ * <p>
+ * An instance holds the journal state of one account: the changes not yet written and the number
+ * of entries already in the journal file.
+ */
+final class AccountJournal {
+
+    /**
+     * The change recorded by a journal entry
+     */
+    enum Operation {
+        ADD, REMOVE
+    }
+
+    /**
+     * A single change of an account
+     *
+     * @param operation   whether the transaction was added or removed
+     * @param transaction the transaction
+     */
+    record Entry(Operation operation, Transaction transaction) {
+    }
+
+    /**
+     * The changes recorded since the last write, as lines of the journal file
+     * The number of entries in the journal file
+     * The number of in-place changes of the ledger at the last write
+     */
+    private final List<String> pending = new ArrayList<>();
+    private int persisted;
+    private final int changes;
+
+    /**
+     * Creates the journal state of an account whose files match the ledger
+     *
+     * @param persisted the number of entries in the journal file
+     * @param changes   the number of in-place changes of the ledger, see {@link TransactionLedger#getChanges()}
+     */
+    AccountJournal(int persisted, int changes) {
+        this.persisted = persisted;
+        this.changes = changes;
+    }
+
+    /**
+     * Records a change that is appended to the journal file on the next write of the account. The
+     * transaction is serialized at once, so later changes of the object, e.g. of a removed
+     * transaction added again with another amount, do not alter the recorded change.
+     *
+     * @param operation   whether the transaction was added or removed
+     * @param transaction the transaction
+     */
+    void record(Operation operation, Transaction transaction) {
+        pending.add(operation + " " + TransactionCodec.compact().toJson(transaction));
+    }
+
+    /**
+     * Checks whether the account has to be written as a new snapshot instead of appending to the
+     * journal. This is the case if the journal grew beyond the threshold or if transactions of the
+     * ledger were changed in place, which the journal cannot express.
+     *
+     * @param ledger    the ledger of the account
+     * @param threshold the maximum number of entries in a journal file
+     * @return true if the account has to be compacted
+     */
+    boolean needsCompaction(TransactionLedger ledger, int threshold) {
+        return ledger.getChanges() != changes || persisted + pending.size() > threshold;
+    }
+
+    /**
+     * Takes the recorded changes to append them to the journal file with {@link #append(File, List)}.
+     * They count as persisted from now on; if they cannot be appended, the journal state has to be
+     * dropped so the account is compacted on its next write.
+     *
+     * @return the lines of the changes recorded since the last write, in order
+     */
+    List<String> take() {
+        List<String> lines = new ArrayList<>(pending);
+        persisted += lines.size();
+        pending.clear();
+        return lines;
+    }
+
+    /**
+     * Get the journal file of an account
+     *
+     * @param directoryName the directory below {@code persist/}
+     * @param account       the account
+     * @return the journal file of the account
+     */
+    static File file(String directoryName, String account) {
+        return new File("persist/" + directoryName + "/Konto_" + account + ".journal");
+    }
+
+    /**
+     * Appends entries to the end of a journal and forces them to disk, creating the journal if
+     * necessary. A new journal survives a crash only once its directory is
+     * {@link AccountFiles#syncDirectory(File) synced}.
+     *
+     * @param file  the journal file
+     * @param lines the lines of the entries to append, see {@link #take()}
+     * @return true if the journal was created
+     * @throws IOException if the journal cannot be written
+     */
+    static boolean append(File file, List<String> lines) throws IOException {
+        file.getParentFile().mkdirs();
+        boolean created = !file.exists();
+        try (FileOutputStream stream = new FileOutputStream(file, true);
+             Writer writer = new OutputStreamWriter(stream)) {
+            StringBuilder text = new StringBuilder();
+            for (String line : lines) {
+                text.append(line).append('\n');
+            }
+            writer.append(text);
+            writer.flush();
+            stream.getFD().sync();
+        }
+        return created;
+    }
+
+    /**
+     * Reads all entries of a journal. A damaged last line, left behind by an interrupted append,
+     * is ignored.
+     *
+     * @param file the journal file
+     * @return the entries in the order they were appended, empty if the journal does not exist
+     * @throws IOException if the journal cannot be read or a line other than the last one is damaged
+     */
+    static List<Entry> read(File file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!file.exists()) {
+            return entries;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                try {
+                    int separator = line.indexOf(' ');
+                    Operation operation = Operation.valueOf(line.substring(0, separator));
+                    Transaction transaction = TransactionCodec.compact().fromJson(line.substring(separator + 1));
+                    entries.add(new Entry(operation, transaction));
+                } catch (RuntimeException e) {
+                    if (next != null) {
+                        throw new IOException("Damaged journal entry in " + file + ": " + line, e);
+                    }
+                }
+                line = next;
+            }
+        }
+        return entries;
+    }
+}
@@ -3,7 +3,10 @@ package bank;
 import bank.exceptions.*;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Interface for a generic bank. Provides multiple methods to handle the interaction between
@@ -44,6 +47,40 @@ public interface Bank {
     void addTransaction(String account, Transaction transaction)
             throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, NumericValueInvalidException;
 
+    /**
+     * Adds several transactions to an already existing account, all or none of them: every
+     * transaction is validated before the first one is added, duplicates within the batch and
+     * against the account are found by their hash codes. The indexes of the account are updated
+     * once for the whole batch, and a single {@link #writeAccount(String)} afterwards persists it.
+     *
+     * @param account      the account to which the transactions are added
+     * @param transactions the transactions which should be added to the specified account, in order
+     * @throws TransactionAlreadyExistException if a transaction already exists or occurs twice in the batch
+     * @throws AccountDoesNotExistException     if the specified account does not exist
+     * @throws TransactionAttributeException    if the validation check for certain attributes fail
+     */
+    void addTransactions(String account, Collection<Transaction> transactions)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, NumericValueInvalidException;
+
+    /**
+     * Transfers money between two accounts of the bank: an {@link OutgoingTransfer} is added to the
+     * sending and an {@link IncomingTransfer} to the receiving account, both or none of them: both
+     * transfers are validated before the first one is added, so a failure never leaves only one of
+     * them behind. {@link #writeAccounts(Collection)} persists both accounts afterwards.
+     *
+     * @param from        the sending account
+     * @param to          the receiving account
+     * @param date        the date of the transfer
+     * @param description the description of the transfer
+     * @param amount      the amount of the transfer
+     * @throws AccountDoesNotExistException     if one of the accounts does not exist
+     * @throws TransactionAlreadyExistException if one of the accounts already holds the transfer
+     * @throws TransactionAttributeException    if the amount is 0 or both accounts are the same
+     * @throws NumericValueInvalidException     if the amount is negative
+     */
+    void transfer(String from, String to, String date, String description, double amount)
+            throws AccountDoesNotExistException, TransactionAlreadyExistException, TransactionAttributeException, NumericValueInvalidException;
+
     /**
      * Removes a transaction from an account. If the transaction does not exist, an exception is
      * thrown.
@@ -72,6 +109,19 @@ public interface Bank {
      */
     double getAccountBalance(String account) throws AccountDoesNotExistException;
 
+    /**
+     * Calculates the balance of an account as it stood at the end of a day, i.e. the sum of the
+     * calculated amounts of all transactions dated up to that day. Transactions whose date is not
+     * written as dd.MM.yyyy are not included.
+     *
+     * @param account the selected account
+     * @param date    the day, written as dd.MM.yyyy
+     * @return the account balance at the end of the day
+     * @throws AccountDoesNotExistException  if the specified account does not exist
+     * @throws TransactionAttributeException if the date is not written as dd.MM.yyyy
+     */
+    double getAccountBalance(String account, String date) throws AccountDoesNotExistException, TransactionAttributeException;
+
     /**
      * Returns a list of transactions for an account.
      *
@@ -99,8 +149,148 @@ public interface Bank {
      */
     List<Transaction> getTransactionsByType(String account, boolean positive);
 
+    /**
+     * Returns one page of the transactions of an account sorted by their calculated amounts, in the
+     * order of {@link #getTransactionsSorted(String, boolean)}.
+     *
+     * @param account the selected account
+     * @param asc     selects if the transaction list is sorted in ascending or descending order
+     * @param offset  the number of sorted transactions before the page
+     * @param limit   the maximum number of transactions of the page
+     * @return the transactions of the page, empty if the offset is beyond the last transaction
+     * @throws IllegalArgumentException if the offset or the limit is negative
+     */
+    List<Transaction> getTransactionsSorted(String account, boolean asc, int offset, int limit);
+
+    /**
+     * Returns one page of the positive or negative transactions (-> calculated amounts), in the
+     * order of {@link #getTransactionsByType(String, boolean)}.
+     *
+     * @param account  the selected account
+     * @param positive selects if positive or negative transactions are listed
+     * @param offset   the number of matching transactions before the page
+     * @param limit    the maximum number of transactions of the page
+     * @return the transactions of the page, empty if the offset is beyond the last match
+     * @throws IllegalArgumentException if the offset or the limit is negative
+     */
+    List<Transaction> getTransactionsByType(String account, boolean positive, int offset, int limit);
+
+    /**
+     * Returns the k transactions of an account with the smallest or largest calculated amounts,
+     * without sorting all transactions. Transactions of the same amount are taken in their order.
+     *
+     * @param account the selected account
+     * @param k       the number of transactions
+     * @param asc     true for the smallest amounts in ascending order, false for the largest amounts
+     *                in descending order
+     * @return the first k transactions of {@link #getTransactionsSorted(String, boolean)}
+     * @throws IllegalArgumentException if k is negative
+     */
+    List<Transaction> topK(String account, int k, boolean asc);
+
+    /**
+     * Returns the transactions of an account dated within a period, sorted by date. Transactions of
+     * the same date keep their order; transactions whose date is not written as dd.MM.yyyy are never
+     * listed.
+     *
+     * @param account the selected account
+     * @param from    the first date of the period, written as dd.MM.yyyy
+     * @param to      the last date of the period, written as dd.MM.yyyy
+     * @return the list of transactions dated from {@code from} to {@code to}, both included
+     * @throws AccountDoesNotExistException  if the specified account does not exist
+     * @throws TransactionAttributeException if a date is not written as dd.MM.yyyy
+     */
+    List<Transaction> getTransactionsBetween(String account, String from, String to)
+            throws AccountDoesNotExistException, TransactionAttributeException;
+
+    /**
+     * Returns a lazy, read-only stream of the transactions of an account that match a query. The
+     * transactions are only looked at when a terminal operation of the stream runs, and a search for
+     * the first matches, e.g. with {@link Stream#findFirst()} or {@link Stream#limit(long)}, stops
+     * once it has them. The stream may be made {@link Stream#parallel() parallel} for large accounts.
+     * Without a date range the transactions are listed in their order, with a date range by date like
+     * {@link #getTransactionsBetween(String, String, String)}.
+     *
+     * @param account the selected account
+     * @param query   the filters the transactions have to match, see {@link TransactionQuery#all()}
+     * @return the stream of matching transactions
+     * @throws AccountDoesNotExistException if the specified account does not exist
+     */
+    Stream<Transaction> streamTransactions(String account, TransactionQuery query) throws AccountDoesNotExistException;
+
+    /**
+     * Returns the money an account exchanged with each of its counterparties: the senders of its
+     * incoming and the recipients of its outgoing transfers. The sums are kept up to date as
+     * transfers are added, removed or changed, so no transactions are scanned per call.
+     *
+     * @param account the selected account
+     * @return the flows by counterparty, empty if the account has no transfers
+     * @throws AccountDoesNotExistException if the specified account does not exist
+     */
+    Map<String, CounterpartyFlow> getCounterpartyFlows(String account) throws AccountDoesNotExistException;
+
+    /**
+     * Returns the k counterparties of an account with the largest volume of transfers, i.e. incoming
+     * plus outgoing amount.
+     *
+     * @param account the selected account
+     * @param k       the number of counterparties
+     * @return the flows of the counterparties, by descending volume
+     * @throws AccountDoesNotExistException if the specified account does not exist
+     * @throws IllegalArgumentException     if k is negative
+     */
+    List<CounterpartyFlow> getTopCounterparties(String account, int k) throws AccountDoesNotExistException;
+
+    /**
+     * Searches the transactions of all accounts by the words of their descriptions and
+     * counterparties. A transaction is found if, for every searched word, it contains a word
+     * starting with it, ignoring case; words are runs of letters and digits, so "RE-2019" searches
+     * "re" and "2019". The hits are ranked by {@link SearchHit#getScore()}, rare and whole words
+     * first.
+     *
+     * @param text  the searched words
+     * @param limit the maximum number of hits
+     * @return the best hits, by descending score, empty if the text has no words
+     * @throws IllegalArgumentException if the limit is negative
+     */
+    List<SearchHit> searchTransactions(String text, int limit);
+
+    /**
+     * Get the interest rates of the bank. Payments created with these rates share one object with
+     * the payments of the bank.
+     *
+     * @return the interest on deposits and withdrawals
+     */
+    InterestRates getInterestRates();
+
+    /**
+     * Changes the interest rates of the bank and re-rates the payments charged with its previous
+     * rates, i.e. the payments whose rates equal {@link #getInterestRates()}; payments with other
+     * rates are not changed. The balances and indexes of an account are updated in one pass over
+     * its transactions instead of once per payment.
+     *
+     * @param incomingInterest the new interest on deposits
+     * @param outgoingInterest the new interest on withdrawals
+     * @return the number of re-rated payments, a payment counted once for every account holding it
+     * @throws NumericValueInvalidException if an interest is not between 0 and 1
+     */
+    int rerate(double incomingInterest, double outgoingInterest) throws NumericValueInvalidException;
+
     void writeAccount(String account) throws IOException;
 
+    /**
+     * Persists several accounts together, e.g. both accounts of a
+     * {@link #transfer(String, String, String, String, double) transfer}.
+     *
+     * @param accounts the accounts to be written
+     * @throws IOException if an account cannot be written
+     */
+    default void writeAccounts(Collection<String> accounts) throws IOException {
+        for (String account : accounts) {
+            writeAccount(account);
+        }
+    }
+
     void readAccounts();
 
     /**
@@ -0,0 +1,290 @@
+package bank;
+
+import bank.exceptions.NumericValueInvalidException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores an account in a compact, versioned binary format.
+ * <p>
+ * The file starts with the magic bytes {@code OOSL} and a one byte format version, followed by
+ * one length-prefixed record per transaction (big-endian):
+ * <pre>
+ * int    length of the record in bytes, excluding this field
+ * byte   type: 0 = Payment, 1 = IncomingTransfer, 2 = OutgoingTransfer
+ * int    date as yyyymmdd for dates written as dd.MM.yyyy, -1 if the date follows as a string
+ * [str]  the date, only if the previous field is -1
+ * str    description
+ * double amount
+ * Payment:  double incomingInterest, double outgoingInterest
+ * Transfer: str sender, str recipient
+ * </pre>
+ * Strings ({@code str}) are stored as an int byte length (-1 for null) followed by UTF-8 bytes.
+ * Readers skip trailing bytes of a record they do not know, so later versions may append fields.
+ * <p>
+ * Since version 2 the records are followed by an end marker (a length of -1) and an index that lets
+ * {@link MappedLedger} open the file without reading the records:
+ * <pre>
+ * per record: long offset of its length field, double calculated amount, int hash code
+ * trailer:    int number of records, double balance, long offset of the index
+ * </pre>
+ * Since version 3 the hash code of the index is the one of the record bytes, excluding the length
+ * field, as computed by {@link java.util.Arrays#hashCode(byte[])}, see {@link #hash(ByteBuffer)}.
+ * Equal transactions have equal records, so the hash code does not depend on
+ * {@link Transaction#hashCode()}. Version 2 stored {@link Transaction#hashCode()}, which readers
+ * ignore.
+ */
+final class BinaryLedgerStorage implements LedgerStorage {
+
+    static final BinaryLedgerStorage INSTANCE = new BinaryLedgerStorage();
+
+    private static final byte[] MAGIC = {'O', 'O', 'S', 'L'};
+    private static final byte VERSION = 3;
+    private static final int END = -1;
+
+    /**
+     * The size of an index entry and of the trailer at the end of the file, in bytes
+     */
+    static final int INDEX_ENTRY_SIZE = 20;
+    static final int TRAILER_SIZE = 20;
+
+    private static final byte PAYMENT = 0;
+    private static final byte INCOMING_TRANSFER = 1;
+    private static final byte OUTGOING_TRANSFER = 2;
+
+    private BinaryLedgerStorage() {
+    }
+
+    @Override
+    public String extension() {
+        return ".ledger";
+    }
+
+    @Override
+    public void write(Iterable<Transaction> transactions, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(MAGIC);
+        data.writeByte(VERSION);
+        long offset = MAGIC.length + 1;
+
+        RecordBuffer buffer = new RecordBuffer();
+        DataOutputStream record = new DataOutputStream(buffer);
+        ByteArrayOutputStream indexBuffer = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexBuffer);
+        int count = 0;
+        long balance = 0;
+        for (Transaction transaction : transactions) {
+            buffer.reset();
+            writeRecord(record, transaction);
+            data.writeInt(buffer.size());
+            buffer.writeTo(data);
+
+            long calculated = transaction.calculateUnits();
+            index.writeLong(offset);
+            index.writeDouble(Money.toDouble(calculated));
+            index.writeInt(buffer.hash());
+            offset += 4 + buffer.size();
+            balance += calculated;
+            count++;
+        }
+        data.writeInt(END);
+        indexBuffer.writeTo(data);
+        data.writeInt(count);
+        data.writeDouble(Money.toDouble(balance));
+        data.writeLong(offset + 4);
+        data.flush();
+    }
+
+    @Override
+    public List<Transaction> read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] header = new byte[MAGIC.length + 1];
+        data.readFully(header);
+        int version = version(ByteBuffer.wrap(header));
+
+        List<Transaction> transactions = new ArrayList<>();
+        byte[] bytes = new byte[256];
+        while (true) {
+            int length;
+            try {
+                length = data.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            if (length == END && version >= 2) {
+                break;
+            }
+            if (length < 0) {
+                throw new IOException("Damaged record " + transactions.size());
+            }
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, 2 * bytes.length)];
+            }
+            data.readFully(bytes, 0, length);
+            transactions.add(decode(ByteBuffer.wrap(bytes, 0, length)));
+        }
+        return transactions;
+    }
+
+    /**
+     * Checks the header of a binary ledger
+     *
+     * @param header the buffer, positioned at the start of the file
+     * @return the format version of the file
+     * @throws IOException if the header is not the one of a supported binary ledger
+     */
+    static int version(ByteBuffer header) throws IOException {
+        if (header.remaining() < MAGIC.length + 1) {
+            throw new IOException("Not a binary ledger file");
+        }
+        for (byte b : MAGIC) {
+            if (header.get() != b) {
+                throw new IOException("Not a binary ledger file");
+            }
+        }
+        byte version = header.get();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported binary ledger version " + version);
+        }
+        return version;
+    }
+
+    /**
+     * Computes the hash code the index stores for a record since version 3
+     *
+     * @param record the record, without its length field
+     * @return the hash code of the record bytes
+     */
+    static int hash(ByteBuffer record) {
+        int hash = 1;
+        for (int i = record.position(); i < record.limit(); i++) {
+            hash = 31 * hash + record.get(i);
+        }
+        return hash;
+    }
+
+    /**
+     * Computes the hash code the index stores for the record of a transaction since version 3
+     *
+     * @param transaction the transaction
+     * @return the hash code of its record
+     * @throws IOException if the transaction cannot be stored in a binary ledger
+     */
+    static int hash(Transaction transaction) throws IOException {
+        RecordBuffer buffer = new RecordBuffer();
+        writeRecord(new DataOutputStream(buffer), transaction);
+        return buffer.hash();
+    }
+
+    /**
+     * Builds the transaction stored in a record
+     *
+     * @param record the record, without its length field
+     * @return the transaction
+     * @throws IOException if the record is damaged
+     */
+    static Transaction decode(ByteBuffer record) throws IOException {
+        try {
+            return readRecord(record);
+        } catch (RuntimeException | NumericValueInvalidException e) {
+            throw new IOException("Damaged record", e);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Transaction transaction) throws IOException {
+        if (transaction instanceof Payment) {
+            out.writeByte(PAYMENT);
+        } else if (transaction instanceof IncomingTransfer) {
+            out.writeByte(INCOMING_TRANSFER);
+        } else if (transaction instanceof OutgoingTransfer) {
+            out.writeByte(OUTGOING_TRANSFER);
+        } else {
+            throw new IOException("Unsupported transaction class " + transaction.getClass().getName());
+        }
+
+        int date = transaction.getDay();
+        out.writeInt(date);
+        if (date == Dates.UNKNOWN) {
+            writeString(out, transaction.getDate());
+        }
+        writeString(out, transaction.getDescription());
+        out.writeDouble(transaction.getAmount());
+
+        if (transaction instanceof Payment payment) {
+            out.writeDouble(payment.getIncomingInterest());
+            out.writeDouble(payment.getOutgoingInterest());
+        } else if (transaction instanceof Transfer transfer) {
+            writeString(out, transfer.getSender());
+            writeString(out, transfer.getRecipient());
+        }
+    }
+
+    private static Transaction readRecord(ByteBuffer in) throws IOException, NumericValueInvalidException {
+        byte type = in.get();
+        int encodedDate = in.getInt();
+        String date = encodedDate == Dates.UNKNOWN ? readString(in) : Dates.format(encodedDate);
+        String description = readString(in);
+        double amount = in.getDouble();
+
+        return switch (type) {
+            case PAYMENT -> new Payment(date, description, amount, in.getDouble(), in.getDouble());
+            case INCOMING_TRANSFER -> new IncomingTransfer(date, description, amount, readString(in), readString(in));
+            case OUTGOING_TRANSFER -> new OutgoingTransfer(date, description, amount, readString(in), readString(in));
+            default -> throw new IOException("Unknown record type " + type);
+        };
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (!in.hasArray()) {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * The buffer a record is written to before its length is known
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        RecordBuffer() {
+            super(128);
+        }
+
+        /**
+         * Get the hash code of the record, see {@link #hash(ByteBuffer)}
+         *
+         * @return the hash code of the bytes written since the last reset
+         */
+        int hash() {
+            return BinaryLedgerStorage.hash(ByteBuffer.wrap(buf, 0, count));
+        }
+    }
+}
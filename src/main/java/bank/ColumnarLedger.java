@@ -0,0 +1,830 @@
+package bank;
+
+import bank.exceptions.NumericValueInvalidException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The transactions of a single account stored column by column in primitive arrays. Each row is
+ * one transaction: a type tag, the date as yyyymmdd, the amount and the calculated amount in units
+ * of {@link Money}, the interest rates of payments and the sender and recipient of transfers.
+ * Strings are replaced by ids of a {@link StringDictionary} and interest rates by ids of a
+ * {@link RateTable}, both shared by all ledgers of a bank.
+ * <p>
+ * Rows keep the insertion order. A removed row is only marked as deleted; the columns are
+ * compacted once more than half of the rows are deleted. An open-addressing table of row numbers,
+ * keyed by the hash codes of the transactions, finds equal transactions in constant time.
+ * <p>
+ * The rows sorted by date, together with {@link PrefixSums} of their calculated amounts for
+ * balances as of a date, are built on the first query by date and kept while transactions are
+ * added in date order; deleted rows are skipped. Adding an earlier transaction or compacting the
+ * rows drops them until the next query.
+ * <p>
+ * Likewise, a {@link CounterpartyIndex} of the rows of transfers is built on the first query for a
+ * counterparty or for the flows of the account, kept up to date by adding and removing rows and
+ * dropped by compacting them.
+ * <p>
+ * The ledger holds no {@link Transaction} objects. Every transaction handed out is built from its
+ * row, so changing it does not change the ledger.
+ */
+final class ColumnarLedger implements Iterable<Transaction> {
+
+    private static final byte PAYMENT = 0;
+    private static final byte INCOMING_TRANSFER = 1;
+    private static final byte OUTGOING_TRANSFER = 2;
+    private static final byte DELETED = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final StringDictionary strings;
+    private final RateTable rates;
+
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] dates = new int[INITIAL_CAPACITY];
+    private int[] descriptions = new int[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private long[] calculated = new long[INITIAL_CAPACITY];
+    private int[] rateIds = new int[INITIAL_CAPACITY];
+    private int[] senders = new int[INITIAL_CAPACITY];
+    private int[] recipients = new int[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    /**
+     * The number of rows, including deleted ones
+     * The number of transactions
+     * The sum of the calculated amounts of all transactions
+     * Row number + 1 by hash code, 0 for an empty slot
+     */
+    private int rows;
+    private int size;
+    private long balance;
+    private int[] table = new int[2 * INITIAL_CAPACITY];
+    /**
+     * The rows sorted by date, null until the next query by date
+     * The number of rows in {@code byDate}
+     * The calculated amounts in the order of {@code byDate}, 0 for a deleted row
+     */
+    private int[] byDate;
+    private int byDateSize;
+    private PrefixSums byDateSums;
+    /**
+     * The rows of transfers by counterparty, null until the next query for a counterparty
+     */
+    private CounterpartyIndex<Integer> counterparties;
+
+    /**
+     * Creates an empty ledger
+     *
+     * @param strings the dictionary of the bank
+     * @param rates   the rate table of the bank
+     */
+    ColumnarLedger(StringDictionary strings, RateTable rates) {
+        this.strings = strings;
+        this.rates = rates;
+    }
+
+    /**
+     * Checks whether a transaction can be stored in a ledger
+     *
+     * @param transaction the transaction
+     * @return true for payments, incoming and outgoing transfers
+     */
+    static boolean supports(Transaction transaction) {
+        return type(transaction) != DELETED;
+    }
+
+    /**
+     * Adds a transaction as the last row
+     *
+     * @param transaction the transaction, see {@link #supports(Transaction)}
+     * @return false if an equal transaction is already part of the ledger
+     */
+    boolean add(Transaction transaction) {
+        if (find(transaction) >= 0) {
+            return false;
+        }
+        byte type = type(transaction);
+        if (type == DELETED) {
+            throw new IllegalArgumentException("Unsupported transaction class " + transaction.getClass().getName());
+        }
+        if (rows == types.length) {
+            grow(2 * types.length);
+        }
+        int row = rows++;
+        types[row] = type;
+        dates[row] = dateId(transaction.getDate());
+        descriptions[row] = strings.id(transaction.getDescription());
+        amounts[row] = transaction.getAmountUnits();
+        if (transaction instanceof Payment payment) {
+            rateIds[row] = rates.id(payment.getRates());
+            senders[row] = StringDictionary.NULL;
+            recipients[row] = StringDictionary.NULL;
+        } else if (transaction instanceof Transfer transfer) {
+            rateIds[row] = RateTable.ABSENT;
+            senders[row] = strings.id(transfer.getSender());
+            recipients[row] = strings.id(transfer.getRecipient());
+        }
+        hashes[row] = transaction.hashCode();
+        calculated[row] = transaction.calculateUnits();
+        balance += calculated[row];
+        size++;
+        if (byDate != null) {
+            appendByDate(row);
+        }
+        if (counterparties != null && transaction instanceof Transfer transfer) {
+            counterparties.add(transfer.getCounterparty(), row, row, calculated[row]);
+        }
+
+        if (2 * rows > table.length) {
+            rehash(2 * table.length);
+        } else {
+            insert(row);
+        }
+        return true;
+    }
+
+    /**
+     * Adds transactions as the last rows. The columns and the hash table grow once for the whole
+     * batch; if the batch is larger than the ledger, the rows sorted by date and the counterparty
+     * index are dropped first and built again by the next query.
+     *
+     * @param transactions the transactions, in order, see {@link #supports(Transaction)}
+     */
+    void addAll(Collection<? extends Transaction> transactions) {
+        int capacity = rows + transactions.size();
+        if (capacity > types.length) {
+            grow(Math.max(capacity, 2 * types.length));
+        }
+        if (2 * capacity > table.length) {
+            rehash(Integer.highestOneBit(2 * capacity - 1) << 1);
+        }
+        if (transactions.size() > size) {
+            byDate = null;
+            counterparties = null;
+        }
+        for (Transaction transaction : transactions) {
+            add(transaction);
+        }
+    }
+
+    /**
+     * Removes the row of a transaction
+     *
+     * @param transaction the transaction
+     * @return false if the transaction is not part of the ledger
+     */
+    boolean remove(Transaction transaction) {
+        int row = find(transaction);
+        if (row < 0) {
+            return false;
+        }
+        types[row] = DELETED;
+        balance -= calculated[row];
+        size--;
+        if (byDate != null) {
+            byDateSums.add(byDatePosition(row), -calculated[row]);
+        }
+        if (counterparties != null && transaction instanceof Transfer transfer) {
+            counterparties.remove(transfer.getCounterparty(), row, calculated[row]);
+        }
+        if (rows - size > size && rows > INITIAL_CAPACITY) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether an equal transaction is part of the ledger
+     *
+     * @param transaction the transaction
+     * @return true if the ledger contains the transaction
+     */
+    boolean contains(Transaction transaction) {
+        return find(transaction) >= 0;
+    }
+
+    /**
+     * Get the number of transactions
+     *
+     * @return the size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the sum of the calculated amounts of all transactions
+     *
+     * @return the balance
+     */
+    double getBalance() {
+        return Money.toDouble(balance);
+    }
+
+    /**
+     * Builds all transactions
+     *
+     * @return the transactions in insertion order
+     */
+    List<Transaction> toList() {
+        List<Transaction> transactions = new ArrayList<>(size);
+        for (Transaction transaction : this) {
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    /**
+     * Get the transactions sorted by their calculated amount. Transactions with the same amount
+     * keep their order. Only the returned transactions are built.
+     *
+     * @param asc true for ascending, false for descending order
+     * @return the sorted transactions
+     */
+    List<Transaction> sorted(boolean asc) {
+        return sorted(asc, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get a page of the transactions sorted by their calculated amount. Unless the page reaches the
+     * end, the rows up to its end are selected with a bounded heap instead of sorting all rows.
+     * Only the transactions of the page are built.
+     *
+     * @param asc    true for ascending, false for descending order
+     * @param offset the number of sorted transactions to skip
+     * @param limit  the maximum number of transactions of the page
+     * @return the sorted transactions of the page
+     */
+    List<Transaction> sorted(boolean asc, int offset, int limit) {
+        int[] order = sortedRows(TopK.pageEnd(offset, limit), asc);
+        List<Transaction> transactions = new ArrayList<>(Math.max(0, order.length - offset));
+        for (int i = offset; i < order.length; i++) {
+            transactions.add(transaction(order[i]));
+        }
+        return transactions;
+    }
+
+    /**
+     * Get the transactions with the smallest or largest calculated amounts
+     *
+     * @param k   the number of transactions
+     * @param asc true for the smallest amounts in ascending order, false for the largest ones in
+     *            descending order
+     * @return the sorted transactions, the same as the first k of {@link #sorted(boolean)}
+     */
+    List<Transaction> top(int k, boolean asc) {
+        return sorted(asc, 0, k);
+    }
+
+    /**
+     * Get the transactions with a positive or negative calculated amount. Only the matching
+     * transactions are built.
+     *
+     * @param positive true for positive, false for negative amounts
+     * @return the matching transactions in their order
+     */
+    List<Transaction> byType(boolean positive) {
+        return byType(positive, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get a page of the transactions with a positive or negative calculated amount. The scan stops
+     * at the end of the page and only the transactions of the page are built.
+     *
+     * @param positive true for positive, false for negative amounts
+     * @param offset   the number of matching transactions to skip
+     * @param limit    the maximum number of transactions of the page
+     * @return the matching transactions of the page in their order
+     */
+    List<Transaction> byType(boolean positive, int offset, int limit) {
+        List<Transaction> transactions = new ArrayList<>(Math.min(limit, size));
+        int skipped = 0;
+        for (int row = 0; row < rows && transactions.size() < limit; row++) {
+            if (types[row] != DELETED && (positive ? calculated[row] > 0 : calculated[row] < 0)) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    transactions.add(transaction(row));
+                }
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Get the transactions dated within a period by a binary search of the rows sorted by date
+     *
+     * @param from the first date, as yyyymmdd
+     * @param to   the last date, as yyyymmdd
+     * @return the transactions sorted by date, transactions of the same date in insertion order
+     */
+    List<Transaction> between(int from, int to) {
+        if (byDate == null) {
+            sortByDate();
+        }
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = byDateLowerBound(from); i < byDateSize && day(byDate[i]) <= to; i++) {
+            if (types[byDate[i]] != DELETED) {
+                transactions.add(transaction(byDate[i]));
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Get the sum of the calculated amounts of the transactions dated up to a day, using the prefix
+     * sums of the rows sorted by date
+     *
+     * @param to the last date, as yyyymmdd
+     * @return the balance as of the end of that day, without transactions of an unknown date
+     */
+    double getBalance(int to) {
+        if (byDate == null) {
+            sortByDate();
+        }
+        return Money.toDouble(byDateSums.sum(byDateLowerBound(to + 1)) - byDateSums.sum(byDateLowerBound(0)));
+    }
+
+    /**
+     * Iterates over the transactions matching a query. The rows are checked by their columns, so
+     * only matching transactions are built. A query with a date range uses the rows sorted by date,
+     * one for a counterparty otherwise the rows of the counterparty index.
+     *
+     * @param query the query
+     * @return the matching transactions, in insertion order or by date for a date range
+     */
+    Iterator<Transaction> iterator(TransactionQuery query) {
+        int counterparty = query.getCounterparty() == null ? StringDictionary.NULL : strings.find(query.getCounterparty());
+        if (counterparty == StringDictionary.ABSENT) {
+            return Collections.emptyIterator();
+        }
+        if (query.hasDates() && byDate == null) {
+            sortByDate();
+        }
+        int[] order = query.hasDates() ? byDate
+                : query.getCounterparty() != null ? counterpartyRows(query.getCounterparty()) : null;
+        int start = query.hasDates() ? byDateLowerBound(query.getFrom()) : 0;
+        int end = query.hasDates() ? byDateSize : order != null ? order.length : rows;
+        return new Iterator<>() {
+            private int position = match(start);
+
+            @Override
+            public boolean hasNext() {
+                return position < end;
+            }
+
+            @Override
+            public Transaction next() {
+                if (position >= end) {
+                    throw new NoSuchElementException();
+                }
+                Transaction transaction = transaction(row(position));
+                position = match(position + 1);
+                return transaction;
+            }
+
+            private int row(int position) {
+                return order == null ? position : order[position];
+            }
+
+            private int match(int position) {
+                for (; position < end; position++) {
+                    int row = row(position);
+                    if (query.hasDates() && day(row) > query.getTo()) {
+                        return end;
+                    }
+                    if (types[row] != DELETED && query.matchesDay(day(row)) && query.matchesAmount(calculated[row])
+                            && (query.getCounterparty() == null || counterparty(row) == counterparty)) {
+                        return position;
+                    }
+                }
+                return end;
+            }
+        };
+    }
+
+    /**
+     * Get the flows of money with each counterparty, using the counterparty index
+     *
+     * @return the flows by counterparty
+     */
+    Map<String, CounterpartyFlow> flows() {
+        return counterpartyIndex().flows();
+    }
+
+    /**
+     * Get the counterparties with the largest volume, using the counterparty index
+     *
+     * @param k the number of counterparties
+     * @return the flows of the counterparties, by descending volume
+     */
+    List<CounterpartyFlow> topCounterparties(int k) {
+        return counterpartyIndex().top(k);
+    }
+
+    /**
+     * Re-rates the payments charged with some rates in one pass over the rows: their rate ids,
+     * calculated amounts and hash codes and the balance are updated, and the rows sorted by date are
+     * dropped if an amount changed. Transfers, and with them the counterparty index, stay the same.
+     *
+     * @param from the id of the rates of the payments to re-rate
+     * @param to   the id of the new rates
+     * @return the number of re-rated payments
+     */
+    int rerate(int from, int to) {
+        InterestRates rates = this.rates.get(to);
+        // the hash code of a payment adds the hash code of its rates to that of the other attributes
+        int hashChange = rates.hashCode() - this.rates.get(from).hashCode();
+        int rerated = 0;
+        boolean amountsChanged = false;
+        for (int row = 0; row < rows; row++) {
+            if (types[row] != PAYMENT || rateIds[row] != from) {
+                continue;
+            }
+            rateIds[row] = to;
+            hashes[row] += hashChange;
+            long amount = rates.apply(amounts[row]);
+            if (amount != calculated[row]) {
+                balance += amount - calculated[row];
+                calculated[row] = amount;
+                amountsChanged = true;
+            }
+            rerated++;
+        }
+        if (rerated > 0) {
+            rehash(table.length);
+        }
+        if (amountsChanged) {
+            byDate = null;
+        }
+        return rerated;
+    }
+
+    /**
+     * Offers the description and the counterparty of every transaction to a search, without building
+     * the transactions
+     *
+     * @param account the account of the ledger
+     * @param scan    the search, getting the rows as references
+     */
+    void scan(String account, SearchIndex.Scan<Integer> scan) {
+        for (int row = 0; row < rows; row++) {
+            if (types[row] != DELETED) {
+                scan.add(account, strings.get(descriptions[row]), types[row] == PAYMENT ? null : strings.get(counterparty(row)), row);
+            }
+        }
+    }
+
+    /**
+     * Builds the transaction of a row
+     *
+     * @param row the row, not deleted
+     * @return a new transaction object
+     */
+    Transaction get(int row) {
+        return transaction(row);
+    }
+
+    /**
+     * Builds the transactions one at a time, in insertion order
+     */
+    @Override
+    public Iterator<Transaction> iterator() {
+        return new Iterator<>() {
+            private int row = skipDeleted(0);
+
+            @Override
+            public boolean hasNext() {
+                return row < rows;
+            }
+
+            @Override
+            public Transaction next() {
+                if (row >= rows) {
+                    throw new NoSuchElementException();
+                }
+                Transaction transaction = transaction(row);
+                row = skipDeleted(row + 1);
+                return transaction;
+            }
+        };
+    }
+
+    /**
+     * Get the id of the other party of a transfer, {@link StringDictionary#ABSENT} for a payment
+     */
+    private int counterparty(int row) {
+        return switch (types[row]) {
+            case INCOMING_TRANSFER -> senders[row];
+            case OUTGOING_TRANSFER -> recipients[row];
+            default -> StringDictionary.ABSENT;
+        };
+    }
+
+    private int[] counterpartyRows(String counterparty) {
+        return counterpartyIndex().get(counterparty).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private CounterpartyIndex<Integer> counterpartyIndex() {
+        if (counterparties == null) {
+            counterparties = new CounterpartyIndex<>();
+            for (int row = 0; row < rows; row++) {
+                if (types[row] != DELETED && types[row] != PAYMENT) {
+                    counterparties.add(strings.get(counterparty(row)), row, row, calculated[row]);
+                }
+            }
+        }
+        return counterparties;
+    }
+
+    private int skipDeleted(int row) {
+        while (row < rows && types[row] == DELETED) {
+            row++;
+        }
+        return row;
+    }
+
+    private Transaction transaction(int row) {
+        String date = date(dates[row]);
+        String description = strings.get(descriptions[row]);
+        double amount = Money.toDouble(amounts[row]);
+        try {
+            return switch (types[row]) {
+                case PAYMENT -> new Payment(date, description, amount, rates.get(rateIds[row]));
+                case INCOMING_TRANSFER -> new IncomingTransfer(date, description, amount, strings.get(senders[row]), strings.get(recipients[row]));
+                default -> new OutgoingTransfer(date, description, amount, strings.get(senders[row]), strings.get(recipients[row]));
+            };
+        } catch (NumericValueInvalidException e) {
+            // The values were taken from a valid transaction
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get the row of a transaction equal to the given one, comparing the ids of its strings
+     *
+     * @return the row, -1 if there is none
+     */
+    private int find(Transaction transaction) {
+        boolean payment = transaction instanceof Payment;
+        int date = findDate(transaction.getDate());
+        int description = strings.find(transaction.getDescription());
+        if (date == StringDictionary.ABSENT || description == StringDictionary.ABSENT) {
+            return -1;
+        }
+        int rate = payment ? rates.find(((Payment) transaction).getRates()) : RateTable.ABSENT;
+        if (payment && rate == RateTable.ABSENT) {
+            return -1;
+        }
+        int sender = StringDictionary.NULL;
+        int recipient = StringDictionary.NULL;
+        if (transaction instanceof Transfer transfer) {
+            sender = strings.find(transfer.getSender());
+            recipient = strings.find(transfer.getRecipient());
+            if (sender == StringDictionary.ABSENT || recipient == StringDictionary.ABSENT) {
+                return -1;
+            }
+        }
+
+        int hash = transaction.hashCode();
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int row = table[slot] - 1;
+            if (hashes[row] != hash || types[row] == DELETED || (types[row] == PAYMENT) != payment
+                    || dates[row] != date || descriptions[row] != description || amounts[row] != transaction.getAmountUnits()) {
+                continue;
+            }
+            if (payment) {
+                if (rateIds[row] == rate) {
+                    return row;
+                }
+            } else if (senders[row] == sender && recipients[row] == recipient) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Dates written as dd.MM.yyyy are stored as yyyymmdd, any other date as -(id + 2) of the dictionary
+     */
+    private int dateId(String date) {
+        int encoded = Dates.parse(date);
+        return encoded >= 0 ? encoded : -(strings.id(date) + 2);
+    }
+
+    private int findDate(String date) {
+        int encoded = Dates.parse(date);
+        if (encoded >= 0) {
+            return encoded;
+        }
+        int id = strings.find(date);
+        return id == StringDictionary.ABSENT ? id : -(id + 2);
+    }
+
+    /**
+     * Get the date of a row as yyyymmdd, {@link Dates#UNKNOWN} for a date kept in the dictionary
+     */
+    private int day(int row) {
+        return Math.max(dates[row], Dates.UNKNOWN);
+    }
+
+    private void sortByDate() {
+        // the row number in the low bits keeps rows of the same date in insertion order
+        long[] keys = new long[size];
+        int n = 0;
+        for (int row = 0; row < rows; row++) {
+            if (types[row] != DELETED) {
+                keys[n++] = (long) day(row) << 32 | row;
+            }
+        }
+        Arrays.sort(keys);
+        byDate = new int[Math.max(INITIAL_CAPACITY, size)];
+        long[] amounts = new long[size];
+        for (int i = 0; i < size; i++) {
+            byDate[i] = (int) keys[i];
+            amounts[i] = calculated[byDate[i]];
+        }
+        byDateSize = size;
+        byDateSums = new PrefixSums(amounts, size, byDate.length);
+    }
+
+    private void appendByDate(int row) {
+        if (byDateSize > 0 && day(row) < day(byDate[byDateSize - 1])) {
+            byDate = null;
+            return;
+        }
+        if (byDateSize == byDate.length) {
+            byDate = Arrays.copyOf(byDate, 2 * byDateSize);
+        }
+        byDate[byDateSize++] = row;
+        byDateSums.append(calculated[row]);
+    }
+
+    /**
+     * Get the first position in {@code byDate} whose date is not before the given one
+     */
+    private int byDateLowerBound(int day) {
+        int low = 0;
+        int high = byDateSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (day(byDate[middle]) < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int byDatePosition(int row) {
+        int i = byDateLowerBound(day(row));
+        while (byDate[i] != row) {
+            i++;
+        }
+        return i;
+    }
+
+    private String date(int date) {
+        return date >= 0 ? Dates.format(date) : strings.get(-date - 2);
+    }
+
+    private static byte type(Transaction transaction) {
+        if (transaction instanceof Payment) {
+            return PAYMENT;
+        } else if (transaction instanceof IncomingTransfer) {
+            return INCOMING_TRANSFER;
+        } else if (transaction instanceof OutgoingTransfer) {
+            return OUTGOING_TRANSFER;
+        }
+        return DELETED;
+    }
+
+    private void insert(int row) {
+        int mask = table.length - 1;
+        int slot = spread(hashes[row]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = row + 1;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int row = 0; row < rows; row++) {
+            if (types[row] != DELETED) {
+                insert(row);
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow(int capacity) {
+        types = Arrays.copyOf(types, capacity);
+        dates = Arrays.copyOf(dates, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        calculated = Arrays.copyOf(calculated, capacity);
+        rateIds = Arrays.copyOf(rateIds, capacity);
+        senders = Arrays.copyOf(senders, capacity);
+        recipients = Arrays.copyOf(recipients, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+    }
+
+    /**
+     * Moves the remaining rows to the front, keeping their order, and rebuilds the hash table
+     */
+    private void compact() {
+        int to = 0;
+        for (int from = 0; from < rows; from++) {
+            if (types[from] == DELETED) {
+                continue;
+            }
+            types[to] = types[from];
+            dates[to] = dates[from];
+            descriptions[to] = descriptions[from];
+            amounts[to] = amounts[from];
+            calculated[to] = calculated[from];
+            rateIds[to] = rateIds[from];
+            senders[to] = senders[from];
+            recipients[to] = recipients[from];
+            hashes[to] = hashes[from];
+            to++;
+        }
+        rows = to;
+        byDate = null;
+        counterparties = null;
+        int capacity = 2 * INITIAL_CAPACITY;
+        while (capacity < 2 * rows) {
+            capacity <<= 1;
+        }
+        rehash(capacity);
+    }
+
+    /**
+     * Get the rows of the first transactions sorted by their calculated amount
+     *
+     * @param count the number of rows
+     * @param asc   true for ascending, false for descending order
+     * @return the rows, at most {@code count}
+     */
+    private int[] sortedRows(int count, boolean asc) {
+        if (count < size) {
+            TopK<Integer> top = new TopK<>(count, asc);
+            for (int row = 0; row < rows; row++) {
+                if (types[row] != DELETED && top.accepts(calculated[row])) {
+                    top.offer(calculated[row], row);
+                }
+            }
+            return top.toList().stream().mapToInt(Integer::intValue).toArray();
+        }
+        int[] order = new int[size];
+        int n = 0;
+        for (int row = 0; row < rows; row++) {
+            if (types[row] != DELETED) {
+                order[n++] = row;
+            }
+        }
+        mergeSort(order, new int[size], 0, size, calculated, asc);
+        return order;
+    }
+
+    /**
+     * Stable merge sort of rows by their key
+     */
+    private static void mergeSort(int[] order, int[] buffer, int from, int to, long[] keys, boolean asc) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(order, buffer, from, middle, keys, asc);
+        mergeSort(order, buffer, middle, to, keys, asc);
+        if (inOrder(keys[order[middle - 1]], keys[order[middle]], asc)) {
+            return;
+        }
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && inOrder(keys[buffer[left]], keys[buffer[right]], asc))) {
+                order[i] = buffer[left++];
+            } else {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+
+    private static boolean inOrder(long first, long second, boolean asc) {
+        return asc ? first <= second : second <= first;
+    }
+}
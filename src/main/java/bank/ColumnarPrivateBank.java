@@ -0,0 +1,459 @@
+package bank;
+
+import bank.exceptions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * A bank that keeps the transactions of every account column by column in primitive arrays
+ * instead of one object per transaction, see {@link ColumnarLedger}. Descriptions, senders,
+ * recipients and dates in another format than {@code dd.MM.yyyy} are stored once per bank in a
+ * dictionary, the interest rates of payments once per bank in a {@link RateTable}.
+ * <p>
+ * Balances, sorting and filtering by type run over the arrays; {@link Transaction} objects are
+ * only built for the transactions returned to the caller. The returned transactions are copies:
+ * changing them through their setters does not change the bank.
+ */
+public class ColumnarPrivateBank implements Bank {
+
+    private final HashMap<String, ColumnarLedger> accountsToTransactions = new HashMap<>();
+    private final StringDictionary strings = new StringDictionary();
+    /**
+     * The name of the bank
+     * The interest rates of the bank and the rates of its payments
+     */
+    private final String name;
+    private final RateTable rates;
+    private String directoryName;
+    private LedgerStorage storage = LedgerStorage.json();
+
+    /**
+     * Constructor for the ColumnarPrivateBank class
+     *
+     * @param name             The name of the bank
+     * @param incomingInterest The interest on deposits
+     * @param outgoingInterest The interest on withdrawals
+     * @throws NumericValueInvalidException If the interest is not between 0 and 1
+     */
+    public ColumnarPrivateBank(String name, double incomingInterest, double outgoingInterest) throws NumericValueInvalidException {
+        this.name = name;
+        this.rates = new RateTable(InterestRates.of(incomingInterest, outgoingInterest));
+    }
+
+    @Override
+    public void createAccount(String account) throws AccountAlreadyExistsException {
+        if (accountsToTransactions.containsKey(account)) {
+            throw new AccountAlreadyExistsException();
+        }
+        accountsToTransactions.put(account, new ColumnarLedger(strings, rates));
+    }
+
+    /**
+     * Adds an account (with specified transactions) to the bank. The account is only added if all
+     * transactions are valid.
+     *
+     * @param account      the account to be added
+     * @param transactions a list of already existing transactions which should be added to the newly created account
+     * @throws AccountAlreadyExistsException    if the account already exists
+     * @throws TransactionAlreadyExistException if the list contains duplicate transactions
+     * @throws TransactionAttributeException    if the validation check for certain attributes fail
+     */
+    @Override
+    public void createAccount(String account, List<Transaction> transactions) throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException, NumericValueInvalidException {
+        if (accountsToTransactions.containsKey(account)) {
+            throw new AccountAlreadyExistsException();
+        }
+        accountsToTransactions.put(account, new ColumnarLedger(strings, rates));
+        try {
+            addTransactions(account, transactions);
+        } catch (TransactionAlreadyExistException | TransactionAttributeException e) {
+            accountsToTransactions.remove(account);
+            throw e;
+        } catch (AccountDoesNotExistException e) {
+            // This should never happen
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void addTransaction(String account, Transaction transaction) throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, NumericValueInvalidException {
+        ColumnarLedger ledger = ledger(account);
+        validate(transaction);
+        if (!ledger.add(transaction)) {
+            throw new TransactionAlreadyExistException();
+        }
+    }
+
+    @Override
+    public void addTransactions(String account, Collection<Transaction> transactions) throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, NumericValueInvalidException {
+        ColumnarLedger ledger = ledger(account);
+        HashSet<Transaction> batch = new HashSet<>(2 * transactions.size());
+        for (Transaction transaction : transactions) {
+            validate(transaction);
+            if (ledger.contains(transaction) || !batch.add(transaction)) {
+                throw new TransactionAlreadyExistException();
+            }
+        }
+        ledger.addAll(transactions);
+    }
+
+    @Override
+    public void transfer(String from, String to, String date, String description, double amount) throws AccountDoesNotExistException, TransactionAlreadyExistException, TransactionAttributeException, NumericValueInvalidException {
+        ColumnarLedger sender = ledger(from);
+        ColumnarLedger recipient = ledger(to);
+        OutgoingTransfer outgoing = new OutgoingTransfer(date, description, amount, from, to);
+        IncomingTransfer incoming = new IncomingTransfer(date, description, amount, from, to);
+        if (from.equals(to)) {
+            throw new TransactionAttributeException();
+        }
+        validate(outgoing);
+        if (sender.contains(outgoing) || recipient.contains(incoming)) {
+            throw new TransactionAlreadyExistException();
+        }
+        sender.add(outgoing);
+        recipient.add(incoming);
+    }
+
+    @Override
+    public void removeTransaction(String account, Transaction transaction) throws AccountDoesNotExistException, TransactionDoesNotExistException {
+        if (!ledger(account).remove(transaction)) {
+            throw new TransactionDoesNotExistException();
+        }
+    }
+
+    /**
+     * Checks whether the specified transaction for a given account exists.
+     *
+     * @param account     the account from which the transaction is checked
+     * @param transaction the transaction to search/look for
+     * @return false if the transaction or the account does not exist
+     */
+    @Override
+    public boolean containsTransaction(String account, Transaction transaction) {
+        ColumnarLedger ledger = accountsToTransactions.get(account);
+        return ledger != null && ledger.contains(transaction);
+    }
+
+    @Override
+    public double getAccountBalance(String account) throws AccountDoesNotExistException {
+        return ledger(account).getBalance();
+    }
+
+    @Override
+    public double getAccountBalance(String account, String date) throws AccountDoesNotExistException, TransactionAttributeException {
+        int day = Dates.parseBound(date);
+        return ledger(account).getBalance(day);
+    }
+
+    /**
+     * Builds the transactions of an account. Later changes to the account are not reflected in the
+     * returned list.
+     *
+     * @param account the selected account
+     * @return the list of all transactions for the specified account, null if the account does not exist
+     */
+    @Override
+    public List<Transaction> getTransactions(String account) {
+        ColumnarLedger ledger = accountsToTransactions.get(account);
+        return ledger == null ? null : ledger.toList();
+    }
+
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc) {
+        ColumnarLedger ledger = accountsToTransactions.get(account);
+        return ledger == null ? null : ledger.sorted(asc);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive) {
+        ColumnarLedger ledger = accountsToTransactions.get(account);
+        return ledger == null ? null : ledger.byType(positive);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc, int offset, int limit) {
+        TopK.checkPage(offset, limit);
+        ColumnarLedger ledger = accountsToTransactions.get(account);
+        return ledger == null ? null : ledger.sorted(asc, offset, limit);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive, int offset, int limit) {
+        TopK.checkPage(offset, limit);
+        ColumnarLedger ledger = accountsToTransactions.get(account);
+        return ledger == null ? null : ledger.byType(positive, offset, limit);
+    }
+
+    @Override
+    public List<Transaction> topK(String account, int k, boolean asc) {
+        TopK.checkPage(0, k);
+        ColumnarLedger ledger = accountsToTransactions.get(account);
+        return ledger == null ? null : ledger.top(k, asc);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The account must not be changed while the stream is consumed. The rows are filtered by their
+     * columns and only the matching transactions are built.
+     */
+    @Override
+    public Stream<Transaction> streamTransactions(String account, TransactionQuery query) throws AccountDoesNotExistException {
+        ColumnarLedger ledger = ledger(account);
+        return TransactionQuery.stream(() -> ledger.iterator(query));
+    }
+
+    @Override
+    public Map<String, CounterpartyFlow> getCounterpartyFlows(String account) throws AccountDoesNotExistException {
+        return ledger(account).flows();
+    }
+
+    @Override
+    public List<CounterpartyFlow> getTopCounterparties(String account, int k) throws AccountDoesNotExistException {
+        TopK.checkPage(0, k);
+        return ledger(account).topCounterparties(k);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The bank keeps no index; the rows are scanned by their dictionary strings and only the
+     * transactions of the hits are built.
+     */
+    @Override
+    public List<SearchHit> searchTransactions(String text, int limit) {
+        TopK.checkPage(0, limit);
+        SearchIndex.Scan<Integer> scan = new SearchIndex.Scan<>(text);
+        accountsToTransactions.forEach((account, ledger) -> ledger.scan(account, scan));
+        return scan.hits(limit, (account, row) -> accountsToTransactions.get(account).get(row));
+    }
+
+    @Override
+    public InterestRates getInterestRates() {
+        return rates.current();
+    }
+
+    /**
+     * {@inheritDoc}
+     * The rows of the payments refer to their rates by the id in the rate table of the bank, so the
+     * accounts are re-rated in parallel by comparing and replacing ints; no transactions are built.
+     */
+    @Override
+    public int rerate(double incomingInterest, double outgoingInterest) throws NumericValueInvalidException {
+        InterestRates to = InterestRates.of(incomingInterest, outgoingInterest);
+        int from = rates.id(rates.current());
+        int id = rates.id(rates.setCurrent(to));
+        if (from == id) {
+            return 0;
+        }
+        return accountsToTransactions.values().parallelStream().mapToInt(ledger -> ledger.rerate(from, id)).sum();
+    }
+
+    @Override
+    public List<Transaction> getTransactionsBetween(String account, String from, String to) throws AccountDoesNotExistException, TransactionAttributeException {
+        int first = Dates.parseBound(from);
+        int last = Dates.parseBound(to);
+        return ledger(account).between(first, last);
+    }
+
+    /**
+     * Writes an account to {@code persist/<directoryName>/Konto_<account>.json}, or the extension of
+     * the storage. The transactions are built one at a time while they are written.
+     *
+     * @param account the account to be written
+     * @throws IOException if the file cannot be written or the account does not exist
+     */
+    @Override
+    public void writeAccount(String account) throws IOException {
+        AccountFiles.write(AccountFiles.file(directoryName, account, storage), ledgerToWrite(account), storage);
+    }
+
+    /**
+     * Writes several accounts like {@link #writeAccount(String)}, syncing the directory once for all of them
+     *
+     * @param accounts the accounts to be written
+     * @throws IOException if a file cannot be written or an account does not exist
+     */
+    @Override
+    public void writeAccounts(Collection<String> accounts) throws IOException {
+        for (String account : accounts) {
+            ledgerToWrite(account);
+        }
+        List<File> files = new ArrayList<>();
+        for (String account : accounts) {
+            File file = AccountFiles.file(directoryName, account, storage);
+            AccountFiles.replace(file, ledgerToWrite(account), storage);
+            files.add(file);
+        }
+        if (!files.isEmpty()) {
+            AccountFiles.syncDirectory(files.get(0).getParentFile());
+        }
+        for (File file : files) {
+            Files.deleteIfExists(AccountFiles.sibling(file).toPath());
+        }
+    }
+
+    /**
+     * Get the ledger of an account to be written
+     *
+     * @throws IOException if the account does not exist
+     */
+    private ColumnarLedger ledgerToWrite(String account) throws IOException {
+        ColumnarLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null) {
+            throw new IOException("Error: Account " + account + " does not exist!");
+        }
+        return ledger;
+    }
+
+    @Override
+    public void readAccounts() {
+        try {
+            AccountFiles.deleteTemporary(directoryName);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (final File fileEntry : AccountFiles.list(directoryName, storage)) {
+            String accountOwner = AccountFiles.accountName(fileEntry);
+
+            try {
+                createAccount(accountOwner, AccountFiles.read(fileEntry, storage));
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (TransactionAlreadyExistException | NumericValueInvalidException | AccountAlreadyExistsException |
+                     TransactionAttributeException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Override
+    public void deleteAccount(String account) throws AccountDoesNotExistException, IOException {
+        if (accountsToTransactions.remove(account) == null) {
+            throw new AccountDoesNotExistException();
+        }
+        File file = AccountFiles.file(directoryName, account, storage);
+        if (!AccountFiles.deleteIfExists(file)) {
+            throw new NoSuchFileException(file.getPath());
+        }
+        AccountFiles.syncDirectory(file.getParentFile());
+    }
+
+    @Override
+    public List<String> getAllAccounts() {
+        return new ArrayList<>(accountsToTransactions.keySet());
+    }
+
+    @Override
+    public String toString() {
+        String newLine = System.getProperty("line.separator");
+        StringBuilder accounts = new StringBuilder("{");
+        for (Map.Entry<String, ColumnarLedger> entry : accountsToTransactions.entrySet()) {
+            if (accounts.length() > 1) {
+                accounts.append(", ");
+            }
+            accounts.append(entry.getKey()).append("=").append(entry.getValue().toList());
+        }
+        return ("Name: " + name + newLine + "Incoming Interest: " + getIncomingInterest() + newLine + "Outgoing Interest: " + getOutgoingInterest() +
+                newLine + "Accounts: " + newLine + accounts.append("}"));
+    }
+
+    private void validate(Transaction transaction) throws TransactionAttributeException {
+        if (transaction.getAmount() == 0 || !ColumnarLedger.supports(transaction)) {
+            throw new TransactionAttributeException();
+        }
+    }
+
+    private ColumnarLedger ledger(String account) throws AccountDoesNotExistException {
+        ColumnarLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null) {
+            throw new AccountDoesNotExistException();
+        }
+        return ledger;
+    }
+
+    //region Getters and Setters
+
+    /**
+     * Get outgoing interest on withdrawals
+     *
+     * @return the outgoing interest
+     */
+    public double getOutgoingInterest() {
+        return rates.current().getOutgoing();
+    }
+
+    /**
+     * Set outgoing interest on withdrawals. The payments keep their rates, see {@link #rerate(double, double)}.
+     *
+     * @param outgoingInterest the outgoing interest
+     */
+    public void setOutgoingInterest(double outgoingInterest) throws NumericValueInvalidException {
+        if (outgoingInterest < 0 || outgoingInterest > 1) {
+            throw new NumericValueInvalidException("Error: Negative Input for outgoing interest: Withdrawal)!");
+        }
+        rates.setCurrent(rates.current().withOutgoing(outgoingInterest));
+    }
+
+    /**
+     * Get incoming interest on deposits
+     *
+     * @return the incoming interest
+     */
+    public double getIncomingInterest() {
+        return rates.current().getIncoming();
+    }
+
+    /**
+     * Set incoming interest on deposits. The payments keep their rates, see {@link #rerate(double, double)}.
+     *
+     * @param incomingInterest the incoming interest
+     */
+    public void setIncomingInterest(double incomingInterest) throws NumericValueInvalidException {
+        if (incomingInterest < 0 || incomingInterest > 1) {
+            throw new NumericValueInvalidException("Error: Negative Input for incoming interest: Deposit)!");
+        }
+        rates.setCurrent(rates.current().withIncoming(incomingInterest));
+    }
+
+    /**
+     * Get the directory name to save/persist files to
+     *
+     * @return the directory name
+     */
+    public String getDirectoryName() {
+        return directoryName;
+    }
+
+    /**
+     * Set the directory name to save/persist files to
+     *
+     * @param directoryName the directory name
+     */
+    public void setDirectoryName(String directoryName) {
+        this.directoryName = directoryName;
+    }
+
+    /**
+     * Get the file format the accounts are persisted in
+     *
+     * @return the storage
+     */
+    public LedgerStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Set the file format the accounts are persisted in
+     *
+     * @param storage the storage, e.g. {@link LedgerStorage#binary()}
+     */
+    public void setStorage(LedgerStorage storage) {
+        this.storage = storage;
+    }
+
+    //endregion
+}
@@ -0,0 +1,798 @@
+package bank;
+
+import bank.exceptions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A thread-safe bank that can be shared between threads.
+ * <p>
+ * The accounts are kept in a {@link ConcurrentHashMap}. Each account is guarded by one of a fixed
+ * number of read-write locks (lock striping), chosen by the hash code of the account name. Reads
+ * never block each other and writes only block operations on accounts of the same stripe.
+ * Writing the files of an account is serialized by a second lock of the same stripe, which is held
+ * from the snapshot of the account until its file is renamed into place, so the file always holds
+ * the latest snapshot. Changes to the accounts do not wait for it.
+ * Transactions must not be changed through their setters while they are part of a shared bank.
+ */
+public class ConcurrentPrivateBank implements Bank {
+
+    private final ConcurrentHashMap<String, TransactionLedger> accountsToTransactions = new ConcurrentHashMap<>();
+    private final ReadWriteLock[] locks;
+    /**
+     * The locks serializing the writes and deletes of the files of the accounts, by stripe
+     */
+    private final Lock[] fileLocks;
+    /**
+     * The name of the bank
+     * The interest rates of the bank and the shared rates of its payments
+     */
+    private final String name;
+    private final RateTable rates;
+    private volatile String directoryName;
+    private volatile LedgerStorage storage = LedgerStorage.json();
+    /**
+     * The index of the words of all transactions, null until the first search. Changed only while
+     * the locks of all accounts are held, so writers see it under the lock of their account.
+     */
+    private volatile SearchIndex searchIndex;
+
+    /**
+     * Constructor for the ConcurrentPrivateBank class, using four lock stripes per available processor
+     *
+     * @param name             The name of the bank
+     * @param incomingInterest The interest on deposits
+     * @param outgoingInterest The interest on withdrawals
+     * @throws NumericValueInvalidException If the interest is not between 0 and 1
+     */
+    public ConcurrentPrivateBank(String name, double incomingInterest, double outgoingInterest) throws NumericValueInvalidException {
+        this(name, incomingInterest, outgoingInterest, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for the ConcurrentPrivateBank class
+     *
+     * @param name             The name of the bank
+     * @param incomingInterest The interest on deposits
+     * @param outgoingInterest The interest on withdrawals
+     * @param stripes          The number of locks the accounts are spread over, rounded up to a power of two
+     * @throws NumericValueInvalidException If the interest is not between 0 and 1 or the stripes are not positive
+     */
+    public ConcurrentPrivateBank(String name, double incomingInterest, double outgoingInterest, int stripes) throws NumericValueInvalidException {
+        if (stripes < 1) {
+            throw new NumericValueInvalidException("Error: The number of lock stripes must be positive!");
+        }
+        this.name = name;
+        this.rates = new RateTable(InterestRates.of(incomingInterest, outgoingInterest));
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        locks = new ReadWriteLock[size];
+        fileLocks = new Lock[size];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+            fileLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void createAccount(String account) throws AccountAlreadyExistsException {
+        Lock lock = writeLock(account);
+        lock.lock();
+        try {
+            if (accountsToTransactions.putIfAbsent(account, new TransactionLedger()) != null) {
+                throw new AccountAlreadyExistsException();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds an account (with specified transactions) to the bank. The transactions are validated
+     * before the account becomes visible to other threads.
+     *
+     * @param account      the account to be added
+     * @param transactions a list of already existing transactions which should be added to the newly created account
+     * @throws AccountAlreadyExistsException    if the account already exists
+     * @throws TransactionAlreadyExistException if the list contains duplicate transactions
+     * @throws TransactionAttributeException    if the validation check for certain attributes fail
+     */
+    @Override
+    public void createAccount(String account, List<Transaction> transactions) throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException, NumericValueInvalidException {
+        if (accountsToTransactions.containsKey(account)) {
+            throw new AccountAlreadyExistsException();
+        }
+        TransactionLedger ledger = new TransactionLedger();
+        try {
+            for (Transaction transaction : transactions) {
+                validate(transaction);
+                share(transaction);
+                if (!ledger.add(transaction)) {
+                    throw new TransactionAlreadyExistException();
+                }
+            }
+        } catch (TransactionAlreadyExistException | TransactionAttributeException e) {
+            ledger.clear();
+            throw e;
+        }
+
+        Lock lock = writeLock(account);
+        lock.lock();
+        try {
+            if (accountsToTransactions.putIfAbsent(account, ledger) != null) {
+                ledger.clear();
+                throw new AccountAlreadyExistsException();
+            }
+            SearchIndex index = searchIndex;
+            if (index != null) {
+                index.addAll(account, ledger);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addTransaction(String account, Transaction transaction) throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, NumericValueInvalidException {
+        validate(transaction);
+        Lock lock = writeLock(account);
+        lock.lock();
+        try {
+            TransactionLedger ledger = ledger(account);
+            share(transaction);
+            if (!ledger.add(transaction)) {
+                throw new TransactionAlreadyExistException();
+            }
+            SearchIndex index = searchIndex;
+            if (index != null) {
+                index.add(account, transaction);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds several transactions to an already existing account, all or none of them. The batch is
+     * validated and checked for duplicates before the lock of the account is taken; only the check
+     * against the account and the adding hold it.
+     *
+     * @param account      the account to which the transactions are added
+     * @param transactions the transactions which should be added to the specified account, in order
+     * @throws TransactionAlreadyExistException if a transaction already exists or occurs twice in the batch
+     * @throws AccountDoesNotExistException     if the specified account does not exist
+     * @throws TransactionAttributeException    if the validation check for certain attributes fail
+     */
+    @Override
+    public void addTransactions(String account, Collection<Transaction> transactions) throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, NumericValueInvalidException {
+        HashSet<Transaction> batch = new HashSet<>(2 * transactions.size());
+        for (Transaction transaction : transactions) {
+            validate(transaction);
+            if (!batch.add(transaction)) {
+                throw new TransactionAlreadyExistException();
+            }
+        }
+        Lock lock = writeLock(account);
+        lock.lock();
+        try {
+            TransactionLedger ledger = ledger(account);
+            for (Transaction transaction : transactions) {
+                if (ledger.contains(transaction)) {
+                    throw new TransactionAlreadyExistException();
+                }
+            }
+            transactions.forEach(this::share);
+            ledger.addAll(transactions);
+            SearchIndex index = searchIndex;
+            if (index != null) {
+                index.addAll(account, transactions);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Both accounts are locked for writing while the two transfers are checked and added. The locks
+     * are taken in the order of their stripes, like the locks of all accounts are, so concurrent
+     * transfers in opposite directions cannot deadlock.
+     */
+    @Override
+    public void transfer(String from, String to, String date, String description, double amount) throws AccountDoesNotExistException, TransactionAlreadyExistException, TransactionAttributeException, NumericValueInvalidException {
+        OutgoingTransfer outgoing = new OutgoingTransfer(date, description, amount, from, to);
+        IncomingTransfer incoming = new IncomingTransfer(date, description, amount, from, to);
+        if (from.equals(to)) {
+            throw new TransactionAttributeException();
+        }
+        validate(outgoing);
+        int sendingStripe = stripeIndex(from);
+        int receivingStripe = stripeIndex(to);
+        // the write locks are reentrant, so accounts of the same stripe take it twice
+        Lock first = locks[Math.min(sendingStripe, receivingStripe)].writeLock();
+        Lock second = locks[Math.max(sendingStripe, receivingStripe)].writeLock();
+        first.lock();
+        second.lock();
+        try {
+            TransactionLedger sender = ledger(from);
+            TransactionLedger recipient = ledger(to);
+            if (sender.contains(outgoing) || recipient.contains(incoming)) {
+                throw new TransactionAlreadyExistException();
+            }
+            sender.add(outgoing);
+            recipient.add(incoming);
+            SearchIndex index = searchIndex;
+            if (index != null) {
+                index.add(from, outgoing);
+                index.add(to, incoming);
+            }
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+    }
+
+    @Override
+    public void removeTransaction(String account, Transaction transaction) throws AccountDoesNotExistException, TransactionDoesNotExistException {
+        Lock lock = writeLock(account);
+        lock.lock();
+        try {
+            TransactionLedger ledger = ledger(account);
+            Transaction removed = ledger.find(transaction);
+            if (!ledger.remove(transaction)) {
+                throw new TransactionDoesNotExistException();
+            }
+            SearchIndex index = searchIndex;
+            if (index != null) {
+                index.remove(account, removed);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether the specified transaction for a given account exists.
+     *
+     * @param account     the account from which the transaction is checked
+     * @param transaction the transaction to search/look for
+     * @return false if the transaction or the account does not exist
+     */
+    @Override
+    public boolean containsTransaction(String account, Transaction transaction) {
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            TransactionLedger ledger = accountsToTransactions.get(account);
+            return ledger != null && ledger.contains(transaction);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public double getAccountBalance(String account) throws AccountDoesNotExistException {
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            return ledger(account).getBalance();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public double getAccountBalance(String account, String date) throws AccountDoesNotExistException, TransactionAttributeException {
+        int day = Dates.parseBound(date);
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            return Money.toDouble(ledger(account).getBalanceUnits(day));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the transactions of an account. Later changes to the account are not
+     * reflected in the returned list.
+     *
+     * @param account the selected account
+     * @return the list of all transactions for the specified account, null if the account does not exist
+     */
+    @Override
+    public List<Transaction> getTransactions(String account) {
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            TransactionLedger ledger = accountsToTransactions.get(account);
+            return ledger == null ? null : ledger.toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc) {
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            TransactionLedger ledger = accountsToTransactions.get(account);
+            return ledger == null ? null : ledger.sorted(asc);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive) {
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            TransactionLedger ledger = accountsToTransactions.get(account);
+            return ledger == null ? null : ledger.byType(positive, 0, Integer.MAX_VALUE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc, int offset, int limit) {
+        TopK.checkPage(offset, limit);
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            TransactionLedger ledger = accountsToTransactions.get(account);
+            return ledger == null ? null : ledger.sorted(asc, offset, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive, int offset, int limit) {
+        TopK.checkPage(offset, limit);
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            TransactionLedger ledger = accountsToTransactions.get(account);
+            return ledger == null ? null : ledger.byType(positive, offset, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> topK(String account, int k, boolean asc) {
+        TopK.checkPage(0, k);
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            TransactionLedger ledger = accountsToTransactions.get(account);
+            return ledger == null ? null : ledger.top(k, asc);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionsBetween(String account, String from, String to) throws AccountDoesNotExistException, TransactionAttributeException {
+        int first = Dates.parseBound(from);
+        int last = Dates.parseBound(to);
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            return ledger(account).between(first, last);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * When a terminal operation starts, the matching transactions are collected under the read lock
+     * of the account, so writers cannot change the account during a search. The search itself does
+     * therefore not stop at the first matches, but a parallel stream splits the collected matches
+     * evenly.
+     */
+    @Override
+    public Stream<Transaction> streamTransactions(String account, TransactionQuery query) throws AccountDoesNotExistException {
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            ledger(account);
+        } finally {
+            lock.unlock();
+        }
+        int characteristics = Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED | Spliterator.SUBSIZED;
+        return StreamSupport.stream(() -> Spliterators.spliterator(matches(account, query), characteristics), characteristics, false);
+    }
+
+    @Override
+    public Map<String, CounterpartyFlow> getCounterpartyFlows(String account) throws AccountDoesNotExistException {
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            return ledger(account).flows();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<CounterpartyFlow> getTopCounterparties(String account, int k) throws AccountDoesNotExistException {
+        TopK.checkPage(0, k);
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            return ledger(account).topCounterparties(k);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The index is built by the first search while all accounts are locked for reading, and is then
+     * updated by every writer under the lock of its account. Searches and updates of the index are
+     * serialized.
+     */
+    @Override
+    public List<SearchHit> searchTransactions(String text, int limit) {
+        TopK.checkPage(0, limit);
+        SearchIndex index = searchIndex;
+        return (index != null ? index : buildSearchIndex()).search(text, limit);
+    }
+
+    private SearchIndex buildSearchIndex() {
+        synchronized (locks) {
+            for (ReadWriteLock lock : locks) {
+                lock.readLock().lock();
+            }
+            try {
+                if (searchIndex == null) {
+                    SearchIndex index = new SearchIndex();
+                    accountsToTransactions.forEach(index::addAll);
+                    searchIndex = index;
+                }
+                return searchIndex;
+            } finally {
+                for (ReadWriteLock lock : locks) {
+                    lock.readLock().unlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public InterestRates getInterestRates() {
+        return rates.current();
+    }
+
+    /**
+     * {@inheritDoc}
+     * All accounts are locked for writing while the accounts are re-rated in parallel.
+     */
+    @Override
+    public int rerate(double incomingInterest, double outgoingInterest) throws NumericValueInvalidException {
+        InterestRates to = InterestRates.of(incomingInterest, outgoingInterest);
+        synchronized (locks) {
+            for (ReadWriteLock lock : locks) {
+                lock.writeLock().lock();
+            }
+            try {
+                InterestRates from;
+                synchronized (rates) {
+                    from = rates.current();
+                    to = rates.setCurrent(to);
+                }
+                return from == to ? 0 : TransactionLedger.rerate(accountsToTransactions.values(), from, to);
+            } finally {
+                for (ReadWriteLock lock : locks) {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the transactions of an account matching a query under its read lock
+     *
+     * @return the matching transactions, none if the account was deleted in the meantime
+     */
+    private Object[] matches(String account, TransactionQuery query) {
+        List<Transaction> matches = new ArrayList<>();
+        Lock lock = readLock(account);
+        lock.lock();
+        try {
+            TransactionLedger ledger = accountsToTransactions.get(account);
+            if (ledger != null) {
+                ledger.iterator(query).forEachRemaining(matches::add);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * Writes a snapshot of an account to {@code persist/<directoryName>/Konto_<account>.json}, or
+     * the extension of the storage.
+     * The file is written outside the account lock, but under the file lock of the account, so
+     * concurrent writes of the account are renamed into place in the order of their snapshots.
+     *
+     * @param account the account to be written
+     * @throws IOException if the file cannot be written or the account does not exist
+     */
+    @Override
+    public void writeAccount(String account) throws IOException {
+        LedgerStorage storage = this.storage;
+        Lock fileLock = fileLocks[stripeIndex(account)];
+        fileLock.lock();
+        try {
+            AccountFiles.write(AccountFiles.file(directoryName, account, storage), snapshot(account), storage);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Writes several accounts like {@link #writeAccount(String)}, syncing the directory once for all of them
+     *
+     * @param accounts the accounts to be written
+     * @throws IOException if a file cannot be written or an account does not exist
+     */
+    @Override
+    public void writeAccounts(Collection<String> accounts) throws IOException {
+        LedgerStorage storage = this.storage;
+        // the file locks are taken in the order of their stripes, so concurrent batches cannot deadlock
+        SortedSet<Integer> stripes = new TreeSet<>();
+        for (String account : accounts) {
+            stripes.add(stripeIndex(account));
+        }
+        for (int stripe : stripes) {
+            fileLocks[stripe].lock();
+        }
+        try {
+            Map<String, List<Transaction>> snapshots = new LinkedHashMap<>();
+            for (String account : accounts) {
+                snapshots.put(account, snapshot(account));
+            }
+            List<File> files = new ArrayList<>();
+            for (Map.Entry<String, List<Transaction>> snapshot : snapshots.entrySet()) {
+                File file = AccountFiles.file(directoryName, snapshot.getKey(), storage);
+                AccountFiles.replace(file, snapshot.getValue(), storage);
+                files.add(file);
+            }
+            if (!files.isEmpty()) {
+                AccountFiles.syncDirectory(files.get(0).getParentFile());
+            }
+            for (File file : files) {
+                Files.deleteIfExists(AccountFiles.sibling(file).toPath());
+            }
+        } finally {
+            for (int stripe : stripes) {
+                fileLocks[stripe].unlock();
+            }
+        }
+    }
+
+    /**
+     * Copies the transactions of an account under its read lock, so the account can be written
+     * without holding the lock
+     *
+     * @throws IOException if the account does not exist
+     */
+    private List<Transaction> snapshot(String account) throws IOException {
+        List<Transaction> transactions = getTransactions(account);
+        if (transactions == null) {
+            throw new IOException("Error: Account " + account + " does not exist!");
+        }
+        return transactions;
+    }
+
+    @Override
+    public void readAccounts() {
+        try {
+            AccountFiles.deleteTemporary(directoryName);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        LedgerStorage storage = this.storage;
+        for (final File fileEntry : AccountFiles.list(directoryName, storage)) {
+            String accountOwner = AccountFiles.accountName(fileEntry);
+
+            try {
+                createAccount(accountOwner, AccountFiles.read(fileEntry, storage));
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (TransactionAlreadyExistException | NumericValueInvalidException | AccountAlreadyExistsException |
+                     TransactionAttributeException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Override
+    public void deleteAccount(String account) throws AccountDoesNotExistException, IOException {
+        // a write of the account still running must not bring the file back
+        Lock fileLock = fileLocks[stripeIndex(account)];
+        fileLock.lock();
+        Lock lock = writeLock(account);
+        lock.lock();
+        try {
+            TransactionLedger ledger = accountsToTransactions.remove(account);
+            if (ledger == null) {
+                throw new AccountDoesNotExistException();
+            }
+            ledger.clear();
+            SearchIndex index = searchIndex;
+            if (index != null) {
+                index.removeAccount(account);
+            }
+            File file = AccountFiles.file(directoryName, account, storage);
+            if (!AccountFiles.deleteIfExists(file)) {
+                throw new NoSuchFileException(file.getPath());
+            }
+            AccountFiles.syncDirectory(file.getParentFile());
+        } finally {
+            lock.unlock();
+            fileLock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> getAllAccounts() {
+        return new ArrayList<>(accountsToTransactions.keySet());
+    }
+
+    @Override
+    public String toString() {
+        String newLine = System.getProperty("line.separator");
+        return ("Name: " + name + newLine + "Incoming Interest: " + getIncomingInterest() + newLine + "Outgoing Interest: " + getOutgoingInterest() +
+                newLine + "Accounts: " + newLine + accountsToTransactions);
+    }
+
+    private void validate(Transaction transaction) throws TransactionAttributeException {
+        if (transaction.getAmount() == 0) {
+            throw new TransactionAttributeException();
+        }
+    }
+
+    /**
+     * Lets a payment refer to the shared object of its rates in the rate table of the bank
+     */
+    private void share(Transaction transaction) {
+        if (transaction instanceof Payment payment) {
+            payment.replaceRates(rates.share(payment.getRates()));
+        }
+    }
+
+    /**
+     * Get the ledger of an account, the caller has to hold the lock of the account
+     */
+    private TransactionLedger ledger(String account) throws AccountDoesNotExistException {
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null) {
+            throw new AccountDoesNotExistException();
+        }
+        return ledger;
+    }
+
+    private int stripeIndex(String account) {
+        int hash = account.hashCode();
+        return (hash ^ (hash >>> 16)) & (locks.length - 1);
+    }
+
+    private ReadWriteLock stripe(String account) {
+        return locks[stripeIndex(account)];
+    }
+
+    private Lock readLock(String account) {
+        return stripe(account).readLock();
+    }
+
+    private Lock writeLock(String account) {
+        return stripe(account).writeLock();
+    }
+
+    //region Getters and Setters
+
+    /**
+     * Get outgoing interest on withdrawals
+     *
+     * @return the outgoing interest
+     */
+    public double getOutgoingInterest() {
+        return rates.current().getOutgoing();
+    }
+
+    /**
+     * Set outgoing interest on withdrawals. The payments keep their rates, see {@link #rerate(double, double)}.
+     *
+     * @param outgoingInterest the outgoing interest
+     */
+    public void setOutgoingInterest(double outgoingInterest) throws NumericValueInvalidException {
+        if (outgoingInterest < 0 || outgoingInterest > 1) {
+            throw new NumericValueInvalidException("Error: Negative Input for outgoing interest: Withdrawal)!");
+        }
+        synchronized (rates) {
+            rates.setCurrent(rates.current().withOutgoing(outgoingInterest));
+        }
+    }
+
+    /**
+     * Get incoming interest on deposits
+     *
+     * @return the incoming interest
+     */
+    public double getIncomingInterest() {
+        return rates.current().getIncoming();
+    }
+
+    /**
+     * Set incoming interest on deposits. The payments keep their rates, see {@link #rerate(double, double)}.
+     *
+     * @param incomingInterest the incoming interest
+     */
+    public void setIncomingInterest(double incomingInterest) throws NumericValueInvalidException {
+        if (incomingInterest < 0 || incomingInterest > 1) {
+            throw new NumericValueInvalidException("Error: Negative Input for incoming interest: Deposit)!");
+        } else {
+            synchronized (rates) {
+                rates.setCurrent(rates.current().withIncoming(incomingInterest));
+            }
+        }
+    }
+
+    /**
+     * Get the directory name to save/persist files to
+     *
+     * @return the directory name
+     */
+    public String getDirectoryName() {
+        return directoryName;
+    }
+
+    /**
+     * Set the directory name to save/persist files to
+     *
+     * @param directoryName the directory name
+     */
+    public void setDirectoryName(String directoryName) {
+        this.directoryName = directoryName;
+    }
+
+    /**
+     * Get the file format the accounts are persisted in
+     *
+     * @return the storage
+     */
+    public LedgerStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Set the file format the accounts are persisted in
+     *
+     * @param storage the storage, e.g. {@link LedgerStorage#binary()}
+     */
+    public void setStorage(LedgerStorage storage) {
+        this.storage = storage;
+    }
+
+    //endregion
+}
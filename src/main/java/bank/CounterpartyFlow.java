@@ -0,0 +1,97 @@
+package bank;
+
+import java.util.Objects;
+
+/**
+ * The money an account exchanged with one counterparty, summed up over its transfers: incoming
+ * transfers from the counterparty and outgoing transfers to it, see {@link Transfer#getCounterparty()}.
+ */
+public final class CounterpartyFlow {
+
+    /**
+     * The counterparty
+     * The sum of the incoming and of the outgoing transfers in units of {@link Money}, both positive
+     * The number of transfers
+     */
+    private final String counterparty;
+    private final long incoming;
+    private final long outgoing;
+    private final int transfers;
+
+    CounterpartyFlow(String counterparty, long incoming, long outgoing, int transfers) {
+        this.counterparty = counterparty;
+        this.incoming = incoming;
+        this.outgoing = outgoing;
+        this.transfers = transfers;
+    }
+
+    /**
+     * Get the counterparty
+     *
+     * @return the sender of the incoming and the recipient of the outgoing transfers
+     */
+    public String getCounterparty() {
+        return counterparty;
+    }
+
+    /**
+     * Get the sum of the incoming transfers from the counterparty
+     *
+     * @return the incoming amount
+     */
+    public double getIncoming() {
+        return Money.toDouble(incoming);
+    }
+
+    /**
+     * Get the sum of the outgoing transfers to the counterparty
+     *
+     * @return the outgoing amount, positive
+     */
+    public double getOutgoing() {
+        return Money.toDouble(outgoing);
+    }
+
+    /**
+     * Get the net flow from the counterparty to the account
+     *
+     * @return the incoming minus the outgoing amount
+     */
+    public double getNet() {
+        return Money.toDouble(incoming - outgoing);
+    }
+
+    /**
+     * Get the volume of the transfers with the counterparty
+     *
+     * @return the incoming plus the outgoing amount
+     */
+    public double getVolume() {
+        return Money.toDouble(incoming + outgoing);
+    }
+
+    /**
+     * Get the number of transfers with the counterparty
+     *
+     * @return the number of incoming and outgoing transfers
+     */
+    public int getTransfers() {
+        return transfers;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof CounterpartyFlow flow && counterparty.equals(flow.counterparty)
+                && incoming == flow.incoming && outgoing == flow.outgoing && transfers == flow.transfers;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(counterparty, incoming, outgoing, transfers);
+    }
+
+    @Override
+    public String toString() {
+        return "Counterparty: " + counterparty + ", Incoming: " + getIncoming() + ", Outgoing: " + getOutgoing() + ", Transfers: " + transfers;
+    }
+}
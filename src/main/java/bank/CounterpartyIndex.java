@@ -0,0 +1,198 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The transfers of a ledger grouped by their {@link Transfer#getCounterparty() counterparty},
+ * together with the sums of their calculated amounts. The transfers with one counterparty, the
+ * flows of all counterparties and the counterparties with the largest volume are found without
+ * scanning the ledger; adding, removing and changing a transfer only updates its own counterparty.
+ * <p>
+ * The transfers of a counterparty are sorted by a key the ledger chooses, e.g. the insertion order,
+ * and are usually added with a greater key than all others. A removed transfer leaves a gap that is
+ * skipped; the gaps of a counterparty are closed once they make up half of its transfers.
+ *
+ * @param <T> the type of the references to the transfers kept by the ledger
+ */
+final class CounterpartyIndex<T> {
+
+    /**
+     * The transfers with one counterparty
+     */
+    private static final class Entry {
+        /**
+         * The sum of the calculated amounts of the incoming and of the outgoing transfers in units of
+         * {@link Money}, both positive
+         * The number of transfers
+         */
+        private long incoming;
+        private long outgoing;
+        private int transfers;
+        /**
+         * The keys of the transfers, sorted
+         * The references to the transfers, null for a removed transfer
+         * The number of keys, including those of removed transfers
+         */
+        private long[] keys = new long[4];
+        private Object[] values = new Object[4];
+        private int size;
+
+        private void count(long amount, int sign) {
+            if (amount > 0) {
+                incoming += sign * amount;
+            } else {
+                outgoing -= sign * amount;
+            }
+        }
+
+        /**
+         * Get the position of a key, or -(insertion point + 1) like {@link Arrays#binarySearch(long[], long)}
+         */
+        private int find(long key) {
+            return Arrays.binarySearch(keys, 0, size, key);
+        }
+    }
+
+    private final HashMap<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Adds a transfer
+     *
+     * @param counterparty the counterparty of the transfer
+     * @param key          the key of the transfer, unique within the ledger
+     * @param value        the reference to the transfer
+     * @param amount       the calculated amount of the transfer in units of {@link Money}
+     */
+    void add(String counterparty, long key, T value, long amount) {
+        Entry entry = entries.computeIfAbsent(counterparty, name -> new Entry());
+        int position = entry.size == 0 || entry.keys[entry.size - 1] < key ? entry.size : entry.find(key);
+        if (position >= 0 && position < entry.size) {
+            // the gap the transfer left when it was removed, e.g. by a change of its counterparty
+            entry.values[position] = value;
+            entry.transfers++;
+            entry.count(amount, 1);
+            return;
+        }
+        if (position < 0) {
+            position = -(position + 1);
+        }
+        if (entry.size == entry.keys.length) {
+            entry.keys = Arrays.copyOf(entry.keys, 2 * entry.size);
+            entry.values = Arrays.copyOf(entry.values, 2 * entry.size);
+        }
+        System.arraycopy(entry.keys, position, entry.keys, position + 1, entry.size - position);
+        System.arraycopy(entry.values, position, entry.values, position + 1, entry.size - position);
+        entry.keys[position] = key;
+        entry.values[position] = value;
+        entry.size++;
+        entry.transfers++;
+        entry.count(amount, 1);
+    }
+
+    /**
+     * Removes a transfer
+     *
+     * @param counterparty the counterparty the transfer was added with
+     * @param key          the key of the transfer
+     * @param amount       the calculated amount the transfer was counted with
+     */
+    void remove(String counterparty, long key, long amount) {
+        Entry entry = entries.get(counterparty);
+        int position = entry == null ? -1 : entry.find(key);
+        if (position < 0 || entry.values[position] == null) {
+            return;
+        }
+        entry.values[position] = null;
+        entry.transfers--;
+        entry.count(amount, -1);
+        if (entry.transfers == 0) {
+            entries.remove(counterparty);
+        } else if (2 * entry.transfers < entry.size) {
+            compact(entry);
+        }
+    }
+
+    /**
+     * Changes the calculated amount of a transfer
+     *
+     * @param counterparty the counterparty of the transfer
+     * @param before       the amount the transfer was counted with
+     * @param after        the new amount
+     */
+    void update(String counterparty, long before, long after) {
+        Entry entry = entries.get(counterparty);
+        if (entry != null) {
+            entry.count(before, -1);
+            entry.count(after, 1);
+        }
+    }
+
+    /**
+     * Get the transfers with a counterparty
+     *
+     * @param counterparty the counterparty
+     * @return the references to the transfers, sorted by their keys
+     */
+    @SuppressWarnings("unchecked")
+    List<T> get(String counterparty) {
+        Entry entry = entries.get(counterparty);
+        if (entry == null) {
+            return new ArrayList<>();
+        }
+        List<T> values = new ArrayList<>(entry.transfers);
+        for (int i = 0; i < entry.size; i++) {
+            if (entry.values[i] != null) {
+                values.add((T) entry.values[i]);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Get the flows of all counterparties
+     *
+     * @return the flows by counterparty
+     */
+    Map<String, CounterpartyFlow> flows() {
+        Map<String, CounterpartyFlow> flows = new HashMap<>();
+        entries.forEach((counterparty, entry) -> flows.put(counterparty, flow(counterparty, entry)));
+        return flows;
+    }
+
+    /**
+     * Get the counterparties with the largest volume, selected with a bounded heap
+     *
+     * @param k the number of counterparties
+     * @return the flows of the counterparties, by descending volume
+     */
+    List<CounterpartyFlow> top(int k) {
+        TopK<CounterpartyFlow> top = new TopK<>(Math.min(k, entries.size()), false);
+        entries.forEach((counterparty, entry) -> {
+            if (top.accepts(entry.incoming + entry.outgoing)) {
+                top.offer(entry.incoming + entry.outgoing, flow(counterparty, entry));
+            }
+        });
+        return top.toList();
+    }
+
+    private static CounterpartyFlow flow(String counterparty, Entry entry) {
+        return new CounterpartyFlow(counterparty, entry.incoming, entry.outgoing, entry.transfers);
+    }
+
+    private static void compact(Entry entry) {
+        int to = 0;
+        for (int from = 0; from < entry.size; from++) {
+            if (entry.values[from] != null) {
+                entry.keys[to] = entry.keys[from];
+                entry.values[to] = entry.values[from];
+                to++;
+            }
+        }
+        Arrays.fill(entry.values, to, entry.size, null);
+        entry.size = to;
+    }
+}
@@ -0,0 +1,357 @@
+package bank;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The transactions of a ledger sorted by their {@link Transaction#getDay() dates}, so the
+ * transactions of a period are found in logarithmic time. Transactions of the same date are ordered
+ * by the sequence number the ledger gave them when they were added.
+ * <p>
+ * The entries form a treap, a binary search tree by (date, sequence) that stays balanced because
+ * every entry also has a pseudo-random priority and no entry has a higher priority than its parent.
+ * Every entry holds the sum of the calculated amounts of its subtree, so the balance as of a date is
+ * the sum along a single path. Adding a transaction of any date, removing one, moving one to another
+ * date and changing an amount each take expected logarithmic time; the index never has to be built
+ * again.
+ */
+final class DateIndex {
+
+    /**
+     * A transaction with its position in the tree
+     */
+    private static final class Entry {
+        private final int day;
+        private final long sequence;
+        private final Transaction transaction;
+        private final int priority;
+        /**
+         * The calculated amount of the transaction
+         * The sum of the calculated amounts of this entry and its subtrees
+         */
+        private long amount;
+        private long sum;
+        private Entry left;
+        private Entry right;
+
+        private Entry(int day, long sequence, Transaction transaction, long amount) {
+            this.day = day;
+            this.sequence = sequence;
+            this.transaction = transaction;
+            this.priority = priority(sequence);
+            this.amount = amount;
+            this.sum = amount;
+        }
+
+        private boolean before(int day, long sequence) {
+            return this.day < day || this.day == day && this.sequence < sequence;
+        }
+    }
+
+    private Entry root;
+
+    /**
+     * Creates an empty index
+     */
+    DateIndex() {
+    }
+
+    /**
+     * Builds the index of transactions in linear time after sorting them
+     *
+     * @param days         the dates of the transactions
+     * @param sequences    the sequence numbers of the transactions, ascending
+     * @param transactions the transactions in the order of the ledger
+     * @param amounts      the calculated amounts of the transactions
+     * @param size         the number of transactions
+     * @return the index
+     */
+    static DateIndex of(int[] days, long[] sequences, Transaction[] transactions, long[] amounts, int size) {
+        // the position in the low bits keeps transactions of the same date in the order of the ledger
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (long) days[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        // the right spine of the tree built so far, the entry of the highest priority at the bottom
+        Deque<Entry> spine = new ArrayDeque<>();
+        for (long key : keys) {
+            int i = (int) key;
+            Entry entry = new Entry(days[i], sequences[i], transactions[i], amounts[i]);
+            Entry last = null;
+            while (!spine.isEmpty() && spine.peek().priority < entry.priority) {
+                last = spine.pop();
+            }
+            entry.left = last;
+            if (!spine.isEmpty()) {
+                spine.peek().right = entry;
+            }
+            spine.push(entry);
+        }
+        DateIndex index = new DateIndex();
+        index.root = spine.peekLast();
+        summarize(index.root);
+        return index;
+    }
+
+    /**
+     * Adds a transaction
+     *
+     * @param day         the date of the transaction
+     * @param sequence    the sequence number of the transaction, unique in the ledger
+     * @param transaction the transaction
+     * @param amount      the calculated amount of the transaction
+     */
+    void add(int day, long sequence, Transaction transaction, long amount) {
+        root = insert(root, new Entry(day, sequence, transaction, amount));
+    }
+
+    /**
+     * Removes a transaction
+     *
+     * @param day      the date the transaction had when it was added
+     * @param sequence the sequence number of the transaction
+     */
+    void remove(int day, long sequence) {
+        root = delete(root, day, sequence);
+    }
+
+    /**
+     * Changes the calculated amount of a transaction
+     *
+     * @param day      the date of the transaction
+     * @param sequence the sequence number of the transaction
+     * @param delta    the change of the calculated amount
+     */
+    void update(int day, long sequence, long delta) {
+        Entry entry = root;
+        while (entry != null && (entry.day != day || entry.sequence != sequence)) {
+            entry = entry.before(day, sequence) ? entry.right : entry.left;
+        }
+        if (entry == null) {
+            return;
+        }
+        entry.amount += delta;
+        for (entry = root; ; entry = entry.before(day, sequence) ? entry.right : entry.left) {
+            entry.sum += delta;
+            if (entry.day == day && entry.sequence == sequence) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the transactions dated within a period
+     *
+     * @param from the first date, as yyyymmdd
+     * @param to   the last date, as yyyymmdd
+     * @return the transactions sorted by date
+     */
+    List<Transaction> between(int from, int to) {
+        List<Transaction> result = new ArrayList<>();
+        range(from, to).forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+     * Iterates over the transactions matching a query with a date range
+     *
+     * @param query the query
+     * @return the matching transactions sorted by date
+     */
+    Iterator<Transaction> iterator(TransactionQuery query) {
+        Iterator<Transaction> dated = range(query.getFrom(), query.getTo());
+        return new Iterator<>() {
+            private Transaction next = match();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Transaction next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Transaction transaction = next;
+                next = match();
+                return transaction;
+            }
+
+            private Transaction match() {
+                while (dated.hasNext()) {
+                    Transaction transaction = dated.next();
+                    if (query.test(transaction)) {
+                        return transaction;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Get the sum of the calculated amounts of the transactions dated up to a day. Transactions with
+     * an {@link Dates#UNKNOWN unknown} date are not included.
+     *
+     * @param to the last date, as yyyymmdd
+     * @return the sum in units of {@link Money}
+     */
+    long sumUntil(int to) {
+        return sumBefore(to + 1) - sumBefore(0);
+    }
+
+    /**
+     * Get the sum of the calculated amounts of the transactions dated before a day
+     */
+    private long sumBefore(int day) {
+        long sum = 0;
+        Entry entry = root;
+        while (entry != null) {
+            if (entry.day < day) {
+                sum += sum(entry.left) + entry.amount;
+                entry = entry.right;
+            } else {
+                entry = entry.left;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Iterates over the transactions dated within a period in order, keeping the path to the next
+     * entry on a stack
+     */
+    private Iterator<Transaction> range(int from, int to) {
+        Deque<Entry> path = new ArrayDeque<>();
+        for (Entry entry = root; entry != null; ) {
+            if (entry.day < from) {
+                entry = entry.right;
+            } else {
+                path.push(entry);
+                entry = entry.left;
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty() && path.peek().day <= to;
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Entry entry = path.pop();
+                for (Entry next = entry.right; next != null; next = next.left) {
+                    path.push(next);
+                }
+                return entry.transaction;
+            }
+        };
+    }
+
+    private static Entry insert(Entry entry, Entry added) {
+        if (entry == null) {
+            return added;
+        }
+        entry.sum += added.amount;
+        if (entry.before(added.day, added.sequence)) {
+            entry.right = insert(entry.right, added);
+            if (entry.right.priority > entry.priority) {
+                return rotateLeft(entry);
+            }
+        } else {
+            entry.left = insert(entry.left, added);
+            if (entry.left.priority > entry.priority) {
+                return rotateRight(entry);
+            }
+        }
+        return entry;
+    }
+
+    private static Entry delete(Entry entry, int day, long sequence) {
+        if (entry == null) {
+            return null;
+        }
+        if (entry.day == day && entry.sequence == sequence) {
+            return merge(entry.left, entry.right);
+        }
+        if (entry.before(day, sequence)) {
+            entry.right = delete(entry.right, day, sequence);
+        } else {
+            entry.left = delete(entry.left, day, sequence);
+        }
+        entry.sum = sum(entry.left) + entry.amount + sum(entry.right);
+        return entry;
+    }
+
+    /**
+     * Joins two subtrees, all entries of the left one sorted before those of the right one
+     */
+    private static Entry merge(Entry left, Entry right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.sum = sum(left.left) + left.amount + sum(left.right);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.sum = sum(right.left) + right.amount + sum(right.right);
+        return right;
+    }
+
+    private static Entry rotateLeft(Entry entry) {
+        Entry right = entry.right;
+        entry.right = right.left;
+        right.left = entry;
+        right.sum = entry.sum;
+        entry.sum = sum(entry.left) + entry.amount + sum(entry.right);
+        return right;
+    }
+
+    private static Entry rotateRight(Entry entry) {
+        Entry left = entry.left;
+        entry.left = left.right;
+        left.right = entry;
+        left.sum = entry.sum;
+        entry.sum = sum(entry.left) + entry.amount + sum(entry.right);
+        return left;
+    }
+
+    private static long summarize(Entry entry) {
+        if (entry == null) {
+            return 0;
+        }
+        entry.sum = summarize(entry.left) + entry.amount + summarize(entry.right);
+        return entry.sum;
+    }
+
+    private static long sum(Entry entry) {
+        return entry == null ? 0 : entry.sum;
+    }
+
+    /**
+     * Spreads the sequence numbers, which are added in ascending order, to priorities that behave
+     * like random numbers but are the same for every build of the index
+     */
+    private static int priority(long sequence) {
+        long mixed = sequence * 0x9E3779B97F4A7C15L;
+        mixed ^= mixed >>> 32;
+        mixed *= 0xD6E8FEB86659FD93L;
+        return (int) (mixed ^ mixed >>> 32);
+    }
+}
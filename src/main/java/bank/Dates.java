@@ -0,0 +1,86 @@
+package bank;
+
+import bank.exceptions.TransactionAttributeException;
+
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * Converts the dates of transactions, written as {@code dd.MM.yyyy}, to the number yyyymmdd and
+ * back. The numbers of two dates compare like the dates themselves, so they can be sorted and
+ * searched without parsing the strings again.
+ */
+public final class Dates {
+
+    /**
+     * The number of a date that is not written as {@code dd.MM.yyyy}
+     */
+    public static final int UNKNOWN = -1;
+
+    private Dates() {
+    }
+
+    /**
+     * Converts a date written as {@code dd.MM.yyyy} to the number yyyymmdd, e.g. {@code 01.02.2019}
+     * to {@code 20190201}
+     *
+     * @param date the date, may be null
+     * @return the number, {@link #UNKNOWN} if the date has another format or does not exist, e.g.
+     * {@code 31.02.2019}
+     */
+    public static int parse(String date) {
+        if (date == null || date.length() != 10 || date.charAt(2) != '.' || date.charAt(5) != '.') {
+            return UNKNOWN;
+        }
+        int day = digits(date, 0, 2);
+        int month = digits(date, 3, 5);
+        int year = digits(date, 6, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1
+                || day > 28 && day > Month.of(month).length(Year.isLeap(year))) {
+            return UNKNOWN;
+        }
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * Converts a number returned by {@link #parse(String)} back to the date
+     *
+     * @param date the number yyyymmdd
+     * @return the date written as {@code dd.MM.yyyy}
+     */
+    public static String format(int date) {
+        char[] chars = {
+                (char) ('0' + date / 10 % 10), (char) ('0' + date % 10), '.',
+                (char) ('0' + date / 1000 % 10), (char) ('0' + date / 100 % 10), '.',
+                (char) ('0' + date / 10000000 % 10), (char) ('0' + date / 1000000 % 10),
+                (char) ('0' + date / 100000 % 10), (char) ('0' + date / 10000 % 10)};
+        return new String(chars);
+    }
+
+    /**
+     * Parses a date given as the bound of a period
+     *
+     * @param date the date written as {@code dd.MM.yyyy}
+     * @return the number yyyymmdd
+     * @throws TransactionAttributeException if the date has another format or does not exist
+     */
+    static int parseBound(String date) throws TransactionAttributeException {
+        int day = parse(date);
+        if (day == UNKNOWN) {
+            throw new TransactionAttributeException();
+        }
+        return day;
+    }
+
+    private static int digits(String value, int from, int to) {
+        int number = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+}
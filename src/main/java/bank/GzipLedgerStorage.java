@@ -0,0 +1,151 @@
+package bank;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the files of another storage with gzip, e.g. {@code Konto_<account>.json.gz}. The
+ * transactions are compressed while they are serialized and decompressed while they are parsed, so
+ * neither the compressed nor the plain content is ever held in memory as a whole.
+ */
+final class GzipLedgerStorage implements LedgerStorage {
+
+    /**
+     * The extension appended to the extension of the compressed storage
+     */
+    static final String EXTENSION = ".gz";
+
+    /**
+     * The size of the buffers of the compressing and decompressing streams, in bytes
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The storage whose files are compressed
+     * The compression level, see {@link Deflater#setLevel(int)}
+     */
+    private final LedgerStorage storage;
+    private final int level;
+
+    /**
+     * Creates a storage
+     *
+     * @param storage the storage whose files are compressed
+     * @param level   the compression level from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     * @throws IllegalArgumentException if the level is invalid or the storage is already compressed
+     */
+    GzipLedgerStorage(LedgerStorage storage, int level) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        if (storage instanceof GzipLedgerStorage) {
+            throw new IllegalArgumentException("The storage is already compressed");
+        }
+        this.storage = storage;
+        this.level = level;
+    }
+
+    /**
+     * Get the storage whose files are compressed
+     *
+     * @return the uncompressed storage
+     */
+    LedgerStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Get the compression level
+     *
+     * @return the level from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    int getLevel() {
+        return level;
+    }
+
+    /**
+     * Get the storage a storage compresses, or the storage itself if it does not compress its files
+     *
+     * @param storage the storage
+     * @return the uncompressed storage
+     */
+    static LedgerStorage plain(LedgerStorage storage) {
+        return storage instanceof GzipLedgerStorage gzip ? gzip.storage : storage;
+    }
+
+    /**
+     * Checks whether a stream starts with the gzip magic bytes, without consuming them
+     *
+     * @param in the stream, supporting {@link InputStream#mark(int)}
+     * @return true if the stream is compressed
+     * @throws IOException if the stream cannot be read
+     */
+    static boolean isCompressed(InputStream in) throws IOException {
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        return first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8);
+    }
+
+    /**
+     * Reads a compressed file of a storage
+     *
+     * @param storage the storage the file was written with before it was compressed
+     * @param in      the compressed stream, not closed by this method
+     * @return the transactions in the order they were written
+     * @throws IOException if the stream cannot be read or is malformed
+     */
+    static List<Transaction> read(LedgerStorage storage, InputStream in) throws IOException {
+        // closing the decompressing stream releases its inflater, but must not close the file
+        try (InputStream plain = new GZIPInputStream(new FilterInputStream(in) {
+            @Override
+            public void close() {
+            }
+        }, BUFFER_SIZE)) {
+            return storage.read(plain);
+        }
+    }
+
+    @Override
+    public String extension() {
+        return storage.extension() + EXTENSION;
+    }
+
+    @Override
+    public void write(Iterable<Transaction> transactions, OutputStream out) throws IOException {
+        Compressor compressed = new Compressor(out, level);
+        try {
+            storage.write(transactions, compressed);
+            compressed.finish();
+        } finally {
+            compressed.end();
+        }
+    }
+
+    @Override
+    public List<Transaction> read(InputStream in) throws IOException {
+        return read(storage, in);
+    }
+
+    /**
+     * A gzip stream with a compression level, whose deflater is released without closing the file
+     */
+    private static final class Compressor extends GZIPOutputStream {
+
+        Compressor(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+
+        void end() {
+            def.end();
+        }
+    }
+}
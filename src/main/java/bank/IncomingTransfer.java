@@ -38,9 +38,19 @@ public class IncomingTransfer extends Transfer {
         super(date, description, amount, sender, recipient);
     }
 
+    /**
+     * Get the other party of the transfer
+     *
+     * @return the sender
+     */
+    @Override
+    public String getCounterparty() {
+        return getSender();
+    }
+
     @Override
-    public double calculate(){
-        return getAmount();
+    public long calculateUnits(){
+        return amount;
     }
 
 }
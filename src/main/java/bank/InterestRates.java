@@ -0,0 +1,127 @@
+package bank;
+
+import bank.exceptions.NumericValueInvalidException;
+
+import java.util.Objects;
+
+/**
+ * The interest rates a payment is charged with: the interest on deposits and the interest on
+ * withdrawals. Rates are immutable, so payments with the same rates can share one object; a bank
+ * hands out the shared objects of its {@link RateTable}.
+ */
+public final class InterestRates {
+
+    /**
+     * No interest on deposits and withdrawals
+     */
+    public static final InterestRates NONE = new InterestRates(0, 0);
+
+    /**
+     * The incoming is the interest on deposits
+     * The outgoing is the interest on withdrawals
+     */
+    private final double incoming;
+    private final double outgoing;
+
+    private InterestRates(double incoming, double outgoing) {
+        // -0.0 would be equal to 0.0 but have another hash code
+        this.incoming = incoming + 0.0;
+        this.outgoing = outgoing + 0.0;
+    }
+
+    /**
+     * Get the rates for the given interests
+     *
+     * @param incoming the interest on deposits
+     * @param outgoing the interest on withdrawals
+     * @return the rates
+     * @throws NumericValueInvalidException if an interest is not between 0 and 1
+     */
+    public static InterestRates of(double incoming, double outgoing) throws NumericValueInvalidException {
+        if (incoming < 0 || incoming > 1) {
+            throw new NumericValueInvalidException("Error: Negative Input for incoming interest: Deposit)!");
+        }
+        if (outgoing < 0 || outgoing > 1) {
+            throw new NumericValueInvalidException("Error: Negative Input for outgoing interest: Withdrawal)!");
+        }
+        return incoming == 0 && outgoing == 0 ? NONE : new InterestRates(incoming, outgoing);
+    }
+
+    /**
+     * Get the interest on deposits
+     *
+     * @return the incoming interest
+     */
+    public double getIncoming() {
+        return incoming;
+    }
+
+    /**
+     * Get the interest on withdrawals
+     *
+     * @return the outgoing interest
+     */
+    public double getOutgoing() {
+        return outgoing;
+    }
+
+    /**
+     * Get the rates with another interest on deposits
+     *
+     * @param incoming the interest on deposits
+     * @return the rates, this object if the interest is the same
+     * @throws NumericValueInvalidException if the interest is not between 0 and 1
+     */
+    public InterestRates withIncoming(double incoming) throws NumericValueInvalidException {
+        return incoming == this.incoming ? this : of(incoming, outgoing);
+    }
+
+    /**
+     * Get the rates with another interest on withdrawals
+     *
+     * @param outgoing the interest on withdrawals
+     * @return the rates, this object if the interest is the same
+     * @throws NumericValueInvalidException if the interest is not between 0 and 1
+     */
+    public InterestRates withOutgoing(double outgoing) throws NumericValueInvalidException {
+        return outgoing == this.outgoing ? this : of(incoming, outgoing);
+    }
+
+    /**
+     * Calculates the amount of a payment charged with the rates. The interest is rounded to whole
+     * units of {@link Money}.
+     *
+     * @param amount the amount in units of {@link Money}
+     * @return the amount with applied interest, in units of {@link Money}
+     */
+    long apply(long amount) {
+        if (amount > 0) {
+            //amount is positive
+            return amount - Money.interest(amount, incoming);
+        } else {
+            //amount is negative
+            return amount + Money.interest(amount, outgoing);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || obj instanceof InterestRates rates && incoming == rates.incoming && outgoing == rates.outgoing;
+    }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}. It is part of the hash code of
+     * {@link Payment}.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(incoming, outgoing);
+    }
+
+    @Override
+    public String toString() {
+        return "Incoming Interest: " + incoming + ", Outgoing Interest: " + outgoing;
+    }
+}
@@ -0,0 +1,42 @@
+package bank;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Stores an account as a JSON array of {@code {INSTANCE, CLASSNAME}} envelopes
+ */
+final class JsonLedgerStorage implements LedgerStorage {
+
+    static final JsonLedgerStorage PRETTY = new JsonLedgerStorage(TransactionCodec.pretty());
+    static final JsonLedgerStorage COMPACT = new JsonLedgerStorage(TransactionCodec.compact());
+
+    private final TransactionCodec codec;
+
+    private JsonLedgerStorage(TransactionCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public String extension() {
+        return ".json";
+    }
+
+    @Override
+    public void write(Iterable<Transaction> transactions, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        codec.writeAll(transactions, writer);
+        writer.flush();
+    }
+
+    @Override
+    public List<Transaction> read(InputStream in) throws IOException {
+        return codec.readAll(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+}
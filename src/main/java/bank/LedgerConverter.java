@@ -0,0 +1,66 @@
+package bank;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Converts the account files of a directory from one {@link LedgerStorage} to another, e.g. from
+ * the JSON files to the binary format and back.
+ * <p>
+ * Usage: {@code LedgerConverter <directoryName> <from> <to>} with the storages {@code json},
+ * {@code compactJson}, {@code binary} or {@code mapped}, followed by {@code .gz} for compressed files.
+ */
+public final class LedgerConverter {
+
+    private LedgerConverter() {
+    }
+
+    /**
+     * Converts all accounts of a directory. The journal of an account, if any, is replayed and the
+     * account is written as a complete snapshot. Once the new file is written, the old file and the
+     * journal are deleted, so each account is persisted in exactly one format.
+     *
+     * @param directoryName the directory below {@code persist/}
+     * @param from          the storage the files are written with
+     * @param to            the storage to convert the files to
+     * @return the number of converted accounts
+     * @throws IOException if a file cannot be read or written; accounts converted before are kept
+     */
+    public static int convert(String directoryName, LedgerStorage from, LedgerStorage to) throws IOException {
+        int converted = 0;
+        for (File source : AccountFiles.list(directoryName, from)) {
+            String account = AccountFiles.accountName(source);
+            File journal = AccountJournal.file(directoryName, account);
+
+            TransactionLedger ledger = new TransactionLedger();
+            ledger.addAll(AccountFiles.read(source, from));
+            for (AccountJournal.Entry entry : AccountJournal.read(journal)) {
+                if (entry.operation() == AccountJournal.Operation.ADD) {
+                    ledger.add(entry.transaction());
+                } else {
+                    ledger.remove(entry.transaction());
+                }
+            }
+
+            File target = AccountFiles.file(directoryName, account, to);
+            AccountFiles.write(target, ledger, to);
+            if (!target.equals(source)) {
+                // already deleted if the target is the compressed or plain sibling of the source
+                Files.deleteIfExists(source.toPath());
+            }
+            Files.deleteIfExists(journal.toPath());
+            converted++;
+        }
+        return converted;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: LedgerConverter <directoryName> <json|compactJson|binary|mapped>[.gz] <json|compactJson|binary|mapped>[.gz]");
+            System.exit(1);
+        }
+        int converted = convert(args[0], LedgerStorage.byName(args[1]), LedgerStorage.byName(args[2]));
+        System.out.println("Converted " + converted + " accounts in persist/" + args[0]);
+    }
+}
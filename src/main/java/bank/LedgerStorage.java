@@ -0,0 +1,127 @@
+package bank;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * The file format the transactions of an account are persisted in. A bank writes every account to
+ * {@code persist/<directoryName>/Konto_<account><extension>} and reads back all files with the
+ * extension of its storage.
+ */
+public interface LedgerStorage {
+
+    /**
+     * Get the storage writing indented JSON, the default format
+     *
+     * @return the JSON storage
+     */
+    static LedgerStorage json() {
+        return JsonLedgerStorage.PRETTY;
+    }
+
+    /**
+     * Get the storage writing JSON without any whitespace
+     *
+     * @return the compact JSON storage
+     */
+    static LedgerStorage compactJson() {
+        return JsonLedgerStorage.COMPACT;
+    }
+
+    /**
+     * Get the storage writing the compact binary format
+     *
+     * @return the binary storage
+     */
+    static LedgerStorage binary() {
+        return BinaryLedgerStorage.INSTANCE;
+    }
+
+    /**
+     * Get the storage writing the compact binary format, whose files are opened as memory-mapped
+     * ledgers by {@link PrivateBank#readAccounts()}. The transactions of such an account are only
+     * built when they are queried; the account is read completely on its first change.
+     *
+     * @return the memory-mapped binary storage
+     */
+    static LedgerStorage mapped() {
+        return MappedLedgerStorage.INSTANCE;
+    }
+
+    /**
+     * Get a storage compressing the files of another storage with gzip at the default level, e.g.
+     * {@code Konto_<account>.json.gz}. The account files are streamed through the compression in
+     * both directions. Compressed files are recognized by their content, so a bank reads the plain
+     * and the compressed files of the same format whichever of them it writes; an account written
+     * again replaces its file of the other kind.
+     *
+     * @param storage the storage whose files are compressed, not itself compressed
+     * @return the compressing storage
+     * @throws IllegalArgumentException if the storage is already compressed
+     */
+    static LedgerStorage gzip(LedgerStorage storage) {
+        return gzip(storage, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Get a storage compressing the files of another storage with gzip, see {@link #gzip(LedgerStorage)}
+     *
+     * @param storage the storage whose files are compressed, not itself compressed
+     * @param level   the compression level from 0 (none) to 9 (smallest files), or
+     *                {@link Deflater#DEFAULT_COMPRESSION}
+     * @return the compressing storage
+     * @throws IllegalArgumentException if the level is invalid or the storage is already compressed
+     */
+    static LedgerStorage gzip(LedgerStorage storage, int level) {
+        return new GzipLedgerStorage(storage, level);
+    }
+
+    /**
+     * Get a storage by its name
+     *
+     * @param name {@code json}, {@code compactJson}, {@code binary} or {@code mapped}, followed by
+     *             {@code .gz} for the {@link #gzip(LedgerStorage) compressed} files of the storage
+     * @return the storage
+     * @throws IllegalArgumentException if there is no storage with this name
+     */
+    static LedgerStorage byName(String name) {
+        if (name.endsWith(GzipLedgerStorage.EXTENSION)) {
+            return gzip(byName(name.substring(0, name.length() - GzipLedgerStorage.EXTENSION.length())));
+        }
+        return switch (name) {
+            case "json" -> json();
+            case "compactJson" -> compactJson();
+            case "binary" -> binary();
+            case "mapped" -> mapped();
+            default -> throw new IllegalArgumentException("Unknown ledger storage: " + name);
+        };
+    }
+
+    /**
+     * Get the file name extension of the account files, including the dot
+     *
+     * @return the extension
+     */
+    String extension();
+
+    /**
+     * Writes the transactions of an account to a stream
+     *
+     * @param transactions the transactions
+     * @param out          the stream, not closed by this method
+     * @throws IOException if the stream cannot be written
+     */
+    void write(Iterable<Transaction> transactions, OutputStream out) throws IOException;
+
+    /**
+     * Reads the transactions of an account from a stream
+     *
+     * @param in the stream, not closed by this method
+     * @return the transactions in the order they were written
+     * @throws IOException if the stream cannot be read or is malformed
+     */
+    List<Transaction> read(InputStream in) throws IOException;
+}
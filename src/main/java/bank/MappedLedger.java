@@ -0,0 +1,488 @@
+package bank;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The transactions of an account read directly from a memory-mapped binary ledger file (version 2
+ * or later, see {@link BinaryLedgerStorage}).
+ * <p>
+ * Opening a ledger only maps the file and reads its trailer, so it takes the same time for any
+ * number of transactions. The balance is taken from the trailer; sorting and filtering by the
+ * calculated amount and looking up a transaction by its hash code use the index at the end of the
+ * file, queries by date read the dates of the records. A {@link Transaction} is only built from
+ * its record when it is requested, and every request builds a new object, so changing it does not
+ * change the ledger.
+ * <p>
+ * The file has no index by counterparty. The first query for a counterparty or for the flows of
+ * the account builds all transactions once into a {@link CounterpartyIndex} of positions, which
+ * is kept as long as the ledger since the file does not change. In the same way the first lookup
+ * of a transaction builds a hash table from the hash codes of the index.
+ * <p>
+ * The ledger is read-only and thread-safe. Files of 2 GiB and larger cannot be mapped.
+ * <p>
+ * Java cannot unmap a file explicitly: the mapping is released when the ledger is no longer
+ * referenced and its buffer has been garbage collected. Until then Windows does not allow to
+ * replace, rename or delete the file. A bank therefore drops its ledger as soon as the account
+ * is loaded or deleted; ledgers are not unmapped earlier since writes that are still waiting and
+ * copies of the bank may read them.
+ */
+final class MappedLedger extends AbstractList<Transaction> implements RandomAccess {
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final int size;
+    private final double balance;
+    private final int index;
+    /**
+     * Whether the index stores the hash codes of the records, which files before version 3 do not
+     */
+    private final boolean hashed;
+    /**
+     * The positions of the transfers by counterparty, null until the first query for a counterparty.
+     * Built at most once per reader and published whole, so readers never see it half built.
+     */
+    private volatile CounterpartyIndex<Integer> counterparties;
+    /**
+     * The positions by hash code with linear probing, each slot holding the hash code in the high
+     * and the position + 1 in the low bits, 0 for an empty slot. Null until the first lookup, built
+     * at most once per reader and published whole like the counterparty index.
+     */
+    private volatile long[] table;
+
+    private MappedLedger(File file, ByteBuffer buffer, int size, double balance, int index, boolean hashed) {
+        this.file = file;
+        this.buffer = buffer;
+        this.size = size;
+        this.balance = balance;
+        this.index = index;
+        this.hashed = hashed;
+    }
+
+    /**
+     * Maps a binary ledger file
+     *
+     * @param file the account file
+     * @return the ledger, null if the file has no index because it was written by version 1
+     * @throws IOException if the file cannot be mapped or is not a binary ledger
+     */
+    static MappedLedger open(File file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Ledger too large to be mapped: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int version = BinaryLedgerStorage.version(buffer.duplicate());
+        if (version < 2) {
+            return null;
+        }
+        int trailer = buffer.limit() - BinaryLedgerStorage.TRAILER_SIZE;
+        if (trailer < 0) {
+            throw new IOException("Damaged ledger trailer: " + file);
+        }
+        int size = buffer.getInt(trailer);
+        double balance = buffer.getDouble(trailer + 4);
+        long index = buffer.getLong(trailer + 12);
+        if (size < 0 || index < 0 || index + (long) size * BinaryLedgerStorage.INDEX_ENTRY_SIZE != trailer) {
+            throw new IOException("Damaged ledger trailer: " + file);
+        }
+        return new MappedLedger(file, buffer, size, balance, (int) index, version >= 3);
+    }
+
+    /**
+     * Get the mapped file
+     *
+     * @return the file
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the sum of the calculated amounts of all transactions, as written to the file
+     *
+     * @return the balance
+     */
+    double getBalance() {
+        return balance;
+    }
+
+    /**
+     * Builds the transaction at a position from its record
+     *
+     * @param i the position
+     * @return a new transaction object
+     * @throws UncheckedIOException if the record is damaged
+     */
+    @Override
+    public Transaction get(int i) {
+        Objects.checkIndex(i, size);
+        int offset = (int) buffer.getLong(entry(i));
+        int length = buffer.getInt(offset);
+        try {
+            return BinaryLedgerStorage.decode(buffer.slice(offset + 4, length));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new UncheckedIOException(new IOException("Damaged record " + i + " in " + file, e));
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks for an equal transaction. Only the records whose hash code matches are built.
+     */
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Transaction transaction)) {
+            return false;
+        }
+        int hash;
+        try {
+            hash = BinaryLedgerStorage.hash(transaction);
+        } catch (IOException e) {
+            // a transaction without a record cannot be in the file
+            return false;
+        }
+        long[] table = hashTable();
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            if ((int) (table[slot] >>> 32) == hash && get((int) table[slot] - 1).equals(transaction)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the transactions sorted by their calculated amount. Transactions with the same amount
+     * keep their order. Only the index is read for sorting.
+     *
+     * @param asc true for ascending, false for descending order
+     * @return the sorted transactions
+     */
+    List<Transaction> sorted(boolean asc) {
+        Integer[] order = new Integer[size];
+        Arrays.setAll(order, i -> i);
+        Comparator<Integer> comparator = Comparator.comparingDouble(this::calculated);
+        Arrays.sort(order, asc ? comparator : comparator.reversed());
+
+        List<Transaction> transactions = new ArrayList<>(size);
+        for (int i : order) {
+            transactions.add(get(i));
+        }
+        return transactions;
+    }
+
+    /**
+     * Get the transactions with a positive or negative calculated amount. Only the matching
+     * transactions are built.
+     *
+     * @param positive true for positive, false for negative amounts
+     * @return the matching transactions in their order
+     */
+    List<Transaction> byType(boolean positive) {
+        return byType(positive, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get a page of the sorted transactions. Unless the page reaches the end, the transactions up to
+     * its end are selected from the index with a bounded heap instead of sorting the whole index.
+     * Only the transactions of the page are built.
+     *
+     * @param asc    true for ascending, false for descending order
+     * @param offset the number of sorted transactions to skip
+     * @param limit  the maximum number of transactions of the page
+     * @return the sorted transactions of the page
+     */
+    List<Transaction> sorted(boolean asc, int offset, int limit) {
+        int end = TopK.pageEnd(offset, limit);
+        if (end >= size) {
+            List<Transaction> sorted = sorted(asc);
+            return new ArrayList<>(sorted.subList(Math.min(offset, size), size));
+        }
+        TopK<Integer> top = new TopK<>(end, asc);
+        for (int i = 0; i < size; i++) {
+            long units = units(i);
+            if (top.accepts(units)) {
+                top.offer(units, i);
+            }
+        }
+        List<Integer> order = top.toList();
+        List<Transaction> transactions = new ArrayList<>(order.size() - offset);
+        for (int i = offset; i < order.size(); i++) {
+            transactions.add(get(order.get(i)));
+        }
+        return transactions;
+    }
+
+    /**
+     * Get the transactions with the smallest or largest calculated amounts, selected from the index
+     * with a bounded heap
+     *
+     * @param k   the number of transactions
+     * @param asc true for the smallest amounts in ascending order, false for the largest ones in
+     *            descending order
+     * @return the sorted transactions, the same as the first k of {@link #sorted(boolean)}
+     */
+    List<Transaction> top(int k, boolean asc) {
+        return sorted(asc, 0, k);
+    }
+
+    /**
+     * Get a page of the transactions with a positive or negative calculated amount. The scan stops
+     * at the end of the page and only the transactions of the page are built.
+     *
+     * @param positive true for positive, false for negative amounts
+     * @param offset   the number of matching transactions to skip
+     * @param limit    the maximum number of transactions of the page
+     * @return the matching transactions of the page in their order
+     */
+    List<Transaction> byType(boolean positive, int offset, int limit) {
+        List<Transaction> transactions = new ArrayList<>(Math.min(limit, size));
+        int skipped = 0;
+        for (int i = 0; i < size && transactions.size() < limit; i++) {
+            double calculated = calculated(i);
+            if (positive ? calculated > 0 : calculated < 0) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    transactions.add(get(i));
+                }
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Get the transactions dated within a period. The file has no date index, so the dates are
+     * read from all records, but only the matching transactions are built.
+     *
+     * @param from the first date, as yyyymmdd
+     * @param to   the last date, as yyyymmdd
+     * @return the transactions sorted by date, transactions of the same date in their order
+     */
+    List<Transaction> between(int from, int to) {
+        int[] positions = between(from, to, null);
+        List<Transaction> transactions = new ArrayList<>(positions.length);
+        for (int i : positions) {
+            transactions.add(get(i));
+        }
+        return transactions;
+    }
+
+    /**
+     * Iterates over the transactions matching a query. The amounts are taken from the index, so only
+     * the transactions of matching amounts are built and checked further. A query for a counterparty
+     * without a date range only visits the positions of the counterparty index.
+     *
+     * @param query the query
+     * @return the matching transactions, in their order or by date for a date range
+     */
+    Iterator<Transaction> iterator(TransactionQuery query) {
+        int[] positions = query.hasDates() ? between(query.getFrom(), query.getTo(), query)
+                : query.getCounterparty() != null ? counterpartyIndex().get(query.getCounterparty()).stream().mapToInt(Integer::intValue).toArray()
+                : null;
+        int end = positions == null ? size : positions.length;
+        return new Iterator<>() {
+            private int position;
+            private Transaction next = match();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Transaction next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Transaction transaction = next;
+                next = match();
+                return transaction;
+            }
+
+            private Transaction match() {
+                while (position < end) {
+                    int i = positions == null ? position : positions[position];
+                    position++;
+                    long amount = units(i);
+                    if (query.matchesAmount(amount)) {
+                        Transaction transaction = get(i);
+                        if (query.test(transaction, transaction.getDay(), amount)) {
+                            return transaction;
+                        }
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Get the flows of money with each counterparty, using the counterparty index
+     *
+     * @return the flows by counterparty
+     */
+    Map<String, CounterpartyFlow> flows() {
+        return counterpartyIndex().flows();
+    }
+
+    /**
+     * Get the counterparties with the largest volume, using the counterparty index
+     *
+     * @param k the number of counterparties
+     * @return the flows of the counterparties, by descending volume
+     */
+    List<CounterpartyFlow> topCounterparties(int k) {
+        return counterpartyIndex().top(k);
+    }
+
+    private long[] hashTable() {
+        long[] table = this.table;
+        if (table == null) {
+            table = new long[Integer.highestOneBit(Math.max(2 * size - 1, 1)) << 1];
+            int mask = table.length - 1;
+            for (int i = 0; i < size; i++) {
+                int hash = hash(i);
+                int slot = spread(hash) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = (long) hash << 32 | (i + 1);
+            }
+            this.table = table;
+        }
+        return table;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private CounterpartyIndex<Integer> counterpartyIndex() {
+        CounterpartyIndex<Integer> index = counterparties;
+        if (index == null) {
+            index = new CounterpartyIndex<>();
+            for (int i = 0; i < size; i++) {
+                if (get(i) instanceof Transfer transfer) {
+                    index.add(transfer.getCounterparty(), i, i, units(i));
+                }
+            }
+            counterparties = index;
+        }
+        return index;
+    }
+
+    /**
+     * Get the positions of the transactions dated within a period, sorted by date
+     *
+     * @param from  the first date, as yyyymmdd
+     * @param to    the last date, as yyyymmdd
+     * @param query the query the amounts have to match as well, null for any amount
+     * @return the positions, of the same date in their order
+     */
+    private int[] between(int from, int to, TransactionQuery query) {
+        // the position in the low bits keeps transactions of the same date in their order
+        long[] keys = new long[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int day = day(i);
+            if (day >= from && day <= to && (query == null || query.matchesAmount(units(i)))) {
+                keys[n++] = (long) day << 32 | i;
+            }
+        }
+        Arrays.sort(keys, 0, n);
+
+        int[] positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            positions[i] = (int) keys[i];
+        }
+        return positions;
+    }
+
+    /**
+     * Get the sum of the calculated amounts of the transactions dated up to a day. The dates are
+     * read from the records and the amounts from the index, no transaction is built.
+     *
+     * @param to the last date, as yyyymmdd
+     * @return the balance as of the end of that day, without transactions of an unknown date
+     */
+    double getBalance(int to) {
+        long balance = 0;
+        for (int i = 0; i < size; i++) {
+            int day = day(i);
+            if (day != Dates.UNKNOWN && day <= to) {
+                balance += units(i);
+            }
+        }
+        return Money.toDouble(balance);
+    }
+
+    /**
+     * Builds all transactions into a ledger that can be changed
+     *
+     * @return the new ledger
+     */
+    TransactionLedger load() {
+        TransactionLedger ledger = new TransactionLedger();
+        for (int i = 0; i < size; i++) {
+            ledger.add(get(i));
+        }
+        return ledger;
+    }
+
+    private int day(int i) {
+        // the date follows the record length and the type
+        return buffer.getInt((int) buffer.getLong(entry(i)) + 5);
+    }
+
+    /**
+     * Get the hash code of a record, see {@link BinaryLedgerStorage#hash(ByteBuffer)}; files before
+     * version 3 do not store it, so it is computed from the record
+     */
+    private int hash(int i) {
+        if (hashed) {
+            return buffer.getInt(entry(i) + 16);
+        }
+        int offset = (int) buffer.getLong(entry(i));
+        return BinaryLedgerStorage.hash(buffer.slice(offset + 4, buffer.getInt(offset)));
+    }
+
+    private double calculated(int i) {
+        return buffer.getDouble(entry(i) + 8);
+    }
+
+    /**
+     * Get the calculated amount of a transaction in units of {@link Money}; the calculated amounts
+     * were written from whole units
+     */
+    private long units(int i) {
+        return Math.round(calculated(i) * Money.UNITS);
+    }
+
+    private int entry(int i) {
+        return index + i * BinaryLedgerStorage.INDEX_ENTRY_SIZE;
+    }
+}
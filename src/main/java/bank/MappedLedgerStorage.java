@@ -0,0 +1,45 @@
+package bank;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes the binary format of {@link BinaryLedgerStorage}, but lets a bank open the account files
+ * as {@link MappedLedger memory-mapped ledgers} instead of reading every transaction.
+ */
+final class MappedLedgerStorage implements LedgerStorage {
+
+    static final MappedLedgerStorage INSTANCE = new MappedLedgerStorage();
+
+    private MappedLedgerStorage() {
+    }
+
+    @Override
+    public String extension() {
+        return BinaryLedgerStorage.INSTANCE.extension();
+    }
+
+    @Override
+    public void write(Iterable<Transaction> transactions, OutputStream out) throws IOException {
+        BinaryLedgerStorage.INSTANCE.write(transactions, out);
+    }
+
+    @Override
+    public List<Transaction> read(InputStream in) throws IOException {
+        return BinaryLedgerStorage.INSTANCE.read(in);
+    }
+
+    /**
+     * Maps an account file
+     *
+     * @param file the account file
+     * @return the ledger, null if the file has to be read because it has no index
+     * @throws IOException if the file cannot be mapped or is not a binary ledger
+     */
+    MappedLedger open(File file) throws IOException {
+        return MappedLedger.open(file);
+    }
+}
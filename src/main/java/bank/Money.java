@@ -0,0 +1,65 @@
+package bank;
+
+import bank.exceptions.NumericValueInvalidException;
+
+/**
+ * Exact amounts of money in minor units with a fixed scale of {@value #SCALE} decimal places,
+ * e.g. {@code 12.34} is stored as {@code 123400} units.
+ * <p>
+ * Transactions and ledgers keep their amounts as {@code long} units and use the static methods of
+ * this class, so adding, subtracting and applying interest needs no objects and sums are exact.
+ */
+public final class Money {
+
+    /**
+     * The number of decimal places
+     * The number of units per currency unit
+     */
+    public static final int SCALE = 4;
+    public static final long UNITS = 10_000;
+
+    /**
+     * The largest amount that can be converted from a double without losing units
+     */
+    private static final double MAX_VALUE = (double) (1L << 53) / UNITS;
+
+    private Money() {
+    }
+
+    /**
+     * Converts a double to units, rounding half away from zero to {@value #SCALE} decimal places
+     *
+     * @param value the amount
+     * @return the amount in units
+     * @throws NumericValueInvalidException if the value is not finite or too large to be exact
+     */
+    public static long toUnits(double value) throws NumericValueInvalidException {
+        if (!(Math.abs(value) <= MAX_VALUE)) {
+            throw new NumericValueInvalidException("Error: Amount out of range: " + value + "!");
+        }
+        long units = Math.round(Math.abs(value) * UNITS);
+        return value < 0 ? -units : units;
+    }
+
+    /**
+     * Converts units to the nearest double
+     *
+     * @param units the amount in units
+     * @return the amount
+     */
+    public static double toDouble(long units) {
+        return units / (double) UNITS;
+    }
+
+    /**
+     * Applies an interest rate to an amount, rounding half away from zero to whole units
+     *
+     * @param units the amount in units
+     * @param rate  the interest rate, e.g. 0.05 for 5 %
+     * @return the interest in units, with the sign of the amount
+     */
+    public static long interest(long units, double rate) {
+        long interest = Math.round(Math.abs(units) * rate);
+        return units < 0 ? -interest : interest;
+    }
+}
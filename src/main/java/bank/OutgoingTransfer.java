@@ -39,8 +39,18 @@ public class OutgoingTransfer extends Transfer{
         super(date, description, amount, sender, recipient);
     }
 
+    /**
+     * Get the other party of the transfer
+     *
+     * @return the recipient
+     */
+    @Override
+    public String getCounterparty() {
+        return getRecipient();
+    }
+
     @Override
-    public double calculate(){
-        return -getAmount();
+    public long calculateUnits(){
+        return -amount;
     }
 }
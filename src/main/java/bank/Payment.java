@@ -2,17 +2,18 @@ package bank;
 
 import bank.exceptions.NumericValueInvalidException;
 
+import java.util.Objects;
+
 /**
  * Payment objects are used to represent payments made by customers
  */
 public class Payment extends Transaction {
 
     /**
-     * The incomingInterest is the interest on deposits
-     * The outgoingInterest is the interest on withdrawals
+     * The interest on deposits and on withdrawals, shared with the other payments of the same rates
+     * of a bank, see {@link RateTable}
      */
-    private double incomingInterest;
-    private double outgoingInterest;
+    private InterestRates rates = InterestRates.NONE;
 
     /**
      * Instantiate a new payment by coping another payment object
@@ -20,10 +21,9 @@ public class Payment extends Transaction {
      * @param payment the payment object to copy from
      */
     public Payment(Payment payment) throws NumericValueInvalidException {
-        this(payment.date, payment.description, payment.getAmount(), payment.getIncomingInterest(), payment.getOutgoingInterest());
+        this(payment.date, payment.description, payment.getAmount(), payment.rates);
     }
 
-
     /**
      * Instantiate a new payment
      *
@@ -34,9 +34,20 @@ public class Payment extends Transaction {
      * @param outgoingInterest the outgoing interest on withdrawals
      */
     public Payment(String date, String description, double amount, double incomingInterest, double outgoingInterest) throws NumericValueInvalidException {
+        this(date, description, amount, InterestRates.of(incomingInterest, outgoingInterest));
+    }
+
+    /**
+     * Instantiate a new payment
+     *
+     * @param date        the date of the payment
+     * @param description the description
+     * @param amount      the amount
+     * @param rates       the interest on deposits and withdrawals
+     */
+    public Payment(String date, String description, double amount, InterestRates rates) throws NumericValueInvalidException {
         this(date, description, amount);
-        setIncomingInterest(incomingInterest);
-        setOutgoingInterest(outgoingInterest);
+        this.rates = Objects.requireNonNull(rates);
     }
 
     /**
@@ -53,7 +64,7 @@ public class Payment extends Transaction {
      * @return the outgoing interest
      */
     public double getOutgoingInterest() {
-        return outgoingInterest;
+        return rates.getOutgoing();
     }
 
     /**
@@ -66,7 +77,7 @@ public class Payment extends Transaction {
         if (outgoingInterest < 0 || outgoingInterest > 1) {
             throw new NumericValueInvalidException("Error: Negative Input for outgoing interest: Withdrawal!");
         }
-        this.outgoingInterest = outgoingInterest;
+        setRates(rates.withOutgoing(outgoingInterest));
     }
 
     /**
@@ -75,7 +86,7 @@ public class Payment extends Transaction {
      * @return the incoming interest
      */
     public double getIncomingInterest() {
-        return incomingInterest;
+        return rates.getIncoming();
     }
 
     /**
@@ -89,29 +100,68 @@ public class Payment extends Transaction {
             throw new NumericValueInvalidException("Error: Negative Input for incoming interest: Deposit)!");
 
         } else {
-            this.incomingInterest = incomingInterest;
+            setRates(rates.withIncoming(incomingInterest));
         }
     }
 
+    /**
+     * Get the interest on deposits and withdrawals
+     *
+     * @return the interest rates
+     */
+    public InterestRates getRates() {
+        return rates;
+    }
+
+    /**
+     * Set the interest on deposits and withdrawals
+     *
+     * @param rates the interest rates
+     */
+    public void setRates(InterestRates rates) {
+        if (rates.equals(this.rates)) {
+            // equal rates leave the hash code and the calculated amount as they are
+            this.rates = rates;
+        } else {
+            beforeChange();
+            this.rates = rates;
+            afterChange();
+        }
+    }
+
+    /**
+     * Replaces the rates with equal or new ones without notifying the listeners. Only for a ledger
+     * that updates itself and is the only listener following the amount, see
+     * {@link TransactionLedger#rerate(InterestRates, InterestRates, java.util.Collection)}.
+     *
+     * @param rates the interest rates
+     */
+    void replaceRates(InterestRates rates) {
+        this.rates = rates;
+    }
+
     /**
      * Get amount of the payment
      *
      * @return the amount
      */
     public double getAmount() {
-        return amount;
+        return Money.toDouble(amount);
     }
 
     /**
      * Set amount of the payment
      *
-     * @param amount the amount
-     * @throws NumericValueInvalidException if the amount is 0
+     * @param amount the amount, rounded to {@value Money#SCALE} decimal places
+     * @throws NumericValueInvalidException if the amount is 0 or out of range
      */
     @Override
     public void setAmount(double amount) throws NumericValueInvalidException {
         if (amount != 0) {
-            this.amount = amount;
+            long units = Money.toUnits(amount);
+            beforeChange();
+            this.amount = units;
+            afterChange();
         }else{
             throw new NumericValueInvalidException("Error: 0 Input for Payment amount!");
         }
@@ -132,7 +182,7 @@ public class Payment extends Transaction {
      * @param date the date
      */
     public void setDate(String date) {
-        this.date = date;
+        super.setDate(date);
     }
 
     /**
@@ -150,23 +200,20 @@ public class Payment extends Transaction {
      * @param description the description
      */
     public void setDescription(String description) {
+        beforeChange();
         this.description = description;
+        afterChange();
     }
 
     /**
-     * Calculates the effective amount with interests applied
+     * Calculates the effective amount with interests applied. The interest is rounded to whole
+     * units of {@link Money}.
      *
-     * @return the amount with applied interests
+     * @return the amount with applied interests, in units of {@link Money}
      */
     @Override
-    public double calculate() {
-        if (amount > 0) {
-            //amount is positive
-            return (amount - (amount * incomingInterest));
-        } else {
-            //amount is negative
-            return (amount + (amount * outgoingInterest));
-        }
+    public long calculateUnits() {
+        return rates.apply(amount);
     }
 
     /**
@@ -177,7 +224,7 @@ public class Payment extends Transaction {
     @Override
     public String toString() {
         String newLine = System.getProperty("line.separator");
-        return (super.toString() + "Incoming Interest: " + incomingInterest + newLine + "Outgoing Interest: " + outgoingInterest + newLine);
+        return (super.toString() + "Incoming Interest: " + getIncomingInterest() + newLine + "Outgoing Interest: " + getOutgoingInterest() + newLine);
     }
 
     /**
@@ -192,10 +239,20 @@ public class Payment extends Transaction {
             return false;
         } else {
             if (obj instanceof Payment payment) {
-                return (super.equals(payment) && incomingInterest == payment.incomingInterest && outgoingInterest == payment.outgoingInterest);
+                return (super.equals(payment) && rates.equals(payment.rates));
             } else {
                 return false;
             }
         }
     }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + rates.hashCode();
+    }
 }
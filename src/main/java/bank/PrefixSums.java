@@ -0,0 +1,76 @@
+package bank;
+
+import java.util.Arrays;
+
+/**
+ * A Fenwick tree of amounts in units of {@link Money}, so the sum of the first n amounts and the
+ * change of a single amount both take logarithmic time. Amounts can be added at the end; a removed
+ * amount is set to 0.
+ */
+final class PrefixSums {
+
+    /**
+     * tree[i] holds the sum of the amounts i - lowestOneBit(i) + 1 to i, counting from 1
+     */
+    private long[] tree;
+    private int size;
+
+    /**
+     * Builds the tree of the given amounts in linear time
+     *
+     * @param amounts  the amounts
+     * @param size     the number of amounts
+     * @param capacity the number of amounts the tree can hold before it grows
+     */
+    PrefixSums(long[] amounts, int size, int capacity) {
+        this.tree = new long[Math.max(capacity, size) + 1];
+        this.size = size;
+        for (int i = 1; i <= size; i++) {
+            tree[i] += amounts[i - 1];
+            int parent = i + Integer.lowestOneBit(i);
+            if (parent <= size) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    /**
+     * Adds an amount after the last one
+     *
+     * @param amount the amount
+     */
+    void append(long amount) {
+        if (size + 1 == tree.length) {
+            tree = Arrays.copyOf(tree, 2 * tree.length);
+        }
+        int i = ++size;
+        // the new node covers the amounts after i - lowestOneBit(i), of which only i itself is new
+        tree[i] = amount + sum(i - 1) - sum(i - Integer.lowestOneBit(i));
+    }
+
+    /**
+     * Changes an amount
+     *
+     * @param position the position of the amount, counting from 0
+     * @param delta    the change
+     */
+    void add(int position, long delta) {
+        for (int i = position + 1; i <= size; i += Integer.lowestOneBit(i)) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Get the sum of the first amounts
+     *
+     * @param count the number of amounts
+     * @return the sum
+     */
+    long sum(int count) {
+        long sum = 0;
+        for (int i = count; i > 0; i -= Integer.lowestOneBit(i)) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
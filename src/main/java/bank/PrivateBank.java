@@ -1,64 +1,91 @@
 package bank;
 
 import bank.exceptions.*;
-import com.google.gson.*;
-import com.google.gson.internal.LinkedTreeMap;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
-public class PrivateBank implements Bank {
+public class PrivateBank implements Bank, AutoCloseable {
 
-    private HashMap<String, List<Transaction>> accountsToTransactions = new HashMap<>();
+    private HashMap<String, TransactionLedger> accountsToTransactions = new HashMap<>();
+    /**
+     * The accounts opened from memory-mapped files that have not been changed since, see {@link LedgerStorage#mapped()}
+     */
+    private final HashMap<String, MappedLedger> mappedAccounts = new HashMap<>();
     /**
      * The name of the bank
      * The transactions of the bank mapped to their accounts
-     * The incomingInterest is the interest on deposits
-     * The outgoingInterest is the interest on withdrawals
+     * The interest rates of the bank and the shared rates of its payments
      */
     private String name;
-    private double incomingInterest;
-    private double outgoingInterest;
+    private final RateTable rates;
     private String directoryName;
+    /**
+     * Whether writeAccount appends the changes to a journal instead of rewriting the account file
+     * The number of journal entries after which an account is compacted into a new snapshot
+     * The journal state of the accounts whose files are known to match the ledger
+     */
+    private boolean journaling;
+    private int compactionThreshold = 1000;
+    private final HashMap<String, AccountJournal> journals = new HashMap<>();
+    /**
+     * The file format the accounts are persisted in
+     */
+    private LedgerStorage storage = LedgerStorage.json();
+    /**
+     * The background writer of {@link #writeAccount(String)}, null if accounts are written at once
+     * The milliseconds a changed account waits for its background write, 0 to write at once
+     */
+    private WriteBehind writeBehind;
+    private long writeDelay;
+    /**
+     * The index of the words of all transactions, null until the first search
+     */
+    private SearchIndex searchIndex;
 
     public PrivateBank(String name, double incomingInterest, double outgoingInterest) throws NumericValueInvalidException {
         this.name = name;
-        setIncomingInterest(incomingInterest);
-        setOutgoingInterest(outgoingInterest);
+        this.rates = new RateTable(InterestRates.of(incomingInterest, outgoingInterest));
     }
 
     public PrivateBank(PrivateBank bank) throws NumericValueInvalidException {
-        this(bank.name, bank.incomingInterest, bank.outgoingInterest);
-        this.accountsToTransactions = new HashMap<String, List<Transaction>>(bank.accountsToTransactions);
+        this(bank.name, bank.getIncomingInterest(), bank.getOutgoingInterest());
+        for (Map.Entry<String, TransactionLedger> entry : bank.accountsToTransactions.entrySet()) {
+            this.accountsToTransactions.put(entry.getKey(), new TransactionLedger(entry.getValue()));
+        }
+        this.mappedAccounts.putAll(bank.mappedAccounts);
     }
 
 
     @Override
-    public void createAccount(String account) throws AccountAlreadyExistsException {
-        if (accountsToTransactions.containsKey(account)) {
+    public synchronized void createAccount(String account) throws AccountAlreadyExistsException {
+        if (hasAccount(account)) {
             throw new AccountAlreadyExistsException();
         }else {
-            accountsToTransactions.put(account, new ArrayList<Transaction>());
+            accountsToTransactions.put(account, new TransactionLedger());
         }
     }
 
 
     @Override
-    public void createAccount(String account, List<Transaction> transactions) throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException, NumericValueInvalidException {
-        if (accountsToTransactions.containsKey(account)) {
+    public synchronized void createAccount(String account, List<Transaction> transactions) throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException, NumericValueInvalidException {
+        if (hasAccount(account)) {
             throw new AccountAlreadyExistsException();
         }else{
-            accountsToTransactions.put(account, new ArrayList<>());
+            accountsToTransactions.put(account, new TransactionLedger());
         }
         try {
-            for (Transaction transaction : transactions) {
-                addTransaction(account, transaction);
-            }
+            addTransactions(account, transactions);
         } catch (TransactionAlreadyExistException | TransactionAttributeException | NumericValueInvalidException e) {
+            // nothing was added
             accountsToTransactions.remove(account);
             throw e;
         } catch (AccountDoesNotExistException e) {
@@ -68,11 +95,12 @@ public class PrivateBank implements Bank {
     }
 
     @Override
-    public void addTransaction(String account, Transaction transaction) throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, NumericValueInvalidException {
-        if (!accountsToTransactions.containsKey(account)) {
+    public synchronized void addTransaction(String account, Transaction transaction) throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, NumericValueInvalidException {
+        TransactionLedger ledger = ledger(account);
+        if (ledger == null) {
             throw new AccountDoesNotExistException();
         }
-        if (accountsToTransactions.get(account) != null && accountsToTransactions.get(account).contains(transaction)) {
+        if (ledger.contains(transaction)) {
             throw new TransactionAlreadyExistException();
         }
 
@@ -80,100 +108,312 @@ public class PrivateBank implements Bank {
             throw new TransactionAttributeException();
         }
 
-        if (transaction instanceof Payment payment) {
-            //((Payment) transaction).setIncomingInterest(this.incomingInterest);
-            //((Payment) transaction).setOutgoingInterest(this.outgoingInterest);
-            ((Payment) transaction).setIncomingInterest(payment.getIncomingInterest());
-            ((Payment) transaction).setOutgoingInterest(payment.getOutgoingInterest());
-            accountsToTransactions.get(account).add(transaction);
-        } else if (transaction instanceof Transfer transfer) {
-            accountsToTransactions.get(account);
-            if(accountsToTransactions.get(account) == null){
-                ArrayList<Transaction> transactions = new ArrayList<>();
-                transactions.add(transaction);
-                accountsToTransactions.put(account, new ArrayList<>(transactions));
-            }else{
-                accountsToTransactions.get(account).add(transaction);
+        post(account, ledger, transaction);
+    }
+
+    @Override
+    public synchronized void addTransactions(String account, Collection<Transaction> transactions) throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, NumericValueInvalidException {
+        TransactionLedger ledger = ledger(account);
+        if (ledger == null) {
+            throw new AccountDoesNotExistException();
+        }
+        HashSet<Transaction> batch = new HashSet<>(2 * transactions.size());
+        for (Transaction transaction : transactions) {
+            if (ledger.contains(transaction) || !batch.add(transaction)) {
+                throw new TransactionAlreadyExistException();
+            }
+            if (transaction.getAmount() == 0) {
+                throw new TransactionAttributeException();
+            }
+        }
+
+        transactions.forEach(this::share);
+        ledger.addAll(transactions);
+        if (searchIndex != null) {
+            searchIndex.addAll(account, transactions);
+        }
+        if (journals.containsKey(account)) {
+            AccountJournal journal = journals.get(account);
+            for (Transaction transaction : transactions) {
+                journal.record(AccountJournal.Operation.ADD, transaction);
             }
         }
     }
 
     @Override
-    public void removeTransaction(String account, Transaction transaction) throws AccountDoesNotExistException, TransactionDoesNotExistException {
-        if (accountsToTransactions.get(account) == null) {
+    public synchronized void transfer(String from, String to, String date, String description, double amount) throws AccountDoesNotExistException, TransactionAlreadyExistException, TransactionAttributeException, NumericValueInvalidException {
+        TransactionLedger sender = ledger(from);
+        TransactionLedger recipient = ledger(to);
+        if (sender == null || recipient == null) {
             throw new AccountDoesNotExistException();
         }
-        if (!accountsToTransactions.get(account).contains(transaction)) {
+        OutgoingTransfer outgoing = new OutgoingTransfer(date, description, amount, from, to);
+        IncomingTransfer incoming = new IncomingTransfer(date, description, amount, from, to);
+        if (from.equals(to) || outgoing.getAmount() == 0) {
+            throw new TransactionAttributeException();
+        }
+        if (sender.contains(outgoing) || recipient.contains(incoming)) {
+            throw new TransactionAlreadyExistException();
+        }
+
+        post(from, sender, outgoing);
+        post(to, recipient, incoming);
+    }
+
+    @Override
+    public synchronized void removeTransaction(String account, Transaction transaction) throws AccountDoesNotExistException, TransactionDoesNotExistException {
+        TransactionLedger ledger = ledger(account);
+        if (ledger == null) {
+            throw new AccountDoesNotExistException();
+        }
+        Transaction removed = ledger.find(transaction);
+        if (!ledger.remove(transaction)) {
             throw new TransactionDoesNotExistException();
         }
-        accountsToTransactions.get(account).remove(transaction);
+        if (searchIndex != null) {
+            searchIndex.remove(account, removed);
+        }
+        if (journals.containsKey(account)) {
+            journals.get(account).record(AccountJournal.Operation.REMOVE, transaction);
+        }
     }
 
 
     @Override
     public boolean containsTransaction(String account, Transaction transaction) {
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return mapped.contains(transaction);
+        }
         return accountsToTransactions.get(account).contains(transaction);
     }
 
 
     @Override
     public double getAccountBalance(String account) throws AccountDoesNotExistException {
-        double balance = 0;
-        if(!accountsToTransactions.containsKey(account)){
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return mapped.getBalance();
+        }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null) {
             throw new AccountDoesNotExistException();
         }
-        for (Transaction transaction : accountsToTransactions.get(account)) {
-                balance += transaction.calculate();
+        return ledger.getBalance();
+    }
+
+    /**
+     * {@inheritDoc}
+     * For an account opened from a memory-mapped file, the dates are read from its records.
+     */
+    @Override
+    public double getAccountBalance(String account, String date) throws AccountDoesNotExistException, TransactionAttributeException {
+        int day = Dates.parseBound(date);
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return mapped.getBalance(day);
+        }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null) {
+            throw new AccountDoesNotExistException();
         }
-        return balance;
+        return Money.toDouble(ledger.getBalanceUnits(day));
     }
 
 
+    /**
+     * {@inheritDoc}
+     * For an account opened from a memory-mapped file, the list is a read-only view that builds a
+     * transaction each time it is accessed.
+     */
     @Override
     public List<Transaction> getTransactions(String account) {
-        return accountsToTransactions.get(account);
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return Collections.unmodifiableList(mapped);
+        }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        return ledger == null ? null : ledger.toList();
     }
 
 
     @Override
     public List<Transaction> getTransactionsSorted(String account, boolean asc) {
-        List<Transaction> transactions = new ArrayList<>(getTransactions(account));
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return mapped.sorted(asc);
+        }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        return ledger == null ? null : ledger.sorted(asc);
+    }
 
-        if (asc) {
-            transactions.sort(Comparator.comparing(Transaction::calculate));
-        } else {
-            transactions.sort(Comparator.comparing(Transaction::calculate).reversed());
+
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive) {
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return mapped.byType(positive);
+        }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        return ledger == null ? null : ledger.byType(positive, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     * For an account opened from a memory-mapped file, only the index is read for sorting.
+     */
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc, int offset, int limit) {
+        TopK.checkPage(offset, limit);
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return mapped.sorted(asc, offset, limit);
         }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        return ledger == null ? null : ledger.sorted(asc, offset, limit);
+    }
 
-        return transactions;
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive, int offset, int limit) {
+        TopK.checkPage(offset, limit);
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return mapped.byType(positive, offset, limit);
+        }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        return ledger == null ? null : ledger.byType(positive, offset, limit);
     }
 
+    @Override
+    public List<Transaction> topK(String account, int k, boolean asc) {
+        TopK.checkPage(0, k);
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return mapped.top(k, asc);
+        }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        return ledger == null ? null : ledger.top(k, asc);
+    }
 
+    /**
+     * {@inheritDoc}
+     * An account opened from a memory-mapped file is not loaded; the dates are read from its records.
+     */
     @Override
-    public List<Transaction> getTransactionsByType(String account, boolean positive) {
-        List<Transaction> transactions = getTransactions(account);
-        List<Transaction> transactionsByType = new ArrayList<>();
+    public List<Transaction> getTransactionsBetween(String account, String from, String to) throws AccountDoesNotExistException, TransactionAttributeException {
+        int first = Dates.parseBound(from);
+        int last = Dates.parseBound(to);
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return mapped.between(first, last);
+        }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null) {
+            throw new AccountDoesNotExistException();
+        }
+        return ledger.between(first, last);
+    }
 
-        for (Transaction transaction : transactions) {
+    /**
+     * {@inheritDoc}
+     * The account must not be changed while the stream is consumed. For an account opened from a
+     * memory-mapped file, the amounts are read from its index and only matching amounts are built.
+     */
+    @Override
+    public Stream<Transaction> streamTransactions(String account, TransactionQuery query) throws AccountDoesNotExistException {
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return TransactionQuery.stream(() -> mapped.iterator(query));
+        }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null) {
+            throw new AccountDoesNotExistException();
+        }
+        return TransactionQuery.stream(() -> ledger.iterator(query));
+    }
+
+    /**
+     * {@inheritDoc}
+     * The counterparty index of an account is built by the first call and then updated by every
+     * change; an account opened from a memory-mapped file builds it once from its records.
+     */
+    @Override
+    public Map<String, CounterpartyFlow> getCounterpartyFlows(String account) throws AccountDoesNotExistException {
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return mapped.flows();
+        }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null) {
+            throw new AccountDoesNotExistException();
+        }
+        return ledger.flows();
+    }
 
-            if (positive && transaction.calculate() > 0) {
-                transactionsByType.add(transaction);
+    @Override
+    public List<CounterpartyFlow> getTopCounterparties(String account, int k) throws AccountDoesNotExistException {
+        TopK.checkPage(0, k);
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            return mapped.topCounterparties(k);
+        }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null) {
+            throw new AccountDoesNotExistException();
+        }
+        return ledger.topCounterparties(k);
+    }
 
-            } else if (!positive && transaction.calculate() < 0) {
-                transactionsByType.add(transaction);
+    /**
+     * {@inheritDoc}
+     * The index is built by the first search, building the transactions of mapped accounts once,
+     * and is then updated by every change of the accounts and of their transactions.
+     */
+    @Override
+    public List<SearchHit> searchTransactions(String text, int limit) {
+        TopK.checkPage(0, limit);
+        if (searchIndex == null) {
+            searchIndex = new SearchIndex();
+            accountsToTransactions.forEach(searchIndex::addAll);
+            mappedAccounts.forEach(searchIndex::addAll);
+        }
+        return searchIndex.search(text, limit);
+    }
+
+    @Override
+    public InterestRates getInterestRates() {
+        return rates.current();
+    }
+
+    /**
+     * {@inheritDoc}
+     * The accounts are re-rated in parallel. An account opened from a memory-mapped file is loaded
+     * first if it has payments charged with the previous rates.
+     */
+    @Override
+    public synchronized int rerate(double incomingInterest, double outgoingInterest) throws NumericValueInvalidException {
+        InterestRates to = InterestRates.of(incomingInterest, outgoingInterest);
+        InterestRates from = rates.current();
+        to = rates.setCurrent(to);
+        if (from == to) {
+            return 0;
+        }
+        for (String account : new ArrayList<>(mappedAccounts.keySet())) {
+            if (mappedAccounts.get(account).stream().anyMatch(transaction -> transaction instanceof Payment payment && from.equals(payment.getRates()))) {
+                ledger(account);
             }
         }
-        return transactionsByType;
+        return TransactionLedger.rerate(accountsToTransactions.values(), from, to);
     }
 
     @Override
     public String toString() {
         String newLine = System.getProperty("line.separator");
-        return ("Name: " + name + newLine + "Incoming Interest: " + incomingInterest + newLine + "Outgoing Interest: " + outgoingInterest +
-                newLine + "Accounts: " + newLine + mapToString(accountsToTransactions));
+        return ("Name: " + name + newLine + "Incoming Interest: " + getIncomingInterest() + newLine + "Outgoing Interest: " + getOutgoingInterest() +
+                newLine + "Accounts: " + newLine + mapToString(accounts()));
     }
 
-    public String mapToString(HashMap<String, List<Transaction>> map){
+    public String mapToString(Map<String, ? extends Collection<Transaction>> map){
         String newLine = System.getProperty("line.separator");
         StringBuilder mapAsString = new StringBuilder("{");
         for (String key : map.keySet()) {
@@ -196,64 +436,348 @@ public class PrivateBank implements Bank {
             return false;
         }
         PrivateBank bank = (PrivateBank) obj;
-        return (name.equals(bank.name) && incomingInterest == bank.incomingInterest && outgoingInterest == bank.outgoingInterest &&
-                accountsToTransactions.equals(bank.accountsToTransactions));
+        return (name.equals(bank.name) && getInterestRates().equals(bank.getInterestRates()) &&
+                accounts().equals(bank.accounts()));
     }
 
+    private boolean hasAccount(String account) {
+        return accountsToTransactions.containsKey(account) || mappedAccounts.containsKey(account);
+    }
+
+    /**
+     * Get the transactions of all accounts, including the memory-mapped ones
+     */
+    private Map<String, List<Transaction>> accounts() {
+        Map<String, List<Transaction>> accounts = new HashMap<>();
+        for (String account : getAllAccounts()) {
+            accounts.put(account, getTransactions(account));
+        }
+        return accounts;
+    }
+
+    /**
+     * Get the ledger of an account to change it. A memory-mapped account is read completely first;
+     * in journal mode its changes are then appended to a journal on top of the mapped file.
+     *
+     * @return the ledger, null if the account does not exist
+     */
+    private TransactionLedger ledger(String account) {
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (ledger == null && mapped != null) {
+            ledger = mapped.load();
+            ledger.forEach(this::share);
+            accountsToTransactions.put(account, ledger);
+            // without a reference the file is unmapped once the buffer is garbage collected
+            mappedAccounts.remove(account);
+            if (searchIndex != null) {
+                // the index holds the transactions built from the mapped file
+                searchIndex.removeAccount(account);
+                searchIndex.addAll(account, ledger);
+            }
+            if (journaling) {
+                journals.put(account, new AccountJournal(0, ledger.getChanges()));
+            }
+        }
+        return ledger;
+    }
+
+    /**
+     * Adds a validated transaction to the ledger of an account, the search index and the journal
+     */
+    private void post(String account, TransactionLedger ledger, Transaction transaction) {
+        // a payment keeps its own rates, only the object is shared
+        share(transaction);
+        ledger.add(transaction);
+        if (searchIndex != null) {
+            searchIndex.add(account, transaction);
+        }
+        if (journals.containsKey(account)) {
+            journals.get(account).record(AccountJournal.Operation.ADD, transaction);
+        }
+    }
+
+    /**
+     * Lets a payment refer to the shared object of its rates in the rate table of the bank
+     */
+    private void share(Transaction transaction) {
+        if (transaction instanceof Payment payment) {
+            payment.replaceRates(rates.share(payment.getRates()));
+        }
+    }
 
 
 
+
+    /**
+     * Persists an account. In journal mode only the changes since the last write are appended to
+     * {@code Konto_<account>.journal}; the account is compacted into a new snapshot if it has no
+     * snapshot yet or the journal grew beyond the compaction threshold. Otherwise the account file
+     * is replaced: written to a temporary file, forced to disk and renamed, so a crash never leaves
+     * a partly written account behind.
+     * <p>
+     * With a {@link #setWriteDelay(long) write delay} the account is only marked as changed and
+     * written by a background thread once the delay has passed, a single time for all writes
+     * requested in the meantime; see {@link #flush()}.
+     *
+     * @param account the account to be written
+     * @throws IOException if the files cannot be written or the account does not exist
+     */
     @Override
     public void writeAccount(String account) throws IOException {
-        JsonSerializerImpl serializer = new JsonSerializerImpl();
-        List<String> list = new ArrayList<>();
-        for (Transaction transaction : accountsToTransactions.get(account)) {
-            list.add(serializer.serialize(transaction));
+        if (!hasAccount(account)) {
+            throw new IOException("Error: Account " + account + " does not exist!");
+        }
+        if (writeBehind != null) {
+            writeBehind.mark(account);
+        } else {
+            IOException failure = writeNow(List.of(account), false).get(account);
+            if (failure != null) {
+                throw failure;
+            }
         }
+    }
 
-        File file = new File("persist/"+directoryName+"/Konto_"+account+".json");
-        file.getParentFile().mkdirs();
-        FileWriter writer = new FileWriter(file);
-        writer.append(list.toString());
-        writer.close();
+    /**
+     * Persists several accounts like {@link #writeAccount(String)}, as one group: the files are
+     * forced to disk one by one, but the directory is synced once for all of them.
+     *
+     * @param accounts the accounts to be written
+     * @throws IOException if an account cannot be written or does not exist; the others are written nevertheless
+     */
+    @Override
+    public void writeAccounts(Collection<String> accounts) throws IOException {
+        for (String account : accounts) {
+            if (!hasAccount(account)) {
+                throw new IOException("Error: Account " + account + " does not exist!");
+            }
+        }
+        if (writeBehind != null) {
+            accounts.forEach(writeBehind::mark);
+        } else {
+            AccountFiles.throwFailures(writeNow(accounts, false));
+        }
     }
 
+    /**
+     * Writes the account as a new snapshot {@code Konto_<account>.json} (or the extension of the
+     * storage) and deletes its journal. Background writes still waiting are done first.
+     *
+     * @param account the account to be written
+     * @throws IOException if the files cannot be written
+     */
+    public void compactAccount(String account) throws IOException {
+        flush();
+        IOException failure = writeNow(List.of(account), true).get(account);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Waits until the accounts passed to {@link #writeAccount(String)} and {@link #deleteAccount(String)}
+     * so far are written by the background thread. Returns at once without a write delay.
+     *
+     * @throws IOException if an account could not be written, the others are written nevertheless
+     */
+    public void flush() throws IOException {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    /**
+     * Writes the accounts still waiting for their background write and stops the background
+     * thread; later writes are done at once again.
+     *
+     * @throws IOException if an account could not be written
+     */
     @Override
-    public void readAccounts() {
-        final File folder = new File("persist/"+directoryName+"/");
-        for (final File fileEntry : folder.listFiles()) {
-            String accountOwner = fileEntry.getName();
-            accountOwner = accountOwner.substring(accountOwner.indexOf("_") + 1);
-            accountOwner = accountOwner.substring(0, accountOwner.indexOf("."));
+    public void close() throws IOException {
+        WriteBehind writer = writeBehind;
+        writeBehind = null;
+        writeDelay = 0;
+        if (writer != null) {
+            writer.close();
+        }
+    }
 
-            try (FileReader fr = new FileReader(fileEntry)) {
-                char[] chars = new char[(int) fileEntry.length()];
-                fr.read(chars);
+    /**
+     * A write of an account prepared while the bank is locked, run without the lock
+     */
+    private interface AccountWrite {
+        /**
+         * Writes the files of the account and forces them to disk
+         *
+         * @return the directory whose entries changed and have to be synced, null if none did
+         * @throws IOException if the files cannot be written
+         */
+        File write() throws IOException;
 
-                String fileContent = new String(chars);
+        /**
+         * Finishes the write once the directory is synced, e.g. deletes the journal folded into a
+         * new snapshot, which must not be lost before the snapshot is durable
+         *
+         * @throws IOException if a file cannot be deleted
+         */
+        default void commit() throws IOException {
+        }
+    }
 
-                List<LinkedTreeMap> transactionsJson = new Gson().fromJson(fileContent, ArrayList.class);
-                List<Transaction> transactions = new ArrayList<>();
+    /**
+     * Writes accounts as one group: every account is written and forced to disk, then each changed
+     * directory is synced once, then the writes are committed. An account that cannot be written
+     * does not stop the others.
+     *
+     * @param accounts the accounts
+     * @param compact  true to write new snapshots even if the journals could be appended to
+     * @return the failures by account, empty if all accounts were written
+     */
+    private Map<String, IOException> writeNow(Collection<String> accounts, boolean compact) {
+        Map<String, IOException> failures = new LinkedHashMap<>();
+        Map<String, AccountWrite> written = new LinkedHashMap<>();
+        Map<File, List<String>> directories = new LinkedHashMap<>();
+        for (String account : new LinkedHashSet<>(accounts)) {
+            AccountWrite write = prepareWrite(account, compact);
+            try {
+                File directory = write.write();
+                written.put(account, write);
+                if (directory != null) {
+                    directories.computeIfAbsent(directory, key -> new ArrayList<>()).add(account);
+                }
+            } catch (IOException e) {
+                failures.put(account, e);
+            }
+        }
+        for (Map.Entry<File, List<String>> directory : directories.entrySet()) {
+            try {
+                AccountFiles.syncDirectory(directory.getKey());
+            } catch (IOException e) {
+                for (String account : directory.getValue()) {
+                    written.remove(account);
+                    failures.put(account, e);
+                }
+            }
+        }
+        for (Map.Entry<String, AccountWrite> write : written.entrySet()) {
+            try {
+                write.getValue().commit();
+            } catch (IOException e) {
+                failures.put(write.getKey(), e);
+            }
+        }
+        return failures;
+    }
 
+    /**
+     * Prepares the write of an account: takes the journal entries or a copy of the transactions to
+     * be written, so the files can be written while the bank goes on changing. The files of an
+     * account deleted in the meantime are deleted.
+     *
+     * @param account the account
+     * @param compact true to write a new snapshot even if the journal could be appended to
+     * @return the write, to be run once
+     */
+    private synchronized AccountWrite prepareWrite(String account, boolean compact) {
+        LedgerStorage storage = this.storage;
+        File file = AccountFiles.file(directoryName, account, storage);
+        File journalFile = AccountJournal.file(directoryName, account);
+        MappedLedger mapped = mappedAccounts.get(account);
+        if (mapped != null) {
+            // an unchanged mapped account is already persisted in its own file
+            if (file.equals(mapped.getFile())) {
+                return () -> null;
+            }
+            return () -> {
+                AccountFiles.replace(file, mapped, storage);
+                return file.getParentFile();
+            };
+        }
+        TransactionLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null) {
+            // without its snapshot a journal is never read, so it is deleted last
+            return new AccountWrite() {
+                @Override
+                public File write() throws IOException {
+                    return AccountFiles.deleteIfExists(file) ? file.getParentFile() : null;
+                }
 
-                for (LinkedTreeMap transaction : transactionsJson) {
-                    String CLASSNAME = transaction.get("CLASSNAME").toString();
-                    Object INSTANCE = transaction.get("INSTANCE");
+                @Override
+                public void commit() throws IOException {
+                    Files.deleteIfExists(journalFile.toPath());
+                }
+            };
+        }
 
-                    JsonDeserializerImpl deserializer = new JsonDeserializerImpl();
-                    Gson gson = new Gson();
-                    Transaction t = (Transaction) deserializer.deserialize(gson.toJson(transaction));
-                    transactions.add(t );
+        AccountJournal journal = journals.get(account);
+        if (!compact && journaling && journal != null && !journal.needsCompaction(ledger, compactionThreshold)) {
+            List<String> entries = journal.take();
+            return () -> {
+                try {
+                    if (!entries.isEmpty() && AccountJournal.append(journalFile, entries)) {
+                        return journalFile.getParentFile();
+                    }
+                    return null;
+                } catch (IOException e) {
+                    forgetJournal(account, journal);
+                    throw e;
                 }
+            };
+        }
+        List<Transaction> transactions = new ArrayList<>(ledger);
+        AccountJournal next = journaling ? new AccountJournal(0, ledger.getChanges()) : null;
+        if (next != null) {
+            journals.put(account, next);
+        }
+        return new AccountWrite() {
+            @Override
+            public File write() throws IOException {
+                try {
+                    AccountFiles.replace(file, transactions, storage);
+                    return file.getParentFile();
+                } catch (IOException e) {
+                    forgetJournal(account, next);
+                    throw e;
+                }
+            }
 
-                createAccount(accountOwner, transactions);
+            @Override
+            public void commit() throws IOException {
+                // a journal left behind by a crash only repeats changes the snapshot already holds
+                Files.deleteIfExists(journalFile.toPath());
+                Files.deleteIfExists(AccountFiles.sibling(file).toPath());
+            }
+        };
+    }
+
+    /**
+     * Drops the journal state of an account after a failed write, so its next write is a new snapshot
+     */
+    private synchronized void forgetJournal(String account, AccountJournal journal) {
+        if (journal != null) {
+            journals.remove(account, journal);
+        }
+    }
+
+    /**
+     * Reads all accounts of the directory. The journal of an account, if any, is replayed on top of
+     * its snapshot. With the {@link LedgerStorage#mapped() mapped storage} the account files are
+     * only mapped, unless the account has a journal. Temporary files left behind by writes
+     * interrupted by a crash are deleted first.
+     */
+    @Override
+    public synchronized void readAccounts() {
+        deleteTemporary();
+        for (final File fileEntry : AccountFiles.list(directoryName, storage)) {
+            try {
+                if (!openMapped(fileEntry)) {
+                    addLoadedAccount(loadAccount(fileEntry));
+                }
             }
             catch (IOException e) {
                 e.printStackTrace();
             } catch (TransactionAlreadyExistException e) {
                 throw new RuntimeException(e);
-            } catch (NumericValueInvalidException e) {
-                throw new RuntimeException(e);
             } catch (AccountAlreadyExistsException e) {
                 throw new RuntimeException(e);
             } catch (TransactionAttributeException e) {
@@ -262,25 +786,170 @@ public class PrivateBank implements Bank {
         }
     }
 
+    /**
+     * Reads all accounts of the directory like {@link #readAccounts()}, but reads, parses and
+     * validates the files on a pool of threads. The accounts are added to the bank by the calling
+     * thread once their files are loaded. A file that cannot be loaded does not stop the others.
+     *
+     * @param parallelism the number of files loaded at the same time
+     * @return the errors of the files that could not be loaded, by file name, empty if all accounts were loaded
+     * @throws NumericValueInvalidException if the parallelism is not positive
+     * @throws InterruptedException         if the calling thread is interrupted while waiting for the files
+     */
+    public synchronized Map<String, Exception> readAccountsParallel(int parallelism) throws NumericValueInvalidException, InterruptedException {
+        if (parallelism < 1) {
+            throw new NumericValueInvalidException("Error: The parallelism must be positive!");
+        }
+        deleteTemporary();
+        Map<String, Exception> errors = new LinkedHashMap<>();
+        Map<String, Future<LoadedAccount>> loading = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (final File fileEntry : AccountFiles.list(directoryName, storage)) {
+                try {
+                    if (!openMapped(fileEntry)) {
+                        loading.put(fileEntry.getName(), executor.submit(() -> loadAccount(fileEntry)));
+                    }
+                } catch (IOException | AccountAlreadyExistsException e) {
+                    errors.put(fileEntry.getName(), e);
+                }
+            }
+            for (Map.Entry<String, Future<LoadedAccount>> entry : loading.entrySet()) {
+                try {
+                    addLoadedAccount(entry.getValue().get());
+                } catch (ExecutionException e) {
+                    errors.put(entry.getKey(), e.getCause() instanceof Exception cause ? cause : e);
+                } catch (AccountAlreadyExistsException e) {
+                    errors.put(entry.getKey(), e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return errors;
+    }
+
+    /**
+     * Discards the temporary files of writes interrupted by a crash; the account files are complete
+     */
+    private void deleteTemporary() {
+        try {
+            AccountFiles.deleteTemporary(directoryName);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Maps an account file if the bank uses the mapped storage and the account has no journal
+     *
+     * @return true if the account was added as a mapped account, false if it has to be loaded
+     */
+    private boolean openMapped(File file) throws IOException, AccountAlreadyExistsException {
+        String account = AccountFiles.accountName(file);
+        if (!(storage instanceof MappedLedgerStorage mappedStorage) || AccountFiles.isCompressed(file)
+                || AccountJournal.file(directoryName, account).exists()) {
+            return false;
+        }
+        if (hasAccount(account)) {
+            throw new AccountAlreadyExistsException();
+        }
+        MappedLedger mapped = mappedStorage.open(file);
+        if (mapped == null) {
+            return false;
+        }
+        mappedAccounts.put(account, mapped);
+        if (searchIndex != null) {
+            searchIndex.addAll(account, mapped);
+        }
+        return true;
+    }
+
+    /**
+     * An account read from its files, not yet part of the bank
+     *
+     * @param account        the account name
+     * @param ledger         the transactions, with the journal replayed
+     * @param journalEntries the number of entries in the journal of the account
+     */
+    private record LoadedAccount(String account, TransactionLedger ledger, int journalEntries) {
+    }
+
+    /**
+     * Reads and validates an account file and its journal. Does not touch the state of the bank,
+     * so it can run on any thread.
+     */
+    private LoadedAccount loadAccount(File file) throws IOException, TransactionAlreadyExistException, TransactionAttributeException {
+        String account = AccountFiles.accountName(file);
+        List<AccountJournal.Entry> entries = AccountJournal.read(AccountJournal.file(directoryName, account));
+        TransactionLedger ledger = new TransactionLedger();
+
+        for (Transaction transaction : AccountFiles.read(file, storage)) {
+            if (ledger.contains(transaction)) {
+                throw new TransactionAlreadyExistException();
+            }
+            if (transaction.getAmount() == 0) {
+                throw new TransactionAttributeException();
+            }
+            share(transaction);
+            ledger.add(transaction);
+        }
+        for (AccountJournal.Entry entry : entries) {
+            if (entry.operation() == AccountJournal.Operation.ADD) {
+                share(entry.transaction());
+                ledger.add(entry.transaction());
+            } else {
+                ledger.remove(entry.transaction());
+            }
+        }
+        return new LoadedAccount(account, ledger, entries.size());
+    }
+
+    private void addLoadedAccount(LoadedAccount loaded) throws AccountAlreadyExistsException {
+        if (hasAccount(loaded.account())) {
+            throw new AccountAlreadyExistsException();
+        }
+        accountsToTransactions.put(loaded.account(), loaded.ledger());
+        if (searchIndex != null) {
+            searchIndex.addAll(loaded.account(), loaded.ledger());
+        }
+        if (journaling) {
+            journals.put(loaded.account(), new AccountJournal(loaded.journalEntries(), loaded.ledger().getChanges()));
+        }
+    }
+
     @Override
-    public void deleteAccount(String account) throws AccountDoesNotExistException, IOException {
+    public synchronized void deleteAccount(String account) throws AccountDoesNotExistException, IOException {
         //accountsToTransactions
-        if(!accountsToTransactions.containsKey(account)){
+        if(!hasAccount(account)){
             throw new AccountDoesNotExistException();
         }
-        accountsToTransactions.remove(account);
-        File file = new File("persist/"+directoryName+"/Konto_"+account+".json");
+        if (mappedAccounts.remove(account) == null) {
+            accountsToTransactions.remove(account).clear();
+        }
+        if (searchIndex != null) {
+            searchIndex.removeAccount(account);
+        }
+        journals.remove(account);
+        if (writeBehind != null) {
+            // the background thread deletes the files after the writes of the account still waiting
+            writeBehind.mark(account);
+            return;
+        }
+        File file = AccountFiles.file(directoryName, account, storage);
 
-        try {
-            Files.delete(file.toPath());
-        }catch (IOException e) {
-          throw e;
+        if (!AccountFiles.deleteIfExists(file)) {
+            throw new NoSuchFileException(file.getPath());
         }
+        AccountFiles.syncDirectory(file.getParentFile());
+        Files.deleteIfExists(AccountJournal.file(directoryName, account).toPath());
     }
 
     @Override
     public List<String> getAllAccounts() {
-        return new ArrayList<>(accountsToTransactions.keySet());
+        List<String> accounts = new ArrayList<>(accountsToTransactions.keySet());
+        accounts.addAll(mappedAccounts.keySet());
+        return accounts;
     }
 
 
@@ -292,11 +961,11 @@ public class PrivateBank implements Bank {
      * @return the outgoing interest
      */
     public double getOutgoingInterest() {
-        return outgoingInterest;
+        return rates.current().getOutgoing();
     }
 
     /**
-     * Set outgoing interest on withdrawals
+     * Set outgoing interest on withdrawals. The payments keep their rates, see {@link #rerate(double, double)}.
      *
      * @param outgoingInterest the outgoing interest
      */
@@ -304,7 +973,7 @@ public class PrivateBank implements Bank {
         if (outgoingInterest < 0 || outgoingInterest > 1) {
             throw new NumericValueInvalidException("Error: Negative Input for outgoing interest: Withdrawal)!");
         }
-        this.outgoingInterest = outgoingInterest;
+        rates.setCurrent(rates.current().withOutgoing(outgoingInterest));
     }
 
     /**
@@ -313,11 +982,11 @@ public class PrivateBank implements Bank {
      * @return the incoming interest
      */
     public double getIncomingInterest() {
-        return incomingInterest;
+        return rates.current().getIncoming();
     }
 
     /**
-     * Set incoming interest on deposits
+     * Set incoming interest on deposits. The payments keep their rates, see {@link #rerate(double, double)}.
      *
      * @param incomingInterest the incoming interest
      */
@@ -325,7 +994,7 @@ public class PrivateBank implements Bank {
         if (incomingInterest < 0 || incomingInterest > 1) {
             throw new NumericValueInvalidException("Error: Negative Input for incoming interest: Deposit)!");
         } else {
-            this.incomingInterest = incomingInterest;
+            rates.setCurrent(rates.current().withIncoming(incomingInterest));
         }
     }
 
@@ -343,10 +1012,108 @@ public class PrivateBank implements Bank {
      *
      * @param directoryName the directory name
      */
-    public void setDirectoryName(String directoryName) {
+    public synchronized void setDirectoryName(String directoryName) {
         this.directoryName = directoryName;
     }
 
+    /**
+     * Get the file format the accounts are persisted in
+     *
+     * @return the storage
+     */
+    public LedgerStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Set the file format the accounts are persisted in. {@link #readAccounts()} only reads the
+     * files of this storage; use {@link LedgerConverter} to convert existing files.
+     *
+     * @param storage the storage, e.g. {@link LedgerStorage#binary()}
+     */
+    public synchronized void setStorage(LedgerStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Check whether changes are appended to per-account journals
+     *
+     * @return true if journal mode is enabled
+     */
+    public boolean isJournaling() {
+        return journaling;
+    }
+
+    /**
+     * Enable or disable journal mode. Every account is written as a new snapshot on its next write
+     * after journal mode has been enabled.
+     *
+     * @param journaling true to append changes to per-account journals
+     */
+    public synchronized void setJournaling(boolean journaling) {
+        this.journaling = journaling;
+        journals.clear();
+    }
+
+    /**
+     * Get the number of journal entries after which an account is compacted
+     *
+     * @return the compaction threshold
+     */
+    public int getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    /**
+     * Set the number of journal entries after which an account is compacted
+     *
+     * @param compactionThreshold the compaction threshold
+     * @throws NumericValueInvalidException if the threshold is negative
+     */
+    public synchronized void setCompactionThreshold(int compactionThreshold) throws NumericValueInvalidException {
+        if (compactionThreshold < 0) {
+            throw new NumericValueInvalidException("Error: Negative Input for compaction threshold!");
+        }
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Get the milliseconds a changed account waits for its background write
+     *
+     * @return the write delay, 0 if accounts are written at once
+     */
+    public long getWriteDelay() {
+        return writeDelay;
+    }
+
+    /**
+     * Set the milliseconds a changed account waits for its background write. With a positive delay,
+     * {@link #writeAccount(String)} and the file part of {@link #deleteAccount(String)} return at
+     * once and a background thread writes every changed account the given time after it was first
+     * written, a single time for all writes requested in the meantime; the accounts changed within
+     * the same delay are written as one group, see {@link #writeAccounts(Collection)}. A change is on disk at the
+     * latest after the delay and the time of the write; {@link #flush()} waits for all of them, and
+     * the background thread flushes when the application exits. Changes of the bank synchronize with
+     * the background thread, but the bank is still meant to be changed by a single thread.
+     * <p>
+     * Call {@link #flush()} before changing the directory or the storage, the accounts waiting are
+     * written with the settings at the time of their write.
+     *
+     * @param writeDelay the write delay, 0 to write accounts at once
+     * @throws NumericValueInvalidException if the delay is negative
+     * @throws IOException                  if an account waiting for the previous writer could not be written
+     */
+    public void setWriteDelay(long writeDelay) throws NumericValueInvalidException, IOException {
+        if (writeDelay < 0) {
+            throw new NumericValueInvalidException("Error: Negative Input for write delay!");
+        }
+        close();
+        this.writeDelay = writeDelay;
+        if (writeDelay > 0) {
+            writeBehind = new WriteBehind(accounts -> writeNow(accounts, false), writeDelay);
+        }
+    }
+
     //endregion
 
 }
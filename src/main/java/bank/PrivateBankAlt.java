@@ -4,6 +4,7 @@ import bank.exceptions.*;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.Stream;
 
 public class PrivateBankAlt implements Bank {
 
@@ -11,12 +12,10 @@ public class PrivateBankAlt implements Bank {
     /**
      * The name of the bank
      * The transactions of the bank mapped to their accounts
-     * The incomingInterest is the interest on deposits
-     * The outgoingInterest is the interest on withdrawals
+     * The interest rates of the bank, given to every payment added
      */
     private String name;
-    private double incomingInterest;
-    private double outgoingInterest;
+    private InterestRates rates;
 
 
     /**
@@ -29,8 +28,7 @@ public class PrivateBankAlt implements Bank {
      */
     public PrivateBankAlt(String name, double incomingInterest, double outgoingInterest) throws NumericValueInvalidException {
         this.name = name;
-        setIncomingInterest(incomingInterest);
-        setOutgoingInterest(outgoingInterest);
+        this.rates = InterestRates.of(incomingInterest, outgoingInterest);
     }
 
     /**
@@ -38,7 +36,7 @@ public class PrivateBankAlt implements Bank {
      * @throws NumericValueInvalidException if the interest is not between 0 and 1
      */
     public PrivateBankAlt(PrivateBankAlt bank) throws NumericValueInvalidException {
-        this(bank.name, bank.incomingInterest, bank.outgoingInterest);
+        this(bank.name, bank.getIncomingInterest(), bank.getOutgoingInterest());
     }
 
 
@@ -108,14 +106,84 @@ public class PrivateBankAlt implements Bank {
         }
 
         if (transaction instanceof Payment payment) {
-            ((Payment) transaction).setIncomingInterest(incomingInterest);
-            ((Payment) transaction).setOutgoingInterest(outgoingInterest);
+            ((Payment) transaction).setRates(rates);
             accountsToTransactions.get(account).add(transaction);
         } else if (transaction instanceof Transfer transfer) {
             accountsToTransactions.get(account).add(transaction);
         }
     }
 
+    /**
+     * Adds several transactions to an already existing account, all or none of them. The
+     * transactions of the account and of the batch are hashed once to find duplicates.
+     *
+     * @param account      the account to which the transactions are added
+     * @param transactions the transactions which should be added to the specified account, in order
+     * @throws TransactionAlreadyExistException if a transaction already exists or occurs twice in the batch
+     * @throws AccountDoesNotExistException     if the specified account does not exist
+     * @throws TransactionAttributeException    if the validation check for certain attributes fail
+     */
+    @Override
+    public void addTransactions(String account, Collection<Transaction> transactions) throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, NumericValueInvalidException {
+        if (!accountsToTransactions.containsKey(account)) {
+            throw new AccountDoesNotExistException();
+        }
+        List<Transaction> list = accountsToTransactions.get(account);
+        HashSet<Transaction> known = list == null ? new HashSet<>() : new HashSet<>(list);
+        for (Transaction transaction : transactions) {
+            if (!known.add(transaction)) {
+                throw new TransactionAlreadyExistException();
+            }
+            if (transaction.getAmount() == 0) {
+                throw new TransactionAttributeException();
+            }
+        }
+
+        if (list == null) {
+            list = new ArrayList<>();
+            accountsToTransactions.put(account, list);
+        }
+        for (Transaction transaction : transactions) {
+            if (transaction instanceof Payment payment) {
+                payment.setRates(rates);
+            }
+            list.add(transaction);
+        }
+    }
+
+    /**
+     * Transfers money between two accounts of the bank, adding an outgoing transfer to the sending
+     * and an incoming transfer to the receiving account, both or none of them.
+     *
+     * @param from        the sending account
+     * @param to          the receiving account
+     * @param date        the date of the transfer
+     * @param description the description of the transfer
+     * @param amount      the amount of the transfer
+     * @throws AccountDoesNotExistException     if one of the accounts does not exist
+     * @throws TransactionAlreadyExistException if one of the accounts already holds the transfer
+     * @throws TransactionAttributeException    if the amount is 0 or both accounts are the same
+     * @throws NumericValueInvalidException     if the amount is negative
+     */
+    @Override
+    public void transfer(String from, String to, String date, String description, double amount) throws AccountDoesNotExistException, TransactionAlreadyExistException, TransactionAttributeException, NumericValueInvalidException {
+        if (!accountsToTransactions.containsKey(from) || !accountsToTransactions.containsKey(to)) {
+            throw new AccountDoesNotExistException();
+        }
+        OutgoingTransfer outgoing = new OutgoingTransfer(date, description, amount, from, to);
+        IncomingTransfer incoming = new IncomingTransfer(date, description, amount, from, to);
+        if (from.equals(to) || outgoing.getAmount() == 0) {
+            throw new TransactionAttributeException();
+        }
+        List<Transaction> sender = accountsToTransactions.computeIfAbsent(from, account -> new ArrayList<>());
+        List<Transaction> recipient = accountsToTransactions.computeIfAbsent(to, account -> new ArrayList<>());
+        if (sender.contains(outgoing) || recipient.contains(incoming)) {
+            throw new TransactionAlreadyExistException();
+        }
+        sender.add(outgoing);
+        recipient.add(incoming);
+    }
+
     /**
      * Removes a transaction from an account. If the transaction does not exist, an exception is
      * thrown.
@@ -155,19 +223,54 @@ public class PrivateBankAlt implements Bank {
      */
     @Override
     public double getAccountBalance(String account){
-        double balance = 0;
+        long balance = 0;
         for (Transaction transaction : accountsToTransactions.get(account)) {
             if (transaction instanceof Payment payment) {
-                balance += payment.calculate();
+                balance += payment.calculateUnits();
+            } else if (transaction instanceof Transfer transfer) {
+                if (transfer.getSender().equals(account)) {
+                    balance -= transfer.calculateUnits();
+                } else if (transfer.getRecipient().equals(account)) {
+                    balance += transfer.calculateUnits();
+                }
+            }
+        }
+        return Money.toDouble(balance);
+    }
+
+    /**
+     * Calculates the balance of an account at the end of a day. The account is scanned, since this
+     * bank keeps no index.
+     *
+     * @param account the selected account
+     * @param date    the day, written as dd.MM.yyyy
+     * @return the account balance at the end of the day
+     * @throws AccountDoesNotExistException  if the specified account does not exist
+     * @throws TransactionAttributeException if the date is not written as dd.MM.yyyy
+     */
+    @Override
+    public double getAccountBalance(String account, String date) throws AccountDoesNotExistException, TransactionAttributeException {
+        int day = Dates.parseBound(date);
+        List<Transaction> transactions = getTransactions(account);
+        if (transactions == null) {
+            throw new AccountDoesNotExistException();
+        }
+        long balance = 0;
+        for (Transaction transaction : transactions) {
+            if (transaction.getDay() == Dates.UNKNOWN || transaction.getDay() > day) {
+                continue;
+            }
+            if (transaction instanceof Payment payment) {
+                balance += payment.calculateUnits();
             } else if (transaction instanceof Transfer transfer) {
                 if (transfer.getSender().equals(account)) {
-                    balance -= transfer.calculate();
+                    balance -= transfer.calculateUnits();
                 } else if (transfer.getRecipient().equals(account)) {
-                    balance += transfer.calculate();
+                    balance += transfer.calculateUnits();
                 }
             }
         }
-        return balance;
+        return Money.toDouble(balance);
     }
 
     /**
@@ -227,6 +330,219 @@ public class PrivateBankAlt implements Bank {
         return transactionsByType;
     }
 
+    /**
+     * Returns one page of the sorted transactions. The whole account is sorted, since this bank
+     * keeps no index.
+     *
+     * @param account the selected account
+     * @param asc     selects if the transaction list is sorted in ascending or descending order
+     * @param offset  the number of sorted transactions before the page
+     * @param limit   the maximum number of transactions of the page
+     * @return the transactions of the page
+     */
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc, int offset, int limit) {
+        TopK.checkPage(offset, limit);
+        if (getTransactions(account) == null) {
+            return null;
+        }
+        return page(getTransactionsSorted(account, asc), offset, limit);
+    }
+
+    /**
+     * Returns one page of either positive or negative transactions (-> calculated amounts).
+     *
+     * @param account  the selected account
+     * @param positive selects if positive or negative transactions are listed
+     * @param offset   the number of matching transactions before the page
+     * @param limit    the maximum number of transactions of the page
+     * @return the transactions of the page
+     */
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive, int offset, int limit) {
+        TopK.checkPage(offset, limit);
+        if (getTransactions(account) == null) {
+            return null;
+        }
+        return page(getTransactionsByType(account, positive), offset, limit);
+    }
+
+    /**
+     * Returns the k transactions with the smallest or largest calculated amounts, selected with a
+     * bounded heap.
+     *
+     * @param account the selected account
+     * @param k       the number of transactions
+     * @param asc     true for the smallest amounts in ascending order, false for the largest ones
+     * @return the selected transactions
+     */
+    @Override
+    public List<Transaction> topK(String account, int k, boolean asc) {
+        TopK.checkPage(0, k);
+        List<Transaction> transactions = getTransactions(account);
+        if (transactions == null) {
+            return null;
+        }
+        TopK<Transaction> top = new TopK<>(Math.min(k, transactions.size()), asc);
+        for (Transaction transaction : transactions) {
+            top.offer(transaction.calculateUnits(), transaction);
+        }
+        return top.toList();
+    }
+
+    private static List<Transaction> page(List<Transaction> transactions, int offset, int limit) {
+        int from = Math.min(offset, transactions.size());
+        int to = from + Math.min(limit, transactions.size() - from);
+        return new ArrayList<>(transactions.subList(from, to));
+    }
+
+    /**
+     * Returns the transactions of an account dated within a period, sorted by date. The account is
+     * scanned, since this bank keeps no index.
+     *
+     * @param account the selected account
+     * @param from    the first date of the period, written as dd.MM.yyyy
+     * @param to      the last date of the period, written as dd.MM.yyyy
+     * @return the list of transactions dated from {@code from} to {@code to}, both included
+     * @throws AccountDoesNotExistException  if the specified account does not exist
+     * @throws TransactionAttributeException if a date is not written as dd.MM.yyyy
+     */
+    @Override
+    public List<Transaction> getTransactionsBetween(String account, String from, String to) throws AccountDoesNotExistException, TransactionAttributeException {
+        int first = Dates.parseBound(from);
+        int last = Dates.parseBound(to);
+        List<Transaction> transactions = getTransactions(account);
+        if (transactions == null) {
+            throw new AccountDoesNotExistException();
+        }
+        List<Transaction> transactionsBetween = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getDay() >= first && transaction.getDay() <= last) {
+                transactionsBetween.add(transaction);
+            }
+        }
+        transactionsBetween.sort(Comparator.comparingInt(Transaction::getDay));
+        return transactionsBetween;
+    }
+
+    /**
+     * Returns a lazy stream of the transactions of an account that match a query. The account is
+     * scanned and every transaction is tested, since this bank keeps no index.
+     *
+     * @param account the selected account
+     * @param query   the filters the transactions have to match
+     * @return the stream of matching transactions
+     * @throws AccountDoesNotExistException if the specified account does not exist
+     */
+    @Override
+    public Stream<Transaction> streamTransactions(String account, TransactionQuery query) throws AccountDoesNotExistException {
+        List<Transaction> transactions = getTransactions(account);
+        if (transactions == null) {
+            throw new AccountDoesNotExistException();
+        }
+        Stream<Transaction> matches = transactions.stream().filter(query);
+        return query.hasDates() ? matches.sorted(Comparator.comparingInt(Transaction::getDay)) : matches;
+    }
+
+    /**
+     * Returns the flows of money with each counterparty, summed up by a scan of the transactions.
+     *
+     * @param account the selected account
+     * @return the flows by counterparty
+     * @throws AccountDoesNotExistException if the specified account does not exist
+     */
+    @Override
+    public Map<String, CounterpartyFlow> getCounterpartyFlows(String account) throws AccountDoesNotExistException {
+        return counterparties(account).flows();
+    }
+
+    /**
+     * Returns the counterparties with the largest volume, summed up by a scan of the transactions.
+     *
+     * @param account the selected account
+     * @param k       the number of counterparties
+     * @return the flows of the counterparties, by descending volume
+     * @throws AccountDoesNotExistException if the specified account does not exist
+     */
+    @Override
+    public List<CounterpartyFlow> getTopCounterparties(String account, int k) throws AccountDoesNotExistException {
+        TopK.checkPage(0, k);
+        return counterparties(account).top(k);
+    }
+
+    /**
+     * Searches the transactions of all accounts by a scan, ranked like the index of
+     * {@link PrivateBank#searchTransactions(String, int)}.
+     *
+     * @param text  the searched words
+     * @param limit the maximum number of hits
+     * @return the best hits, by descending score
+     */
+    @Override
+    public List<SearchHit> searchTransactions(String text, int limit) {
+        TopK.checkPage(0, limit);
+        SearchIndex.Scan<Transaction> scan = new SearchIndex.Scan<>(text);
+        for (String account : accountsToTransactions.keySet()) {
+            for (Transaction transaction : getTransactions(account)) {
+                scan.add(account, transaction.getDescription(), SearchIndex.counterparty(transaction), transaction);
+            }
+        }
+        return scan.hits(limit, (account, transaction) -> transaction);
+    }
+
+    @Override
+    public InterestRates getInterestRates() {
+        return rates;
+    }
+
+    /**
+     * Changes the interest rates of the bank and re-rates the payments charged with its previous
+     * rates one at a time, through {@link Payment#setRates(InterestRates)}.
+     *
+     * @param incomingInterest the new interest on deposits
+     * @param outgoingInterest the new interest on withdrawals
+     * @return the number of re-rated payments
+     * @throws NumericValueInvalidException if an interest is not between 0 and 1
+     */
+    @Override
+    public int rerate(double incomingInterest, double outgoingInterest) throws NumericValueInvalidException {
+        InterestRates from = rates;
+        rates = InterestRates.of(incomingInterest, outgoingInterest);
+        if (from.equals(rates)) {
+            return 0;
+        }
+        List<Payment> payments = new ArrayList<>();
+        for (List<Transaction> transactions : accountsToTransactions.values()) {
+            if (transactions == null) {
+                continue;
+            }
+            for (Transaction transaction : transactions) {
+                if (transaction instanceof Payment payment && from.equals(payment.getRates())) {
+                    payments.add(payment);
+                }
+            }
+        }
+        // a payment of several accounts is counted for each of them
+        for (Payment payment : payments) {
+            payment.setRates(rates);
+        }
+        return payments.size();
+    }
+
+    private CounterpartyIndex<Transaction> counterparties(String account) throws AccountDoesNotExistException {
+        List<Transaction> transactions = getTransactions(account);
+        if (transactions == null) {
+            throw new AccountDoesNotExistException();
+        }
+        CounterpartyIndex<Transaction> counterparties = new CounterpartyIndex<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            if (transactions.get(i) instanceof Transfer transfer) {
+                counterparties.add(transfer.getCounterparty(), i, transfer, transfer.calculateUnits());
+            }
+        }
+        return counterparties;
+    }
+
     @Override
     public void writeAccount(String account) throws IOException {
         JsonSerializerImpl serializer = new JsonSerializerImpl();
@@ -267,7 +583,7 @@ public class PrivateBankAlt implements Bank {
     @Override
     public String toString() {
         String newLine = System.getProperty("line.separator");
-        return ("Name: " + newLine + "Incoming Interest: " + incomingInterest + newLine + "Outgoing Interest: " + outgoingInterest +
+        return ("Name: " + newLine + "Incoming Interest: " + getIncomingInterest() + newLine + "Outgoing Interest: " + getOutgoingInterest() +
                 newLine + "Accounts: " + newLine + accountsToTransactions);
     }
 
@@ -280,7 +596,7 @@ public class PrivateBankAlt implements Bank {
             return false;
         }
         PrivateBankAlt bank = (PrivateBankAlt) obj;
-        return (name.equals(bank.name) && incomingInterest == bank.incomingInterest && outgoingInterest == bank.outgoingInterest &&
+        return (name.equals(bank.name) && rates.equals(bank.rates) &&
                 accountsToTransactions.equals(bank.accountsToTransactions));
     }
 
@@ -292,7 +608,7 @@ public class PrivateBankAlt implements Bank {
      * @return the outgoing interest
      */
     public double getOutgoingInterest() {
-        return outgoingInterest;
+        return rates.getOutgoing();
     }
 
     /**
@@ -304,7 +620,7 @@ public class PrivateBankAlt implements Bank {
         if (outgoingInterest < 0 || outgoingInterest > 1) {
             throw new NumericValueInvalidException("Error: Negative Input for outgoing interest: Withdrawal)!");
         }
-        this.outgoingInterest = outgoingInterest;
+        rates = rates.withOutgoing(outgoingInterest);
     }
 
     /**
@@ -313,7 +629,7 @@ public class PrivateBankAlt implements Bank {
      * @return the incoming interest
      */
     public double getIncomingInterest() {
-        return incomingInterest;
+        return rates.getIncoming();
     }
 
     /**
@@ -325,7 +641,7 @@ public class PrivateBankAlt implements Bank {
         if (incomingInterest < 0 || incomingInterest > 1) {
             throw new NumericValueInvalidException("Error: Negative Input for incoming interest: Deposit)!");
         } else {
-            this.incomingInterest = incomingInterest;
+            rates = rates.withIncoming(incomingInterest);
         }
     }
 //endregion
@@ -0,0 +1,108 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The versions of the interest rates used by the payments of a bank, and the current rates of the
+ * bank. Every distinct {@link InterestRates} gets a small int id, in the order it was first used,
+ * and is kept as one shared object: payments added to the bank refer to the shared object, and
+ * columnar ledgers store the id instead of two doubles per payment. Ids are never reused; the table
+ * only grows.
+ * <p>
+ * Changing the rates of the bank adds a new version and makes it the current one; the payments
+ * still refer to their version until they are re-rated, see {@link Bank#rerate(double, double)}.
+ * <p>
+ * The methods are synchronized, since the accounts of {@link ConcurrentPrivateBank} share the table.
+ */
+final class RateTable {
+
+    /**
+     * The result of {@link #find(InterestRates)} for rates without an id
+     */
+    static final int ABSENT = -1;
+
+    /**
+     * The rates by id
+     * The id by rates
+     * The current rates of the bank
+     */
+    private final ArrayList<InterestRates> versions = new ArrayList<>();
+    private final HashMap<InterestRates, Integer> ids = new HashMap<>();
+    private InterestRates current;
+
+    /**
+     * Creates a table
+     *
+     * @param current the current rates of the bank
+     */
+    RateTable(InterestRates current) {
+        setCurrent(current);
+    }
+
+    /**
+     * Get the id of rates, assigning a new id if the rates are not yet part of the table
+     *
+     * @param rates the rates
+     * @return the id
+     */
+    synchronized int id(InterestRates rates) {
+        Integer id = ids.get(rates);
+        if (id == null) {
+            id = versions.size();
+            versions.add(rates);
+            ids.put(rates, id);
+        }
+        return id;
+    }
+
+    /**
+     * Get the id of rates without adding them
+     *
+     * @param rates the rates
+     * @return the id, {@link #ABSENT} if the rates have no id
+     */
+    synchronized int find(InterestRates rates) {
+        return ids.getOrDefault(rates, ABSENT);
+    }
+
+    /**
+     * Get the rates of an id
+     *
+     * @param id the id
+     * @return the shared rates
+     */
+    synchronized InterestRates get(int id) {
+        return versions.get(id);
+    }
+
+    /**
+     * Get the shared object of rates, adding the rates if they are not yet part of the table
+     *
+     * @param rates the rates
+     * @return the shared rates, equal to the given ones
+     */
+    synchronized InterestRates share(InterestRates rates) {
+        return versions.get(id(rates));
+    }
+
+    /**
+     * Get the current rates of the bank
+     *
+     * @return the shared rates
+     */
+    synchronized InterestRates current() {
+        return current;
+    }
+
+    /**
+     * Set the current rates of the bank
+     *
+     * @param rates the rates
+     * @return the shared rates, equal to the given ones
+     */
+    synchronized InterestRates setCurrent(InterestRates rates) {
+        current = share(rates);
+        return current;
+    }
+}
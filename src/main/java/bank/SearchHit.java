@@ -0,0 +1,69 @@
+package bank;
+
+import java.util.Objects;
+
+/**
+ * A transaction found by {@link Bank#searchTransactions(String, int)}, together with its account and
+ * how well it matches the searched words.
+ */
+public final class SearchHit {
+
+    /**
+     * The account of the transaction
+     * The transaction
+     * The score in thousandths, see {@link #getScore()}
+     */
+    private final String account;
+    private final Transaction transaction;
+    private final long score;
+
+    SearchHit(String account, Transaction transaction, long score) {
+        this.account = account;
+        this.transaction = transaction;
+        this.score = score;
+    }
+
+    /**
+     * Get the account of the transaction
+     *
+     * @return the account
+     */
+    public String getAccount() {
+        return account;
+    }
+
+    /**
+     * Get the transaction
+     *
+     * @return the transaction
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * Get the score of the transaction: for each searched word, the rarity of the best matching word
+     * of the transaction among all transactions of the bank, counted twice for a whole word and once
+     * for a word that only starts with the searched one
+     *
+     * @return the score, higher for better matches
+     */
+    public double getScore() {
+        return score / (double) SearchIndex.SCALE;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof SearchHit hit && account.equals(hit.account) && transaction.equals(hit.transaction) && score == hit.score;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(account, transaction, score);
+    }
+
+    @Override
+    public String toString() {
+        return "Account: " + account + ", Score: " + getScore() + ", " + transaction;
+    }
+}
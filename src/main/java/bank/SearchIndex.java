@@ -0,0 +1,574 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+
+/**
+ * An inverted index over the words of the descriptions and counterparties of the transactions of
+ * all accounts of a bank, for {@link Bank#searchTransactions(String, int)}.
+ * <p>
+ * Words are the runs of letters and digits of a text, compared in lower case, so "RE-2019/0042"
+ * consists of the words "re", "2019" and "0042". Every word of the index lists the transactions
+ * containing it by their document number; the words are sorted, so the words starting with a
+ * searched word are a range of the index. A search returns the transactions containing, for each
+ * searched word, a word starting with it, ranked by the sum of the weights of their best matching
+ * words: the inverse document frequency ln(1 + n / df) of the word, doubled for a whole word.
+ * <p>
+ * Adding a transaction appends its document number to the lists of its words; removing or changing
+ * it only marks its number as unused, and the lists are rebuilt once more than half of the numbers
+ * are unused. The index listens to its transactions, so changing the description or the
+ * counterparty of a transaction updates it. All methods are synchronized.
+ */
+final class SearchIndex {
+
+    /**
+     * The factor of the weights in {@link SearchHit}, which are kept as whole numbers
+     */
+    static final int SCALE = 1000;
+
+    /**
+     * An indexed transaction
+     */
+    private final class Document implements TransactionListener {
+        /**
+         * The account and the transaction
+         * The document number, -1 once removed
+         * The indexed description and counterparty, to remove the words after a change
+         */
+        private final String account;
+        private final Transaction transaction;
+        private int id;
+        private String description;
+        private String counterparty;
+
+        private Document(String account, Transaction transaction) {
+            this.account = account;
+            this.transaction = transaction;
+        }
+
+        @Override
+        public void beforeChange(Transaction transaction) {
+        }
+
+        @Override
+        public void afterChange(Transaction transaction) {
+            synchronized (SearchIndex.this) {
+                if (id >= 0 && (!Objects.equals(description, transaction.getDescription())
+                        || !Objects.equals(counterparty, counterparty(transaction)))) {
+                    unindex(this);
+                    index(this);
+                    compactIfSparse();
+                }
+            }
+        }
+
+        @Override
+        public boolean followsAmount() {
+            return false;
+        }
+    }
+
+    /**
+     * The transactions containing a word
+     */
+    private static final class Postings {
+        /**
+         * The document numbers in ascending order, including those of removed transactions
+         * The number of document numbers
+         * The number of transactions still containing the word
+         */
+        private int[] documents = new int[2];
+        private int size;
+        private int count;
+
+        private void add(int id) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, 2 * size);
+            }
+            documents[size++] = id;
+        }
+    }
+
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    /**
+     * The documents of each account by their transaction objects
+     * The documents by number, null for an unused number
+     * The number of used document numbers
+     * The number of indexed transactions
+     */
+    private final HashMap<String, IdentityHashMap<Transaction, Document>> accounts = new HashMap<>();
+    private Document[] documents = new Document[16];
+    private int next;
+    private int live;
+
+    /**
+     * Adds a transaction of an account, unless the same object is already indexed for the account
+     *
+     * @param account     the account
+     * @param transaction the transaction
+     */
+    synchronized void add(String account, Transaction transaction) {
+        IdentityHashMap<Transaction, Document> documents = accounts.computeIfAbsent(account, name -> new IdentityHashMap<>());
+        if (documents.containsKey(transaction)) {
+            return;
+        }
+        Document document = new Document(account, transaction);
+        documents.put(transaction, document);
+        index(document);
+        transaction.addListener(document);
+    }
+
+    /**
+     * Adds the transactions of an account
+     *
+     * @param account      the account
+     * @param transactions the transactions
+     */
+    synchronized void addAll(String account, Iterable<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            add(account, transaction);
+        }
+    }
+
+    /**
+     * Removes a transaction of an account
+     *
+     * @param account     the account
+     * @param transaction the transaction object that was added, not an equal one
+     */
+    synchronized void remove(String account, Transaction transaction) {
+        IdentityHashMap<Transaction, Document> documents = accounts.get(account);
+        Document document = documents == null ? null : documents.remove(transaction);
+        if (document == null) {
+            return;
+        }
+        if (documents.isEmpty()) {
+            accounts.remove(account);
+        }
+        transaction.removeListener(document);
+        unindex(document);
+        compactIfSparse();
+    }
+
+    /**
+     * Removes all transactions of an account
+     *
+     * @param account the account
+     */
+    synchronized void removeAccount(String account) {
+        IdentityHashMap<Transaction, Document> documents = accounts.remove(account);
+        if (documents == null) {
+            return;
+        }
+        for (Document document : documents.values()) {
+            document.transaction.removeListener(document);
+            unindex(document);
+        }
+        compactIfSparse();
+    }
+
+    /**
+     * Searches the transactions containing words starting with the words of a text. The searched
+     * word with the fewest candidates is looked up first; the others are only looked up for its
+     * transactions if that is cheaper than merging their lists.
+     *
+     * @param text  the searched words
+     * @param limit the maximum number of hits
+     * @return the best hits, by descending score, hits of the same score in the order they were indexed
+     */
+    synchronized List<SearchHit> search(String text, int limit) {
+        List<String> terms = words(text, null);
+        if (terms.isEmpty() || limit == 0) {
+            return new ArrayList<>();
+        }
+        List<List<Map.Entry<String, Postings>>> matches = new ArrayList<>();
+        for (String term : terms) {
+            List<Map.Entry<String, Postings>> match = new ArrayList<>(prefixed(term).entrySet());
+            if (match.isEmpty()) {
+                return new ArrayList<>();
+            }
+            matches.add(match);
+        }
+        Integer[] order = new Integer[terms.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i, j) -> Long.compare(postings(matches.get(i)), postings(matches.get(j))));
+
+        Candidates candidates = union(terms.get(order[0]), matches.get(order[0]));
+        for (int i = 1; i < order.length && candidates.size > 0; i++) {
+            String term = terms.get(order[i]);
+            List<Map.Entry<String, Postings>> match = matches.get(order[i]);
+            if ((long) candidates.size * match.size() * 20 < postings(match)) {
+                candidates.probe(term, match);
+            } else if (match.size() == 1) {
+                Postings postings = match.get(0).getValue();
+                candidates.intersect(postings, weight(match.get(0).getKey(), term, postings.count, live));
+            } else {
+                candidates.intersect(union(term, match));
+            }
+        }
+
+        TopK<Integer> top = new TopK<>(Math.min(limit, candidates.size), false);
+        for (int i = 0; i < candidates.size; i++) {
+            if (top.accepts(candidates.scores[i])) {
+                top.offer(candidates.scores[i], i);
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>();
+        for (int i : top.toList()) {
+            Document document = documents[candidates.ids[i]];
+            hits.add(new SearchHit(document.account, document.transaction, candidates.scores[i]));
+        }
+        return hits;
+    }
+
+    /**
+     * The transactions matching the searched words so far, sorted by document number, with the sums
+     * of the weights of their best matching words
+     */
+    private final class Candidates {
+        private final int[] ids;
+        private final long[] scores;
+        private int size;
+
+        private Candidates(int capacity) {
+            ids = new int[capacity];
+            scores = new long[capacity];
+        }
+
+        /**
+         * Keeps the candidates containing a word starting with a searched word by a binary search of
+         * each matching list
+         */
+        private void probe(String term, List<Map.Entry<String, Postings>> match) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                long best = 0;
+                for (Map.Entry<String, Postings> entry : match) {
+                    Postings postings = entry.getValue();
+                    if (Arrays.binarySearch(postings.documents, 0, postings.size, ids[i]) >= 0) {
+                        best = Math.max(best, weight(entry.getKey(), term, postings.count, live));
+                    }
+                }
+                if (best > 0) {
+                    ids[kept] = ids[i];
+                    scores[kept++] = scores[i] + best;
+                }
+            }
+            size = kept;
+        }
+
+        /**
+         * Keeps the candidates that are part of the list of a word, adding its weight
+         */
+        private void intersect(Postings postings, long weight) {
+            int kept = 0;
+            for (int i = 0, j = 0; i < size && j < postings.size; ) {
+                if (ids[i] < postings.documents[j]) {
+                    i++;
+                } else if (ids[i] > postings.documents[j]) {
+                    j++;
+                } else {
+                    ids[kept] = ids[i];
+                    scores[kept++] = scores[i++] + weight;
+                    j++;
+                }
+            }
+            size = kept;
+        }
+
+        /**
+         * Keeps the candidates that are also part of other candidates, adding their scores
+         */
+        private void intersect(Candidates other) {
+            int kept = 0;
+            for (int i = 0, j = 0; i < size && j < other.size; ) {
+                if (ids[i] < other.ids[j]) {
+                    i++;
+                } else if (ids[i] > other.ids[j]) {
+                    j++;
+                } else {
+                    ids[kept] = ids[i];
+                    scores[kept++] = scores[i++] + other.scores[j++];
+                }
+            }
+            size = kept;
+        }
+    }
+
+    /**
+     * Merges the lists of the words starting with a searched word
+     */
+    private Candidates union(String term, List<Map.Entry<String, Postings>> match) {
+        long total = postings(match);
+        if (match.size() > 1 && total > next / 16) {
+            return denseUnion(term, match);
+        }
+        // the document number in the high bits sorts by document, the weight in the low bits keeps
+        // the best word of a document last
+        long[] keys = new long[(int) total];
+        int n = 0;
+        for (Map.Entry<String, Postings> entry : match) {
+            Postings postings = entry.getValue();
+            long weight = weight(entry.getKey(), term, postings.count, live);
+            for (int i = 0; i < postings.size; i++) {
+                if (documents[postings.documents[i]] != null) {
+                    keys[n++] = (long) postings.documents[i] << 32 | weight;
+                }
+            }
+        }
+        if (match.size() > 1) {
+            Arrays.sort(keys, 0, n);
+        }
+        Candidates candidates = new Candidates(n);
+        for (int i = 0; i < n; i++) {
+            int id = (int) (keys[i] >>> 32);
+            if (candidates.size > 0 && candidates.ids[candidates.size - 1] == id) {
+                candidates.size--;
+            }
+            candidates.ids[candidates.size] = id;
+            candidates.scores[candidates.size++] = keys[i] & 0xFFFFFFFFL;
+        }
+        return candidates;
+    }
+
+    /**
+     * Merges the lists of many words through the best weight of every document number, which is
+     * cheaper than sorting once the lists cover a good part of the documents
+     */
+    private Candidates denseUnion(String term, List<Map.Entry<String, Postings>> match) {
+        long[] best = new long[next];
+        int n = 0;
+        for (Map.Entry<String, Postings> entry : match) {
+            Postings postings = entry.getValue();
+            long weight = weight(entry.getKey(), term, postings.count, live);
+            for (int i = 0; i < postings.size; i++) {
+                int id = postings.documents[i];
+                if (best[id] == 0) {
+                    n++;
+                }
+                best[id] = Math.max(best[id], weight);
+            }
+        }
+        Candidates candidates = new Candidates(n);
+        for (int id = 0; id < next; id++) {
+            if (best[id] > 0 && documents[id] != null) {
+                candidates.ids[candidates.size] = id;
+                candidates.scores[candidates.size++] = best[id];
+            }
+        }
+        return candidates;
+    }
+
+    private Map<String, Postings> prefixed(String term) {
+        return words.subMap(term, true, term + Character.MAX_VALUE, true);
+    }
+
+    private static long postings(List<Map.Entry<String, Postings>> match) {
+        long postings = 0;
+        for (Map.Entry<String, Postings> entry : match) {
+            postings += entry.getValue().size;
+        }
+        return postings;
+    }
+
+    private void index(Document document) {
+        document.description = document.transaction.getDescription();
+        document.counterparty = counterparty(document.transaction);
+        if (next == documents.length) {
+            documents = Arrays.copyOf(documents, 2 * next);
+        }
+        document.id = next++;
+        documents[document.id] = document;
+        live++;
+        for (String word : words(document.description, document.counterparty)) {
+            Postings postings = words.computeIfAbsent(word, key -> new Postings());
+            postings.add(document.id);
+            postings.count++;
+        }
+    }
+
+    private void unindex(Document document) {
+        for (String word : words(document.description, document.counterparty)) {
+            Postings postings = words.get(word);
+            if (--postings.count == 0) {
+                words.remove(word);
+            }
+        }
+        documents[document.id] = null;
+        document.id = -1;
+        live--;
+    }
+
+    /**
+     * Renumbers the documents and rebuilds the lists once more than half of the numbers are unused
+     */
+    private void compactIfSparse() {
+        if (next - live <= live || next < 64) {
+            return;
+        }
+        Document[] indexed = documents;
+        int used = next;
+        words.clear();
+        documents = new Document[Math.max(16, 2 * live)];
+        next = 0;
+        live = 0;
+        for (int i = 0; i < used; i++) {
+            if (indexed[i] != null) {
+                index(indexed[i]);
+            }
+        }
+    }
+
+    /**
+     * Get the weight of a word of a transaction matching a searched word
+     *
+     * @param word      the word of the transaction
+     * @param term      the searched word, a prefix of the word
+     * @param frequency the number of transactions containing the word
+     * @param documents the number of transactions
+     * @return the weight times {@link #SCALE}
+     */
+    static long weight(String word, String term, int frequency, int documents) {
+        long weight = Math.round(SCALE * Math.log(1 + (double) documents / frequency));
+        return word.length() == term.length() ? 2 * weight : weight;
+    }
+
+    /**
+     * Get the distinct words of a description and a counterparty, in lower case
+     *
+     * @param description the description, may be null
+     * @param counterparty the counterparty, may be null
+     * @return the words in the order they appear
+     */
+    static List<String> words(String description, String counterparty) {
+        List<String> words = new ArrayList<>();
+        split(description, words);
+        split(counterparty, words);
+        return words;
+    }
+
+    private static void split(String text, List<String> words) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!words.contains(word)) {
+                    words.add(word);
+                }
+                start = -1;
+            }
+        }
+    }
+
+    static String counterparty(Transaction transaction) {
+        return transaction instanceof Transfer transfer ? transfer.getCounterparty() : null;
+    }
+
+    /**
+     * A search by a scan of all transactions, for banks without an index. It ranks like the index:
+     * the frequencies of the words are counted while the transactions are offered.
+     *
+     * @param <T> the type of the references to the offered transactions
+     */
+    static final class Scan<T> {
+
+        private final List<String> terms;
+        private final HashMap<String, Integer> frequencies = new HashMap<>();
+        private int documents;
+        /**
+         * The account, the reference and the matching words of each transaction matching all
+         * searched words
+         */
+        private final List<String> accounts = new ArrayList<>();
+        private final List<T> references = new ArrayList<>();
+        private final List<List<String>> matches = new ArrayList<>();
+
+        /**
+         * Creates a scan
+         *
+         * @param text the searched words
+         */
+        Scan(String text) {
+            this.terms = words(text, null);
+        }
+
+        /**
+         * Offers the next transaction
+         *
+         * @param account      the account of the transaction
+         * @param description  the description of the transaction
+         * @param counterparty the counterparty of a transfer, null for a payment
+         * @param reference    the reference to the transaction
+         */
+        void add(String account, String description, String counterparty, T reference) {
+            documents++;
+            List<String> matching = new ArrayList<>();
+            for (String word : words(description, counterparty)) {
+                for (String term : terms) {
+                    if (word.startsWith(term)) {
+                        matching.add(word);
+                        frequencies.merge(word, 1, Integer::sum);
+                        break;
+                    }
+                }
+            }
+            for (String term : terms) {
+                if (matching.stream().noneMatch(word -> word.startsWith(term))) {
+                    return;
+                }
+            }
+            if (!terms.isEmpty()) {
+                accounts.add(account);
+                references.add(reference);
+                matches.add(matching);
+            }
+        }
+
+        /**
+         * Get the best hits of the offered transactions
+         *
+         * @param limit   the maximum number of hits
+         * @param resolve gets a transaction by its account and reference
+         * @return the hits, by descending score, hits of the same score in the order they were offered
+         */
+        List<SearchHit> hits(int limit, BiFunction<String, T, Transaction> resolve) {
+            TopK<Integer> top = new TopK<>(Math.min(limit, matches.size()), false);
+            long[] scores = new long[matches.size()];
+            for (int i = 0; i < matches.size(); i++) {
+                for (String term : terms) {
+                    long best = 0;
+                    for (String word : matches.get(i)) {
+                        if (word.startsWith(term)) {
+                            best = Math.max(best, weight(word, term, frequencies.get(word), documents));
+                        }
+                    }
+                    scores[i] += best;
+                }
+                if (top.accepts(scores[i])) {
+                    top.offer(scores[i], i);
+                }
+            }
+            List<SearchHit> hits = new ArrayList<>();
+            for (int i : top.toList()) {
+                hits.add(new SearchHit(accounts.get(i), resolve.apply(accounts.get(i), references.get(i)), scores[i]));
+            }
+            return hits;
+        }
+    }
+}
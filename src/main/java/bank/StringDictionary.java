@@ -0,0 +1,134 @@
+package bank;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Assigns every distinct string a small int id, so repeated strings are stored once and can be
+ * compared by id. Ids are never reused; the dictionary only grows.
+ * <p>
+ * The strings are kept as UTF-8 bytes in a single array and found through an open-addressing
+ * table of ids, so a string costs its bytes plus a few ints instead of a {@link String} object,
+ * a map entry and a boxed id. {@link #get(int)} builds a new {@link String} on every call.
+ */
+final class StringDictionary {
+
+    /**
+     * The id of null
+     * The result of {@link #find(String)} for a string without an id
+     */
+    static final int NULL = -1;
+    static final int ABSENT = -2;
+
+    /**
+     * The bytes of all strings, one after another
+     * The start of the bytes of each id in {@code bytes}; the bytes of id i end at {@code offsets[i + 1]}
+     * The hash code of the string of each id
+     * Id + 1 by hash code, 0 for an empty slot
+     */
+    private byte[] bytes = new byte[256];
+    private int[] offsets = new int[17];
+    private int[] hashes = new int[16];
+    private int[] table = new int[32];
+    private int size;
+
+    /**
+     * Get the id of a string, assigning a new id if the string is not yet part of the dictionary
+     *
+     * @param string the string, may be null
+     * @return the id, {@link #NULL} for null
+     */
+    int id(String string) {
+        if (string == null) {
+            return NULL;
+        }
+        byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+        int hash = string.hashCode();
+        int id = find(encoded, hash);
+        if (id != ABSENT) {
+            return id;
+        }
+
+        id = size++;
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, 2 * hashes.length);
+            offsets = Arrays.copyOf(offsets, 2 * hashes.length + 1);
+        }
+        int start = offsets[id];
+        if (start + encoded.length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, start + encoded.length));
+        }
+        System.arraycopy(encoded, 0, bytes, start, encoded.length);
+        offsets[id + 1] = start + encoded.length;
+        hashes[id] = hash;
+
+        if (2 * size > table.length) {
+            table = new int[2 * table.length];
+            for (int i = 0; i < size; i++) {
+                insert(i);
+            }
+        } else {
+            insert(id);
+        }
+        return id;
+    }
+
+    /**
+     * Get the id of a string without adding it
+     *
+     * @param string the string, may be null
+     * @return the id, {@link #NULL} for null, {@link #ABSENT} if the string has no id
+     */
+    int find(String string) {
+        if (string == null) {
+            return NULL;
+        }
+        return find(string.getBytes(StandardCharsets.UTF_8), string.hashCode());
+    }
+
+    /**
+     * Get the string of an id
+     *
+     * @param id the id
+     * @return a new string, null for {@link #NULL}
+     */
+    String get(int id) {
+        if (id == NULL) {
+            return null;
+        }
+        return new String(bytes, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the number of distinct strings
+     *
+     * @return the size
+     */
+    int size() {
+        return size;
+    }
+
+    private int find(byte[] encoded, int hash) {
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (hashes[id] == hash && Arrays.equals(bytes, offsets[id], offsets[id + 1], encoded, 0, encoded.length)) {
+                return id;
+            }
+        }
+        return ABSENT;
+    }
+
+    private void insert(int id) {
+        int mask = table.length - 1;
+        int slot = spread(hashes[id]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
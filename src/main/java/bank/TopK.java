@@ -0,0 +1,188 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selects the k smallest or largest of a sequence of amounts in units of {@link Money} with a
+ * bounded heap, so that it takes O(n log k) time and O(k) space instead of sorting all n amounts.
+ * Of equal amounts, the ones offered first are kept and listed first, the same order as a stable
+ * sort.
+ *
+ * @param <T> the type of the values selected by their amounts
+ */
+final class TopK<T> {
+
+    private final int k;
+    private final boolean asc;
+    /**
+     * The heap of selected amounts with the entry to be dropped first at the root: the greatest
+     * amount when selecting the smallest ones and vice versa, of equal amounts the one offered last
+     * The number of values offered before each entry
+     * The value of each entry
+     * The number of entries
+     */
+    private long[] amounts;
+    private long[] orders;
+    private Object[] values;
+    private int size;
+    private long offered;
+
+    /**
+     * Creates an empty selection
+     *
+     * @param k   the number of values to select
+     * @param asc true to select the smallest amounts in ascending order, false for the largest ones
+     *            in descending order
+     */
+    TopK(int k, boolean asc) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Negative number of transactions: " + k);
+        }
+        this.k = k;
+        this.asc = asc;
+        int capacity = Math.min(k, 16);
+        this.amounts = new long[capacity];
+        this.orders = new long[capacity];
+        this.values = new Object[capacity];
+    }
+
+    /**
+     * Checks the bounds of a page of a sorted list
+     *
+     * @param offset the number of entries before the page
+     * @param limit  the maximum number of entries of the page
+     * @throws IllegalArgumentException if the offset or the limit is negative
+     */
+    static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Negative offset or limit: " + offset + ", " + limit);
+        }
+    }
+
+    /**
+     * Get the end of a page of a sorted list, i.e. the number of entries to select for it
+     *
+     * @param offset the number of entries before the page
+     * @param limit  the maximum number of entries of the page
+     * @return offset + limit, at most {@link Integer#MAX_VALUE}
+     * @throws IllegalArgumentException if the offset or the limit is negative
+     */
+    static int pageEnd(int offset, int limit) {
+        checkPage(offset, limit);
+        return (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Checks whether a value would be selected if it were offered next, so a caller can skip
+     * building values that would be dropped anyway
+     *
+     * @param amount the amount of the value
+     * @return true if {@link #offer} would keep the value
+     */
+    boolean accepts(long amount) {
+        return size < k || (k > 0 && before(amount, amounts[0]));
+    }
+
+    /**
+     * Offers the next value of the sequence
+     *
+     * @param amount the amount of the value
+     * @param value  the value
+     */
+    void offer(long amount, T value) {
+        long order = offered++;
+        if (size < k) {
+            if (size == amounts.length) {
+                int capacity = (int) Math.min(2L * size, k);
+                amounts = Arrays.copyOf(amounts, capacity);
+                orders = Arrays.copyOf(orders, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            set(size, amount, order, value);
+            siftUp(size++);
+        } else if (accepts(amount)) {
+            // the value was offered after all entries, so it only replaces a strictly later amount
+            set(0, amount, order, value);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Get the selected values, in ascending or descending order of their amounts. The selection is
+     * empty afterwards.
+     *
+     * @return the selected values
+     */
+    @SuppressWarnings("unchecked")
+    List<T> toList() {
+        Object[] sorted = new Object[size];
+        while (size > 0) {
+            // the root is the last of the remaining entries
+            sorted[size - 1] = values[0];
+            size--;
+            set(0, amounts[size], orders[size], values[size]);
+            values[size] = null;
+            siftDown(0);
+        }
+        List<T> list = new ArrayList<>(sorted.length);
+        for (Object value : sorted) {
+            list.add((T) value);
+        }
+        return list;
+    }
+
+    private boolean before(long amount, long other) {
+        return asc ? amount < other : amount > other;
+    }
+
+    /**
+     * Checks whether entry i comes after entry j in the selected order, i.e. is dropped first
+     */
+    private boolean after(int i, int j) {
+        return amounts[i] != amounts[j] ? before(amounts[j], amounts[i]) : orders[i] > orders[j];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!after(i, parent)) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && after(child + 1, child)) {
+                child++;
+            }
+            if (!after(child, i)) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void set(int i, long amount, long order, Object value) {
+        amounts[i] = amount;
+        orders[i] = order;
+        values[i] = value;
+    }
+
+    private void swap(int i, int j) {
+        long amount = amounts[i];
+        long order = orders[i];
+        Object value = values[i];
+        set(i, amounts[j], orders[j], values[j]);
+        set(j, amount, order, value);
+    }
+}
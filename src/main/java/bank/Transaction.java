@@ -2,6 +2,10 @@ package bank;
 
 import bank.exceptions.NumericValueInvalidException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 /**
  * Abstract transaction class representing the general transactions
  */
@@ -9,11 +13,20 @@ public abstract class Transaction implements CalculateBill {
     /**
      * The date of the transaction
      * The description of the transaction
-     * The amount of the transaction
+     * The amount of the transaction in units of {@link Money}
      */
     protected String date;
     protected String description;
-    protected double amount;
+    protected long amount;
+    /**
+     * The date parsed by {@link Dates#parse(String)}, kept in step with {@link #date}
+     */
+    private transient int day;
+
+    /**
+     * The listeners notified about changes, e.g. the ledgers holding the transaction
+     */
+    private transient List<TransactionListener> listeners;
 
     /**
      * Constructor setting the date and description of a transaction
@@ -23,6 +36,7 @@ public abstract class Transaction implements CalculateBill {
      */
     public Transaction(String date, String description, double amount) throws NumericValueInvalidException {
         this.date = date;
+        this.day = Dates.parse(date);
         this.description = description;
         setAmount(amount);
     }
@@ -42,7 +56,9 @@ public abstract class Transaction implements CalculateBill {
      * @param description the description
      */
     public void setDescription(String description) {
+        beforeChange();
         this.description = description;
+        afterChange();
     }
 
     /**
@@ -60,7 +76,19 @@ public abstract class Transaction implements CalculateBill {
      * @param date the date
      */
     public void setDate(String date) {
+        beforeChange();
         this.date = date;
+        this.day = Dates.parse(date);
+        afterChange();
+    }
+
+    /**
+     * Get the date of the transaction as a number that can be compared, see {@link Dates#parse(String)}
+     *
+     * @return the date as yyyymmdd, {@link Dates#UNKNOWN} if it is not written as dd.MM.yyyy
+     */
+    public int getDay() {
+        return day;
     }
 
     /**
@@ -69,16 +97,107 @@ public abstract class Transaction implements CalculateBill {
      * @return the amount
      */
     public double getAmount() {
+        return Money.toDouble(amount);
+    }
+
+    /**
+     * Get the exact amount of the transaction
+     *
+     * @return the amount in units of {@link Money}
+     */
+    public long getAmountUnits() {
         return amount;
     }
 
     /**
-     * Set amount of the transaction
+     * Set amount of the transaction. The amount is rounded to {@value Money#SCALE} decimal places.
      *
      * @param amount the amount
      */
     public abstract void setAmount(double amount) throws NumericValueInvalidException;
 
+    /**
+     * Calculates the effective amount exactly, without creating objects
+     *
+     * @return the effective amount in units of {@link Money}
+     */
+    public abstract long calculateUnits();
+
+    /**
+     * Calculates the effective amount
+     *
+     * @return the effective amount, see {@link #calculateUnits()}
+     */
+    @Override
+    public double calculate() {
+        return Money.toDouble(calculateUnits());
+    }
+
+    /**
+     * Registers a listener that is notified about changes of the transaction. Synchronized, since
+     * a transaction may be added to accounts of a shared bank by different threads.
+     *
+     * @param listener the listener
+     */
+    synchronized void addListener(TransactionListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>(1);
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener
+     *
+     * @param listener the listener
+     */
+    synchronized void removeListener(TransactionListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Checks whether a listener is the only one that follows the amount of the transaction
+     *
+     * @param listener the listener
+     * @return true if no other listener {@link TransactionListener#followsAmount() follows the amount}
+     */
+    synchronized boolean isFollowedOnlyBy(TransactionListener listener) {
+        if (listeners != null) {
+            for (TransactionListener other : listeners) {
+                if (other != listener && other.followsAmount()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Notifies the listeners that an attribute is about to change. Setters call this before they
+     * assign the new value.
+     */
+    protected final void beforeChange() {
+        if (listeners != null) {
+            for (TransactionListener listener : listeners) {
+                listener.beforeChange(this);
+            }
+        }
+    }
+
+    /**
+     * Notifies the listeners that an attribute has changed. Setters call this after they assigned
+     * the new value.
+     */
+    protected final void afterChange() {
+        if (listeners != null) {
+            for (TransactionListener listener : listeners) {
+                listener.afterChange(this);
+            }
+        }
+    }
+
     /**
      * Converts the object to a printable formatted string
      *
@@ -86,7 +205,7 @@ public abstract class Transaction implements CalculateBill {
      */
     public String toString() {
         String newLine = System.getProperty("line.separator");
-        return "Date: " + date + newLine + "Description: " + description + newLine + "Amount: " + amount + newLine + "Calculated amount: " + calculate() + newLine;
+        return "Date: " + date + newLine + "Description: " + description + newLine + "Amount: " + getAmount() + newLine + "Calculated amount: " + calculate() + newLine;
     }
 
     /**
@@ -108,5 +227,13 @@ public abstract class Transaction implements CalculateBill {
         return false;
     }
 
-
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hash(date, description) + Long.hashCode(amount);
+    }
 }
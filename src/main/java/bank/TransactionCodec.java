@@ -0,0 +1,253 @@
+package bank;
+
+import bank.exceptions.NumericValueInvalidException;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts transactions to and from the persisted JSON envelope
+ * {@code {"INSTANCE": {...}, "CLASSNAME": "Payment|IncomingTransfer|OutgoingTransfer"}}.
+ * <p>
+ * The envelope is handled by a type adapter registered once with a shared {@link Gson} instance,
+ * which writes and reads the attributes directly to and from the stream. Instances are immutable
+ * and thread-safe; use {@link #pretty()} for human readable output and {@link #compact()} for
+ * output without whitespace.
+ */
+public final class TransactionCodec {
+
+    private static final TransactionCodec PRETTY = new TransactionCodec(true);
+    private static final TransactionCodec COMPACT = new TransactionCodec(false);
+
+    private static final Map<Class<?>, String> CLASSNAMES = Map.of(
+            Payment.class, "Payment",
+            IncomingTransfer.class, "IncomingTransfer",
+            OutgoingTransfer.class, "OutgoingTransfer");
+
+    private final Gson gson;
+    private final TypeAdapter<Transaction> adapter;
+
+    private TransactionCodec(boolean prettyPrinting) {
+        GsonBuilder builder = new GsonBuilder()
+                .registerTypeHierarchyAdapter(Transaction.class, new EnvelopeAdapter().nullSafe())
+                .serializeNulls();
+        if (prettyPrinting) {
+            builder.setPrettyPrinting();
+        }
+        gson = builder.create();
+        adapter = gson.getAdapter(Transaction.class);
+    }
+
+    /**
+     * Get the shared codec writing indented, human readable JSON
+     *
+     * @return the pretty printing codec
+     */
+    public static TransactionCodec pretty() {
+        return PRETTY;
+    }
+
+    /**
+     * Get the shared codec writing JSON without any whitespace
+     *
+     * @return the compact codec
+     */
+    public static TransactionCodec compact() {
+        return COMPACT;
+    }
+
+    /**
+     * Converts a transaction into its JSON envelope
+     *
+     * @param transaction the transaction
+     * @return the JSON string
+     */
+    public String toJson(Transaction transaction) {
+        return gson.toJson(transaction, Transaction.class);
+    }
+
+    /**
+     * Converts a JSON envelope into a transaction
+     *
+     * @param json the JSON string
+     * @return the transaction
+     * @throws com.google.gson.JsonParseException if the string is not a valid envelope
+     */
+    public Transaction fromJson(String json) {
+        return gson.fromJson(json, Transaction.class);
+    }
+
+    /**
+     * Writes transactions as a JSON array to a stream
+     *
+     * @param transactions the transactions
+     * @param out          the stream, not closed by this method
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeAll(Iterable<Transaction> transactions, Writer out) throws IOException {
+        JsonWriter writer = gson.newJsonWriter(out);
+        writer.beginArray();
+        for (Transaction transaction : transactions) {
+            adapter.write(writer, transaction);
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
+    /**
+     * Reads a JSON array of transactions from a stream, one record at a time
+     *
+     * @param in the stream, not closed by this method
+     * @return the transactions in the order of the array
+     * @throws IOException if the stream cannot be read or is malformed
+     */
+    public List<Transaction> readAll(Reader in) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        JsonReader reader = gson.newJsonReader(in);
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                transactions.add(adapter.read(reader));
+            }
+            reader.endArray();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed transaction array at " + reader.getPath(), e);
+        }
+        return transactions;
+    }
+
+    /**
+     * Writes a single transaction envelope to a JSON writer
+     *
+     * @param writer      the writer
+     * @param transaction the transaction
+     * @throws IOException if the writer fails
+     */
+    public void write(JsonWriter writer, Transaction transaction) throws IOException {
+        adapter.write(writer, transaction);
+    }
+
+    /**
+     * Reads a single transaction envelope from a JSON reader
+     *
+     * @param reader the reader, positioned before the envelope
+     * @return the transaction
+     * @throws IOException if the envelope is malformed
+     */
+    public Transaction read(JsonReader reader) throws IOException {
+        return adapter.read(reader);
+    }
+
+    /**
+     * The type adapter handling the envelope of all transaction classes
+     */
+    private static final class EnvelopeAdapter extends TypeAdapter<Transaction> {
+
+        @Override
+        public void write(JsonWriter out, Transaction transaction) throws IOException {
+            out.beginObject();
+            out.name("INSTANCE").beginObject();
+            if (transaction instanceof Payment payment) {
+                out.name("incomingInterest").value(payment.getIncomingInterest());
+                out.name("outgoingInterest").value(payment.getOutgoingInterest());
+            } else if (transaction instanceof Transfer transfer) {
+                out.name("sender").value(transfer.getSender());
+                out.name("recipient").value(transfer.getRecipient());
+            }
+            out.name("date").value(transaction.getDate());
+            out.name("description").value(transaction.getDescription());
+            out.name("amount").value(transaction.getAmount());
+            out.endObject();
+            out.name("CLASSNAME").value(classname(transaction));
+            out.endObject();
+        }
+
+        /**
+         * Reads one envelope. The attributes of the instance are collected first since the class
+         * name may follow the instance.
+         */
+        @Override
+        public Transaction read(JsonReader in) throws IOException {
+            String classname = null;
+            String date = null;
+            String description = null;
+            double amount = 0;
+            double incomingInterest = 0;
+            double outgoingInterest = 0;
+            String sender = null;
+            String recipient = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (name.equals("CLASSNAME")) {
+                    classname = in.nextString();
+                } else if (name.equals("INSTANCE")) {
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String attribute = in.nextName();
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                            continue;
+                        }
+                        switch (attribute) {
+                            case "date" -> date = in.nextString();
+                            case "description" -> description = in.nextString();
+                            case "amount" -> amount = in.nextDouble();
+                            case "incomingInterest" -> incomingInterest = in.nextDouble();
+                            case "outgoingInterest" -> outgoingInterest = in.nextDouble();
+                            case "sender" -> sender = in.nextString();
+                            case "recipient" -> recipient = in.nextString();
+                            default -> in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (classname == null) {
+                throw new IOException("Missing CLASSNAME at " + in.getPath());
+            }
+            try {
+                return switch (classname) {
+                    case "Payment" -> new Payment(date, description, amount, incomingInterest, outgoingInterest);
+                    case "IncomingTransfer" -> new IncomingTransfer(date, description, amount, sender, recipient);
+                    case "OutgoingTransfer" -> new OutgoingTransfer(date, description, amount, sender, recipient);
+                    default -> throw new IOException("Unknown CLASSNAME " + classname + " at " + in.getPath());
+                };
+            } catch (NumericValueInvalidException e) {
+                throw new IOException("Invalid transaction at " + in.getPath(), e);
+            }
+        }
+
+        private static String classname(Transaction transaction) {
+            String classname = CLASSNAMES.get(transaction.getClass());
+            if (classname != null) {
+                return classname;
+            }
+            if (transaction instanceof IncomingTransfer) {
+                return "IncomingTransfer";
+            } else if (transaction instanceof OutgoingTransfer) {
+                return "OutgoingTransfer";
+            } else if (transaction instanceof Transfer) {
+                return "Transfer";
+            } else if (transaction instanceof Payment) {
+                return "Payment";
+            }
+            return "undefined";
+        }
+    }
+}
@@ -0,0 +1,901 @@
+package bank;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The transactions of a single account. Keeps the insertion order and uses the hash codes of the
+ * transactions, so adding, removing and looking up a transaction takes constant time.
+ * <p>
+ * The ledger also keeps the account balance as an exact running total in units of {@link Money}.
+ * It listens to the transactions it holds, so the hash index and the balance stay correct when a
+ * transaction is changed through its setters while being part of the ledger. A transaction changed
+ * to equal another one of the ledger is chained behind it in the hash index, so both can still be
+ * found and removed one after the other.
+ * <p>
+ * A {@link DateIndex} for queries by date and balances as of a date is built on the first such
+ * query and updated by every later change in logarithmic time, whatever the order of the dates.
+ * <p>
+ * In the same way, an {@link AmountIndex} of the transactions ordered by calculated amount is built
+ * by the first sorted query. It records every add, remove and change as it happens; the next sorted
+ * query merges the recorded changes in, and sorted queries without changes in between only copy it.
+ * Transactions of the same amount are ordered by insertion.
+ * <p>
+ * A {@link CounterpartyIndex} of the transfers and their sums by counterparty is built by the first
+ * query for a counterparty or for the flows of the account, and is updated by every later change.
+ * <p>
+ * The payments charged with some rates are re-rated in one pass, see
+ * {@link #rerate(InterestRates, InterestRates, Collection)}, instead of one change at a time.
+ */
+class TransactionLedger extends AbstractCollection<Transaction> {
+
+    /**
+     * A transaction together with its neighbours in insertion order. The node listens to its
+     * transaction and moves it to its new hash code and calculated amount when it changes.
+     */
+    private final class Node implements TransactionListener {
+        private final Transaction transaction;
+        private Node previous;
+        private Node next;
+        /**
+         * The number of transactions added to the ledger before this one
+         * The date of the transaction in the date index
+         * The calculated amount of the transaction in the balance and both indexes
+         * The number of changes of the amount and removals, new nodes of the amount index added with
+         * an older version are skipped
+         * The counterparty of a transfer in the counterparty index, null for a payment
+         * The next node whose transaction equals this one, chained behind this node in the hash index
+         */
+        private final long sequence;
+        private int day;
+        private long amount;
+        private int version;
+        private String counterparty;
+        private Node twin;
+
+        private Node(Transaction transaction) {
+            this.transaction = transaction;
+            this.sequence = added++;
+            this.day = transaction.getDay();
+            this.amount = transaction.calculateUnits();
+            this.counterparty = counterparty(transaction);
+        }
+
+        @Override
+        public void beforeChange(Transaction transaction) {
+            unindex(this);
+        }
+
+        @Override
+        public void afterChange(Transaction transaction) {
+            changes++;
+            long calculated = transaction.calculateUnits();
+            balance += calculated - amount;
+            DateIndex dateIndex = dates;
+            if (transaction.getDay() != day) {
+                if (dateIndex != null) {
+                    dateIndex.remove(day, sequence);
+                    dateIndex.add(transaction.getDay(), sequence, transaction, calculated);
+                }
+                day = transaction.getDay();
+            } else if (calculated != amount && dateIndex != null) {
+                dateIndex.update(day, sequence, calculated - amount);
+            }
+            String current = counterparty(transaction);
+            CounterpartyIndex<Node> counterpartyIndex = counterparties;
+            if (!Objects.equals(current, counterparty)) {
+                if (counterpartyIndex != null && counterparty != null) {
+                    counterpartyIndex.remove(counterparty, sequence, amount);
+                }
+                if (counterpartyIndex != null && current != null) {
+                    counterpartyIndex.add(current, sequence, this, calculated);
+                }
+                counterparty = current;
+            } else if (calculated != amount && counterparty != null && counterpartyIndex != null) {
+                counterpartyIndex.update(counterparty, amount, calculated);
+            }
+            if (calculated != amount) {
+                AmountIndex amountIndex = byAmount;
+                version++;
+                if (amountIndex != null) {
+                    amountIndex.remove(amount, sequence);
+                }
+                amount = calculated;
+                if (amountIndex != null) {
+                    amountIndex.add(this);
+                }
+            }
+            index(this);
+        }
+    }
+
+    private final HashMap<Transaction, Node> index = new HashMap<>();
+    private Node first;
+    private Node last;
+    private int size;
+    private long balance;
+    private int changes;
+    /**
+     * The transactions sorted by date, null until the next query by date. Volatile, since readers
+     * sharing a read lock of {@link ConcurrentPrivateBank} may build it at the same time.
+     */
+    private volatile DateIndex dates;
+    /**
+     * The number of transactions ever added, for the order of transactions of the same amount
+     * The transactions ordered by calculated amount, null until the next sorted query. Volatile for
+     * the same reason as {@link #dates}.
+     */
+    private long added;
+    private volatile AmountIndex byAmount;
+    /**
+     * The transfers by counterparty, null until the next query for a counterparty. Volatile for the
+     * same reason as {@link #dates}.
+     */
+    private volatile CounterpartyIndex<Node> counterparties;
+
+    /**
+     * Creates an empty ledger
+     */
+    TransactionLedger() {
+    }
+
+    /**
+     * Creates a ledger holding the same transactions as another ledger
+     *
+     * @param ledger the ledger to copy from
+     */
+    TransactionLedger(TransactionLedger ledger) {
+        // equal transactions of the ledger are copied as well
+        for (Transaction transaction : ledger) {
+            append(transaction);
+        }
+    }
+
+    /**
+     * Adds a transaction to the end of the ledger
+     *
+     * @param transaction the transaction
+     * @return false if an equal transaction is already part of the ledger
+     */
+    @Override
+    public boolean add(Transaction transaction) {
+        if (index.containsKey(transaction)) {
+            return false;
+        }
+        append(transaction);
+        return true;
+    }
+
+    private void append(Transaction transaction) {
+        Node node = new Node(transaction);
+        if (last == null) {
+            first = node;
+        } else {
+            last.next = node;
+            node.previous = last;
+        }
+        last = node;
+        index(node);
+        size++;
+        balance += node.amount;
+        DateIndex index = dates;
+        if (index != null) {
+            index.add(node.day, node.sequence, transaction, node.amount);
+        }
+        AmountIndex amountIndex = byAmount;
+        if (amountIndex != null) {
+            amountIndex.add(node);
+        }
+        CounterpartyIndex<Node> counterpartyIndex = counterparties;
+        if (counterpartyIndex != null && node.counterparty != null) {
+            counterpartyIndex.add(node.counterparty, node.sequence, node, node.amount);
+        }
+        transaction.addListener(node);
+    }
+
+    /**
+     * Adds transactions to the end of the ledger. If the batch is larger than the ledger, the date,
+     * amount and counterparty indexes are dropped first and built again by the next query, instead
+     * of being updated for every transaction.
+     *
+     * @param transactions the transactions, in order
+     * @return true if at least one transaction was added
+     */
+    @Override
+    public boolean addAll(Collection<? extends Transaction> transactions) {
+        if (transactions.size() > size) {
+            dates = null;
+            byAmount = null;
+            counterparties = null;
+        }
+        boolean changed = false;
+        for (Transaction transaction : transactions) {
+            changed |= add(transaction);
+        }
+        return changed;
+    }
+
+    /**
+     * Removes a transaction from the ledger
+     *
+     * @param transaction the transaction
+     * @return false if the transaction is not part of the ledger
+     */
+    @Override
+    public boolean remove(Object transaction) {
+        Node node = index.get(transaction);
+        if (node == null) {
+            return false;
+        }
+        unindex(node);
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Get the transaction of the ledger that equals a given one
+     *
+     * @param transaction the transaction
+     * @return the transaction object held by the ledger, null if none is equal
+     */
+    Transaction find(Object transaction) {
+        Node node = index.get(transaction);
+        return node == null ? null : node.transaction;
+    }
+
+    /**
+     * Removes all transactions and stops listening to them
+     */
+    @Override
+    public void clear() {
+        for (Node node = first; node != null; node = node.next) {
+            node.transaction.removeListener(node);
+        }
+        index.clear();
+        first = null;
+        last = null;
+        size = 0;
+        balance = 0;
+        dates = null;
+        byAmount = null;
+        counterparties = null;
+    }
+
+    @Override
+    public boolean contains(Object transaction) {
+        return index.containsKey(transaction);
+    }
+
+    @Override
+    public Iterator<Transaction> iterator() {
+        return new Iterator<>() {
+            private Node next = first;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Transaction next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Transaction transaction = next.transaction;
+                next = next.next;
+                return transaction;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the sum of the calculated amounts of all transactions
+     *
+     * @return the balance
+     */
+    double getBalance() {
+        return Money.toDouble(balance);
+    }
+
+    /**
+     * Get the exact sum of the calculated amounts of all transactions
+     *
+     * @return the balance in units of {@link Money}
+     */
+    long getBalanceUnits() {
+        return balance;
+    }
+
+    /**
+     * Get the number of changes made to transactions while they were part of the ledger
+     *
+     * @return the number of in-place changes
+     */
+    int getChanges() {
+        return changes;
+    }
+
+    /**
+     * Re-rates the payments charged with some rates in one pass, without notifying the ledger of
+     * every payment: the hash index, the balance and the date and amount indexes are updated in
+     * place, as {@link Node#afterChange(Transaction)} does; payments have no counterparty. A payment
+     * that another ledger follows as well is not changed but collected; it has to be re-rated through
+     * {@link Payment#setRates(InterestRates)}, which notifies all ledgers.
+     *
+     * @param from   the rates of the payments to re-rate
+     * @param to     the new rates
+     * @param shared collects the payments other ledgers follow as well, may be filled by several
+     *               ledgers at the same time
+     * @return the number of re-rated payments
+     */
+    int rerate(InterestRates from, InterestRates to, Collection<Payment> shared) {
+        int rerated = 0;
+        DateIndex dateIndex = dates;
+        AmountIndex amountIndex = byAmount;
+        for (Node node = first; node != null; node = node.next) {
+            if (!(node.transaction instanceof Payment payment) || !from.equals(payment.getRates())) {
+                continue;
+            }
+            if (!payment.isFollowedOnlyBy(node)) {
+                shared.add(payment);
+                continue;
+            }
+            // the rates are part of the hash code
+            unindex(node);
+            payment.replaceRates(to);
+            index(node);
+            long calculated = payment.calculateUnits();
+            if (calculated != node.amount) {
+                balance += calculated - node.amount;
+                if (dateIndex != null) {
+                    dateIndex.update(node.day, node.sequence, calculated - node.amount);
+                }
+                node.version++;
+                if (amountIndex != null) {
+                    amountIndex.remove(node.amount, node.sequence);
+                }
+                node.amount = calculated;
+                if (amountIndex != null) {
+                    amountIndex.add(node);
+                }
+            }
+            rerated++;
+        }
+        changes += rerated;
+        return rerated;
+    }
+
+    /**
+     * Re-rates the payments charged with some rates in several ledgers, the ledgers in parallel.
+     * The payments followed by more than one ledger are re-rated afterwards, one at a time.
+     *
+     * @param ledgers the ledgers, not changed by other threads in the meantime
+     * @param from    the rates of the payments to re-rate
+     * @param to      the new rates
+     * @return the number of re-rated payments, a payment counted once for every ledger holding it
+     */
+    static int rerate(Collection<TransactionLedger> ledgers, InterestRates from, InterestRates to) {
+        Collection<Payment> shared = new ConcurrentLinkedQueue<>();
+        int rerated = ledgers.parallelStream().mapToInt(ledger -> ledger.rerate(from, to, shared)).sum();
+        for (Payment payment : shared) {
+            payment.setRates(to);
+        }
+        return rerated + shared.size();
+    }
+
+    /**
+     * Get the transactions dated within a period, using the date index
+     *
+     * @param from the first date, as yyyymmdd
+     * @param to   the last date, as yyyymmdd
+     * @return the transactions sorted by date, transactions of the same date in insertion order
+     */
+    List<Transaction> between(int from, int to) {
+        return dateIndex().between(from, to);
+    }
+
+    /**
+     * Get the sum of the calculated amounts of the transactions dated up to a day, using the
+     * subtree sums of the date index
+     *
+     * @param to the last date, as yyyymmdd
+     * @return the balance as of the end of that day in units of {@link Money}, without transactions
+     * of an {@link Dates#UNKNOWN unknown} date
+     */
+    long getBalanceUnits(int to) {
+        return dateIndex().sumUntil(to);
+    }
+
+    /**
+     * Iterates over the transactions matching a query, checking the dates and amounts kept with the
+     * transactions instead of calculating them. A query with a date range uses the date index.
+     *
+     * @param query the query
+     * @return the matching transactions, in insertion order or by date for a date range
+     */
+    Iterator<Transaction> iterator(TransactionQuery query) {
+        if (query.hasDates()) {
+            return dateIndex().iterator(query);
+        }
+        if (query.getCounterparty() != null) {
+            return counterpartyIndex().get(query.getCounterparty()).stream()
+                    .filter(node -> query.test(node.transaction, node.day, node.amount))
+                    .map(node -> node.transaction)
+                    .iterator();
+        }
+        return new Iterator<>() {
+            private Node next = match(first);
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Transaction next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Transaction transaction = next.transaction;
+                next = match(next.next);
+                return transaction;
+            }
+
+            private Node match(Node node) {
+                while (node != null && !query.test(node.transaction, node.day, node.amount)) {
+                    node = node.next;
+                }
+                return node;
+            }
+        };
+    }
+
+    /**
+     * Get the transactions sorted by their calculated amount, using the amount index. Transactions
+     * of the same amount are in insertion order in both directions.
+     *
+     * @param asc true for ascending, false for descending order
+     * @return the sorted transactions
+     */
+    List<Transaction> sorted(boolean asc) {
+        return sorted(asc, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get a page of the transactions sorted by their calculated amount, using the amount index.
+     * Only the transactions of the page are copied.
+     *
+     * @param asc    true for ascending, false for descending order
+     * @param offset the number of sorted transactions to skip
+     * @param limit  the maximum number of transactions of the page
+     * @return the sorted transactions of the page
+     */
+    List<Transaction> sorted(boolean asc, int offset, int limit) {
+        AmountIndex amountIndex = byAmount;
+        if (amountIndex == null) {
+            amountIndex = new AmountIndex();
+            for (Node node = first; node != null; node = node.next) {
+                amountIndex.add(node);
+            }
+            byAmount = amountIndex;
+        }
+        return amountIndex.sorted(asc, offset, limit);
+    }
+
+    /**
+     * Get the transactions with the smallest or largest calculated amounts. The amount index is
+     * used if it was built, otherwise the transactions are selected with a bounded heap.
+     *
+     * @param k   the number of transactions
+     * @param asc true for the smallest amounts in ascending order, false for the largest ones in
+     *            descending order
+     * @return the sorted transactions, the same as the first k of {@link #sorted(boolean)}
+     */
+    List<Transaction> top(int k, boolean asc) {
+        AmountIndex amountIndex = byAmount;
+        if (amountIndex != null) {
+            return amountIndex.sorted(asc, 0, k);
+        }
+        TopK<Transaction> top = new TopK<>(Math.min(k, size), asc);
+        for (Node node = first; node != null; node = node.next) {
+            top.offer(node.amount, node.transaction);
+        }
+        return top.toList();
+    }
+
+    /**
+     * Get a page of the transactions with a positive or negative calculated amount. The scan stops
+     * at the end of the page.
+     *
+     * @param positive true for positive, false for negative amounts
+     * @param offset   the number of matching transactions to skip
+     * @param limit    the maximum number of transactions of the page
+     * @return the matching transactions of the page in insertion order
+     */
+    List<Transaction> byType(boolean positive, int offset, int limit) {
+        List<Transaction> transactions = new ArrayList<>(Math.min(limit, size));
+        int skipped = 0;
+        for (Node node = first; node != null && transactions.size() < limit; node = node.next) {
+            if (positive ? node.amount > 0 : node.amount < 0) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    transactions.add(node.transaction);
+                }
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Get the flows of money with each counterparty, using the counterparty index
+     *
+     * @return the flows by counterparty
+     */
+    Map<String, CounterpartyFlow> flows() {
+        return counterpartyIndex().flows();
+    }
+
+    /**
+     * Get the counterparties with the largest volume, using the counterparty index
+     *
+     * @param k the number of counterparties
+     * @return the flows of the counterparties, by descending volume
+     */
+    List<CounterpartyFlow> topCounterparties(int k) {
+        return counterpartyIndex().top(k);
+    }
+
+    private CounterpartyIndex<Node> counterpartyIndex() {
+        CounterpartyIndex<Node> index = counterparties;
+        if (index == null) {
+            index = new CounterpartyIndex<>();
+            for (Node node = first; node != null; node = node.next) {
+                if (node.counterparty != null) {
+                    index.add(node.counterparty, node.sequence, node, node.amount);
+                }
+            }
+            counterparties = index;
+        }
+        return index;
+    }
+
+    private static String counterparty(Transaction transaction) {
+        return transaction instanceof Transfer transfer ? transfer.getCounterparty() : null;
+    }
+
+    private DateIndex dateIndex() {
+        DateIndex index = dates;
+        if (index == null) {
+            int[] days = new int[size];
+            long[] sequences = new long[size];
+            Transaction[] transactions = new Transaction[size];
+            long[] amounts = new long[size];
+            int i = 0;
+            for (Node node = first; node != null; node = node.next, i++) {
+                days[i] = node.day;
+                sequences[i] = node.sequence;
+                transactions[i] = node.transaction;
+                amounts[i] = node.amount;
+            }
+            index = DateIndex.of(days, sequences, transactions, amounts, size);
+            dates = index;
+        }
+        return index;
+    }
+
+    /**
+     * Copies the transactions into a new list, in insertion order
+     *
+     * @return the list of transactions
+     */
+    List<Transaction> toList() {
+        List<Transaction> transactions = new ArrayList<>(size);
+        for (Node node = first; node != null; node = node.next) {
+            transactions.add(node.transaction);
+        }
+        return transactions;
+    }
+
+    /**
+     * Compares the transactions of two ledgers, including their order
+     *
+     * @param obj the object to be compared with
+     * @return true if both ledgers hold equal transactions in the same order
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof TransactionLedger ledger) || size() != ledger.size()) {
+            return false;
+        }
+        Iterator<Transaction> other = ledger.iterator();
+        for (Transaction transaction : this) {
+            if (!transaction.equals(other.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (Transaction transaction : this) {
+            hashCode = 31 * hashCode + transaction.hashCode();
+        }
+        return hashCode;
+    }
+
+    /**
+     * Adds a node to the hash index, chained behind the node of an equal transaction if there is one
+     */
+    private void index(Node node) {
+        Node equal = index.putIfAbsent(node.transaction, node);
+        if (equal != null) {
+            while (equal.twin != null) {
+                equal = equal.twin;
+            }
+            equal.twin = node;
+        }
+    }
+
+    /**
+     * Removes a node from the hash index while its transaction still has the hash code it was
+     * indexed with. The next node of an equal transaction takes its place.
+     */
+    private void unindex(Node node) {
+        Node equal = index.get(node.transaction);
+        if (equal == node) {
+            index.remove(node.transaction);
+            if (node.twin != null) {
+                index.put(node.twin.transaction, node.twin);
+            }
+        } else {
+            while (equal.twin != node) {
+                equal = equal.twin;
+            }
+            equal.twin = node.twin;
+        }
+        node.twin = null;
+    }
+
+    private void unlink(Node node) {
+        if (node.previous == null) {
+            first = node.next;
+        } else {
+            node.previous.next = node.next;
+        }
+        if (node.next == null) {
+            last = node.previous;
+        } else {
+            node.next.previous = node.previous;
+        }
+        size--;
+        balance = size == 0 ? 0 : balance - node.amount;
+        DateIndex index = dates;
+        if (index != null) {
+            index.remove(node.day, node.sequence);
+        }
+        node.version++;
+        AmountIndex amountIndex = byAmount;
+        if (amountIndex != null) {
+            amountIndex.remove(node.amount, node.sequence);
+        }
+        CounterpartyIndex<Node> counterpartyIndex = counterparties;
+        if (counterpartyIndex != null && node.counterparty != null) {
+            counterpartyIndex.remove(node.counterparty, node.sequence, node.amount);
+        }
+        node.transaction.removeListener(node);
+    }
+
+    /**
+     * The transactions of a ledger ordered by calculated amount and then by insertion.
+     * <p>
+     * The sorted entries are kept in arrays of amounts, insertion sequences and transactions.
+     * Adding a node only appends it to a list of new nodes. Removing a node clears its sorted entry,
+     * found by a binary search for its amount and sequence; a node that is still new is skipped
+     * later because its version changed. A sorted query sorts the new nodes and merges them with
+     * the sorted entries, so the cost of a query after k changes is O(n + k log k) of sequential
+     * array work instead of a full sort. The new nodes are merged early once they outnumber the
+     * sorted entries.
+     * <p>
+     * The methods are synchronized, since readers sharing a read lock of {@link ConcurrentPrivateBank}
+     * may merge at the same time.
+     */
+    private static final class AmountIndex {
+
+        private static final Comparator<Node> BY_AMOUNT = Comparator.<Node>comparingLong(node -> node.amount)
+                .thenComparingLong(node -> node.sequence);
+
+        /**
+         * The sorted entries, the transaction is null for a removed entry
+         * The number of removed entries
+         */
+        private long[] amounts = new long[0];
+        private long[] sequences = new long[0];
+        private Transaction[] transactions = new Transaction[0];
+        private int removed;
+        /**
+         * The nodes added since the last merge, in any order, and their versions when they were added
+         */
+        private Node[] added = new Node[16];
+        private int[] addedVersions = new int[16];
+        private int addedSize;
+
+        /**
+         * Adds a node with its current amount
+         */
+        synchronized void add(Node node) {
+            if (addedSize == added.length) {
+                added = Arrays.copyOf(added, 2 * addedSize);
+                addedVersions = Arrays.copyOf(addedVersions, 2 * addedSize);
+            }
+            added[addedSize] = node;
+            addedVersions[addedSize] = node.version;
+            addedSize++;
+            if (addedSize > transactions.length + 1024) {
+                merge();
+            }
+        }
+
+        /**
+         * Removes the entry of a node, the version of the node has already been changed
+         *
+         * @param amount   the amount the node was added with
+         * @param sequence the sequence of the node
+         */
+        synchronized void remove(long amount, long sequence) {
+            int low = 0;
+            int high = transactions.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int order = amounts[middle] != amount ? Long.compare(amounts[middle], amount) : Long.compare(sequences[middle], sequence);
+                if (order < 0) {
+                    low = middle + 1;
+                } else if (order > 0) {
+                    high = middle - 1;
+                } else {
+                    if (transactions[middle] != null) {
+                        transactions[middle] = null;
+                        removed++;
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Get a page of the sorted transactions, merging the changes first
+         *
+         * @param asc    true for ascending, false for descending order
+         * @param offset the number of sorted transactions to skip
+         * @param limit  the maximum number of transactions of the page
+         * @return the sorted transactions of the page
+         */
+        synchronized List<Transaction> sorted(boolean asc, int offset, int limit) {
+            if (addedSize > 0 || removed > 0) {
+                merge();
+            }
+            int size = transactions.length;
+            int from = Math.min(offset, size);
+            int to = from + Math.min(limit, size - from);
+            if (asc) {
+                return new ArrayList<>(Arrays.asList(transactions).subList(from, to));
+            }
+            // descending by amount, but transactions of the same amount still in insertion order
+            List<Transaction> page = new ArrayList<>(to - from);
+            int position = from;
+            if (position < to) {
+                // the page may start within a run of equal amounts, which is listed from its start
+                int end = upperBound(amounts[size - 1 - position], size - position, size);
+                while (position < to) {
+                    int start = runStart(end);
+                    for (int i = start + position - (size - end); i < end && position < to; i++, position++) {
+                        page.add(transactions[i]);
+                    }
+                    end = start;
+                }
+            }
+            return page;
+        }
+
+        /**
+         * Get the first position of the run of equal amounts that ends before a position, searching
+         * backwards in growing steps so that short runs are found in constant time
+         */
+        private int runStart(int end) {
+            long amount = amounts[end - 1];
+            int found = end - 1;
+            int step = 1;
+            while (found - step >= 0 && amounts[found - step] == amount) {
+                found -= step;
+                step *= 2;
+            }
+            int low = Math.max(0, found - step);
+            while (low < found) {
+                int middle = (low + found) >>> 1;
+                if (amounts[middle] < amount) {
+                    low = middle + 1;
+                } else {
+                    found = middle;
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Get the first position between two positions with a greater amount
+         */
+        private int upperBound(long amount, int low, int high) {
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (amounts[middle] <= amount) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private void merge() {
+            Node[] fresh = new Node[addedSize];
+            int freshSize = 0;
+            for (int i = 0; i < addedSize; i++) {
+                if (added[i].version == addedVersions[i]) {
+                    fresh[freshSize++] = added[i];
+                }
+            }
+            Arrays.sort(fresh, 0, freshSize, BY_AMOUNT);
+
+            int size = transactions.length - removed + freshSize;
+            long[] mergedAmounts = new long[size];
+            long[] mergedSequences = new long[size];
+            Transaction[] mergedTransactions = new Transaction[size];
+            int i = 0;
+            int j = 0;
+            for (int to = 0; to < size; to++) {
+                while (i < transactions.length && transactions[i] == null) {
+                    i++;
+                }
+                if (j >= freshSize || (i < transactions.length && (amounts[i] != fresh[j].amount
+                        ? amounts[i] < fresh[j].amount : sequences[i] < fresh[j].sequence))) {
+                    mergedAmounts[to] = amounts[i];
+                    mergedSequences[to] = sequences[i];
+                    mergedTransactions[to] = transactions[i];
+                    i++;
+                } else {
+                    mergedAmounts[to] = fresh[j].amount;
+                    mergedSequences[to] = fresh[j].sequence;
+                    mergedTransactions[to] = fresh[j].transaction;
+                    j++;
+                }
+            }
+            amounts = mergedAmounts;
+            sequences = mergedSequences;
+            transactions = mergedTransactions;
+            removed = 0;
+            added = new Node[16];
+            addedVersions = new int[16];
+            addedSize = 0;
+        }
+    }
+}
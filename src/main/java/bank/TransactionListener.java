@@ -0,0 +1,33 @@
+package bank;
+
+/**
+ * Gets notified when an attribute of a transaction changes, so that structures derived from the
+ * transaction (hash indexes, balances) can be kept up to date.
+ */
+interface TransactionListener {
+
+    /**
+     * Called right before an attribute of the transaction changes
+     *
+     * @param transaction the transaction, still holding its old values
+     */
+    void beforeChange(Transaction transaction);
+
+    /**
+     * Called right after an attribute of the transaction changed
+     *
+     * @param transaction the transaction, already holding its new values
+     */
+    void afterChange(Transaction transaction);
+
+    /**
+     * Checks whether the listener keeps anything derived from the amount or the interest rates of
+     * the transaction. A ledger that is the only such listener may re-rate a payment without
+     * notifying the others, see {@link Transaction#isFollowedOnlyBy(TransactionListener)}.
+     *
+     * @return true if a change of the calculated amount has to be notified
+     */
+    default boolean followsAmount() {
+        return true;
+    }
+}
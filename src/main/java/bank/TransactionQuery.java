@@ -0,0 +1,211 @@
+package bank;
+
+import bank.exceptions.NumericValueInvalidException;
+import bank.exceptions.TransactionAttributeException;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The filters of a query for the transactions of an account, see
+ * {@link Bank#streamTransactions(String, TransactionQuery)}. A query is immutable; every filter
+ * method returns a new query that matches the transactions matching this query and the filter, so
+ * filters can be combined in any order:
+ * <pre>
+ * TransactionQuery.all().negative().dateBetween("01.01.2019", "31.12.2019").counterparty("Lisa")
+ * </pre>
+ * The banks use the filters to skip transactions without calculating their amounts where they can,
+ * e.g. by a date index for a date range. As a {@link Predicate}, a query filters any transactions.
+ */
+public final class TransactionQuery implements Predicate<Transaction> {
+
+    private static final TransactionQuery ALL = new TransactionQuery(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, null);
+
+    /**
+     * The smallest and the largest calculated amount in units of {@link Money}
+     * The first and the last date as yyyymmdd, {@link Integer#MIN_VALUE} and {@link Integer#MAX_VALUE}
+     * if there is no date range
+     * The counterparty of the transfers, null to match any transaction
+     */
+    private final long minAmount;
+    private final long maxAmount;
+    private final int from;
+    private final int to;
+    private final String counterparty;
+
+    private TransactionQuery(long minAmount, long maxAmount, int from, int to, String counterparty) {
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        this.from = from;
+        this.to = to;
+        this.counterparty = counterparty;
+    }
+
+    /**
+     * Get the query matching all transactions
+     *
+     * @return the query without filters
+     */
+    public static TransactionQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Get a query that also requires a positive calculated amount, like
+     * {@link Bank#getTransactionsByType(String, boolean)}
+     *
+     * @return the new query
+     */
+    public TransactionQuery positive() {
+        return new TransactionQuery(Math.max(minAmount, 1), maxAmount, from, to, counterparty);
+    }
+
+    /**
+     * Get a query that also requires a negative calculated amount, like
+     * {@link Bank#getTransactionsByType(String, boolean)}
+     *
+     * @return the new query
+     */
+    public TransactionQuery negative() {
+        return new TransactionQuery(minAmount, Math.min(maxAmount, -1), from, to, counterparty);
+    }
+
+    /**
+     * Get a query that also requires the calculated amount to be within a range
+     *
+     * @param min the smallest amount
+     * @param max the largest amount
+     * @return the new query
+     * @throws NumericValueInvalidException if a bound is not a valid amount of {@link Money}
+     */
+    public TransactionQuery amountBetween(double min, double max) throws NumericValueInvalidException {
+        return new TransactionQuery(Math.max(minAmount, Money.toUnits(min)), Math.min(maxAmount, Money.toUnits(max)), from, to, counterparty);
+    }
+
+    /**
+     * Get a query that also requires the date to be within a period. Transactions whose date is not
+     * written as dd.MM.yyyy never match a period, and the banks list the matching transactions by
+     * date like {@link Bank#getTransactionsBetween(String, String, String)}.
+     *
+     * @param from the first date of the period, written as dd.MM.yyyy
+     * @param to   the last date of the period, written as dd.MM.yyyy
+     * @return the new query
+     * @throws TransactionAttributeException if a date is not written as dd.MM.yyyy
+     */
+    public TransactionQuery dateBetween(String from, String to) throws TransactionAttributeException {
+        int first = Dates.parseBound(from);
+        int last = Dates.parseBound(to);
+        return new TransactionQuery(minAmount, maxAmount, Math.max(this.from, first), Math.min(this.to, last), counterparty);
+    }
+
+    /**
+     * Get a query that only matches transfers with the given {@link Transfer#getCounterparty()
+     * counterparty}. Combining two different counterparties matches no transaction.
+     *
+     * @param counterparty the sender of incoming or the recipient of outgoing transfers
+     * @return the new query
+     */
+    public TransactionQuery counterparty(String counterparty) {
+        Objects.requireNonNull(counterparty);
+        if (this.counterparty != null && !this.counterparty.equals(counterparty)) {
+            return new TransactionQuery(1, 0, from, to, counterparty);
+        }
+        return new TransactionQuery(minAmount, maxAmount, from, to, counterparty);
+    }
+
+    /**
+     * Get a lazy stream of the transactions of an iterator. The iterator is only created when a
+     * terminal operation starts and is then advanced one match at a time, so a short-circuiting
+     * operation stops the search. A parallel stream hands out batches of the iterator to its threads.
+     *
+     * @param matches creates the iterator over the matching transactions
+     * @return the sequential stream
+     */
+    static Stream<Transaction> stream(Supplier<Iterator<Transaction>> matches) {
+        int characteristics = Spliterator.ORDERED | Spliterator.NONNULL;
+        return StreamSupport.stream(() -> Spliterators.spliteratorUnknownSize(matches.get(), characteristics), characteristics, false);
+    }
+
+    /**
+     * Checks whether a transaction matches all filters. Its amount is only calculated if the query
+     * filters by amount.
+     *
+     * @param transaction the transaction
+     * @return true if the transaction matches
+     */
+    @Override
+    public boolean test(Transaction transaction) {
+        return matchesDay(transaction.getDay()) && matchesCounterparty(transaction)
+                && (!filtersAmounts() || matchesAmount(transaction.calculateUnits()));
+    }
+
+    /**
+     * Checks whether a transaction matches all filters, with its date and calculated amount known
+     *
+     * @param transaction the transaction
+     * @param day         the date of the transaction as yyyymmdd
+     * @param amount      the calculated amount of the transaction in units of {@link Money}
+     * @return true if the transaction matches
+     */
+    boolean test(Transaction transaction, int day, long amount) {
+        return matchesDay(day) && matchesAmount(amount) && matchesCounterparty(transaction);
+    }
+
+    /**
+     * Checks whether the query has a date range, so the matching transactions are listed by date
+     *
+     * @return true for a date range
+     */
+    boolean hasDates() {
+        return from != Integer.MIN_VALUE || to != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Get the first date of the date range
+     *
+     * @return the date as yyyymmdd
+     */
+    int getFrom() {
+        return from;
+    }
+
+    /**
+     * Get the last date of the date range
+     *
+     * @return the date as yyyymmdd
+     */
+    int getTo() {
+        return to;
+    }
+
+    /**
+     * Get the counterparty of the matching transfers
+     *
+     * @return the counterparty, null if the query matches transactions of any counterparty
+     */
+    String getCounterparty() {
+        return counterparty;
+    }
+
+    boolean filtersAmounts() {
+        return minAmount != Long.MIN_VALUE || maxAmount != Long.MAX_VALUE;
+    }
+
+    boolean matchesAmount(long amount) {
+        return amount >= minAmount && amount <= maxAmount;
+    }
+
+    boolean matchesDay(int day) {
+        return !hasDates() || (day != Dates.UNKNOWN && day >= from && day <= to);
+    }
+
+    private boolean matchesCounterparty(Transaction transaction) {
+        return counterparty == null || (transaction instanceof Transfer transfer && counterparty.equals(transfer.getCounterparty()));
+    }
+}
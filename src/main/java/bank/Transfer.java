@@ -2,6 +2,8 @@ package bank;
 
 import bank.exceptions.NumericValueInvalidException;
 
+import java.util.Objects;
+
 /**
  * Transfer objects are used to represent transfers between accounts
  */
@@ -54,15 +56,18 @@ public abstract class Transfer extends Transaction {
     /**
      * Set the amount of the transfer
      *
-     * @param amount the amount
-     * @throws NumericValueInvalidException if the amount is negative
+     * @param amount the amount, rounded to {@value Money#SCALE} decimal places
+     * @throws NumericValueInvalidException if the amount is negative or out of range
      */
     @Override
     public void setAmount(double amount) throws NumericValueInvalidException {
         if (amount < 0) {
             throw new NumericValueInvalidException("Error: Negative Input for Transfer amount!");
         } else {
-            this.amount = amount;
+            long units = Money.toUnits(amount);
+            beforeChange();
+            this.amount = units;
+            afterChange();
         }
     }
 
@@ -81,7 +86,9 @@ public abstract class Transfer extends Transaction {
      * @param sender the sender
      */
     public void setSender(String sender) {
+        beforeChange();
         this.sender = sender;
+        afterChange();
     }
 
     /**
@@ -99,16 +106,25 @@ public abstract class Transfer extends Transaction {
      * @param recipient the recipient
      */
     public void setRecipient(String recipient) {
+        beforeChange();
         this.recipient = recipient;
+        afterChange();
     }
 
+    /**
+     * Get the other party of the transfer, seen from the account it belongs to
+     *
+     * @return the sender of an incoming, the recipient of an outgoing transfer
+     */
+    public abstract String getCounterparty();
+
     /**
      * Calculates the effective amount
      *
-     * @return the effective amount
+     * @return the effective amount in units of {@link Money}
      */
     @Override
-    public double calculate() {
+    public long calculateUnits() {
         return amount;
     }
 
@@ -141,5 +157,15 @@ public abstract class Transfer extends Transaction {
             }
         }
     }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Objects.hash(sender, recipient);
+    }
 }
 
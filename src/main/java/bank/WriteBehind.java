@@ -0,0 +1,164 @@
+package bank;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes accounts on a background thread a fixed delay after they were marked as changed. An
+ * account marked again before it is written is written only once, with its state at the time of
+ * the write, so quickly repeated changes cause a single write. The accounts marked within the same
+ * delay are written together, counted from the first of them, so an account is never left unwritten
+ * for longer than the delay and the time of the write.
+ * <p>
+ * A failed write is retried after the delay; the failure is reported by the next {@link #flush()}
+ * unless a retry succeeded in the meantime. Until it is closed, the writer flushes when the
+ * application exits.
+ */
+final class WriteBehind {
+
+    /**
+     * Writes accounts on the background thread
+     */
+    interface Writer {
+        /**
+         * Writes the current state of accounts together
+         *
+         * @param accounts the accounts
+         * @return the failures by account, empty if all accounts were written
+         */
+        Map<String, IOException> write(Collection<String> accounts);
+    }
+
+    /**
+     * The writer of the accounts
+     * The milliseconds between the first mark of a group of accounts and their write
+     * The single thread writing the accounts
+     */
+    private final Writer writer;
+    private final long delay;
+    private final ScheduledExecutorService executor;
+    /**
+     * The marked accounts not yet written
+     * The last failure of every account whose last write failed
+     */
+    private final Set<String> dirty = new LinkedHashSet<>();
+    private final Map<String, IOException> failures = new LinkedHashMap<>();
+    /**
+     * Flushes the accounts when the application exits without closing the writer
+     */
+    private final Thread shutdownHook = new Thread(this::flushOnExit, "write-behind-exit");
+
+    /**
+     * Creates a writer and starts its thread
+     *
+     * @param writer the writer of the accounts
+     * @param delay  the milliseconds between the first mark of an account and its write
+     */
+    WriteBehind(Writer writer, long delay) {
+        this.writer = writer;
+        this.delay = delay;
+        this.executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "write-behind");
+            // an unclosed bank does not keep the application alive
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Marks an account as changed, so it is written with the accounts marked within the same delay
+     *
+     * @param account the account
+     */
+    synchronized void mark(String account) {
+        if (dirty.add(account) && dirty.size() == 1) {
+            executor.schedule(this::writeDirty, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes all marked accounts now and waits until they are written
+     *
+     * @throws IOException if an account could not be written, the others are written nevertheless
+     */
+    void flush() throws IOException {
+        try {
+            // the single thread runs this after the write in progress, if any
+            executor.submit(this::writeDirty).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the accounts to be written");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        synchronized (this) {
+            AccountFiles.throwFailures(failures);
+        }
+    }
+
+    /**
+     * Writes all marked accounts and stops the thread. Accounts marked afterwards are not written.
+     *
+     * @throws IOException if an account could not be written
+     */
+    void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            executor.shutdownNow();
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // the application is exiting, the hook flushes anyway
+            }
+        }
+    }
+
+    private void flushOnExit() {
+        try {
+            flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void writeDirty() {
+        List<String> accounts;
+        synchronized (this) {
+            // a group already written by a flush
+            if (dirty.isEmpty()) {
+                return;
+            }
+            accounts = new ArrayList<>(dirty);
+            dirty.clear();
+        }
+        Map<String, IOException> failed;
+        try {
+            failed = writer.write(accounts);
+        } catch (RuntimeException e) {
+            failed = new LinkedHashMap<>();
+            for (String account : accounts) {
+                failed.put(account, new IOException(e));
+            }
+        }
+        synchronized (this) {
+            accounts.forEach(failures::remove);
+            failures.putAll(failed);
+            if (!executor.isShutdown()) {
+                failed.keySet().forEach(this::mark);
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+import bank.*;
+import bank.exceptions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarPrivateBankTest {
+
+    private ColumnarPrivateBank bank;
+
+    @BeforeEach
+    void init() throws Exception {
+        bank = new ColumnarPrivateBank("Meine Bank", 0.2, 0.2);
+    }
+
+    @Test
+    public void singleAccountTest() throws Exception {
+        IncomingTransfer incoming = new IncomingTransfer("01.01.2019", "Gehalt", 2000, "Herr Mustermann", "Lisa");
+        OutgoingTransfer outgoing = new OutgoingTransfer("2019-01-02", "Miete", 800, "Lisa", "Frank");
+        Payment payment = new Payment("03.01.2019", "Einzahlung", 100, 0.1, 0.2);
+        bank.createAccount("Lisa", List.of(incoming, outgoing, payment));
+
+        assertEquals(1290, bank.getAccountBalance("Lisa"));
+        assertEquals(List.of(incoming, outgoing, payment), bank.getTransactions("Lisa"));
+        assertInstanceOf(OutgoingTransfer.class, bank.getTransactions("Lisa").get(1));
+        assertEquals("2019-01-02", bank.getTransactions("Lisa").get(1).getDate());
+        assertTrue(bank.containsTransaction("Lisa", outgoing));
+        assertTrue(bank.containsTransaction("Lisa", new Payment(payment)));
+        assertFalse(bank.containsTransaction("Lisa", new Payment("03.01.2019", "Einzahlung", 100, 0.1, 0.1)));
+        assertFalse(bank.containsTransaction("Hans", outgoing));
+        assertEquals(List.of(outgoing, payment, incoming), bank.getTransactionsSorted("Lisa", true));
+        assertEquals(List.of(incoming, payment, outgoing), bank.getTransactionsSorted("Lisa", false));
+        assertEquals(List.of(incoming, payment), bank.getTransactionsByType("Lisa", true));
+        assertEquals(List.of(outgoing), bank.getTransactionsByType("Lisa", false));
+
+        // the transactions handed out are copies
+        bank.getTransactions("Lisa").get(0).setDescription("Bonus");
+        assertEquals("Gehalt", bank.getTransactions("Lisa").get(0).getDescription());
+
+        assertThrows(AccountAlreadyExistsException.class, () -> bank.createAccount("Lisa"));
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.addTransaction("Lisa", incoming));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.addTransaction("Hans", incoming));
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.createAccount("Hans", List.of(incoming, incoming)));
+        assertFalse(bank.getAllAccounts().contains("Hans"));
+
+        bank.removeTransaction("Lisa", outgoing);
+        assertEquals(2090, bank.getAccountBalance("Lisa"));
+        assertThrows(TransactionDoesNotExistException.class, () -> bank.removeTransaction("Lisa", outgoing));
+    }
+
+    @Test
+    public void transferTest() throws Exception {
+        bank.createAccount("Lisa", List.of(new IncomingTransfer("01.01.2019", "Gehalt", 2000, "Herr Mustermann", "Lisa")));
+        bank.createAccount("Hans");
+        bank.transfer("Lisa", "Hans", "02.01.2019", "Rückzahlung", 300);
+
+        assertEquals(1700, bank.getAccountBalance("Lisa"));
+        assertEquals(List.of(new IncomingTransfer("02.01.2019", "Rückzahlung", 300, "Lisa", "Hans")), bank.getTransactions("Hans"));
+        assertInstanceOf(OutgoingTransfer.class, bank.getTransactions("Lisa").get(1));
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.transfer("Lisa", "Hans", "02.01.2019", "Rückzahlung", 300));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.transfer("Lisa", "Anna", "03.01.2019", "Geschenk", 50));
+        assertThrows(TransactionAttributeException.class, () -> bank.transfer("Hans", "Hans", "03.01.2019", "Umbuchung", 50));
+        assertEquals(2, bank.getTransactions("Lisa").size());
+        assertEquals(1, bank.getTransactions("Hans").size());
+        assertThrows(IOException.class, () -> bank.writeAccount("Anna"));
+        assertThrows(IOException.class, () -> bank.writeAccounts(List.of("Lisa", "Anna")));
+    }
+
+    @Test
+    public void sameAsPrivateBankTest() throws Exception {
+        PrivateBank reference = new PrivateBank("Meine Bank", 0.2, 0.2);
+        bank.createAccount("Konto");
+        reference.createAccount("Konto");
+        Random random = new Random(42);
+        List<Transaction> added = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            if (!added.isEmpty() && random.nextInt(3) == 0) {
+                Transaction transaction = added.remove(random.nextInt(added.size()));
+                bank.removeTransaction("Konto", transaction);
+                reference.removeTransaction("Konto", transaction);
+                continue;
+            }
+            if (i % 500 == 0) {
+                assertEquals(between(reference.getTransactions("Konto"), 20190105, 20190120), bank.getTransactionsBetween("Konto", "05.01.2019", "20.01.2019"));
+                assertEquals(reference.getTransactionsBetween("Konto", "05.01.2019", "20.01.2019"), bank.getTransactionsBetween("Konto", "05.01.2019", "20.01.2019"));
+                assertEquals(reference.getAccountBalance("Konto", "12.01.2019"), bank.getAccountBalance("Konto", "12.01.2019"));
+                assertEquals(reference.getCounterpartyFlows("Konto"), bank.getCounterpartyFlows("Konto"));
+            }
+            double amount = 1 + random.nextInt(100);
+            String description = "T" + random.nextInt(2000);
+            // mostly in date order, so the date index is kept between the queries
+            String date = String.format("%02d.01.2019", Math.min(28, i / 200 + random.nextInt(4)));
+            Transaction transaction = switch (random.nextInt(3)) {
+                case 0 -> new Payment(date, description, random.nextBoolean() ? amount : -amount, 0.1, 0.2);
+                case 1 -> new IncomingTransfer(date, description, amount, "A" + random.nextInt(3), "B");
+                default -> new OutgoingTransfer(date, description, amount, "B", "A" + random.nextInt(3));
+            };
+            boolean duplicate = reference.containsTransaction("Konto", transaction);
+            assertEquals(duplicate, bank.containsTransaction("Konto", transaction));
+            if (!duplicate) {
+                bank.addTransaction("Konto", transaction);
+                reference.addTransaction("Konto", transaction);
+                added.add(transaction);
+            }
+        }
+
+        assertEquals(reference.getTransactions("Konto"), bank.getTransactions("Konto"));
+        assertEquals(reference.getAccountBalance("Konto"), bank.getAccountBalance("Konto"), 1e-6);
+        assertEquals(reference.getTransactionsSorted("Konto", true), bank.getTransactionsSorted("Konto", true));
+        assertEquals(reference.getTransactionsSorted("Konto", false), bank.getTransactionsSorted("Konto", false));
+        assertEquals(reference.getTransactionsByType("Konto", true), bank.getTransactionsByType("Konto", true));
+        assertEquals(reference.getTransactionsByType("Konto", false), bank.getTransactionsByType("Konto", false));
+        assertEquals(reference.topK("Konto", 25, true), bank.topK("Konto", 25, true));
+        for (TransactionQuery query : List.of(TransactionQuery.all(), TransactionQuery.all().negative().counterparty("A1"),
+                TransactionQuery.all().counterparty("A2"),
+                TransactionQuery.all().amountBetween(10, 50), TransactionQuery.all().dateBetween("05.01.2019", "20.01.2019").positive())) {
+            assertEquals(reference.streamTransactions("Konto", query).toList(), bank.streamTransactions("Konto", query).toList());
+        }
+        assertTrue(bank.streamTransactions("Konto", TransactionQuery.all().counterparty("Unbekannt")).findAny().isEmpty());
+        assertEquals(reference.topK("Konto", 25, false), bank.topK("Konto", 25, false));
+        assertEquals(reference.getCounterpartyFlows("Konto"), bank.getCounterpartyFlows("Konto"));
+        assertEquals(reference.getTopCounterparties("Konto", 2), bank.getTopCounterparties("Konto", 2));
+        for (String text : List.of("t12", "t1999", "a1", "t5 a2")) {
+            assertEquals(Set.copyOf(reference.searchTransactions(text, 5000)), Set.copyOf(bank.searchTransactions(text, 5000)));
+        }
+        assertEquals(reference.getTransactionsSorted("Konto", false, 100, 50), bank.getTransactionsSorted("Konto", false, 100, 50));
+        assertEquals(reference.getTransactionsByType("Konto", true, 100, 50), bank.getTransactionsByType("Konto", true, 100, 50));
+        assertEquals(between(reference.getTransactions("Konto"), 20190101, 20190131), bank.getTransactionsBetween("Konto", "01.01.2019", "31.01.2019"));
+    }
+
+    @Test
+    public void addTransactionsSameAsPrivateBankTest() throws Exception {
+        PrivateBank reference = new PrivateBank("Meine Bank", 0.2, 0.2);
+        bank.createAccount("Konto");
+        reference.createAccount("Konto");
+        Random random = new Random(11);
+
+        for (int round = 0; round < 40; round++) {
+            // later rounds are smaller than the ledger, so the date index is kept between them
+            List<Transaction> batch = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String date = String.format("%02d.01.2019", 1 + round / 2);
+                String description = "T" + random.nextInt(5000);
+                double amount = 1 + random.nextInt(100);
+                batch.add(switch (random.nextInt(3)) {
+                    case 0 -> new Payment(date, description, random.nextBoolean() ? amount : -amount, 0.1, 0.2);
+                    case 1 -> new IncomingTransfer(date, description, amount, "A" + random.nextInt(3), "B");
+                    default -> new OutgoingTransfer(date, description, amount, "B", "A" + random.nextInt(3));
+                });
+            }
+            Class<? extends Exception> expected = null;
+            try {
+                reference.addTransactions("Konto", batch);
+            } catch (TransactionAlreadyExistException e) {
+                expected = e.getClass();
+            }
+            if (expected == null) {
+                bank.addTransactions("Konto", batch);
+            } else {
+                assertThrows(expected, () -> bank.addTransactions("Konto", batch));
+            }
+            assertEquals(reference.getTransactions("Konto").size(), bank.getTransactions("Konto").size());
+            assertEquals(reference.getAccountBalance("Konto", "10.01.2019"), bank.getAccountBalance("Konto", "10.01.2019"), 1e-6);
+        }
+
+        assertEquals(reference.getTransactions("Konto"), bank.getTransactions("Konto"));
+        assertEquals(reference.getAccountBalance("Konto"), bank.getAccountBalance("Konto"), 1e-6);
+        assertEquals(reference.getTransactionsSorted("Konto", true), bank.getTransactionsSorted("Konto", true));
+        assertEquals(reference.getCounterpartyFlows("Konto"), bank.getCounterpartyFlows("Konto"));
+        assertThrows(TransactionAttributeException.class, () -> bank.addTransactions("Konto", List.of(new OutgoingTransfer("01.02.2019", "Null", 0, "B", "A1"))));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.addTransactions("Hans", List.of()));
+    }
+
+    @Test
+    public void rerateSameAsPrivateBankTest() throws Exception {
+        PrivateBank reference = new PrivateBank("Meine Bank", 0.2, 0.2);
+        Random random = new Random(7);
+        for (int account = 0; account < 4; account++) {
+            bank.createAccount("Konto" + account);
+            reference.createAccount("Konto" + account);
+            for (int i = 0; i < 500; i++) {
+                double amount = 1 + random.nextInt(1000);
+                String date = String.format("%02d.01.2019", 1 + random.nextInt(28));
+                Transaction transaction = switch (random.nextInt(4)) {
+                    case 0 -> new Payment(date, "P" + i, random.nextBoolean() ? amount : -amount, 0.1, 0.2);
+                    case 1 -> new IncomingTransfer(date, "I" + i, amount, "A", "Konto" + account);
+                    default -> new Payment(date, "P" + i, random.nextBoolean() ? amount : -amount, 0.2, 0.2);
+                };
+                bank.addTransaction("Konto" + account, transaction);
+                reference.addTransaction("Konto" + account, transaction);
+            }
+            // the rows sorted by date are built before the re-rating
+            assertEquals(reference.getAccountBalance("Konto" + account, "14.01.2019"), bank.getAccountBalance("Konto" + account, "14.01.2019"), 1e-6);
+        }
+
+        int rerated = reference.rerate(0.05, 0.3);
+        assertEquals(rerated, bank.rerate(0.05, 0.3));
+        assertTrue(rerated > 0);
+        assertEquals(reference.getInterestRates(), bank.getInterestRates());
+        for (int account = 0; account < 4; account++) {
+            String name = "Konto" + account;
+            assertEquals(reference.getTransactions(name), bank.getTransactions(name));
+            assertEquals(reference.getAccountBalance(name), bank.getAccountBalance(name), 1e-6);
+            assertEquals(reference.getAccountBalance(name, "14.01.2019"), bank.getAccountBalance(name, "14.01.2019"), 1e-6);
+            assertEquals(reference.getTransactionsSorted(name, true), bank.getTransactionsSorted(name, true));
+            for (Transaction transaction : reference.getTransactions(name)) {
+                assertTrue(bank.containsTransaction(name, transaction));
+            }
+        }
+        Payment payment = reference.getTransactions("Konto0").stream()
+                .filter(transaction -> transaction instanceof Payment other && other.getRates().equals(reference.getInterestRates()))
+                .map(Payment.class::cast).findFirst().orElseThrow();
+        assertFalse(bank.containsTransaction("Konto0", new Payment(payment.getDate(), payment.getDescription(), payment.getAmount(), 0.2, 0.2)));
+    }
+
+    @Test
+    public void transactionsBetweenTest() throws Exception {
+        Payment early = new Payment("01.01.2019", "Einzahlung", 100);
+        Payment late = new Payment("15.03.2019", "Einzahlung", 200);
+        Payment unknown = new Payment("2019-02-01", "Einzahlung", 300);
+        Payment middle = new Payment("01.02.2019", "Einzahlung", 400);
+        bank.createAccount("Lisa", List.of(early, late, unknown));
+
+        assertEquals(List.of(early, late), bank.getTransactionsBetween("Lisa", "01.01.2019", "31.12.2019"));
+        bank.addTransaction("Lisa", middle);
+        assertEquals(List.of(early, middle, late), bank.getTransactionsBetween("Lisa", "01.01.2019", "31.12.2019"));
+        assertEquals(List.of(middle), bank.getTransactionsBetween("Lisa", "01.02.2019", "01.02.2019"));
+        assertEquals(500, bank.getAccountBalance("Lisa", "01.02.2019"));
+        bank.removeTransaction("Lisa", middle);
+        assertEquals(List.of(late), bank.getTransactionsBetween("Lisa", "02.01.2019", "31.12.2019"));
+        assertEquals(100, bank.getAccountBalance("Lisa", "01.02.2019"));
+        assertEquals(300, bank.getAccountBalance("Lisa", "15.03.2019"));
+        assertEquals(List.of(), bank.getTransactionsBetween("Lisa", "31.12.2019", "01.01.2019"));
+
+        assertThrows(TransactionAttributeException.class, () -> bank.getTransactionsBetween("Lisa", "2019-01-01", "31.12.2019"));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.getTransactionsBetween("Hans", "01.01.2019", "31.12.2019"));
+    }
+
+    /**
+     * The transactions dated within a period, found by a scan
+     */
+    private static List<Transaction> between(List<Transaction> transactions, int from, int to) {
+        List<Transaction> result = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getDay() >= from && transaction.getDay() <= to) {
+                result.add(transaction);
+            }
+        }
+        result.sort(Comparator.comparingInt(Transaction::getDay));
+        return result;
+    }
+}
@@ -0,0 +1,420 @@
+import bank.ConcurrentPrivateBank;
+import bank.IncomingTransfer;
+import bank.LedgerStorage;
+import bank.OutgoingTransfer;
+import bank.Payment;
+import bank.SearchHit;
+import bank.Transaction;
+import bank.TransactionQuery;
+import bank.exceptions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentPrivateBankTest {
+
+    private static final int THREADS = 8;
+    private static final int ACCOUNTS = 4;
+    private static final int TRANSACTIONS_PER_THREAD = 2000;
+
+    private ConcurrentPrivateBank bank;
+
+    @BeforeEach
+    void init() throws Exception {
+        bank = new ConcurrentPrivateBank("Meine Bank", 0.2, 0.2, 2);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            bank.createAccount("Konto" + i);
+        }
+    }
+
+    @Test
+    public void singleThreadedTest() throws Exception {
+        IncomingTransfer incoming = new IncomingTransfer("01.01.2019", "Gehalt", 2000, "Herr Mustermann", "Lisa");
+        OutgoingTransfer outgoing = new OutgoingTransfer("01.01.2019", "Miete", 800, "Lisa", "Frank");
+        bank.createAccount("Lisa", List.of(incoming, outgoing));
+
+        assertEquals(1200, bank.getAccountBalance("Lisa"));
+        assertTrue(bank.containsTransaction("Lisa", outgoing));
+        assertFalse(bank.containsTransaction("Hans", outgoing));
+        assertEquals(List.of(outgoing, incoming), bank.getTransactionsSorted("Lisa", true));
+        assertEquals(List.of(incoming), bank.getTransactionsByType("Lisa", true));
+        assertEquals(List.of(outgoing), bank.streamTransactions("Lisa", TransactionQuery.all().counterparty("Frank")).toList());
+        assertEquals(List.of(incoming, outgoing), bank.streamTransactions("Lisa", TransactionQuery.all().dateBetween("01.01.2019", "01.01.2019")).parallel().toList());
+        assertThrows(AccountDoesNotExistException.class, () -> bank.streamTransactions("Hans", TransactionQuery.all()));
+        assertEquals(Set.of("Frank", "Herr Mustermann"), bank.getCounterpartyFlows("Lisa").keySet());
+        assertEquals("Herr Mustermann", bank.getTopCounterparties("Lisa", 1).get(0).getCounterparty());
+        assertThrows(AccountDoesNotExistException.class, () -> bank.getCounterpartyFlows("Hans"));
+        assertEquals(List.of(outgoing), bank.searchTransactions("miete frank", 10).stream().map(SearchHit::getTransaction).toList());
+
+        assertThrows(AccountAlreadyExistsException.class, () -> bank.createAccount("Lisa"));
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.addTransaction("Lisa", incoming));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.addTransaction("Hans", incoming));
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.createAccount("Hans", List.of(incoming, incoming)));
+        assertFalse(bank.getAllAccounts().contains("Hans"));
+
+        bank.removeTransaction("Lisa", outgoing);
+        assertEquals(2000, bank.getAccountBalance("Lisa"));
+        assertThrows(TransactionDoesNotExistException.class, () -> bank.removeTransaction("Lisa", outgoing));
+    }
+
+    @Test
+    public void concurrentWritersAndReadersTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2 * THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger writersDone = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            int id = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < TRANSACTIONS_PER_THREAD; i++) {
+                    String account = "Konto" + (i % ACCOUNTS);
+                    Transaction transaction = new IncomingTransfer("01.01.2019", "T" + id + "-" + i, 10, "Thread" + id, account);
+                    bank.addTransaction(account, transaction);
+                    // every fourth transaction is removed again
+                    if ((i / ACCOUNTS) % 4 == 0) {
+                        bank.removeTransaction(account, transaction);
+                    }
+                }
+                writersDone.incrementAndGet();
+                return null;
+            }));
+            futures.add(executor.submit(() -> {
+                start.await();
+                while (writersDone.get() < THREADS) {
+                    for (int i = 0; i < ACCOUNTS; i++) {
+                        String account = "Konto" + i;
+                        List<Transaction> snapshot = bank.getTransactions(account);
+                        assertEquals(0, bank.getAccountBalance(account) % 10);
+                        assertTrue(snapshot.size() <= THREADS * TRANSACTIONS_PER_THREAD / ACCOUNTS);
+                    }
+                    // the first search builds the index while the writers go on
+                    assertTrue(bank.searchTransactions("thread" + id, 1).size() <= 1);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int expectedPerAccount = THREADS * TRANSACTIONS_PER_THREAD / ACCOUNTS * 3 / 4;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertEquals(expectedPerAccount, bank.getTransactions("Konto" + i).size());
+            assertEquals(expectedPerAccount * 10, bank.getAccountBalance("Konto" + i));
+        }
+        for (int thread = 0; thread < THREADS; thread++) {
+            assertEquals(TRANSACTIONS_PER_THREAD * 3 / 4, bank.searchTransactions("Thread" + thread, Integer.MAX_VALUE).size());
+        }
+    }
+
+    @Test
+    public void rerateWhileReadingTest() throws Exception {
+        Payment shared = new Payment("01.01.2019", "Dauerauftrag", -100, 0.2, 0.2);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            for (int j = 0; j < 1000; j++) {
+                bank.addTransaction("Konto" + i, new Payment("01.01.2019", "P" + j, 100, 0.2, 0.2));
+            }
+        }
+        bank.addTransaction("Konto0", shared);
+        bank.addTransaction("Konto1", shared);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger reratings = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                while (reratings.get() < 20) {
+                    for (int i = 0; i < ACCOUNTS; i++) {
+                        double balance = bank.getAccountBalance("Konto" + i);
+                        double sharedBalance = i < 2 ? 1 : 0;
+                        // an account is never seen half re-rated
+                        assertTrue(balance == 80000 - 120 * sharedBalance || balance == 90000 - 110 * sharedBalance, "Balance " + balance);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals(ACCOUNTS * 1000 + 2, i % 2 == 0 ? bank.rerate(0.1, 0.1) : bank.rerate(0.2, 0.2));
+            reratings.incrementAndGet();
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(79880, bank.getAccountBalance("Konto0"));
+        assertEquals(-120, shared.calculate());
+        assertEquals(List.of(shared), bank.getTransactionsSorted("Konto1", true).subList(0, 1));
+    }
+
+    @Test
+    public void concurrentAddTransactionsTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger conflicting = new AtomicInteger();
+        Transaction common = new IncomingTransfer("01.01.2019", "Gemeinsam", 1000, "Herr Mustermann", "Konto0");
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            int id = thread;
+            futures.add(executor.submit(() -> {
+                List<Transaction> own = new ArrayList<>();
+                List<Transaction> withCommon = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    own.add(new IncomingTransfer("01.01.2019", "T" + id + "-" + i, 10, "Thread" + id, "Konto0"));
+                }
+                for (int i = 0; i < 10; i++) {
+                    withCommon.add(new IncomingTransfer("02.01.2019", "X" + id + "-" + i, 10, "Thread" + id, "Konto0"));
+                }
+                withCommon.add(common);
+                start.await();
+                bank.addTransactions("Konto0", own);
+                try {
+                    bank.addTransactions("Konto0", withCommon);
+                } catch (TransactionAlreadyExistException e) {
+                    // expected for all threads but one, none of the batch is added
+                    conflicting.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(THREADS - 1, conflicting.get());
+        assertEquals(THREADS * 500 + 11, bank.getTransactions("Konto0").size());
+        assertEquals(THREADS * 5000 + 100 + 1000, bank.getAccountBalance("Konto0"));
+        assertEquals(10, bank.getTransactionsBetween("Konto0", "02.01.2019", "02.01.2019").size());
+    }
+
+    @Test
+    public void concurrentTransfersTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            int id = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < TRANSACTIONS_PER_THREAD; i++) {
+                    // every pair of accounts in both directions, also accounts sharing a stripe
+                    String from = "Konto" + (i + id) % ACCOUNTS;
+                    String to = "Konto" + (i + id + 1 + i / ACCOUNTS % (ACCOUNTS - 1)) % ACCOUNTS;
+                    bank.transfer(from, to, "01.01.2019", "T" + id + "-" + i, 1 + i % 10);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        double sum = 0;
+        int transactions = 0;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            sum += bank.getAccountBalance("Konto" + i);
+            transactions += bank.getTransactions("Konto" + i).size();
+        }
+        assertEquals(0, sum, 1e-6);
+        assertEquals(2 * THREADS * TRANSACTIONS_PER_THREAD, transactions);
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.transfer("Konto0", "Konto1", "01.01.2019", "T0-0", 1));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.transfer("Konto0", "Hans", "01.01.2019", "T", 1));
+    }
+
+    @Test
+    public void concurrentWriteAccountTest() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        File directory = new File("persist/" + directoryName);
+        bank.setDirectoryName(directoryName);
+        bank.addTransaction("Konto0", new Payment("01.01.2019", "Einzahlung", 100));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                // every write streams into its own temporary file
+                for (int i = 0; i < 30; i++) {
+                    bank.writeAccount("Konto0");
+                }
+                return null;
+            }));
+        }
+
+        try {
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            assertEquals(Set.of("Konto_Konto0.json"), Set.of(directory.list()));
+            ConcurrentPrivateBank restored = new ConcurrentPrivateBank("Meine Bank", 0.2, 0.2, 2);
+            restored.setDirectoryName(directoryName);
+            restored.readAccounts();
+            assertEquals(bank.getTransactions("Konto0"), restored.getTransactions("Konto0"));
+
+            assertThrows(IOException.class, () -> bank.writeAccount("Hans"));
+            assertThrows(IOException.class, () -> bank.writeAccounts(List.of("Konto1", "Hans")));
+            assertFalse(new File(directory, "Konto_Konto1.json").exists());
+            bank.deleteAccount("Konto0");
+            assertEquals(0, directory.list().length);
+        } finally {
+            executor.shutdownNow();
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void concurrentWriteMutatedAccountTest() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        File directory = new File("persist/" + directoryName);
+        File accountFile = new File(directory, "Konto_Konto0.json");
+        bank.setDirectoryName(directoryName);
+        // large enough that writes of different snapshots overlap
+        for (int i = 0; i < 1000; i++) {
+            bank.addTransaction("Konto0", new Payment("01.01.2019", "Bestand " + i, 1));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            int t = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                // every change is followed by a write, so the last write holds all changes
+                for (int i = 0; i < 20; i++) {
+                    Payment payment = new Payment("01.01.2019", "Einzahlung " + t + " " + i, 1 + i);
+                    bank.addTransaction("Konto0", payment);
+                    bank.writeAccount("Konto0");
+                    // no other thread removes the payment, so a later write must not have lost it
+                    try (InputStream in = Files.newInputStream(accountFile.toPath())) {
+                        assertTrue(LedgerStorage.json().read(in).contains(payment));
+                    }
+                    if (i % 3 == 0) {
+                        bank.removeTransaction("Konto0", payment);
+                        bank.writeAccounts(List.of("Konto0", "Konto1"));
+                    }
+                }
+                return null;
+            }));
+        }
+
+        try {
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            ConcurrentPrivateBank restored = new ConcurrentPrivateBank("Meine Bank", 0.2, 0.2, 2);
+            restored.setDirectoryName(directoryName);
+            restored.readAccounts();
+            assertEquals(1000 + THREADS * 13, bank.getTransactions("Konto0").size());
+            assertEquals(Set.copyOf(bank.getTransactions("Konto0")), Set.copyOf(restored.getTransactions("Konto0")));
+            assertEquals(bank.getAccountBalance("Konto0"), restored.getAccountBalance("Konto0"));
+        } finally {
+            executor.shutdownNow();
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void readAccountsWhileWritingTest() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        File directory = new File("persist/" + directoryName);
+        bank.setDirectoryName(directoryName);
+        for (int i = 0; i < 1000; i++) {
+            bank.addTransaction("Konto0", new Payment("01.01.2019", "Bestand " + i, 1));
+        }
+        bank.writeAccount("Konto0");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicInteger reads = new AtomicInteger();
+
+        try {
+            // the temporary files of running writes are not left over from a crash
+            Future<?> writes = executor.submit(() -> {
+                while (reads.get() < 100) {
+                    bank.writeAccount("Konto0");
+                }
+                return null;
+            });
+            while (reads.get() < 100) {
+                ConcurrentPrivateBank restored = new ConcurrentPrivateBank("Meine Bank", 0.2, 0.2, 2);
+                restored.setDirectoryName(directoryName);
+                restored.readAccounts();
+                assertEquals(bank.getTransactions("Konto0"), restored.getTransactions("Konto0"));
+                reads.incrementAndGet();
+            }
+            writes.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void concurrentCreateAccountTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    bank.createAccount("Neu", List.of(new IncomingTransfer("01.01.2019", "Gehalt", 100, "Herr Mustermann", "Neu")));
+                    created.incrementAndGet();
+                } catch (AccountAlreadyExistsException e) {
+                    // expected for all threads but one
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(1, created.get());
+        assertEquals(100, bank.getAccountBalance("Neu"));
+    }
+}
@@ -0,0 +1,283 @@
+import bank.*;
+import bank.exceptions.NumericValueInvalidException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LedgerStorageTest {
+
+    @Test
+    public void roundTripTest() throws NumericValueInvalidException, IOException {
+        List<Transaction> transactions = List.of(
+                new Payment("01.01.2019", "Miete", -500, 0.1, 0.2),
+                new IncomingTransfer("2019-01-31", "Gehalt", 2000.25, "Herr Mustermann", "Hans"),
+                new OutgoingTransfer("31.12.1999", "Einkauf äöü", 200, "Hans", "Rewe"));
+
+        for (LedgerStorage storage : List.of(LedgerStorage.json(), LedgerStorage.compactJson(), LedgerStorage.binary(),
+                LedgerStorage.gzip(LedgerStorage.json()), LedgerStorage.gzip(LedgerStorage.binary(), 9))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            storage.write(transactions, out);
+            List<Transaction> copy = storage.read(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(transactions, copy);
+            for (int i = 0; i < transactions.size(); i++) {
+                assertEquals(transactions.get(i).getClass(), copy.get(i).getClass());
+            }
+        }
+    }
+
+    @Test
+    public void binaryIsSmallerTest() throws NumericValueInvalidException, IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            transactions.add(new Payment("01.01.2019", "Miete " + i, -500, 0.1, 0.2));
+            transactions.add(new IncomingTransfer("01.01.2019", "Gehalt " + i, 2000, "Herr Mustermann", "Hans"));
+        }
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        LedgerStorage.compactJson().write(transactions, json);
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        LedgerStorage.binary().write(transactions, binary);
+        assertTrue(binary.size() * 2 < json.size());
+    }
+
+    @Test
+    public void readDamagedBinaryTest() {
+        assertThrows(IOException.class, () -> LedgerStorage.binary().read(new ByteArrayInputStream("[]".getBytes())));
+        assertThrows(IOException.class, () -> LedgerStorage.binary().read(
+                new ByteArrayInputStream(new byte[]{'O', 'O', 'S', 'L', 1, 0, 0, 0, 9, 0})));
+        assertThrows(IllegalArgumentException.class, () -> LedgerStorage.byName("xml"));
+    }
+
+    @Test
+    public void convertTest() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        PrivateBank bank = new PrivateBank("Meine Bank", 0.2, 0.2);
+        bank.setDirectoryName("fixtures");
+        bank.readAccounts();
+        bank.setDirectoryName(directoryName);
+        for (String account : bank.getAllAccounts()) {
+            bank.writeAccount(account);
+        }
+
+        try {
+            assertEquals(2, LedgerConverter.convert(directoryName, LedgerStorage.json(), LedgerStorage.binary()));
+            assertTrue(new File("persist/" + directoryName + "/Konto_Hans.ledger").exists());
+            assertFalse(new File("persist/" + directoryName + "/Konto_Hans.json").exists());
+
+            PrivateBank binary = new PrivateBank("Meine Bank", 0.2, 0.2);
+            binary.setDirectoryName(directoryName);
+            binary.setStorage(LedgerStorage.binary());
+            binary.readAccounts();
+            for (String account : bank.getAllAccounts()) {
+                assertEquals(bank.getTransactions(account), binary.getTransactions(account));
+            }
+
+            assertEquals(2, LedgerConverter.convert(directoryName, LedgerStorage.binary(), LedgerStorage.json()));
+            PrivateBank json = new PrivateBank("Meine Bank", 0.2, 0.2);
+            json.setDirectoryName(directoryName);
+            json.readAccounts();
+            for (String account : bank.getAllAccounts()) {
+                assertEquals(bank.getTransactions(account), json.getTransactions(account));
+            }
+        } finally {
+            for (String account : bank.getAllAccounts()) {
+                bank.deleteAccount(account);
+            }
+            new File("persist/" + directoryName).delete();
+        }
+    }
+
+    @Test
+    public void gzipTest() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        File directory = new File("persist/" + directoryName);
+        PrivateBank bank = new PrivateBank("Meine Bank", 0.2, 0.2);
+        bank.setDirectoryName("fixtures");
+        bank.readAccounts();
+        bank.setDirectoryName(directoryName);
+        bank.writeAccount("Hans");
+        bank.setStorage(LedgerStorage.byName("json.gz"));
+        bank.writeAccount("Anna");
+
+        assertThrows(IllegalArgumentException.class, () -> LedgerStorage.gzip(LedgerStorage.json(), 10));
+        assertThrows(IllegalArgumentException.class, () -> LedgerStorage.gzip(LedgerStorage.gzip(LedgerStorage.json())));
+        try {
+            assertEquals(Set.of("Konto_Hans.json", "Konto_Anna.json.gz"), Set.of(directory.list()));
+
+            // plain and compressed files are read by both storages
+            for (LedgerStorage storage : List.of(LedgerStorage.json(), LedgerStorage.gzip(LedgerStorage.json(), 1))) {
+                PrivateBank restored = new PrivateBank("Meine Bank", 0.2, 0.2);
+                restored.setDirectoryName(directoryName);
+                restored.setStorage(storage);
+                restored.readAccounts();
+                assertEquals(bank, restored);
+            }
+
+            // writing an account again replaces its file of the other kind
+            bank.writeAccount("Hans");
+            bank.setStorage(LedgerStorage.json());
+            bank.writeAccount("Anna");
+            assertEquals(Set.of("Konto_Hans.json.gz", "Konto_Anna.json"), Set.of(directory.list()));
+            assertTrue(new File(directory, "Konto_Hans.json.gz").length() < new File(directory, "Konto_Anna.json").length());
+
+            assertEquals(2, LedgerConverter.convert(directoryName, LedgerStorage.json(), LedgerStorage.gzip(LedgerStorage.binary())));
+            assertEquals(Set.of("Konto_Hans.ledger.gz", "Konto_Anna.ledger.gz"), Set.of(directory.list()));
+            PrivateBank binary = new PrivateBank("Meine Bank", 0.2, 0.2);
+            binary.setDirectoryName(directoryName);
+            binary.setStorage(LedgerStorage.mapped());
+            binary.readAccounts();
+            assertEquals(bank, binary);
+            bank.setStorage(LedgerStorage.gzip(LedgerStorage.binary()));
+        } finally {
+            for (String account : bank.getAllAccounts()) {
+                bank.deleteAccount(account);
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void mappedTest() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        PrivateBank bank = new PrivateBank("Meine Bank", 0.2, 0.2);
+        bank.setDirectoryName("fixtures");
+        bank.readAccounts();
+        bank.setDirectoryName(directoryName);
+        bank.setStorage(LedgerStorage.mapped());
+        for (String account : bank.getAllAccounts()) {
+            bank.writeAccount(account);
+        }
+
+        try {
+            PrivateBank mapped = new PrivateBank("Meine Bank", 0.2, 0.2);
+            mapped.setDirectoryName(directoryName);
+            mapped.setStorage(LedgerStorage.mapped());
+            mapped.readAccounts();
+            assertEquals(bank, mapped);
+            for (String account : bank.getAllAccounts()) {
+                assertEquals(bank.getAccountBalance(account), mapped.getAccountBalance(account));
+                assertEquals(bank.getTransactions(account), mapped.getTransactions(account));
+                assertEquals(bank.getTransactionsSorted(account, true), mapped.getTransactionsSorted(account, true));
+                assertEquals(bank.getTransactionsSorted(account, false), mapped.getTransactionsSorted(account, false));
+                assertEquals(bank.getTransactionsByType(account, true), mapped.getTransactionsByType(account, true));
+                assertEquals(bank.getTransactionsByType(account, false), mapped.getTransactionsByType(account, false));
+                assertEquals(bank.topK(account, 2, false), mapped.topK(account, 2, false));
+                TransactionQuery query = TransactionQuery.all().dateBetween("01.01.2019", "31.12.2019").positive();
+                assertEquals(bank.streamTransactions(account, query).toList(), mapped.streamTransactions(account, query).toList());
+                assertEquals(bank.streamTransactions(account, TransactionQuery.all().negative()).toList(), mapped.streamTransactions(account, TransactionQuery.all().negative()).toList());
+                assertEquals(bank.getCounterpartyFlows(account), mapped.getCounterpartyFlows(account));
+                assertEquals(bank.getTopCounterparties(account, 1), mapped.getTopCounterparties(account, 1));
+                assertEquals(Set.copyOf(bank.searchTransactions(account, 100)), Set.copyOf(mapped.searchTransactions(account, 100)));
+                for (String counterparty : bank.getCounterpartyFlows(account).keySet()) {
+                    TransactionQuery byCounterparty = TransactionQuery.all().counterparty(counterparty);
+                    assertEquals(bank.streamTransactions(account, byCounterparty).toList(), mapped.streamTransactions(account, byCounterparty).toList());
+                }
+                assertEquals(bank.getTransactionsSorted(account, true, 1, 2), mapped.getTransactionsSorted(account, true, 1, 2));
+                assertEquals(bank.getTransactionsByType(account, true, 1, 1), mapped.getTransactionsByType(account, true, 1, 1));
+                assertEquals(bank.getTransactionsBetween(account, "01.01.2019", "31.12.2019"), mapped.getTransactionsBetween(account, "01.01.2019", "31.12.2019"));
+                assertEquals(bank.getAccountBalance(account, "01.01.2019"), mapped.getAccountBalance(account, "01.01.2019"));
+                for (Transaction transaction : bank.getTransactions(account)) {
+                    assertTrue(mapped.containsTransaction(account, transaction));
+                }
+            }
+            assertThrows(UnsupportedOperationException.class, () -> mapped.getTransactions("Hans").clear());
+
+            // the first change reads the account, later writes replace the mapped file
+            Payment payment = new Payment("02.01.2019", "Zinsen", 100, 0.1, 0.1);
+            assertFalse(mapped.containsTransaction("Hans", payment));
+            mapped.addTransaction("Hans", payment);
+            bank.addTransaction("Hans", payment);
+            mapped.writeAccount("Hans");
+            assertEquals(bank.getTransactions("Hans"), mapped.getTransactions("Hans"));
+
+            PrivateBank reopened = new PrivateBank("Meine Bank", 0.2, 0.2);
+            reopened.setDirectoryName(directoryName);
+            reopened.setStorage(LedgerStorage.mapped());
+            reopened.readAccounts();
+            assertEquals(bank, reopened);
+            assertEquals(bank.getAccountBalance("Hans"), reopened.getAccountBalance("Hans"));
+        } finally {
+            for (String account : bank.getAllAccounts()) {
+                bank.deleteAccount(account);
+            }
+            new File("persist/" + directoryName).delete();
+        }
+    }
+
+    @Test
+    public void mappedVersion2Test() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        PrivateBank bank = new PrivateBank("Meine Bank", 0.2, 0.2);
+        bank.setDirectoryName("fixtures");
+        bank.readAccounts();
+        bank.setDirectoryName(directoryName);
+        bank.setStorage(LedgerStorage.binary());
+        bank.writeAccount("Hans");
+
+        try {
+            // version 2 stored other hash codes, which must not be used
+            try (RandomAccessFile file = new RandomAccessFile("persist/" + directoryName + "/Konto_Hans.ledger", "rw")) {
+                file.seek(4);
+                file.writeByte(2);
+                file.seek(file.length() - 20);
+                int count = file.readInt();
+                file.seek(file.length() - 8);
+                long index = file.readLong();
+                for (int i = 0; i < count; i++) {
+                    file.seek(index + i * 20L + 16);
+                    file.writeInt(0);
+                }
+            }
+
+            PrivateBank mapped = new PrivateBank("Meine Bank", 0.2, 0.2);
+            mapped.setDirectoryName(directoryName);
+            mapped.setStorage(LedgerStorage.mapped());
+            mapped.readAccounts();
+            assertEquals(bank.getTransactions("Hans"), mapped.getTransactions("Hans"));
+            for (Transaction transaction : bank.getTransactions("Hans")) {
+                assertTrue(mapped.containsTransaction("Hans", transaction));
+            }
+            assertFalse(mapped.containsTransaction("Hans", new Payment("02.01.2019", "Zinsen", 100, 0.1, 0.1)));
+        } finally {
+            bank.deleteAccount("Hans");
+            new File("persist/" + directoryName).delete();
+        }
+    }
+
+    @Test
+    public void mappedContainsTest() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        PrivateBank bank = new PrivateBank("Meine Bank", 0.2, 0.2);
+        bank.setDirectoryName(directoryName);
+        bank.setStorage(LedgerStorage.binary());
+        bank.createAccount("Hans");
+        for (int i = 0; i < 500; i++) {
+            bank.addTransaction("Hans", new Payment("01.01.2019", "Miete " + i, -i - 1, 0.1, 0.2));
+        }
+        bank.writeAccount("Hans");
+
+        try {
+            PrivateBank mapped = new PrivateBank("Meine Bank", 0.2, 0.2);
+            mapped.setDirectoryName(directoryName);
+            mapped.setStorage(LedgerStorage.mapped());
+            mapped.readAccounts();
+            for (int i = 0; i < 500; i++) {
+                assertTrue(mapped.containsTransaction("Hans", new Payment("01.01.2019", "Miete " + i, -i - 1, 0.1, 0.2)));
+                assertFalse(mapped.containsTransaction("Hans", new Payment("01.01.2019", "Miete " + i, -i - 2, 0.1, 0.2)));
+            }
+        } finally {
+            bank.deleteAccount("Hans");
+            new File("persist/" + directoryName).delete();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+import bank.Money;
+import bank.Payment;
+import bank.exceptions.NumericValueInvalidException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+
+    @Test
+    public void conversionTest() throws NumericValueInvalidException {
+        assertEquals(123400, Money.toUnits(12.34));
+        assertEquals(-123400, Money.toUnits(-12.34));
+        assertEquals(1, Money.toUnits(0.00005));
+        assertEquals(-1, Money.toUnits(-0.00005));
+        assertEquals(0, Money.toUnits(0.00004));
+        assertEquals(12.34, Money.toDouble(123400));
+
+        assertThrows(NumericValueInvalidException.class, () -> Money.toUnits(Double.NaN));
+        assertThrows(NumericValueInvalidException.class, () -> Money.toUnits(Double.POSITIVE_INFINITY));
+        assertThrows(NumericValueInvalidException.class, () -> Money.toUnits(1e15));
+    }
+
+    @Test
+    public void arithmeticTest() throws NumericValueInvalidException {
+        long sum = 0;
+        for (int i = 0; i < 10; i++) {
+            sum += Money.toUnits(0.1);
+        }
+        assertEquals(Money.toUnits(1), sum);
+        assertEquals(1.0, Money.toDouble(sum));
+    }
+
+    @Test
+    public void interestTest() throws NumericValueInvalidException {
+        assertEquals(25, Money.interest(1000, 0.025));
+        assertEquals(-25, Money.interest(-1000, 0.025));
+        assertEquals(1, Money.interest(10, 0.05));
+        assertEquals(-1, Money.interest(-10, 0.05));
+
+        Payment payment = new Payment("01.01.2019", "Zinsen", 0.3, 0.1, 0.1);
+        assertEquals(2700, payment.calculateUnits());
+        assertEquals(0.27, payment.calculate());
+        assertEquals(3000, payment.getAmountUnits());
+        assertEquals(0.3, payment.getAmount());
+    }
+}
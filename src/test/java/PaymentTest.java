@@ -1,3 +1,4 @@
+import bank.InterestRates;
 import bank.Payment;
 import bank.exceptions.NumericValueInvalidException;
 import org.junit.jupiter.api.Disabled;
@@ -18,6 +19,7 @@ public class PaymentTest {
             Payment p3 = new Payment(p2);
             assertFalse(p2.equals(p1));
             assertTrue(p2.equals(p3));
+            assertEquals(p2.hashCode(), p3.hashCode());
     }
 
     @Test
@@ -36,6 +38,31 @@ public class PaymentTest {
 
     }
 
+    @Test
+    public void ratesTest() throws NumericValueInvalidException {
+        InterestRates rates = InterestRates.of(0.1, 0.2);
+        Payment p1 = new Payment("01.01.2019", "Gehalt", 2000, rates);
+        Payment p2 = new Payment("01.01.2019", "Gehalt", 2000, 0.1, 0.2);
+        assertEquals(p1, p2);
+        assertEquals(p1.hashCode(), p2.hashCode());
+        assertEquals(rates, p2.getRates());
+        assertSame(rates, new Payment(p1).getRates());
+        assertEquals(1800, p1.calculate());
+
+        p1.setRates(InterestRates.of(0.2, 0.2));
+        assertEquals(1600, p1.calculate());
+        assertEquals(0.2, p1.getIncomingInterest());
+        assertNotEquals(p1, p2);
+        p1.setOutgoingInterest(0.5);
+        assertEquals(InterestRates.of(0.2, 0.5), p1.getRates());
+        assertEquals(InterestRates.of(0.1, 0.2), rates);
+
+        assertSame(InterestRates.NONE, InterestRates.of(0, 0));
+        assertEquals(InterestRates.of(-0.0, 0.1).hashCode(), InterestRates.of(0, 0.1).hashCode());
+        assertThrows(NumericValueInvalidException.class, () -> InterestRates.of(1.5, 0));
+        assertThrows(NumericValueInvalidException.class, () -> rates.withOutgoing(-0.1));
+    }
+
     @Disabled("Disabled due to whitespace / newline bug related to os")
     @Test
     public void stringTest() throws NumericValueInvalidException {
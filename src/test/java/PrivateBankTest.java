@@ -1,18 +1,35 @@
+import bank.CounterpartyFlow;
 import bank.IncomingTransfer;
+import bank.InterestRates;
+import bank.LedgerStorage;
+import bank.Money;
 import bank.OutgoingTransfer;
+import bank.Payment;
 import bank.PrivateBank;
+import bank.PrivateBankAlt;
+import bank.SearchHit;
 import bank.Transaction;
+import bank.TransactionQuery;
+import bank.Transfer;
 import bank.exceptions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -102,6 +119,106 @@ public class PrivateBankTest {
 
     }
 
+    @Test
+    public void addTransactionsTest() throws Exception {
+        // build the indexes before the batch is added
+        assertEquals(List.of(transactionsLisa.get(0), transactionsLisa.get(1)), bank.getTransactionsSorted("Lisa", true));
+        List<Transaction> batch = List.of(
+                new Payment("02.01.2019", "Einzahlung", 500, 0.1, 0.1),
+                new OutgoingTransfer("03.01.2019", "Einkauf", 100, "Lisa", "Rewe"),
+                new IncomingTransfer("04.01.2019", "Bonus", 300, "Chef", "Lisa"));
+        bank.addTransactions("Lisa", batch);
+
+        assertEquals(5, bank.getTransactions("Lisa").size());
+        assertEquals(1850, bank.getAccountBalance("Lisa"));
+        assertEquals(1550, bank.getAccountBalance("Lisa", "03.01.2019"));
+        assertEquals(List.of(transactionsLisa.get(0), batch.get(1), batch.get(2), batch.get(0), transactionsLisa.get(1)),
+                bank.getTransactionsSorted("Lisa", true));
+        Map<String, CounterpartyFlow> flows = bank.getCounterpartyFlows("Lisa");
+        assertEquals(Set.of("Frank", "Herr Mustermann", "Rewe", "Chef"), flows.keySet());
+        assertEquals(100, flows.get("Rewe").getOutgoing());
+        assertEquals(300, flows.get("Chef").getIncoming());
+
+        // nothing is added if a single transaction is invalid
+        Payment valid = new Payment("05.01.2019", "Zinsen", 10, 0.1, 0.1);
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.addTransactions("Lisa", List.of(valid, batch.get(1))));
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.addTransactions("Lisa", List.of(valid, new Payment(valid))));
+        assertThrows(TransactionAttributeException.class, () -> bank.addTransactions("Lisa",
+                List.of(valid, new OutgoingTransfer("05.01.2019", "Null", 0, "Lisa", "Hans"))));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.addTransactions("Hans", List.of(valid)));
+        assertFalse(bank.containsTransaction("Lisa", valid));
+        assertEquals(5, bank.getTransactions("Lisa").size());
+        assertEquals(1850, bank.getAccountBalance("Lisa"));
+
+        bank.addTransactions("Lisa", List.of());
+        assertEquals(5, bank.getTransactions("Lisa").size());
+    }
+
+    @Test
+    public void addTransactionsJournalTest() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        bank.setDirectoryName(directoryName);
+        bank.setJournaling(true);
+        try {
+            bank.writeAccount("Lisa");
+            List<Transaction> batch = new ArrayList<>();
+            for (int i = 1; i <= 9; i++) {
+                batch.add(new Payment("0" + i + ".02.2019", "Einzahlung " + i, 100 * i, 0.1, 0.1));
+            }
+            bank.addTransactions("Lisa", batch);
+            bank.writeAccount("Lisa");
+            assertTrue(new File("persist/" + directoryName + "/Konto_Lisa.journal").exists());
+
+            PrivateBank restored = new PrivateBank("Meine Bank", 0.2, 0.2);
+            restored.setDirectoryName(directoryName);
+            restored.readAccounts();
+            assertEquals(bank.getTransactions("Lisa"), restored.getTransactions("Lisa"));
+        } finally {
+            bank.deleteAccount("Lisa");
+            new File("persist/" + directoryName).delete();
+        }
+    }
+
+    @Test
+    public void transferTest() throws Exception {
+        bank.createAccount("Hans");
+        bank.transfer("Lisa", "Hans", "02.01.2019", "Rückzahlung", 300);
+
+        assertEquals(900, bank.getAccountBalance("Lisa"));
+        assertEquals(300, bank.getAccountBalance("Hans"));
+        assertTrue(bank.containsTransaction("Lisa", new OutgoingTransfer("02.01.2019", "Rückzahlung", 300, "Lisa", "Hans")));
+        assertEquals(List.of(new IncomingTransfer("02.01.2019", "Rückzahlung", 300, "Lisa", "Hans")), bank.getTransactions("Hans"));
+        assertEquals(300, bank.getCounterpartyFlows("Hans").get("Lisa").getIncoming());
+
+        // a failing transfer adds neither of its two transfers
+        bank.addTransaction("Hans", new IncomingTransfer("03.01.2019", "Miete", 50, "Lisa", "Hans"));
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.transfer("Lisa", "Hans", "03.01.2019", "Miete", 50));
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.transfer("Lisa", "Hans", "02.01.2019", "Rückzahlung", 300));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.transfer("Lisa", "Anna", "03.01.2019", "Geschenk", 50));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.transfer("Anna", "Lisa", "03.01.2019", "Geschenk", 50));
+        assertThrows(TransactionAttributeException.class, () -> bank.transfer("Lisa", "Lisa", "03.01.2019", "Umbuchung", 50));
+        assertThrows(TransactionAttributeException.class, () -> bank.transfer("Lisa", "Hans", "03.01.2019", "Nichts", 0));
+        assertThrows(NumericValueInvalidException.class, () -> bank.transfer("Lisa", "Hans", "03.01.2019", "Negativ", -50));
+        assertEquals(3, bank.getTransactions("Lisa").size());
+        assertEquals(2, bank.getTransactions("Hans").size());
+        assertEquals(900, bank.getAccountBalance("Lisa"));
+
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        bank.setDirectoryName(directoryName);
+        try {
+            bank.writeAccounts(List.of("Lisa", "Hans"));
+            PrivateBank restored = new PrivateBank("Meine Bank", 0.2, 0.2);
+            restored.setDirectoryName(directoryName);
+            restored.readAccounts();
+            assertEquals(bank.getTransactions("Lisa"), restored.getTransactions("Lisa"));
+            assertEquals(bank.getTransactions("Hans"), restored.getTransactions("Hans"));
+        } finally {
+            bank.deleteAccount("Lisa");
+            bank.deleteAccount("Hans");
+            new File("persist/" + directoryName).delete();
+        }
+    }
+
     @Test
     public void removeTransactionTest() throws AccountDoesNotExistException, TransactionDoesNotExistException {
         int size = bank.getTransactions("Lisa").size();
@@ -119,6 +236,26 @@ public class PrivateBankTest {
         );
     }
 
+    @Test
+    public void removeChangedToEqualTest() throws Exception {
+        Payment first = new Payment("02.01.2019", "Einzahlung", 100);
+        Payment second = new Payment("02.01.2019", "Einzahlung", 200);
+        bank.addTransaction("Lisa", first);
+        bank.addTransaction("Lisa", second);
+        int size = bank.getTransactions("Lisa").size();
+
+        // both payments are equal now, each of them can still be removed
+        second.setAmount(100);
+        assertTrue(bank.containsTransaction("Lisa", second));
+        bank.removeTransaction("Lisa", second);
+        assertTrue(bank.containsTransaction("Lisa", first));
+        bank.removeTransaction("Lisa", first);
+        assertFalse(bank.containsTransaction("Lisa", first));
+        assertEquals(size - 2, bank.getTransactions("Lisa").size());
+        assertEquals(1200, bank.getAccountBalance("Lisa"));
+        assertThrows(TransactionDoesNotExistException.class, () -> bank.removeTransaction("Lisa", first));
+    }
+
     @Test
     public void containsTransactionTest() throws  NumericValueInvalidException {
         assertTrue(bank.containsTransaction("Lisa", transactionsLisa.get(0)));
@@ -134,6 +271,162 @@ public class PrivateBankTest {
         );
     }
 
+    @Test
+    public void getAccountBalanceUpdateTest() throws Exception {
+        Payment payment = new Payment("03.01.2019", "Zinsen", 100, 0.1, 0.1);
+        bank.addTransaction("Lisa", payment);
+        assertEquals(1290, bank.getAccountBalance("Lisa"));
+
+        payment.setIncomingInterest(0.5);
+        assertEquals(1250, bank.getAccountBalance("Lisa"));
+        payment.setAmount(-100);
+        assertEquals(1090, bank.getAccountBalance("Lisa"));
+
+        payment.setDescription("Gebuehren");
+        assertTrue(bank.containsTransaction("Lisa", payment));
+        bank.removeTransaction("Lisa", payment);
+        assertEquals(1200, bank.getAccountBalance("Lisa"));
+
+        payment.setAmount(500);
+        assertEquals(1200, bank.getAccountBalance("Lisa"));
+    }
+
+    @Test
+    public void exactBalanceTest() throws Exception {
+        PrivateBank exact = new PrivateBank("Exakte Bank", 0, 0);
+        exact.createAccount("Cent");
+        for (int i = 0; i < 10; i++) {
+            exact.addTransaction("Cent", new Payment("01.01.2019", "Zehn Cent " + i, 0.1));
+        }
+        assertEquals(1.0, exact.getAccountBalance("Cent"));
+
+        exact.addTransaction("Cent", new OutgoingTransfer("02.01.2019", "Rest", 0.7, "Cent", "Frank"));
+        assertEquals(0.3, exact.getAccountBalance("Cent"));
+    }
+
+    @Test
+    public void getTransactionsBetweenTest() throws Exception {
+        Payment february = new Payment("01.02.2019", "Zinsen", 100);
+        Payment march = new Payment("01.03.2019", "Zinsen", 200);
+        bank.addTransaction("Lisa", february);
+        assertEquals(List.of(february), bank.getTransactionsBetween("Lisa", "02.01.2019", "28.02.2019"));
+        assertEquals(List.of(transactionsLisa.get(0), transactionsLisa.get(1), february), bank.getTransactionsBetween("Lisa", "01.01.2019", "01.02.2019"));
+
+        // added in date order, removed and changed while the index exists
+        bank.addTransaction("Lisa", march);
+        assertEquals(List.of(february, march), bank.getTransactionsBetween("Lisa", "01.02.2019", "31.12.2019"));
+        bank.removeTransaction("Lisa", february);
+        assertEquals(List.of(march), bank.getTransactionsBetween("Lisa", "01.02.2019", "31.12.2019"));
+        march.setDate("01.01.2018");
+        assertEquals(List.of(), bank.getTransactionsBetween("Lisa", "01.02.2019", "31.12.2019"));
+        assertEquals(List.of(march), bank.getTransactionsBetween("Lisa", "01.01.2018", "31.12.2018"));
+        march.setDate("2019-03-01");
+        assertFalse(bank.getTransactionsBetween("Lisa", "01.01.2018", "31.12.2019").contains(march));
+
+        assertThrows(TransactionAttributeException.class, () -> bank.getTransactionsBetween("Lisa", "01.01.2019", "31-12-2019"));
+        assertThrows(TransactionAttributeException.class, () -> bank.getTransactionsBetween("Lisa", "99.99.2019", "31.12.2019"));
+        assertThrows(TransactionAttributeException.class, () -> bank.getTransactionsBetween("Lisa", "01.01.2019", "31.02.2019"));
+        assertThrows(TransactionAttributeException.class, () -> bank.getAccountBalance("Lisa", "29.02.2019"));
+        assertEquals(List.of(), bank.getTransactionsBetween("Lisa", "29.02.2020", "29.02.2020"));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.getTransactionsBetween("Hans", "01.01.2019", "31.12.2019"));
+    }
+
+    @Test
+    public void getAccountBalanceAsOfTest() throws Exception {
+        // Lisa: -800 and +2000 on 01.01.2019
+        Payment february = new Payment("01.02.2019", "Zinsen", 100, 0.1, 0.1);
+        Payment march = new Payment("01.03.2019", "Gebuehren", -50);
+        bank.addTransaction("Lisa", february);
+        bank.addTransaction("Lisa", march);
+        bank.addTransaction("Lisa", new Payment("2019-04-01", "Bonus", 1000));
+        assertEquals(0, bank.getAccountBalance("Lisa", "31.12.2018"));
+        assertEquals(1200, bank.getAccountBalance("Lisa", "01.01.2019"));
+        assertEquals(1290, bank.getAccountBalance("Lisa", "28.02.2019"));
+        assertEquals(1240, bank.getAccountBalance("Lisa", "31.12.2019"));
+        assertEquals(2240, bank.getAccountBalance("Lisa"));
+
+        // changes after the index was built
+        february.setAmount(200);
+        assertEquals(1380, bank.getAccountBalance("Lisa", "28.02.2019"));
+        bank.removeTransaction("Lisa", march);
+        assertEquals(1380, bank.getAccountBalance("Lisa", "31.12.2019"));
+        february.setDate("01.01.2020");
+        assertEquals(1200, bank.getAccountBalance("Lisa", "31.12.2019"));
+        bank.addTransaction("Lisa", new Payment("01.06.2019", "Zinsen", 10));
+        assertEquals(1210, bank.getAccountBalance("Lisa", "31.12.2019"));
+        assertEquals(1390, bank.getAccountBalance("Lisa", "01.01.2020"));
+
+        assertThrows(TransactionAttributeException.class, () -> bank.getAccountBalance("Lisa", "2019"));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.getAccountBalance("Hans", "01.01.2019"));
+    }
+
+    @Test
+    public void getAccountBalanceAsOfRandomTest() throws Exception {
+        PrivateBank history = new PrivateBank("Zufall", 0, 0);
+        history.createAccount("Konto");
+        List<Payment> added = new ArrayList<>();
+        Random generator = new Random(7);
+        for (int i = 0; i < 3000; i++) {
+            int operation = generator.nextInt(10);
+            if (operation < 2 && !added.isEmpty()) {
+                history.removeTransaction("Konto", added.remove(generator.nextInt(added.size())));
+            } else if (operation < 3 && !added.isEmpty()) {
+                added.get(generator.nextInt(added.size())).setAmount(1 + generator.nextInt(100));
+            } else if (operation < 4 && !added.isEmpty()) {
+                added.get(generator.nextInt(added.size())).setDate(String.format("%02d.01.2019", 1 + generator.nextInt(28)));
+            } else {
+                // mostly in date order
+                int day = Math.min(28, 1 + i / 120 + generator.nextInt(3));
+                Payment payment = new Payment(String.format("%02d.01.2019", day), "P" + i, generator.nextInt(200) - 99.5);
+                history.addTransaction("Konto", payment);
+                added.add(payment);
+            }
+            if (i % 100 == 0) {
+                int day = 1 + generator.nextInt(28);
+                long expected = 0;
+                for (Payment payment : added) {
+                    if (payment.getDay() <= 20190100 + day) {
+                        expected += payment.calculateUnits();
+                    }
+                }
+                assertEquals(Money.toDouble(expected), history.getAccountBalance("Konto", String.format("%02d.01.2019", day)));
+            }
+        }
+    }
+
+    @Test
+    public void getAccountBalanceAsOfBackdatedTest() throws Exception {
+        PrivateBank history = new PrivateBank("Import", 0, 0);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            transactions.add(new Payment(String.format("%02d.%02d.2020", 1 + i % 28, 1 + i / 20_000), "P" + i, 1));
+        }
+        history.createAccount("Konto", transactions);
+
+        // the first query builds the date index
+        long start = System.nanoTime();
+        assertEquals(200_000, history.getAccountBalance("Konto", "31.12.2020"));
+        long build = System.nanoTime() - start;
+
+        // backdated transactions, moved dates and removals between queries only update the index
+        start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            Payment payment = new Payment("01.01.2019", "Korrektur " + i, 1);
+            history.addTransaction("Konto", payment);
+            assertEquals(i + 1, history.getAccountBalance("Konto", "31.12.2019"));
+            payment.setDate("02.01.2019");
+            assertEquals(i + 1, history.getAccountBalance("Konto", "31.12.2019"));
+        }
+        for (int i = 0; i < 1000; i++) {
+            history.removeTransaction("Konto", transactions.get(i));
+            assertEquals(200_999 - i, history.getAccountBalance("Konto", "31.12.2020"));
+        }
+        long updates = System.nanoTime() - start;
+        // rebuilding the index for each of the 3000 queries would take about 3000 builds
+        assertTrue(updates < 100 * build, "3000 queries after changes took " + updates / build + " builds");
+        assertEquals(1000, history.getTransactionsBetween("Konto", "01.01.2019", "31.12.2019").size());
+    }
+
     @Test
     void getTransactionsTest() throws NumericValueInvalidException, TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException {
         assertEquals(transactionsLisa, bank.getTransactions("Lisa"));
@@ -157,6 +450,36 @@ public class PrivateBankTest {
         assertNotEquals(sortedResultAsc, sortedResultDesc);
     }
 
+    @Test
+    public void getTransactionsSortedIndexTest() throws Exception {
+        PrivateBank sortedBank = new PrivateBank("Sortiert", 0, 0);
+        sortedBank.createAccount("Konto");
+        List<Payment> added = new ArrayList<>();
+        Random generator = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            int operation = generator.nextInt(10);
+            if (operation < 2 && !added.isEmpty()) {
+                sortedBank.removeTransaction("Konto", added.remove(generator.nextInt(added.size())));
+            } else if (operation < 3 && !added.isEmpty()) {
+                added.get(generator.nextInt(added.size())).setAmount(generator.nextInt(20) - 10.5);
+            } else {
+                // few distinct amounts, so many transactions share one
+                Payment payment = new Payment("01.01.2019", "P" + i, generator.nextInt(20) - 10.5);
+                sortedBank.addTransaction("Konto", payment);
+                added.add(payment);
+            }
+            if (i % 100 == 0) {
+                List<Transaction> ascending = sortedBank.getTransactions("Konto");
+                ascending.sort(Comparator.comparingLong(Transaction::calculateUnits));
+                List<Transaction> descending = sortedBank.getTransactions("Konto");
+                descending.sort(Comparator.comparingLong(Transaction::calculateUnits).reversed());
+                assertEquals(ascending, sortedBank.getTransactionsSorted("Konto", true));
+                assertEquals(descending, sortedBank.getTransactionsSorted("Konto", false));
+            }
+        }
+        assertNull(sortedBank.getTransactionsSorted("Hans", true));
+    }
+
     @Test
     void getTransactionsByType() {
         List<Transaction> positiveResult = bank.getTransactionsByType("Lisa", true);
@@ -168,6 +491,322 @@ public class PrivateBankTest {
         assertEquals(transactionsLisa.get(0), negativeResult.get(0));
     }
 
+    @Test
+    public void pagedQueriesTest() throws Exception {
+        PrivateBank pagedBank = new PrivateBank("Seiten", 0, 0);
+        pagedBank.createAccount("Konto");
+        Random generator = new Random(5);
+        for (int i = 0; i < 500; i++) {
+            pagedBank.addTransaction("Konto", new Payment("01.01.2019", "P" + i, generator.nextInt(40) - 20.5));
+        }
+        List<Transaction> ascending = pagedBank.getTransactions("Konto");
+        ascending.sort(Comparator.comparingLong(Transaction::calculateUnits));
+        List<Transaction> descending = pagedBank.getTransactions("Konto");
+        descending.sort(Comparator.comparingLong(Transaction::calculateUnits).reversed());
+
+        // selected with a heap before the first sorted query builds the index, and from the index after it
+        assertEquals(descending.subList(0, 20), pagedBank.topK("Konto", 20, false));
+        assertEquals(ascending.subList(0, 20), pagedBank.topK("Konto", 20, true));
+        assertEquals(ascending.subList(0, 20), pagedBank.getTransactionsSorted("Konto", true, 0, 20));
+        assertEquals(descending.subList(0, 20), pagedBank.topK("Konto", 20, false));
+        assertEquals(ascending, pagedBank.topK("Konto", 1000, true));
+        assertTrue(pagedBank.topK("Konto", 0, true).isEmpty());
+
+        for (int offset = 0; offset < 520; offset += 37) {
+            int end = Math.min(offset + 37, 500);
+            List<Transaction> positive = pagedBank.getTransactionsByType("Konto", true);
+            List<Transaction> negative = pagedBank.getTransactionsByType("Konto", false);
+            assertEquals(offset < 500 ? ascending.subList(offset, end) : List.of(), pagedBank.getTransactionsSorted("Konto", true, offset, 37));
+            assertEquals(offset < 500 ? descending.subList(offset, end) : List.of(), pagedBank.getTransactionsSorted("Konto", false, offset, 37));
+            assertEquals(positive.subList(Math.min(offset, positive.size()), Math.min(offset + 37, positive.size())),
+                    pagedBank.getTransactionsByType("Konto", true, offset, 37));
+            assertEquals(negative.subList(Math.min(offset, negative.size()), Math.min(offset + 37, negative.size())),
+                    pagedBank.getTransactionsByType("Konto", false, offset, 37));
+        }
+        assertEquals(descending.subList(480, 500), pagedBank.getTransactionsSorted("Konto", false, 480, Integer.MAX_VALUE));
+
+        assertThrows(IllegalArgumentException.class, () -> pagedBank.getTransactionsSorted("Konto", true, -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> pagedBank.getTransactionsByType("Konto", true, 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> pagedBank.topK("Konto", -1, true));
+        assertNull(pagedBank.getTransactionsSorted("Hans", true, 0, 10));
+        assertNull(pagedBank.getTransactionsByType("Hans", true, 0, 10));
+        assertNull(pagedBank.topK("Hans", 10, true));
+    }
+
+    @Test
+    public void streamTransactionsTest() throws Exception {
+        PrivateBank streamBank = new PrivateBank("Ströme", 0.1, 0.2);
+        streamBank.createAccount("Konto");
+        Random generator = new Random(3);
+        String[] parties = {"Lisa", "Frank", "Anna"};
+        for (int i = 0; i < 1000; i++) {
+            // mostly in date order, a few earlier ones and a few with an unknown date
+            String date = i % 97 == 0 ? "2019-03-01" : String.format("%02d.%02d.2019", 1 + generator.nextInt(28), 1 + Math.min(11, i / 90 + generator.nextInt(2)));
+            double amount = 1 + generator.nextInt(500);
+            String party = parties[generator.nextInt(parties.length)];
+            streamBank.addTransaction("Konto", switch (generator.nextInt(3)) {
+                case 0 -> new Payment(date, "P" + i, generator.nextBoolean() ? amount : -amount);
+                case 1 -> new IncomingTransfer(date, "I" + i, amount, party, "Konto");
+                default -> new OutgoingTransfer(date, "O" + i, amount, "Konto", party);
+            });
+        }
+
+        // in the order of the account
+        for (TransactionQuery query : List.of(TransactionQuery.all(), TransactionQuery.all().positive(),
+                TransactionQuery.all().negative().amountBetween(-300, 100), TransactionQuery.all().counterparty("Anna"))) {
+            List<Transaction> expected = streamBank.getTransactions("Konto").stream().filter(query).toList();
+            assertEquals(expected, streamBank.streamTransactions("Konto", query).toList());
+            assertEquals(expected, streamBank.streamTransactions("Konto", query).parallel().toList());
+        }
+        // by date
+        for (TransactionQuery query : List.of(TransactionQuery.all().dateBetween("01.03.2019", "31.05.2019"),
+                TransactionQuery.all().dateBetween("01.01.2019", "30.06.2019").counterparty("Frank").negative())) {
+            List<Transaction> expected = new ArrayList<>(streamBank.getTransactions("Konto").stream().filter(query).toList());
+            expected.sort(Comparator.comparingInt(Transaction::getDay));
+            assertEquals(expected, streamBank.streamTransactions("Konto", query).toList());
+            assertEquals(expected, streamBank.streamTransactions("Konto", query).parallel().toList());
+        }
+        assertEquals(streamBank.getTransactionsByType("Konto", false), streamBank.streamTransactions("Konto", TransactionQuery.all().negative()).toList());
+        assertEquals(streamBank.getTransactionsBetween("Konto", "01.02.2019", "28.02.2019"),
+                streamBank.streamTransactions("Konto", TransactionQuery.all().dateBetween("01.02.2019", "28.02.2019")).toList());
+        assertTrue(streamBank.streamTransactions("Konto", TransactionQuery.all().counterparty("Lisa").counterparty("Frank")).findAny().isEmpty());
+
+        // the account is only read when the stream is consumed
+        Payment late = new Payment("01.01.2020", "Nachzahlung", 100000);
+        var stream = streamBank.streamTransactions("Konto", TransactionQuery.all().amountBetween(100000, 100000));
+        streamBank.addTransaction("Konto", late);
+        assertEquals(List.of(late), stream.toList());
+
+        assertThrows(AccountDoesNotExistException.class, () -> streamBank.streamTransactions("Hans", TransactionQuery.all()));
+        assertThrows(TransactionAttributeException.class, () -> TransactionQuery.all().dateBetween("2019-01-01", "31.12.2019"));
+    }
+
+    @Test
+    public void counterpartyFlowsTest() throws Exception {
+        Map<String, CounterpartyFlow> flows = bank.getCounterpartyFlows("Lisa");
+        assertEquals(Set.of("Frank", "Herr Mustermann"), flows.keySet());
+        assertEquals(800, flows.get("Frank").getOutgoing());
+        assertEquals(-800, flows.get("Frank").getNet());
+        assertEquals(2000, flows.get("Herr Mustermann").getIncoming());
+        assertEquals(List.of("Herr Mustermann", "Frank"), bank.getTopCounterparties("Lisa", 5).stream().map(CounterpartyFlow::getCounterparty).toList());
+
+        PrivateBank flowBank = new PrivateBank("Flüsse", 0.1, 0.2);
+        flowBank.createAccount("Konto");
+        Random generator = new Random(5);
+        String[] parties = {"Lisa", "Frank", "Anna", "Bernd", "Rewe"};
+        List<Transfer> transfers = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String party = parties[generator.nextInt(parties.length)];
+            Transfer transfer = generator.nextBoolean()
+                    ? new IncomingTransfer("01.01.2019", "I" + i, 1 + generator.nextInt(500), party, "Konto")
+                    : new OutgoingTransfer("01.01.2019", "O" + i, 1 + generator.nextInt(500), "Konto", party);
+            flowBank.addTransaction("Konto", transfer);
+            flowBank.addTransaction("Konto", new Payment("01.01.2019", "P" + i, 10));
+            transfers.add(transfer);
+        }
+        // builds the index, which the following changes have to keep up to date
+        assertEquals(parties.length, flowBank.getCounterpartyFlows("Konto").size());
+        for (int i = 0; i < 100; i++) {
+            Transfer transfer = transfers.get(generator.nextInt(transfers.size()));
+            switch (i % 4) {
+                case 0 -> transfer.setAmount(1 + generator.nextInt(500));
+                case 1 -> flowBank.removeTransaction("Konto", transfers.remove(transfers.indexOf(transfer)));
+                case 2 -> {
+                    transfer.setSender("Neu" + i % 3);
+                    transfer.setRecipient("Neu" + i % 3);
+                }
+                default -> flowBank.addTransaction("Konto", new IncomingTransfer("02.01.2019", "N" + i, 1 + generator.nextInt(500), "Neu" + i % 3, "Konto"));
+            }
+        }
+        // a transfer changed back to its old counterparty
+        Transfer changed = transfers.get(0);
+        String old = changed.getCounterparty();
+        changed.setSender("Zwischendurch");
+        changed.setRecipient("Zwischendurch");
+        changed.setSender(old);
+        changed.setRecipient(old);
+
+        PrivateBank rebuilt = new PrivateBank("Neu", 0.1, 0.2);
+        rebuilt.createAccount("Konto", flowBank.getTransactions("Konto"));
+        Map<String, CounterpartyFlow> expected = rebuilt.getCounterpartyFlows("Konto");
+        assertEquals(expected, flowBank.getCounterpartyFlows("Konto"));
+        assertEquals(transfers.size() + 25, expected.values().stream().mapToInt(CounterpartyFlow::getTransfers).sum());
+
+        List<Double> volumes = expected.values().stream().map(CounterpartyFlow::getVolume).sorted(Comparator.reverseOrder()).toList();
+        assertEquals(volumes.subList(0, 3), flowBank.getTopCounterparties("Konto", 3).stream().map(CounterpartyFlow::getVolume).toList());
+        assertEquals(expected.size(), flowBank.getTopCounterparties("Konto", 100).size());
+        assertTrue(flowBank.getTopCounterparties("Konto", 0).isEmpty());
+        for (String party : expected.keySet()) {
+            TransactionQuery query = TransactionQuery.all().counterparty(party);
+            assertEquals(flowBank.getTransactions("Konto").stream().filter(query).toList(), flowBank.streamTransactions("Konto", query).toList());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> flowBank.getTopCounterparties("Konto", -1));
+        assertThrows(AccountDoesNotExistException.class, () -> flowBank.getCounterpartyFlows("Hans"));
+        assertThrows(AccountDoesNotExistException.class, () -> flowBank.getTopCounterparties("Hans", 1));
+    }
+
+    @Test
+    public void searchTransactionsTest() throws Exception {
+        List<Transaction> lisa = bank.getTransactions("Lisa");
+        assertEquals(List.of(lisa.get(0)), hits(bank.searchTransactions("miete", 10)));
+        assertEquals(List.of(lisa.get(1)), hits(bank.searchTransactions("GEH muster", 10)));
+        assertEquals(List.of(lisa.get(0)), hits(bank.searchTransactions("Frank", 10)));
+        assertTrue(bank.searchTransactions("miete gehalt", 10).isEmpty());
+        assertTrue(bank.searchTransactions(" - ", 10).isEmpty());
+        assertTrue(bank.searchTransactions("miete", 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> bank.searchTransactions("miete", -1));
+
+        // whole words rank before words only starting with the searched one
+        Payment whole = new Payment("02.01.2019", "Rechnung RE-2019/0042", -50);
+        Payment prefixed = new Payment("02.01.2019", "Rechnung RE-2019/00421", -60);
+        bank.createAccount("Hans", List.of(prefixed, whole));
+        assertEquals(List.of(whole, prefixed), hits(bank.searchTransactions("rechnung 0042", 10)));
+        assertEquals("Hans", bank.searchTransactions("0042", 1).get(0).getAccount());
+        assertTrue(bank.searchTransactions("0042", 1).get(0).getScore() > bank.searchTransactions("0042", 2).get(1).getScore());
+
+        // the index follows the changes of the bank and of its transactions
+        Payment refund = new Payment("03.01.2019", "Erstattung", 20);
+        bank.addTransaction("Lisa", refund);
+        assertEquals(List.of(refund), hits(bank.searchTransactions("erst", 10)));
+        refund.setDescription("Gutschrift");
+        assertTrue(bank.searchTransactions("erst", 10).isEmpty());
+        assertEquals(List.of(refund), hits(bank.searchTransactions("gutschrift", 10)));
+        bank.removeTransaction("Lisa", new Payment("03.01.2019", "Gutschrift", 20));
+        assertTrue(bank.searchTransactions("gutschrift", 10).isEmpty());
+        refund.setDescription("Erstattung");
+        assertTrue(bank.searchTransactions("erst", 10).isEmpty());
+
+        // removing most transactions renumbers the rest
+        for (int i = 0; i < 100; i++) {
+            bank.addTransaction("Lisa", new Payment("04.01.2019", "Abo " + i, -5));
+        }
+        assertEquals(10, bank.searchTransactions("abo", 10).size());
+        for (int i = 0; i < 100; i++) {
+            bank.removeTransaction("Lisa", new Payment("04.01.2019", "Abo " + i, -5));
+        }
+        assertTrue(bank.searchTransactions("abo", 10).isEmpty());
+        assertEquals(List.of(lisa.get(0)), hits(bank.searchTransactions("miete", 10)));
+        assertEquals(List.of(whole, prefixed), hits(bank.searchTransactions("rechnung 0042", 10)));
+
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        bank.setDirectoryName(directoryName);
+        bank.writeAccount("Hans");
+        try {
+            bank.deleteAccount("Hans");
+            assertTrue(bank.searchTransactions("rechnung", 10).isEmpty());
+        } finally {
+            new File("persist/" + directoryName).delete();
+        }
+    }
+
+    @Test
+    public void searchTransactionsSameAsScanTest() throws Exception {
+        PrivateBank indexed = new PrivateBank("Index", 0.1, 0.2);
+        PrivateBankAlt scanned = new PrivateBankAlt("Scan", 0.1, 0.2);
+        Random generator = new Random(11);
+        String[] words = {"Miete", "Mietnebenkosten", "Gehalt", "Rechnung", "Strom", "Stromzähler", "Bonus"};
+        String[] parties = {"Lisa", "Frank", "Anna", "Stadtwerke"};
+        List<Payment> payments = new ArrayList<>();
+        for (int account = 0; account < 5; account++) {
+            indexed.createAccount("Konto" + account);
+            scanned.createAccount("Konto" + account, List.of());
+            // the first searches build the index, so most changes below update it
+            if (account == 2) {
+                indexed.searchTransactions("miete", 1);
+            }
+            for (int i = 0; i < 200; i++) {
+                String description = words[generator.nextInt(words.length)] + " " + words[generator.nextInt(words.length)] + " RE-" + generator.nextInt(50);
+                double amount = 1 + generator.nextInt(100);
+                String party = parties[generator.nextInt(parties.length)];
+                Transaction transaction = switch (generator.nextInt(3)) {
+                    case 0 -> new Payment("01.01.2019", description, amount);
+                    case 1 -> new IncomingTransfer("01.01.2019", description, amount, party, "Konto" + account);
+                    default -> new OutgoingTransfer("01.01.2019", description, amount, "Konto" + account, party);
+                };
+                if (!indexed.containsTransaction("Konto" + account, transaction)) {
+                    indexed.addTransaction("Konto" + account, transaction);
+                    scanned.addTransaction("Konto" + account, transaction);
+                    if (transaction instanceof Payment payment) {
+                        payments.add(payment);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < 40; i++) {
+            Payment payment = payments.remove(generator.nextInt(payments.size()));
+            String account = indexed.getAllAccounts().stream().filter(name -> indexed.containsTransaction(name, payment)).findFirst().orElseThrow();
+            if (i % 2 == 0) {
+                indexed.removeTransaction(account, payment);
+                scanned.removeTransaction(account, payment);
+            } else {
+                payment.setDescription("Strom RE-" + i);
+            }
+        }
+
+        for (String text : List.of("miete", "miet", "strom re-3", "Lisa", "bonus GEHALT", "re 4", "s", "unbekannt")) {
+            List<SearchHit> expected = scanned.searchTransactions(text, 10000);
+            List<SearchHit> actual = indexed.searchTransactions(text, 10000);
+            assertEquals(Set.copyOf(expected), Set.copyOf(actual));
+            assertEquals(expected.stream().map(SearchHit::getScore).toList(), actual.stream().map(SearchHit::getScore).toList());
+            assertEquals(actual.subList(0, Math.min(5, actual.size())).stream().map(SearchHit::getScore).toList(),
+                    indexed.searchTransactions(text, 5).stream().map(SearchHit::getScore).toList());
+        }
+    }
+
+    private static List<Transaction> hits(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::getTransaction).toList();
+    }
+
+    @Test
+    public void rerateTest() throws Exception {
+        Payment deposit = new Payment("02.01.2019", "Einzahlung", 1000, 0.2, 0.2);
+        Payment withdrawal = new Payment("03.01.2019", "Auszahlung", -500, bank.getInterestRates());
+        Payment own = new Payment("04.01.2019", "Einzahlung", 1000, 0.15, 0.15);
+        Payment shared = new Payment("05.01.2019", "Dauerauftrag", -100, 0.2, 0.2);
+        for (Payment payment : List.of(deposit, withdrawal, own, shared)) {
+            bank.addTransaction("Lisa", payment);
+        }
+        bank.createAccount("Hans", List.of(shared));
+        // payments with the rates of the bank share its rates object
+        assertSame(bank.getInterestRates(), deposit.getRates());
+        assertEquals(2130, bank.getAccountBalance("Lisa"));
+        assertEquals(1400, bank.getAccountBalance("Lisa", "03.01.2019"));
+        Transaction outgoing = transactionsLisa.get(0);
+        Transaction incoming = transactionsLisa.get(1);
+        assertEquals(List.of(outgoing, withdrawal, shared, deposit, own, incoming), bank.getTransactionsSorted("Lisa", true));
+        assertEquals(List.of(shared), bank.searchTransactions("dauerauftrag", 10).stream().filter(hit -> hit.getAccount().equals("Hans")).map(SearchHit::getTransaction).toList());
+
+        assertEquals(4, bank.rerate(0.1, 0.3));
+        assertEquals(InterestRates.of(0.1, 0.3), bank.getInterestRates());
+        assertEquals(0.1, bank.getIncomingInterest());
+        assertSame(bank.getInterestRates(), deposit.getRates());
+        assertSame(bank.getInterestRates(), shared.getRates());
+        assertEquals(InterestRates.of(0.15, 0.15), own.getRates());
+        assertEquals(2170, bank.getAccountBalance("Lisa"));
+        assertEquals(-130, bank.getAccountBalance("Hans"));
+        assertEquals(1450, bank.getAccountBalance("Lisa", "03.01.2019"));
+        assertEquals(List.of(outgoing, withdrawal, shared, own, deposit, incoming), bank.getTransactionsSorted("Lisa", true));
+        assertEquals(List.of(incoming, deposit), bank.topK("Lisa", 2, false));
+        assertTrue(bank.containsTransaction("Lisa", new Payment("02.01.2019", "Einzahlung", 1000, 0.1, 0.3)));
+        assertFalse(bank.containsTransaction("Lisa", new Payment("02.01.2019", "Einzahlung", 1000, 0.2, 0.2)));
+        assertEquals(List.of(shared), bank.searchTransactions("dauerauftrag", 10).stream().filter(hit -> hit.getAccount().equals("Hans")).map(SearchHit::getTransaction).toList());
+
+        // the ledgers still follow later changes of the re-rated payments
+        deposit.setAmount(2000);
+        assertEquals(3070, bank.getAccountBalance("Lisa"));
+        bank.removeTransaction("Lisa", withdrawal);
+        assertEquals(3720, bank.getAccountBalance("Lisa"));
+
+        assertEquals(0, bank.rerate(0.1, 0.3));
+        assertThrows(NumericValueInvalidException.class, () -> bank.rerate(0.1, 1.5));
+        assertEquals(InterestRates.of(0.1, 0.3), bank.getInterestRates());
+        // changing a single interest of the bank does not re-rate the payments
+        bank.setIncomingInterest(0.2);
+        assertEquals(3720, bank.getAccountBalance("Lisa"));
+        assertEquals(0, bank.rerate(0.2, 0.3));
+    }
+
     @Test
     public void WriteReadTest() throws IOException {
         bank.setDirectoryName("fixtures");
@@ -182,6 +821,237 @@ public class PrivateBankTest {
     }
 
 
+    @Test
+    public void journalTest() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        bank.setDirectoryName(directoryName);
+        bank.setJournaling(true);
+        bank.setCompactionThreshold(3);
+        File snapshot = new File("persist/" + directoryName + "/Konto_Lisa.json");
+        File journal = new File("persist/" + directoryName + "/Konto_Lisa.journal");
+
+        try {
+            bank.writeAccount("Lisa");
+            assertTrue(snapshot.exists());
+            assertFalse(journal.exists());
+
+            Payment payment = new Payment("02.01.2019", "Zinsen", 100, 0.1, 0.1);
+            bank.addTransaction("Lisa", payment);
+            bank.writeAccount("Lisa");
+            bank.removeTransaction("Lisa", transactionsLisa.get(0));
+            bank.writeAccount("Lisa");
+            assertTrue(journal.exists());
+
+            PrivateBank restored = new PrivateBank("Meine Bank", 0.2, 0.2);
+            restored.setDirectoryName(directoryName);
+            restored.readAccounts();
+            assertEquals(bank.getTransactions("Lisa"), restored.getTransactions("Lisa"));
+            assertEquals(bank.getAccountBalance("Lisa"), restored.getAccountBalance("Lisa"));
+
+            // the fourth entry exceeds the threshold and folds the journal into the snapshot
+            bank.addTransaction("Lisa", new IncomingTransfer("03.01.2019", "Bonus", 50, "Chef", "Lisa"));
+            bank.addTransaction("Lisa", new IncomingTransfer("04.01.2019", "Bonus", 50, "Chef", "Lisa"));
+            bank.writeAccount("Lisa");
+            assertFalse(journal.exists());
+
+            restored = new PrivateBank("Meine Bank", 0.2, 0.2);
+            restored.setDirectoryName(directoryName);
+            restored.readAccounts();
+            assertEquals(bank.getTransactions("Lisa"), restored.getTransactions("Lisa"));
+        } finally {
+            bank.deleteAccount("Lisa");
+            new File("persist/" + directoryName).delete();
+        }
+    }
+
+    @Test
+    public void journalRecordsCopyTest() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        bank.setDirectoryName(directoryName);
+        bank.setJournaling(true);
+        Payment payment = new Payment("02.01.2019", "Einkauf", -100);
+        bank.addTransaction("Lisa", payment);
+
+        try {
+            bank.writeAccount("Lisa");
+            // the removal is recorded with the amount at the time of the removal
+            bank.removeTransaction("Lisa", payment);
+            payment.setAmount(-200);
+            bank.addTransaction("Lisa", payment);
+            bank.writeAccount("Lisa");
+
+            PrivateBank restored = new PrivateBank("Meine Bank", 0.2, 0.2);
+            restored.setDirectoryName(directoryName);
+            restored.readAccounts();
+            assertEquals(3, restored.getTransactions("Lisa").size());
+            assertEquals(bank.getTransactions("Lisa"), restored.getTransactions("Lisa"));
+            assertEquals(bank.getAccountBalance("Lisa"), restored.getAccountBalance("Lisa"));
+        } finally {
+            bank.deleteAccount("Lisa");
+            new File("persist/" + directoryName).delete();
+        }
+    }
+
+    @Test
+    public void writeBehindTest() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        File file = new File("persist/" + directoryName + "/Konto_Lisa.json");
+        AtomicInteger writes = new AtomicInteger();
+        bank.setDirectoryName(directoryName);
+        bank.setStorage(new LedgerStorage() {
+            @Override
+            public String extension() {
+                return LedgerStorage.json().extension();
+            }
+
+            @Override
+            public void write(Iterable<Transaction> transactions, OutputStream out) throws IOException {
+                writes.incrementAndGet();
+                LedgerStorage.json().write(transactions, out);
+            }
+
+            @Override
+            public List<Transaction> read(InputStream in) throws IOException {
+                return LedgerStorage.json().read(in);
+            }
+        });
+        assertThrows(NumericValueInvalidException.class, () -> bank.setWriteDelay(-1));
+        bank.setWriteDelay(60_000);
+
+        try {
+            // the writes requested while the account waits are coalesced into one
+            for (int i = 0; i < 100; i++) {
+                bank.addTransaction("Lisa", new Payment("02.01.2019", "Zinsen " + i, 10));
+                bank.writeAccount("Lisa");
+            }
+            assertThrows(IOException.class, () -> bank.writeAccount("Hans"));
+            assertFalse(file.exists());
+            bank.flush();
+            assertEquals(1, writes.get());
+
+            PrivateBank restored = new PrivateBank("Meine Bank", 0.2, 0.2);
+            restored.setDirectoryName(directoryName);
+            restored.readAccounts();
+            assertEquals(bank.getTransactions("Lisa"), restored.getTransactions("Lisa"));
+
+            // a short delay writes the account without a flush
+            bank.setWriteDelay(20);
+            bank.addTransaction("Lisa", new IncomingTransfer("03.01.2019", "Bonus", 50, "Chef", "Lisa"));
+            bank.writeAccount("Lisa");
+            for (int i = 0; i < 500 && writes.get() < 2; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, writes.get());
+
+            bank.setWriteDelay(60_000);
+            bank.removeTransaction("Lisa", transactionsLisa.get(0));
+            bank.writeAccount("Lisa");
+            bank.close();
+            assertEquals(3, writes.get());
+            assertEquals(0, bank.getWriteDelay());
+            restored = new PrivateBank("Meine Bank", 0.2, 0.2);
+            restored.setDirectoryName(directoryName);
+            restored.readAccounts();
+            assertEquals(bank.getTransactions("Lisa"), restored.getTransactions("Lisa"));
+
+            // the files of a deleted account are deleted by the background thread
+            bank.setWriteDelay(60_000);
+            bank.deleteAccount("Lisa");
+            assertFalse(bank.getAllAccounts().contains("Lisa"));
+            assertTrue(file.exists());
+            bank.flush();
+            assertFalse(file.exists());
+        } finally {
+            bank.close();
+            file.delete();
+            file.getParentFile().delete();
+        }
+    }
+
+    @Test
+    public void atomicWriteTest() throws Exception {
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        File directory = new File("persist/" + directoryName);
+        File file = new File(directory, "Konto_Lisa.json");
+        File stray = new File(directory, "Konto_Lisa.json.tmp");
+        bank.setDirectoryName(directoryName);
+        bank.createAccount("Frank", List.of(new IncomingTransfer("01.01.2019", "Miete", 800, "Lisa", "Frank")));
+
+        try {
+            bank.writeAccounts(List.of("Lisa", "Frank"));
+            assertEquals(Set.of("Konto_Lisa.json", "Konto_Frank.json"), Set.of(directory.list()));
+            String written = Files.readString(file.toPath());
+
+            // a failed write leaves the account file as it was
+            bank.setStorage(new LedgerStorage() {
+                @Override
+                public String extension() {
+                    return LedgerStorage.json().extension();
+                }
+
+                @Override
+                public void write(Iterable<Transaction> transactions, OutputStream out) throws IOException {
+                    out.write("[{".getBytes());
+                    throw new IOException("Disk full");
+                }
+
+                @Override
+                public List<Transaction> read(InputStream in) throws IOException {
+                    return LedgerStorage.json().read(in);
+                }
+            });
+            bank.addTransaction("Lisa", new Payment("02.01.2019", "Zinsen", 100));
+            assertThrows(IOException.class, () -> bank.writeAccount("Lisa"));
+            assertEquals(written, Files.readString(file.toPath()));
+            assertFalse(stray.exists());
+
+            // the temporary file of a write interrupted by a crash is discarded
+            Files.writeString(stray.toPath(), "[{\"INSTANCE\": {");
+            PrivateBank restored = new PrivateBank("Meine Bank", 0.2, 0.2);
+            restored.setDirectoryName(directoryName);
+            restored.readAccounts();
+            assertFalse(stray.exists());
+            assertEquals(transactionsLisa, restored.getTransactions("Lisa"));
+            assertEquals(bank.getTransactions("Frank"), restored.getTransactions("Frank"));
+        } finally {
+            for (File entry : directory.listFiles()) {
+                entry.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void readAccountsParallelTest() throws Exception {
+        PrivateBank sequential = new PrivateBank("Meine Bank", 0.2, 0.2);
+        sequential.setDirectoryName("fixtures");
+        sequential.readAccounts();
+        PrivateBank parallel = new PrivateBank("Meine Bank", 0.2, 0.2);
+        parallel.setDirectoryName("fixtures");
+
+        assertTrue(parallel.readAccountsParallel(4).isEmpty());
+        assertEquals(sequential, parallel);
+
+        String directoryName = "test_Prak" + UUID.randomUUID();
+        File broken = new File("persist/" + directoryName + "/Konto_Broken.json");
+        bank.setDirectoryName(directoryName);
+        bank.writeAccount("Lisa");
+        Files.writeString(broken.toPath(), "[{\"INSTANCE\": {");
+        try {
+            PrivateBank restored = new PrivateBank("Meine Bank", 0.2, 0.2);
+            restored.setDirectoryName(directoryName);
+            Map<String, Exception> errors = restored.readAccountsParallel(2);
+
+            assertEquals(Set.of("Konto_Broken.json"), errors.keySet());
+            assertEquals(List.of("Lisa"), restored.getAllAccounts());
+            assertEquals(transactionsLisa, restored.getTransactions("Lisa"));
+        } finally {
+            bank.deleteAccount("Lisa");
+            broken.delete();
+            broken.getParentFile().delete();
+        }
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"Anna", "Frank"})
     public void paramterizedTest(String pName){
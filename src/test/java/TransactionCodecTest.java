@@ -0,0 +1,56 @@
+import bank.*;
+import bank.exceptions.NumericValueInvalidException;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionCodecTest {
+
+    @Test
+    public void roundTripTest() throws NumericValueInvalidException, IOException {
+        List<Transaction> transactions = List.of(
+                new Payment("01.01.2019", "Miete", -500, 0.1, 0.2),
+                new IncomingTransfer("01.01.2019", "Gehalt", 2000, "Herr Mustermann", "Hans"),
+                new OutgoingTransfer("01.01.2019", "Einkauf", 200, "Hans", "Rewe"));
+
+        for (TransactionCodec codec : List.of(TransactionCodec.pretty(), TransactionCodec.compact())) {
+            for (Transaction transaction : transactions) {
+                Transaction copy = codec.fromJson(codec.toJson(transaction));
+                assertEquals(transaction, copy);
+                assertEquals(transaction.getClass(), copy.getClass());
+            }
+
+            StringWriter writer = new StringWriter();
+            codec.writeAll(transactions, writer);
+            assertEquals(transactions, codec.readAll(new StringReader(writer.toString())));
+        }
+
+        String compact = TransactionCodec.compact().toJson(transactions.get(2));
+        assertEquals("{\"INSTANCE\":{\"sender\":\"Hans\",\"recipient\":\"Rewe\",\"date\":\"01.01.2019\",\"description\":\"Einkauf\",\"amount\":200.0},\"CLASSNAME\":\"OutgoingTransfer\"}", compact);
+    }
+
+    @Test
+    public void readPersistedFileTest() throws IOException {
+        try (Reader reader = new FileReader("persist/fixtures/Konto_Hans.json")) {
+            List<Transaction> transactions = TransactionCodec.compact().readAll(reader);
+            assertEquals(3, transactions.size());
+            assertInstanceOf(IncomingTransfer.class, transactions.get(0));
+            assertInstanceOf(OutgoingTransfer.class, transactions.get(1));
+            assertInstanceOf(Payment.class, transactions.get(2));
+        }
+    }
+
+    @Test
+    public void serializerTest() throws NumericValueInvalidException {
+        Payment payment = new Payment("01.01.2019", "Miete", -500, 0.1, 0.2);
+        String json = new JsonSerializerImpl<Transaction>().serialize(payment);
+        assertEquals(payment, new JsonDeserializerImpl<Transaction>().deserialize(json));
+    }
+}
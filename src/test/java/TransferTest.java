@@ -27,6 +27,7 @@ public class TransferTest {
         assertNotEquals(t1, t4);
         assertNotEquals(t3, t4);
         assertEquals(t4, t5);
+        assertEquals(t4.hashCode(), t5.hashCode());
     }
 
     @Test